@@ -0,0 +1,68 @@
+package org.example.XML;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Non-blocking facade over {@link X12_276_Parser}.
+ * <p>
+ * Like {@code X12_AsyncParser} in the 850 module, every operation runs under the in-flight byte
+ * admission of {@link X12_AdmissionExecutor} and returns a {@link CompletableFuture}, so parse,
+ * bind and serialize stages can be composed with {@code thenCompose} without tying up request
+ * threads. Serialize stages weigh the model's estimated size
+ * ({@link X12_ModelWalker#estimateBytes}), taken on the calling thread.
+ */
+public class X12_276_AsyncParser extends X12_AdmissionExecutor {
+
+    /**
+     * Create a facade with one worker per CPU, a queue of 1024 tasks, a 256 MB in-flight limit
+     * and queueing admission.
+     */
+    public X12_276_AsyncParser() {
+        this(Runtime.getRuntime().availableProcessors(), 1024, 256L * 1024 * 1024, AdmissionPolicy.QUEUE);
+    }
+
+    /**
+     * @param threads          number of worker threads
+     * @param queueCapacity    number of admitted tasks that may wait for a worker
+     * @param maxInFlightBytes input bytes that may be admitted at once
+     * @param admissionPolicy  what to do with work beyond the byte limit
+     */
+    public X12_276_AsyncParser(int threads, int queueCapacity, long maxInFlightBytes, AdmissionPolicy admissionPolicy) {
+        super(threads, queueCapacity, maxInFlightBytes, admissionPolicy, "x12-276-parser-");
+    }
+
+    /**
+     * Use a caller-supplied executor. It is not shut down by {@link #close()}.
+     */
+    public X12_276_AsyncParser(ExecutorService executor, long maxInFlightBytes, AdmissionPolicy admissionPolicy) {
+        super(executor, maxInFlightBytes, admissionPolicy);
+    }
+
+    public CompletableFuture<String> parseEDI(byte[] ediInput) {
+        return submit(ediInput.length, () -> X12_276_Parser.parseEDI(ediInput));
+    }
+
+    public CompletableFuture<X12_276_ClaimStatus> parseXML(String xml) {
+        return submit(xml.length(), () -> X12_276_Parser.parseXML(xml));
+    }
+
+    /**
+     * EDI -> XML -> {@link X12_276_ClaimStatus}, each stage admitted separately.
+     */
+    public CompletableFuture<X12_276_ClaimStatus> read(byte[] ediInput) {
+        return parseEDI(ediInput).thenCompose(this::parseXML);
+    }
+
+    public CompletableFuture<String> toJson(X12_276_ClaimStatus claimStatus) {
+        return submit(X12_ModelWalker.estimateBytes(claimStatus), () -> X12_276_Parser.toJson(claimStatus));
+    }
+
+    public CompletableFuture<String> toYaml(X12_276_ClaimStatus claimStatus) {
+        return submit(X12_ModelWalker.estimateBytes(claimStatus), () -> X12_276_Parser.toYaml(claimStatus));
+    }
+
+    public CompletableFuture<String> toEdi(X12_276_ClaimStatus claimStatus) {
+        return submit(X12_ModelWalker.estimateBytes(claimStatus), () -> X12_276_Parser.xmlToEDI(claimStatus));
+    }
+}
@@ -0,0 +1,408 @@
+package org.example.XML;
+
+import lombok.Data;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Writes claim status inquiries for large numbers of claims straight to 276 EDI.
+ * <p>
+ * Claims are added one at a time, typically streamed from 837 files through
+ * {@link X12_837_ClaimReader}, and only the current hierarchy is kept in memory, so a million
+ * claims cost no more than one. Consecutive claims for the same payer (2000A), information
+ * receiver (2000B), provider (2000C) and subscriber (2000D) or dependent (2000E) share their
+ * HL loops; a change at one level reopens that level and every level below it. Each claim
+ * becomes one 2200D/2200E loop with its payer claim control number, patient control number
+ * (CLM01, as REF*EJ), charge and service dates. Its trace number (TRN02) is the ISA13 and the
+ * claim's position in the interchange, e.g. {@code 000000042-17}, so it stays unique when two
+ * providers, or two resubmissions, use the same CLM01. The output is laid out as {@code claimstatus276.xsd} expects and
+ * can be read back with {@link X12_276_Parser}.
+ * <p>
+ * A subscriber's HL04 is written before the claims below it are known, so a subscriber whose
+ * own claims and a dependent's claims are both asked about gets two 2000D loops with the
+ * same NM1*IL: one with HL04 0 holding the subscriber's claims and one with HL04 1 above the
+ * dependent's 2000E. This is intended; both are valid X212 and a payer matches each claim by
+ * its own loops.
+ * <p>
+ * A transaction set is closed after {@code claimsPerTransaction} claims and an interchange
+ * after {@code transactionsPerInterchange} transaction sets, each with its own ISA/GS and
+ * control number counting up from the first one given. SE, GE and IEA counts are kept as
+ * the segments are written. The output is flushed but left open by {@link #close()}.
+ */
+public class X12_276_BatchGenerator implements Closeable {
+
+    public static final int DEFAULT_CLAIMS_PER_TRANSACTION = 1000;
+    public static final int DEFAULT_TRANSACTIONS_PER_INTERCHANGE = 100;
+
+    private static final String VERSION = "005010X212";
+    private static final DateTimeFormatter ISA_DATE = DateTimeFormatter.ofPattern("yyMMdd");
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HHmm");
+
+    private final Writer out;
+    private final String senderId;
+    private final String receiverId;
+    private final int claimsPerTransaction;
+    private final int transactionsPerInterchange;
+
+    private long interchangeControlNumber;
+    private boolean interchangeOpen;
+    private int transactionsInInterchange;
+    private int claimsInInterchange;
+    private boolean transactionOpen;
+    private int segmentsInTransaction;
+    private int claimsInTransaction;
+    private int hlCount;
+    private long claimCount;
+    private X12_277_TraceIndex traceIndex;
+
+    private String payerKey;
+    private String receiverKey;
+    private String providerKey;
+    private String subscriberKey;
+    private String patientKey;
+    private int payerHl;
+    private int receiverHl;
+    private int providerHl;
+    private int subscriberHl;
+
+    /**
+     * One claim to inquire about, as read from an 837.
+     */
+    @Data
+    public static class Claim {
+        /** BHT04 of the 837 the claim was submitted in (CCYYMMDD). */
+        private String submissionDate;
+        private String patientControlNumber;
+        private String chargeAmount;
+        private String payerClaimControlNumber;
+        private String serviceDateFrom;
+        private String serviceDateTo;
+
+        private String payerName;
+        private String payerIdQualifier;
+        private String payerId;
+        private String receiverName;
+        private String receiverIdQualifier;
+        private String receiverId;
+        private String providerName;
+        private String providerIdQualifier;
+        private String providerId;
+
+        private String subscriberLastName;
+        private String subscriberFirstName;
+        private String subscriberMiddleName;
+        private String subscriberIdQualifier;
+        private String subscriberId;
+        private String subscriberBirthDate;
+        private String subscriberGender;
+
+        /** Set only when the patient is a dependent of the subscriber. */
+        private String patientLastName;
+        private String patientFirstName;
+        private String patientMiddleName;
+        private String patientBirthDate;
+        private String patientGender;
+    }
+
+    /**
+     * Create a generator with the default batch sizes.
+     *
+     * @param senderId   ISA06/GS02, the submitter of the inquiries
+     * @param receiverId ISA08/GS03, the payer or clearinghouse
+     * @param firstControlNumber the first interchange (and group) control number to use
+     */
+    public X12_276_BatchGenerator(OutputStream out, String senderId, String receiverId, long firstControlNumber) {
+        this(out, senderId, receiverId, firstControlNumber,
+                DEFAULT_CLAIMS_PER_TRANSACTION, DEFAULT_TRANSACTIONS_PER_INTERCHANGE);
+    }
+
+    public X12_276_BatchGenerator(OutputStream out, String senderId, String receiverId, long firstControlNumber,
+                                  int claimsPerTransaction, int transactionsPerInterchange) {
+        if (claimsPerTransaction < 1 || transactionsPerInterchange < 1) {
+            throw new IllegalArgumentException("Batch sizes must be positive");
+        }
+        if (firstControlNumber < 1 || firstControlNumber > 999_999_999) {
+            throw new IllegalArgumentException("Interchange control number out of range: " + firstControlNumber);
+        }
+        this.out = new BufferedWriter(new OutputStreamWriter(X12_Sinks.nonClosing(out), StandardCharsets.ISO_8859_1),
+                64 * 1024);
+        this.senderId = senderId;
+        this.receiverId = receiverId;
+        this.interchangeControlNumber = firstControlNumber - 1;
+        this.claimsPerTransaction = claimsPerTransaction;
+        this.transactionsPerInterchange = transactionsPerInterchange;
+    }
+
+    /**
+     * @return a filter for claims submitted at least {@code days} days before {@code today}
+     */
+    public static Predicate<Claim> pendingFor(int days, LocalDate today) {
+        String cutoff = today.minusDays(days).format(DATE);
+        return claim -> claim.getSubmissionDate() != null && claim.getSubmissionDate().compareTo(cutoff) <= 0;
+    }
+
+    /**
+     * Add every claim of an 837 stream that passes the filter.
+     *
+     * @return the number of claims added
+     */
+    public long addAll(InputStream edi837, Predicate<Claim> filter) throws IOException {
+        return addAll(new X12_837_ClaimReader(edi837), filter);
+    }
+
+    public long addAll(Iterator<Claim> claims, Predicate<Claim> filter) throws IOException {
+        long added = 0;
+        while (claims.hasNext()) {
+            Claim claim = claims.next();
+            if (filter.test(claim)) {
+                add(claim);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    public void add(Claim claim) throws IOException {
+        if (transactionOpen && claimsInTransaction == claimsPerTransaction) {
+            closeTransaction();
+        }
+        if (!transactionOpen) {
+            if (interchangeOpen && transactionsInInterchange == transactionsPerInterchange) {
+                closeInterchange();
+            }
+            if (!interchangeOpen) {
+                openInterchange();
+            }
+            openTransaction();
+        }
+        boolean dependent = claim.getPatientLastName() != null;
+
+        String payer = key(claim.getPayerIdQualifier(), claim.getPayerId(), claim.getPayerName());
+        if (!payer.equals(payerKey)) {
+            payerKey = payer;
+            receiverKey = null;
+            payerHl = hl(0, "20", true);
+            segment("NM1", "PR", "2", claim.getPayerName(), null, null, null, null,
+                    or(claim.getPayerIdQualifier(), "PI"), claim.getPayerId());
+        }
+        String receiver = key(claim.getReceiverIdQualifier(), claim.getReceiverId(), claim.getReceiverName());
+        if (!receiver.equals(receiverKey)) {
+            receiverKey = receiver;
+            providerKey = null;
+            receiverHl = hl(payerHl, "21", true);
+            segment("NM1", "41", "2", claim.getReceiverName(), null, null, null, null,
+                    or(claim.getReceiverIdQualifier(), "46"), claim.getReceiverId());
+        }
+        String provider = key(claim.getProviderIdQualifier(), claim.getProviderId(), claim.getProviderName());
+        if (!provider.equals(providerKey)) {
+            providerKey = provider;
+            subscriberKey = null;
+            providerHl = hl(receiverHl, "19", true);
+            segment("NM1", "1P", "2", claim.getProviderName(), null, null, null, null,
+                    or(claim.getProviderIdQualifier(), "XX"), claim.getProviderId());
+        }
+        String subscriber = key(claim.getSubscriberIdQualifier(), claim.getSubscriberId(),
+                claim.getSubscriberLastName(), claim.getSubscriberFirstName(), dependent ? "E" : "D");
+        if (!subscriber.equals(subscriberKey)) {
+            subscriberKey = subscriber;
+            patientKey = null;
+            subscriberHl = hl(providerHl, "22", dependent);
+            if (!dependent) {
+                // The 2000D DMG is sent only when the subscriber is the patient.
+                demographics(claim.getSubscriberBirthDate(), claim.getSubscriberGender());
+            }
+            segment("NM1", "IL", "1", claim.getSubscriberLastName(), claim.getSubscriberFirstName(),
+                    claim.getSubscriberMiddleName(), null, null,
+                    or(claim.getSubscriberIdQualifier(), "MI"), claim.getSubscriberId());
+        }
+        if (dependent) {
+            String patient = key(claim.getPatientLastName(), claim.getPatientFirstName(),
+                    claim.getPatientMiddleName(), claim.getPatientBirthDate());
+            if (!patient.equals(patientKey)) {
+                patientKey = patient;
+                hl(subscriberHl, "23", null);
+                demographics(claim.getPatientBirthDate(), claim.getPatientGender());
+                segment("NM1", "QC", "1", claim.getPatientLastName(), claim.getPatientFirstName(),
+                        claim.getPatientMiddleName());
+            }
+        }
+        claimStatusTracking(claim);
+        claimsInTransaction++;
+        claimCount++;
+    }
+
+    /**
+     * Record every claim written from now on in the given index, so that the 277 responses
+     * can be joined back to it; null stops recording.
+     */
+    public void setTraceIndex(X12_277_TraceIndex traceIndex) {
+        this.traceIndex = traceIndex;
+    }
+
+    /**
+     * @return the number of claims written so far
+     */
+    public long getClaimCount() {
+        return claimCount;
+    }
+
+    /**
+     * @return the control number of the last interchange opened, for resuming the sequence later
+     */
+    public long getLastInterchangeControlNumber() {
+        return interchangeControlNumber;
+    }
+
+    /**
+     * Close any open transaction set and interchange, and flush the output.
+     */
+    @Override
+    public void close() throws IOException {
+        if (interchangeOpen) {
+            closeInterchange();
+        }
+        out.flush();
+    }
+
+    private void claimStatusTracking(Claim claim) throws IOException {
+        String traceNumber = String.format("%09d", interchangeControlNumber) + "-" + ++claimsInInterchange;
+        segment("TRN", "1", traceNumber);
+        if (traceIndex != null) {
+            X12_277_TraceIndex.Inquiry inquiry = new X12_277_TraceIndex.Inquiry();
+            inquiry.setTraceNumber(traceNumber);
+            inquiry.setInterchangeControlNumber(String.format("%09d", interchangeControlNumber));
+            inquiry.setTransactionSetControlNumber(transactionControlNumber());
+            inquiry.setPatientControlNumber(claim.getPatientControlNumber());
+            inquiry.setSubscriberId(claim.getSubscriberId());
+            inquiry.setPayerClaimControlNumber(claim.getPayerClaimControlNumber());
+            inquiry.setChargeAmount(claim.getChargeAmount());
+            traceIndex.add(inquiry);
+        }
+        if (claim.getPayerClaimControlNumber() != null) {
+            segment("REF", "1K", claim.getPayerClaimControlNumber());
+        }
+        segment("REF", "EJ", claim.getPatientControlNumber());
+        if (claim.getChargeAmount() != null) {
+            segment("AMT", "T3", claim.getChargeAmount());
+        }
+        String from = claim.getServiceDateFrom();
+        String to = claim.getServiceDateTo();
+        if (from != null) {
+            if (to == null || to.equals(from)) {
+                segment("DTP", "472", "D8", from);
+            } else {
+                segment("DTP", "472", "RD8", from + "-" + to);
+            }
+        }
+    }
+
+    private void demographics(String birthDate, String gender) throws IOException {
+        if (birthDate != null) {
+            segment("DMG", "D8", birthDate, gender);
+        }
+    }
+
+    /**
+     * @param hasChildren HL04, or null to omit it
+     * @return the new HL's id
+     */
+    private int hl(int parent, String levelCode, Boolean hasChildren) throws IOException {
+        int id = ++hlCount;
+        segment("HL", Integer.toString(id), parent == 0 ? null : Integer.toString(parent), levelCode,
+                hasChildren == null ? null : hasChildren ? "1" : "0");
+        return id;
+    }
+
+    private void openInterchange() throws IOException {
+        interchangeControlNumber = interchangeControlNumber == 999_999_999 ? 1 : interchangeControlNumber + 1;
+        LocalDateTime now = LocalDateTime.now();
+        String control = String.format("%09d", interchangeControlNumber);
+        segment("ISA", "00", "          ", "00", "          ", "ZZ", pad(senderId), "ZZ", pad(receiverId),
+                now.format(ISA_DATE), now.format(TIME), "^", "00501", control, "0", "P", ":");
+        segment("GS", "HR", senderId, receiverId, now.format(DATE), now.format(TIME),
+                Long.toString(interchangeControlNumber), "X", VERSION);
+        interchangeOpen = true;
+        transactionsInInterchange = 0;
+        claimsInInterchange = 0;
+    }
+
+    private void closeInterchange() throws IOException {
+        if (transactionOpen) {
+            closeTransaction();
+        }
+        segment("GE", Integer.toString(transactionsInInterchange), Long.toString(interchangeControlNumber));
+        segment("IEA", "1", String.format("%09d", interchangeControlNumber));
+        interchangeOpen = false;
+    }
+
+    private void openTransaction() throws IOException {
+        transactionsInInterchange++;
+        segmentsInTransaction = 0;
+        claimsInTransaction = 0;
+        hlCount = 0;
+        payerKey = null;
+        LocalDateTime now = LocalDateTime.now();
+        segment("ST", "276", transactionControlNumber(), VERSION);
+        segment("BHT", "0010", "13", interchangeControlNumber + "-" + transactionControlNumber(),
+                now.format(DATE), now.format(TIME));
+        transactionOpen = true;
+    }
+
+    private void closeTransaction() throws IOException {
+        segment("SE", Integer.toString(segmentsInTransaction + 1), transactionControlNumber());
+        transactionOpen = false;
+    }
+
+    private String transactionControlNumber() {
+        return String.format("%04d", transactionsInInterchange);
+    }
+
+    /**
+     * Write one segment, dropping trailing empty elements.
+     */
+    private void segment(String id, String... elements) throws IOException {
+        int last = elements.length;
+        while (last > 0 && (elements[last - 1] == null || elements[last - 1].isEmpty())) {
+            last--;
+        }
+        out.write(id);
+        for (int i = 0; i < last; i++) {
+            out.write('*');
+            if (elements[i] != null) {
+                out.write(elements[i]);
+            }
+        }
+        out.write("~\n");
+        segmentsInTransaction++;
+    }
+
+    private static String pad(String id) {
+        return String.format("%-15.15s", id);
+    }
+
+    private static String or(String value, String fallback) {
+        return value != null ? value : fallback;
+    }
+
+    private static String key(String... parts) {
+        StringBuilder key = new StringBuilder();
+        for (String part : parts) {
+            key.append(Objects.toString(part, "")).append('\u0000');
+        }
+        return key.toString();
+    }
+}
@@ -2,14 +2,18 @@ package org.example.XML;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonRootName;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
 import lombok.Data;
 
+import java.util.List;
+
 /**
- * Minimal Java representation of a 276 Claim Status message.
+ * Java representation of a 276 Claim Status Request (005010X212).
  * <p>
- * Only the segments used in the sample file are modeled.  This is just
- * enough to demonstrate how Smooks can map the EDI message into Java
- * objects using Jackson for the XML binding.
+ * The HL hierarchy is kept flat, as in {@code claimstatus276.xsd}: each
+ * {@link HierarchicalLevel} holds its HL, DMG and NM1, and the subscriber (22) and dependent
+ * (23) levels hold the claims asked about as {@link ClaimStatusTracking} loops. The segment
+ * classes are shared with {@link X12_277_ClaimStatusResponse}.
  */
 @Data
 @JsonRootName("X12_276_ClaimStatus")
@@ -21,26 +25,9 @@ public class X12_276_ClaimStatus {
     @JsonProperty("group-header")
     private GroupHeader groupHeader;
 
-    @JsonProperty("transaction-set-header")
-    private TransactionSetHeader transactionSetHeader;
-
-    @JsonProperty("bht")
-    private Bht bht;
-
-    @JsonProperty("information-source")
-    private InformationSource informationSource;
-
-    @JsonProperty("information-receiver")
-    private InformationReceiver informationReceiver;
-
-    @JsonProperty("provider")
-    private Provider provider;
-
-    @JsonProperty("subscriber")
-    private Subscriber subscriber;
-
-    @JsonProperty("transaction-set-trailer")
-    private TransactionSetTrailer transactionSetTrailer;
+    @JacksonXmlElementWrapper(useWrapping = false)
+    @JsonProperty("transaction")
+    private List<Transaction> transaction;
 
     @JsonProperty("functional-group-trailer")
     private FunctionalGroupTrailer functionalGroupTrailer;
@@ -49,6 +36,71 @@ public class X12_276_ClaimStatus {
     private InterchangeControlTrailer interchangeControlTrailer;
 
     // -------------------------------------------------------------
+    @Data
+    public static class Transaction {
+        @JsonProperty("transaction-set-header")
+        private TransactionSetHeader transactionSetHeader;
+        @JsonProperty("bht")
+        private Bht bht;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("hierarchical-level")
+        private List<HierarchicalLevel> hierarchicalLevel;
+        @JsonProperty("transaction-set-trailer")
+        private TransactionSetTrailer transactionSetTrailer;
+    }
+
+    /**
+     * One HL loop: information source (20), receiver (21), provider (19), subscriber (22)
+     * or dependent (23).
+     */
+    @Data
+    public static class HierarchicalLevel {
+        @JsonProperty("hl")
+        private Hl hl;
+        @JsonProperty("dmg")
+        private Dmg dmg;
+        @JsonProperty("nm1")
+        private Nm1 nm1;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("claim-status-tracking")
+        private List<ClaimStatusTracking> claimStatusTracking;
+    }
+
+    /**
+     * Loop 2200D/E: one claim asked about, identified by the trace number in its TRN02.
+     */
+    @Data
+    public static class ClaimStatusTracking {
+        @JsonProperty("trn")
+        private Trn trn;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("ref")
+        private List<Ref> ref;
+        @JsonProperty("amt")
+        private Amt amt;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("dtp")
+        private List<Dtp> dtp;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("service-line")
+        private List<ServiceLine> serviceLine;
+    }
+
+    /**
+     * Loop 2210D/E: one service line of the claim asked about.
+     */
+    @Data
+    public static class ServiceLine {
+        @JsonProperty("svc")
+        private Svc svc;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("ref")
+        private List<Ref> ref;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("dtp")
+        private List<Dtp> dtp;
+    }
+
     @Data
     public static class InterchangeHeader {
         @JsonProperty("auth-qual")
@@ -195,24 +247,6 @@ public class X12_276_ClaimStatus {
         private String id;
     }
 
-    @Data
-    public static class N3 {
-        @JsonProperty("address1")
-        private String address1;
-        @JsonProperty("address2")
-        private String address2;
-    }
-
-    @Data
-    public static class N4 {
-        @JsonProperty("city")
-        private String city;
-        @JsonProperty("state")
-        private String state;
-        @JsonProperty("postal")
-        private String postal;
-    }
-
     @Data
     public static class Dmg {
         @JsonProperty("format")
@@ -234,58 +268,29 @@ public class X12_276_ClaimStatus {
     }
 
     @Data
-    public static class Eq {
-        @JsonProperty("service-type-code")
-        private String serviceTypeCode;
-    }
-
-    // Loop groupings
-    @Data
-    public static class InformationSource {
-        @JsonProperty("hl")
-        private Hl hl;
-        @JsonProperty("nm1")
-        private Nm1 nm1;
-    }
-
-    @Data
-    public static class InformationReceiver {
-        @JsonProperty("hl")
-        private Hl hl;
-        @JsonProperty("nm1")
-        private Nm1 nm1;
-        @JsonProperty("per")
-        private Per per;
-    }
-
-    @Data
-    public static class Provider {
-        @JsonProperty("hl")
-        private Hl hl;
-        @JsonProperty("nm1")
-        private Nm1 nm1;
-        @JsonProperty("trn")
-        private Trn trn;
+    public static class Amt {
+        @JsonProperty("qualifier")
+        private String qualifier;
+        @JsonProperty("amount")
+        private String amount;
     }
 
     @Data
-    public static class Subscriber {
-        @JsonProperty("hl")
-        private Hl hl;
-        @JsonProperty("nm1")
-        private Nm1 nm1;
-        @JsonProperty("ref")
-        private Ref ref;
-        @JsonProperty("n3")
-        private N3 n3;
-        @JsonProperty("n4")
-        private N4 n4;
-        @JsonProperty("dmg")
-        private Dmg dmg;
-        @JsonProperty("dtp")
-        private Dtp dtp;
-        @JsonProperty("eq")
-        private Eq eq;
+    public static class Svc {
+        @JsonProperty("procedure")
+        private String procedure;
+        @JsonProperty("charge-amount")
+        private String chargeAmount;
+        @JsonProperty("payment-amount")
+        private String paymentAmount;
+        @JsonProperty("revenue-code")
+        private String revenueCode;
+        @JsonProperty("quantity")
+        private String quantity;
+        @JsonProperty("original-procedure")
+        private String originalProcedure;
+        @JsonProperty("units")
+        private String units;
     }
 
     @Data
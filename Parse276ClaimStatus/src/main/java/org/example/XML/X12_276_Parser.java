@@ -1,34 +1,79 @@
 package org.example.XML;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.smooks.FilterSettings;
-import org.smooks.Smooks;
+import org.smooks.api.io.Sink;
+import org.smooks.io.sink.StreamSink;
 import org.smooks.io.sink.StringSink;
+import org.smooks.io.sink.WriterSink;
 import org.smooks.io.source.StreamSource;
 import org.xml.sax.SAXException;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * Parser utilities for X12 276 Claim Status messages.
  * <p>
- * The implementation mirrors {@link X12_850_Parser} but targets the
- * simplified {@link X12_276_ClaimStatus} model.
+ * The implementation mirrors {@code X12_850_Parser} but targets the
+ * {@link X12_276_ClaimStatus} model. Its Smooks engines come from
+ * {@link X12_SmooksEngines} and are shared by every call.
  */
 @Slf4j
 public class X12_276_Parser {
 
+    static final String CONFIG = "parse-276-config.xml";
+    static final String SERIALIZE_CONFIG = "serialize-276-config.xml";
+
     private static final XmlMapper xmlMapper = new XmlMapper();
     private static final JsonMapper jsonMapper = new JsonMapper();
     private static final YAMLMapper yamlMapper = new YAMLMapper();
 
     static {
         xmlMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        // Absent segments would otherwise reach the EDI serializer as empty elements.
+        xmlMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        X12_ConversionEvents.registerModel(X12_276_ClaimStatus.class, X12_276_Parser::claimCount,
+                claimStatus -> claimStatus.getInterchangeHeader() == null ? null
+                        : claimStatus.getInterchangeHeader().getSenderId());
+    }
+
+    /**
+     * @return the claims asked about (loop 2200) under every HL loop of a 276
+     */
+    private static long claimCount(X12_276_ClaimStatus claimStatus) {
+        long claims = 0;
+        if (claimStatus.getTransaction() != null) {
+            for (X12_276_ClaimStatus.Transaction transaction : claimStatus.getTransaction()) {
+                if (transaction.getHierarchicalLevel() != null) {
+                    for (X12_276_ClaimStatus.HierarchicalLevel level : transaction.getHierarchicalLevel()) {
+                        claims += level.getClaimStatusTracking() == null ? 0 : level.getClaimStatusTracking().size();
+                    }
+                }
+            }
+        }
+        return claims;
+    }
+
+    private static final ThreadLocal<X12_BindingReuse<X12_276_ClaimStatus>> bindingReuse =
+            X12_BindingReuse.perThread("276", X12_276_ClaimStatus.class, X12_276_Parser::parseEDI);
+
+    /**
+     * @return this thread's model-binding reuse for parsing many small 276s into one recycled model; see
+     * {@link X12_BindingReuse}
+     */
+    public static X12_BindingReuse<X12_276_ClaimStatus> bindingReuse() {
+        return bindingReuse.get();
     }
 
     public static String parseEDI(String ediString) throws IOException, SAXException {
@@ -36,41 +81,206 @@ public class X12_276_Parser {
     }
 
     public static String parseEDI(byte[] ediInput) throws IOException, SAXException {
-        StringSink result;
-        try (Smooks smooks = new Smooks("parse-config.xml")) {
-            result = new StringSink();
-            smooks.filterSource(new StreamSource<>(new ByteArrayInputStream(ediInput)), result);
+        X12_ConversionEvents.EdiToXml event = X12_ConversionEvents.ediToXml("276");
+        StringSink result = new StringSink();
+        try {
+            X12_SmooksEngines.parser(CONFIG)
+                    .filterSource(new StreamSource<>(event.countEdi(new ByteArrayInputStream(ediInput))), result);
+        } catch (RuntimeException e) {
+            event.fail();
+            throw e;
         }
+        event.finish(ediInput.length, result.getResult().length());
         return result.getResult();
     }
 
     public static X12_276_ClaimStatus parseXML(String xml) throws IOException {
-        return xmlMapper.readValue(xml, X12_276_ClaimStatus.class);
+        X12_ConversionEvents.XmlToModel event = X12_ConversionEvents.xmlToModel("276");
+        X12_276_ClaimStatus result;
+        try {
+            result = xmlMapper.readValue(xml, X12_276_ClaimStatus.class);
+        } catch (IOException | RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finishModel(xml.length(), 0, result);
+        return result;
     }
 
     public static String toXml(X12_276_ClaimStatus claimStatus) throws IOException {
-        return xmlMapper.writeValueAsString(claimStatus);
+        return writeValueAsString(xmlMapper, "xml", claimStatus);
     }
 
     public static String toJson(X12_276_ClaimStatus claimStatus) throws IOException {
-        return jsonMapper.writeValueAsString(claimStatus);
+        return writeValueAsString(jsonMapper, "json", claimStatus);
     }
 
     public static String toYaml(X12_276_ClaimStatus claimStatus) throws IOException {
-        return yamlMapper.writeValueAsString(claimStatus);
+        return writeValueAsString(yamlMapper, "yaml", claimStatus);
+    }
+
+    private static String writeValueAsString(ObjectMapper mapper, String format, X12_276_ClaimStatus claimStatus)
+            throws IOException {
+        X12_ConversionEvents.ModelToText event = X12_ConversionEvents.modelToText("276", format);
+        String result;
+        try {
+            result = mapper.writeValueAsString(claimStatus);
+        } catch (IOException | RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finishModel(0, result.length(), claimStatus);
+        return result;
     }
 
     public static String xmlToEDI(String xml) throws IOException, SAXException {
-        StringSink result;
-        try (Smooks smooks = new Smooks("serialize-config.xml")) {
-            smooks.setFilterSettings(FilterSettings.newSaxNgSettings().setDefaultSerializationOn(false));
-            result = new StringSink();
-            smooks.filterSource(new StreamSource<>(new ByteArrayInputStream(xml.getBytes())), result);
+        X12_ConversionEvents.XmlToEdi event = X12_ConversionEvents.xmlToEdi("276");
+        byte[] xmlBytes = xml.getBytes();
+        StringWriter result = new StringWriter();
+        try {
+            X12_SmooksEngines.serializer(SERIALIZE_CONFIG)
+                    .filterSource(new StreamSource<>(new ByteArrayInputStream(xmlBytes)),
+                            new WriterSink<>(event.countEdi(result)));
+        } catch (RuntimeException e) {
+            event.fail();
+            throw e;
         }
+        event.finishEdiOutput(xmlBytes.length);
         return result.toString();
     }
 
     public static String xmlToEDI(X12_276_ClaimStatus claimStatus) throws IOException, SAXException {
         return xmlToEDI(toXml(claimStatus));
     }
+
+    /**
+     * Parses X12 276 EDI from a stream and writes the XML straight to the given output,
+     * which is flushed but left open.
+     */
+    public static void parseEDI(InputStream ediInput, OutputStream xmlOutput) throws IOException, SAXException {
+        X12_ConversionEvents.EdiToXml event = X12_ConversionEvents.ediToXml("276");
+        filterEDI(event, ediInput, new StreamSink<>(event.countOutput(X12_Sinks.nonClosing(xmlOutput))));
+    }
+
+    public static void parseEDI(InputStream ediInput, Writer xmlOutput) throws IOException, SAXException {
+        X12_ConversionEvents.EdiToXml event = X12_ConversionEvents.ediToXml("276");
+        filterEDI(event, ediInput, new WriterSink<>(event.countOutput(X12_Sinks.nonClosing(xmlOutput))));
+    }
+
+    public static void parseEDI(InputStream ediInput, WritableByteChannel xmlOutput) throws IOException, SAXException {
+        parseEDI(ediInput, X12_Sinks.nonClosing(xmlOutput));
+    }
+
+    private static void filterEDI(X12_ConversionEvents.EdiToXml event, InputStream ediInput, Sink sink) {
+        try {
+            X12_SmooksEngines.parser(CONFIG).filterSource(new StreamSource<>(event.countEdi(ediInput)), sink);
+        } catch (RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finish();
+    }
+
+    public static X12_276_ClaimStatus parseXML(InputStream xml) throws IOException {
+        X12_ConversionEvents.XmlToModel event = X12_ConversionEvents.xmlToModel("276");
+        X12_276_ClaimStatus result;
+        try {
+            result = xmlMapper.readValue(event.countInput(xml), X12_276_ClaimStatus.class);
+        } catch (IOException | RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finishModel(result);
+        return result;
+    }
+
+    public static void writeXml(X12_276_ClaimStatus claimStatus, OutputStream out) throws IOException {
+        X12_Sinks.writeValue(xmlMapper, claimStatus, out, "276");
+    }
+
+    public static void writeXml(X12_276_ClaimStatus claimStatus, Writer out) throws IOException {
+        X12_Sinks.writeValue(xmlMapper, claimStatus, out, "276");
+    }
+
+    public static void writeXml(X12_276_ClaimStatus claimStatus, WritableByteChannel out) throws IOException {
+        writeXml(claimStatus, X12_Sinks.nonClosing(out));
+    }
+
+    public static void writeJson(X12_276_ClaimStatus claimStatus, OutputStream out) throws IOException {
+        X12_Sinks.writeValue(jsonMapper, claimStatus, out, "276");
+    }
+
+    public static void writeJson(X12_276_ClaimStatus claimStatus, Writer out) throws IOException {
+        X12_Sinks.writeValue(jsonMapper, claimStatus, out, "276");
+    }
+
+    public static void writeJson(X12_276_ClaimStatus claimStatus, WritableByteChannel out) throws IOException {
+        writeJson(claimStatus, X12_Sinks.nonClosing(out));
+    }
+
+    public static void writeYaml(X12_276_ClaimStatus claimStatus, OutputStream out) throws IOException {
+        X12_Sinks.writeValue(yamlMapper, claimStatus, out, "276");
+    }
+
+    public static void writeYaml(X12_276_ClaimStatus claimStatus, Writer out) throws IOException {
+        X12_Sinks.writeValue(yamlMapper, claimStatus, out, "276");
+    }
+
+    public static void writeYaml(X12_276_ClaimStatus claimStatus, WritableByteChannel out) throws IOException {
+        writeYaml(claimStatus, X12_Sinks.nonClosing(out));
+    }
+
+    /**
+     * Converts XML read from a stream into EDI written straight to the given output,
+     * which is flushed but left open.
+     */
+    public static void xmlToEDI(InputStream xml, OutputStream ediOutput) throws IOException, SAXException {
+        X12_ConversionEvents.XmlToEdi event = X12_ConversionEvents.xmlToEdi("276");
+        serialize(event, xml, new StreamSink<>(event.countOutput(X12_Sinks.nonClosing(ediOutput))));
+    }
+
+    public static void xmlToEDI(InputStream xml, Writer ediOutput) throws IOException, SAXException {
+        X12_ConversionEvents.XmlToEdi event = X12_ConversionEvents.xmlToEdi("276");
+        serialize(event, xml, new WriterSink<>(event.countOutput(X12_Sinks.nonClosing(ediOutput))));
+    }
+
+    public static void xmlToEDI(InputStream xml, WritableByteChannel ediOutput) throws IOException, SAXException {
+        xmlToEDI(xml, X12_Sinks.nonClosing(ediOutput));
+    }
+
+    private static void serialize(X12_ConversionEvents.XmlToEdi event, InputStream xml, Sink sink) {
+        try {
+            X12_SmooksEngines.serializer(SERIALIZE_CONFIG).filterSource(new StreamSource<>(event.countInput(xml)), sink);
+        } catch (RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finish();
+    }
+
+    public static void writeEDI(X12_276_ClaimStatus claimStatus, OutputStream out) throws IOException, SAXException {
+        try (InputStream xml = intermediateXml(claimStatus)) {
+            xmlToEDI(xml, out);
+        }
+    }
+
+    public static void writeEDI(X12_276_ClaimStatus claimStatus, Writer out) throws IOException, SAXException {
+        try (InputStream xml = intermediateXml(claimStatus)) {
+            xmlToEDI(xml, out);
+        }
+    }
+
+    public static void writeEDI(X12_276_ClaimStatus claimStatus, WritableByteChannel out) throws IOException, SAXException {
+        try (InputStream xml = intermediateXml(claimStatus)) {
+            xmlToEDI(xml, out);
+        }
+    }
+
+    /**
+     * @return the XML of the claim status request, streamed from a writer thread through a bounded pipe so
+     * it is never held whole
+     */
+    private static InputStream intermediateXml(X12_276_ClaimStatus claimStatus) {
+        return X12_Sinks.pipe("276", xml -> writeXml(claimStatus, xml));
+    }
 }
@@ -0,0 +1,156 @@
+package org.example.XML;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRootName;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Java representation of a 277 Claim Status Response, the payer's answer to a 276.
+ * <p>
+ * The HL hierarchy is kept flat, as in {@code claimstatus277.xsd}: each
+ * {@link HierarchicalLevel} holds its HL, its NM1 and the claim status tracking loops
+ * (TRN, STC, REF, DTP and service lines) reported at that level. Segments shared with the
+ * 276 reuse the {@link X12_276_ClaimStatus} classes.
+ */
+@Data
+@JsonRootName("X12_277_ClaimStatusResponse")
+public class X12_277_ClaimStatusResponse {
+
+    @JsonProperty("interchange-header")
+    private X12_276_ClaimStatus.InterchangeHeader interchangeHeader;
+
+    @JsonProperty("group-header")
+    private X12_276_ClaimStatus.GroupHeader groupHeader;
+
+    @JacksonXmlElementWrapper(useWrapping = false)
+    @JsonProperty("transaction")
+    private List<Transaction> transaction;
+
+    @JsonProperty("functional-group-trailer")
+    private X12_276_ClaimStatus.FunctionalGroupTrailer functionalGroupTrailer;
+
+    @JsonProperty("interchange-control-trailer")
+    private X12_276_ClaimStatus.InterchangeControlTrailer interchangeControlTrailer;
+
+    // -------------------------------------------------------------
+    @Data
+    public static class Transaction {
+        @JsonProperty("transaction-set-header")
+        private X12_276_ClaimStatus.TransactionSetHeader transactionSetHeader;
+        @JsonProperty("bht")
+        private Bht bht;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("hierarchical-level")
+        private List<HierarchicalLevel> hierarchicalLevel;
+        @JsonProperty("transaction-set-trailer")
+        private X12_276_ClaimStatus.TransactionSetTrailer transactionSetTrailer;
+    }
+
+    @Data
+    public static class Bht {
+        @JsonProperty("hierarchical-structure-code")
+        private String hierarchicalStructureCode;
+        @JsonProperty("transaction-set-purpose-code")
+        private String transactionSetPurposeCode;
+        @JsonProperty("reference-identification")
+        private String referenceIdentification;
+        @JsonProperty("date")
+        private String date;
+        @JsonProperty("time")
+        private String time;
+        @JsonProperty("transaction-type-code")
+        private String transactionTypeCode;
+    }
+
+    /**
+     * One HL loop: information source (20), receiver (21), provider (19), subscriber (22)
+     * or dependent (23).
+     */
+    @Data
+    public static class HierarchicalLevel {
+        @JsonProperty("hl")
+        private X12_276_ClaimStatus.Hl hl;
+        @JsonProperty("nm1")
+        private X12_276_ClaimStatus.Nm1 nm1;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("per")
+        private List<X12_276_ClaimStatus.Per> per;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("claim-status-tracking")
+        private List<ClaimStatusTracking> claimStatusTracking;
+    }
+
+    /**
+     * Loop 2200: the status of one claim, traced back to the 276 by its TRN02.
+     */
+    @Data
+    public static class ClaimStatusTracking {
+        @JsonProperty("trn")
+        private X12_276_ClaimStatus.Trn trn;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("stc")
+        private List<Stc> stc;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("ref")
+        private List<X12_276_ClaimStatus.Ref> ref;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("dtp")
+        private List<X12_276_ClaimStatus.Dtp> dtp;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("service-line")
+        private List<ServiceLine> serviceLine;
+    }
+
+    /**
+     * Loop 2220: the status of one service line.
+     */
+    @Data
+    public static class ServiceLine {
+        @JsonProperty("svc")
+        private X12_276_ClaimStatus.Svc svc;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("stc")
+        private List<Stc> stc;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("ref")
+        private List<X12_276_ClaimStatus.Ref> ref;
+        @JacksonXmlElementWrapper(useWrapping = false)
+        @JsonProperty("dtp")
+        private List<X12_276_ClaimStatus.Dtp> dtp;
+    }
+
+    /**
+     * Status information. {@code status} is the STC01 composite as sent, category code
+     * first (e.g. {@code F1:65}).
+     */
+    @Data
+    public static class Stc {
+        @JsonProperty("status")
+        private String status;
+        @JsonProperty("status-date")
+        private String statusDate;
+        @JsonProperty("action-code")
+        private String actionCode;
+        @JsonProperty("total-charge")
+        private String totalCharge;
+        @JsonProperty("payment-amount")
+        private String paymentAmount;
+        @JsonProperty("adjudication-date")
+        private String adjudicationDate;
+        @JsonProperty("payment-method-code")
+        private String paymentMethodCode;
+        @JsonProperty("payment-date")
+        private String paymentDate;
+        @JsonProperty("check-number")
+        private String checkNumber;
+        @JsonProperty("status-2")
+        private String status2;
+        @JsonProperty("status-3")
+        private String status3;
+        @JsonProperty("message")
+        private String message;
+    }
+}
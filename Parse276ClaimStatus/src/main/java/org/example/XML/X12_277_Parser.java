@@ -0,0 +1,289 @@
+package org.example.XML;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import lombok.Data;
+import org.smooks.Smooks;
+import org.smooks.api.ExecutionContext;
+import org.smooks.api.TypedKey;
+import org.smooks.api.io.Sink;
+import org.smooks.api.resource.visitor.sax.ng.AfterVisitor;
+import org.smooks.engine.resource.visitor.dom.DOMModel;
+import org.smooks.io.sink.StreamSink;
+import org.smooks.io.sink.StringSink;
+import org.smooks.io.sink.WriterSink;
+import org.smooks.io.source.StreamSource;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.dom.DOMSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.function.Consumer;
+
+/**
+ * Parser utilities for X12 277 Claim Status Response messages.
+ * <p>
+ * The implementation mirrors {@link X12_276_Parser} for the {@link X12_277_ClaimStatusResponse}
+ * model, but takes its Smooks engines from {@link X12_SmooksEngines} rather than building one
+ * per call. Besides whole-document parsing, {@link #streamClaimStatuses} hands out the status
+ * of each claim as its HL loop is read, optionally joined to the 276 inquiry it answers.
+ */
+public class X12_277_Parser {
+
+    static final String CONFIG = "parse-277-config.xml";
+    private static final String HIERARCHICAL_LEVEL = "hierarchical-level";
+    private static final TypedKey<HierarchicalLevelHandler> HANDLER = TypedKey.of();
+
+    private static final XmlMapper xmlMapper = new XmlMapper();
+    private static final JsonMapper jsonMapper = new JsonMapper();
+
+    static {
+        xmlMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        // Absent segments would otherwise be written as empty elements and read back as empty objects.
+        xmlMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        X12_ConversionEvents.registerModel(X12_277_ClaimStatusResponse.class, X12_277_Parser::claimCount,
+                response -> response.getInterchangeHeader() == null ? null
+                        : response.getInterchangeHeader().getSenderId());
+    }
+
+    /**
+     * @return the claim statuses (loop 2200) under every HL loop of a 277
+     */
+    private static long claimCount(X12_277_ClaimStatusResponse response) {
+        long claims = 0;
+        if (response.getTransaction() != null) {
+            for (X12_277_ClaimStatusResponse.Transaction transaction : response.getTransaction()) {
+                if (transaction.getHierarchicalLevel() != null) {
+                    for (X12_277_ClaimStatusResponse.HierarchicalLevel level : transaction.getHierarchicalLevel()) {
+                        claims += level.getClaimStatusTracking() == null ? 0 : level.getClaimStatusTracking().size();
+                    }
+                }
+            }
+        }
+        return claims;
+    }
+
+    /**
+     * The status of one claim (loop 2200) of a 277.
+     */
+    @Data
+    public static class ClaimStatus {
+        /** HL03 of the loop the claim was reported under: 22 (subscriber) or 23 (dependent). */
+        private String hierarchicalLevelCode;
+        /** The subscriber or dependent the claim belongs to. */
+        private X12_276_ClaimStatus.Nm1 entity;
+        private X12_277_ClaimStatusResponse.ClaimStatusTracking tracking;
+        /** The 276 inquiry with the same trace number, or null if none was indexed. */
+        private X12_277_TraceIndex.Inquiry inquiry;
+
+        /**
+         * @return TRN02, the trace number of the inquiry this status answers
+         */
+        public String getTraceNumber() {
+            return tracking.getTrn() == null ? null : tracking.getTrn().getReferenceIdentification();
+        }
+    }
+
+    public static String parseEDI(String ediString) throws IOException, SAXException {
+        return parseEDI(ediString.getBytes());
+    }
+
+    public static String parseEDI(byte[] ediInput) throws IOException, SAXException {
+        X12_ConversionEvents.EdiToXml event = X12_ConversionEvents.ediToXml("277");
+        StringSink result = new StringSink();
+        try {
+            X12_SmooksEngines.parser(CONFIG)
+                    .filterSource(new StreamSource<>(event.countEdi(new ByteArrayInputStream(ediInput))), result);
+        } catch (RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finish(ediInput.length, result.getResult().length());
+        return result.getResult();
+    }
+
+    /**
+     * Parses X12 277 EDI from a stream and writes the XML straight to the given output,
+     * which is flushed but left open.
+     */
+    public static void parseEDI(InputStream ediInput, OutputStream xmlOutput) throws IOException, SAXException {
+        X12_ConversionEvents.EdiToXml event = X12_ConversionEvents.ediToXml("277");
+        filterEDI(event, ediInput, new StreamSink<>(event.countOutput(X12_Sinks.nonClosing(xmlOutput))));
+    }
+
+    public static void parseEDI(InputStream ediInput, Writer xmlOutput) throws IOException, SAXException {
+        X12_ConversionEvents.EdiToXml event = X12_ConversionEvents.ediToXml("277");
+        filterEDI(event, ediInput, new WriterSink<>(event.countOutput(X12_Sinks.nonClosing(xmlOutput))));
+    }
+
+    private static void filterEDI(X12_ConversionEvents.EdiToXml event, InputStream ediInput, Sink sink) {
+        try {
+            X12_SmooksEngines.parser(CONFIG).filterSource(new StreamSource<>(event.countEdi(ediInput)), sink);
+        } catch (RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finish();
+    }
+
+    public static X12_277_ClaimStatusResponse parseXML(String xml) throws IOException {
+        X12_ConversionEvents.XmlToModel event = X12_ConversionEvents.xmlToModel("277");
+        X12_277_ClaimStatusResponse result;
+        try {
+            result = xmlMapper.readValue(xml, X12_277_ClaimStatusResponse.class);
+        } catch (IOException | RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finishModel(xml.length(), 0, result);
+        return result;
+    }
+
+    public static X12_277_ClaimStatusResponse parseXML(InputStream xml) throws IOException {
+        X12_ConversionEvents.XmlToModel event = X12_ConversionEvents.xmlToModel("277");
+        X12_277_ClaimStatusResponse result;
+        try {
+            result = xmlMapper.readValue(event.countInput(xml), X12_277_ClaimStatusResponse.class);
+        } catch (IOException | RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finishModel(result);
+        return result;
+    }
+
+    public static String toXml(X12_277_ClaimStatusResponse response) throws IOException {
+        return writeValueAsString(xmlMapper, "xml", response);
+    }
+
+    public static String toJson(X12_277_ClaimStatusResponse response) throws IOException {
+        return writeValueAsString(jsonMapper, "json", response);
+    }
+
+    public static void writeJson(X12_277_ClaimStatusResponse response, OutputStream out) throws IOException {
+        X12_Sinks.writeValue(jsonMapper, response, out, "277");
+    }
+
+    public static void writeJson(X12_277_ClaimStatusResponse response, Writer out) throws IOException {
+        X12_Sinks.writeValue(jsonMapper, response, out, "277");
+    }
+
+    private static String writeValueAsString(ObjectMapper mapper, String format, X12_277_ClaimStatusResponse response)
+            throws IOException {
+        X12_ConversionEvents.ModelToText event = X12_ConversionEvents.modelToText("277", format);
+        String result;
+        try {
+            result = mapper.writeValueAsString(response);
+        } catch (IOException | RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finishModel(0, result.length(), response);
+        return result;
+    }
+
+    /**
+     * Stream the claim statuses of a 277 to a consumer without building the whole model.
+     */
+    public static long streamClaimStatuses(InputStream ediInput, Consumer<ClaimStatus> consumer) {
+        return streamClaimStatuses(ediInput, null, consumer);
+    }
+
+    /**
+     * Stream the claim statuses of a 277 to a consumer, each joined to the inquiry indexed
+     * under its TRN02 trace number.
+     * <p>
+     * Only one HL loop is held at a time: the engine hands each {@code hierarchical-level}
+     * element to this class as a DOM fragment, which is bound to a
+     * {@link X12_277_ClaimStatusResponse.HierarchicalLevel} and dropped once its claims were
+     * passed on. Statuses arrive in document order. An exception thrown by the consumer stops
+     * the parse.
+     *
+     * @param index the inquiries to join, or null to leave {@link ClaimStatus#getInquiry()} null
+     * @return the number of claim statuses streamed
+     */
+    public static long streamClaimStatuses(InputStream ediInput, X12_277_TraceIndex index,
+                                           Consumer<ClaimStatus> consumer) {
+        Smooks smooks = X12_SmooksEngines.fragmentParser(CONFIG, HIERARCHICAL_LEVEL, new HierarchicalLevelVisitor());
+        HierarchicalLevelHandler handler = new HierarchicalLevelHandler(index, consumer);
+        X12_ConversionEvents.EdiToXml event = X12_ConversionEvents.ediToXml("277");
+        ExecutionContext context = smooks.createExecutionContext();
+        context.put(HANDLER, handler);
+        try {
+            smooks.filterSource(context, new StreamSource<>(event.countEdi(ediInput)));
+        } catch (RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finish();
+        return handler.count;
+    }
+
+    /**
+     * Joins and passes on the claims of each HL loop of one parse.
+     */
+    private static final class HierarchicalLevelHandler {
+
+        private final X12_277_TraceIndex index;
+        private final Consumer<ClaimStatus> consumer;
+        private long count;
+
+        HierarchicalLevelHandler(X12_277_TraceIndex index, Consumer<ClaimStatus> consumer) {
+            this.index = index;
+            this.consumer = consumer;
+        }
+
+        void accept(X12_277_ClaimStatusResponse.HierarchicalLevel level) {
+            if (level.getClaimStatusTracking() == null) {
+                return;
+            }
+            for (X12_277_ClaimStatusResponse.ClaimStatusTracking tracking : level.getClaimStatusTracking()) {
+                ClaimStatus status = new ClaimStatus();
+                status.setHierarchicalLevelCode(level.getHl() == null ? null : level.getHl().getHierarchicalLevelCode());
+                status.setEntity(level.getNm1());
+                status.setTracking(tracking);
+                if (index != null) {
+                    status.setInquiry(index.get(status.getTraceNumber()));
+                }
+                consumer.accept(status);
+                count++;
+            }
+        }
+    }
+
+    /**
+     * Binds each {@code hierarchical-level} fragment built by the engine's DOM model creator.
+     * The visitor is shared by every parse on the cached engine; the handler of the current
+     * parse is taken from its execution context.
+     */
+    private static final class HierarchicalLevelVisitor implements AfterVisitor {
+
+        @Override
+        public void visitAfter(Element element, ExecutionContext executionContext) {
+            HierarchicalLevelHandler handler = executionContext.get(HANDLER);
+            Element fragment = DOMModel.getModel(executionContext).getModels().get(HIERARCHICAL_LEVEL);
+            if (handler == null || fragment == null) {
+                return;
+            }
+            try {
+                XMLStreamReader reader = xmlMapper.getFactory().getXMLInputFactory()
+                        .createXMLStreamReader(new DOMSource(fragment));
+                handler.accept(xmlMapper.readValue(reader, X12_277_ClaimStatusResponse.HierarchicalLevel.class));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException("Cannot read HL fragment", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.XML;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of the 276 inquiries sent, keyed by their claim status tracking number
+ * (TRN02), so that the statuses of a 277 can be joined back to the claims they answer.
+ * <p>
+ * Entries are added as inquiries are generated (see
+ * {@link X12_276_BatchGenerator#setTraceIndex(X12_277_TraceIndex)}) or by scanning 276 files
+ * already sent with {@link #index276(InputStream)}. Each entry holds only the identifiers
+ * needed to find the claim again, and the index may be shared between threads. Trace numbers
+ * must be unique across the inquiries indexed; the generator's are, while 276 files that
+ * reuse the patient control number as TRN02 can collide, which is logged.
+ */
+@Slf4j
+public class X12_277_TraceIndex {
+
+    private final Map<String, Inquiry> inquiries = new ConcurrentHashMap<>();
+
+    /**
+     * What a 276 inquiry asked about, as recorded under its trace number.
+     */
+    @Data
+    public static class Inquiry {
+        private String traceNumber;
+        private String interchangeControlNumber;
+        private String transactionSetControlNumber;
+        private String patientControlNumber;
+        private String subscriberId;
+        private String payerClaimControlNumber;
+        private String chargeAmount;
+    }
+
+    /**
+     * Record an inquiry, replacing any earlier one with the same trace number.
+     */
+    public void add(Inquiry inquiry) {
+        Inquiry previous = inquiries.put(inquiry.getTraceNumber(), inquiry);
+        if (previous != null && !previous.equals(inquiry)) {
+            log.warn("Trace number {} of interchange {} was already used by interchange {}; statuses will join the later inquiry",
+                    inquiry.getTraceNumber(), inquiry.getInterchangeControlNumber(), previous.getInterchangeControlNumber());
+        }
+    }
+
+    /**
+     * @return the inquiry sent with this trace number, or null if it is not indexed
+     */
+    public Inquiry get(String traceNumber) {
+        return traceNumber == null ? null : inquiries.get(traceNumber);
+    }
+
+    /**
+     * Forget an inquiry, e.g. once its claim reached a final status.
+     *
+     * @return the removed inquiry, or null if it was not indexed
+     */
+    public Inquiry remove(String traceNumber) {
+        return traceNumber == null ? null : inquiries.remove(traceNumber);
+    }
+
+    public int size() {
+        return inquiries.size();
+    }
+
+    /**
+     * Index every claim status tracking loop of a 276 stream: its TRN*1 trace number with
+     * the enclosing ISA13 and ST02, the subscriber's NM1*IL identifier, and the REF*EJ,
+     * REF*1K and AMT*T3 that follow the TRN. The stream is read segment by segment and is
+     * not closed.
+     *
+     * @return the number of inquiries indexed
+     */
+    public int index276(InputStream edi) throws IOException {
+        X12_SegmentReader reader = new X12_SegmentReader(edi);
+        String interchange = null;
+        String transaction = null;
+        String subscriberId = null;
+        Inquiry inquiry = null;
+        int count = 0;
+        X12_SegmentReader.Segment segment;
+        while ((segment = reader.next()) != null) {
+            if (segment.is("ISA")) {
+                interchange = segment.getElement(13);
+            } else if (segment.is("ST")) {
+                transaction = segment.getElement(2);
+            } else if (segment.is("HL")) {
+                inquiry = null;
+                if (!"23".equals(segment.getElement(3))) {
+                    subscriberId = null;
+                }
+            } else if (segment.is("NM1")) {
+                if ("IL".equals(segment.getElement(1))) {
+                    subscriberId = emptyToNull(segment.getElement(9));
+                }
+            } else if (segment.is("TRN")) {
+                inquiry = new Inquiry();
+                inquiry.setTraceNumber(segment.getElement(2));
+                inquiry.setInterchangeControlNumber(interchange);
+                inquiry.setTransactionSetControlNumber(transaction);
+                inquiry.setSubscriberId(subscriberId);
+                add(inquiry);
+                count++;
+            } else if (inquiry != null && segment.is("REF")) {
+                String qualifier = segment.getElement(1);
+                if ("EJ".equals(qualifier)) {
+                    inquiry.setPatientControlNumber(emptyToNull(segment.getElement(2)));
+                } else if ("1K".equals(qualifier)) {
+                    inquiry.setPayerClaimControlNumber(emptyToNull(segment.getElement(2)));
+                }
+            } else if (inquiry != null && segment.is("AMT")) {
+                if ("T3".equals(segment.getElement(1))) {
+                    inquiry.setChargeAmount(emptyToNull(segment.getElement(2)));
+                }
+            } else if (segment.is("SVC") || segment.is("SE")) {
+                inquiry = null;
+            }
+        }
+        return count;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,244 @@
+package org.example.XML;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams the claims of an 837 file as {@link X12_276_BatchGenerator.Claim} records, holding
+ * only the claim being read.
+ * <p>
+ * This module does not depend on the 837 model, so the reader scans segments with
+ * {@link X12_SegmentReader} and keeps just the values a 276 inquiry needs: the submitter (1000A), billing provider (2010AA),
+ * subscriber (2010BA), payer (2010BB) and patient (2010CA) in effect at each CLM, the claim's
+ * patient control number, charge, payer claim control number (REF*F8) and the span of its
+ * service dates (DTP*472, or the statement dates DTP*434 of an institutional claim).
+ * Delimiters are taken from each ISA, so files with several interchanges are read in order.
+ */
+public class X12_837_ClaimReader implements Iterator<X12_276_BatchGenerator.Claim>, Closeable {
+
+    private final X12_SegmentReader reader;
+
+    private String submissionDate;
+    private Party submitter;
+    private Party provider;
+    private Party subscriber;
+    private Party payer;
+    private Party patient;
+    private String level;
+
+    private X12_276_BatchGenerator.Claim claim;
+    private boolean serviceDatesFromLines;
+    private X12_276_BatchGenerator.Claim next;
+    private boolean done;
+
+    /**
+     * Name, identifier and demographics of one entity, as read from its NM1 and DMG.
+     */
+    private static final class Party {
+        String lastOrOrganization;
+        String first;
+        String middle;
+        String idQualifier;
+        String id;
+        String birthDate;
+        String gender;
+    }
+
+    public X12_837_ClaimReader(InputStream in) {
+        this.reader = new X12_SegmentReader(in);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            try {
+                next = readClaim();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            done = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public X12_276_BatchGenerator.Claim next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        X12_276_BatchGenerator.Claim result = next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * @return the next complete claim, or null at the end of the input
+     */
+    private X12_276_BatchGenerator.Claim readClaim() throws IOException {
+        X12_SegmentReader.Segment e;
+        while ((e = reader.next()) != null) {
+            X12_276_BatchGenerator.Claim finished = null;
+            if (e.is("BHT")) {
+                submissionDate = element(e, 4);
+            } else if (e.is("HL")) {
+                finished = finishClaim();
+                level = element(e, 3);
+                if ("20".equals(level)) {
+                    provider = null;
+                }
+                if (!"23".equals(level)) {
+                    subscriber = null;
+                    payer = null;
+                }
+                patient = null;
+            } else if (e.is("NM1")) {
+                nm1(e);
+            } else if (e.is("DMG")) {
+                Party party = "23".equals(level) ? patient : subscriber;
+                if (claim == null && party != null) {
+                    party.birthDate = element(e, 2);
+                    party.gender = element(e, 3);
+                }
+            } else if (e.is("CLM")) {
+                finished = finishClaim();
+                startClaim(e);
+            } else if (e.is("REF")) {
+                if (claim != null && "F8".equals(element(e, 1))) {
+                    claim.setPayerClaimControlNumber(element(e, 2));
+                }
+            } else if (e.is("DTP")) {
+                if (claim != null) {
+                    serviceDate(e);
+                }
+            } else if (e.is("SE")) {
+                finished = finishClaim();
+            }
+            if (finished != null) {
+                return finished;
+            }
+        }
+        return finishClaim();
+    }
+
+    private void nm1(X12_SegmentReader.Segment e) {
+        String entity = element(e, 1);
+        if (claim != null || entity == null) {
+            // 2310 providers and other claim-level names do not change the inquiry's parties.
+            return;
+        }
+        Party party = new Party();
+        party.lastOrOrganization = element(e, 3);
+        party.first = element(e, 4);
+        party.middle = element(e, 5);
+        party.idQualifier = element(e, 8);
+        party.id = element(e, 9);
+        switch (entity) {
+            case "41":
+                submitter = party;
+                break;
+            case "85":
+                provider = party;
+                break;
+            case "IL":
+                subscriber = party;
+                break;
+            case "PR":
+                payer = party;
+                break;
+            case "QC":
+                patient = party;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void startClaim(X12_SegmentReader.Segment e) {
+        claim = new X12_276_BatchGenerator.Claim();
+        serviceDatesFromLines = false;
+        claim.setSubmissionDate(submissionDate);
+        claim.setPatientControlNumber(element(e, 1));
+        claim.setChargeAmount(element(e, 2));
+        if (submitter != null) {
+            claim.setReceiverName(submitter.lastOrOrganization);
+            claim.setReceiverIdQualifier(submitter.idQualifier);
+            claim.setReceiverId(submitter.id);
+        }
+        if (provider != null) {
+            claim.setProviderName(provider.lastOrOrganization);
+            claim.setProviderIdQualifier(provider.idQualifier);
+            claim.setProviderId(provider.id);
+        }
+        if (payer != null) {
+            claim.setPayerName(payer.lastOrOrganization);
+            claim.setPayerIdQualifier(payer.idQualifier);
+            claim.setPayerId(payer.id);
+        }
+        if (subscriber != null) {
+            claim.setSubscriberLastName(subscriber.lastOrOrganization);
+            claim.setSubscriberFirstName(subscriber.first);
+            claim.setSubscriberMiddleName(subscriber.middle);
+            claim.setSubscriberIdQualifier(subscriber.idQualifier);
+            claim.setSubscriberId(subscriber.id);
+            claim.setSubscriberBirthDate(subscriber.birthDate);
+            claim.setSubscriberGender(subscriber.gender);
+        }
+        if (patient != null) {
+            claim.setPatientLastName(patient.lastOrOrganization);
+            claim.setPatientFirstName(patient.first);
+            claim.setPatientMiddleName(patient.middle);
+            claim.setPatientBirthDate(patient.birthDate);
+            claim.setPatientGender(patient.gender);
+        }
+    }
+
+    /**
+     * Widen the claim's service span with a DTP*472 (or DTP*434 while no 472 has been seen).
+     */
+    private void serviceDate(X12_SegmentReader.Segment e) {
+        String qualifier = element(e, 1);
+        boolean statement = "434".equals(qualifier);
+        if (!"472".equals(qualifier) && !(statement && !serviceDatesFromLines)) {
+            return;
+        }
+        String value = element(e, 3);
+        if (value == null) {
+            return;
+        }
+        int dash = value.indexOf('-');
+        String from = dash < 0 ? value : value.substring(0, dash);
+        String to = dash < 0 ? value : value.substring(dash + 1);
+        if (!statement && !serviceDatesFromLines) {
+            // Service line dates take precedence over the statement period.
+            claim.setServiceDateFrom(null);
+            claim.setServiceDateTo(null);
+            serviceDatesFromLines = true;
+        }
+        if (claim.getServiceDateFrom() == null || from.compareTo(claim.getServiceDateFrom()) < 0) {
+            claim.setServiceDateFrom(from);
+        }
+        if (claim.getServiceDateTo() == null || to.compareTo(claim.getServiceDateTo()) > 0) {
+            claim.setServiceDateTo(to);
+        }
+    }
+
+    private X12_276_BatchGenerator.Claim finishClaim() {
+        X12_276_BatchGenerator.Claim finished = claim;
+        claim = null;
+        return finished;
+    }
+
+    private static String element(X12_SegmentReader.Segment segment, int index) {
+        String value = segment.getElement(index);
+        return value.isEmpty() ? null : value;
+    }
+}
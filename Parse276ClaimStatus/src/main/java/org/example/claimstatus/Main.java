@@ -1,22 +1,60 @@
 package org.example.claimstatus;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.XML.X12_276_BatchGenerator;
 import org.example.XML.X12_276_ClaimStatus;
 import org.example.XML.X12_276_Parser;
+import org.example.XML.X12_277_ClaimStatusResponse;
+import org.example.XML.X12_277_Parser;
+import org.example.XML.X12_277_TraceIndex;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Demonstrates parsing an X12 276 Claim Status request into Java objects using Smooks.
  * <p>
  * The program converts the EDI message to XML and then uses Jackson to bind the
  * XML into the {@link X12_276_ClaimStatus} model.
+ * <p>
+ * Given arguments {@code <file.edi> [xml|json|yaml]}, it instead converts that file and
+ * writes the result (the Smooks XML by default) to standard output.
+ * <p>
+ * Given arguments {@code generate <senderId> <receiverId> <firstControlNumber> <pendingDays>
+ * <file.837>...}, it writes 276 inquiries for every claim in the 837 files submitted at least
+ * {@code pendingDays} days ago to standard output, numbering the interchanges from
+ * {@code firstControlNumber}. The number to start the next run at is logged.
+ * <p>
+ * Given arguments {@code status <file.277> [file.276]...}, it prints one line per claim status
+ * in the 277, with the patient control number of the matching inquiry in the 276 files.
  */
 @Slf4j
 public class Main {
 
     public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("generate")) {
+            generate(args, System.out);
+            System.out.flush();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("status")) {
+            status(args, System.out);
+            System.out.flush();
+            return;
+        }
+        if (args.length > 0) {
+            convert(Paths.get(args[0]), args.length > 1 ? args[1] : "xml", System.out);
+            System.out.flush();
+            return;
+        }
+
         byte[] ediInput = Files.readAllBytes(Paths.get(Main.class.getClassLoader()
                 .getResource("input276.edi").toURI()));
 
@@ -32,4 +70,78 @@ public class Main {
         log.info("As JSON: {}", X12_276_Parser.toJson(claimStatus));
         log.info("As YAML: {}", X12_276_Parser.toYaml(claimStatus));
     }
+
+    /**
+     * Stream the claims of the given 837 files into 276 interchanges.
+     */
+    static void generate(String[] args, OutputStream out) throws Exception {
+        if (args.length < 6) {
+            throw new IllegalArgumentException(
+                    "Usage: generate <senderId> <receiverId> <firstControlNumber> <pendingDays> <file.837>...");
+        }
+        Predicate<X12_276_BatchGenerator.Claim> pending =
+                X12_276_BatchGenerator.pendingFor(Integer.parseInt(args[4]), LocalDate.now());
+        X12_276_BatchGenerator generator = new X12_276_BatchGenerator(out, args[1], args[2], Long.parseLong(args[3]));
+        try (generator) {
+            for (int i = 5; i < args.length; i++) {
+                try (InputStream in = Files.newInputStream(Paths.get(args[i]))) {
+                    generator.addAll(in, pending);
+                }
+            }
+        }
+        long last = generator.getLastInterchangeControlNumber();
+        log.info("Wrote {} claim status inquiries; start the next run at control number {}", generator.getClaimCount(),
+                generator.getClaimCount() == 0 ? args[3] : Long.toString(last == 999_999_999 ? 1 : last + 1));
+    }
+
+    /**
+     * Join the claim statuses of a 277 file to the inquiries of the given 276 files.
+     */
+    static void status(String[] args, PrintStream out) throws Exception {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: status <file.277> [file.276]...");
+        }
+        X12_277_TraceIndex index = new X12_277_TraceIndex();
+        for (int i = 2; i < args.length; i++) {
+            try (InputStream in = Files.newInputStream(Paths.get(args[i]))) {
+                index.index276(in);
+            }
+        }
+        try (InputStream in = Files.newInputStream(Paths.get(args[1]))) {
+            long count = X12_277_Parser.streamClaimStatuses(in, index, status -> out.println(
+                    status.getTraceNumber() + "\t" + firstStatus(status)
+                            + "\t" + (status.getInquiry() == null ? "unmatched" : status.getInquiry().getPatientControlNumber())));
+            log.info("Read {} claim statuses", count);
+        }
+    }
+
+    /**
+     * @return the first STC status composite of a claim status, or {@code no status} if it has none
+     */
+    static String firstStatus(X12_277_Parser.ClaimStatus status) {
+        List<X12_277_ClaimStatusResponse.Stc> stc = status.getTracking().getStc();
+        return stc == null || stc.isEmpty() ? "no status" : stc.get(0).getStatus();
+    }
+
+    /**
+     * Convert one 276 EDI file to the given format.
+     */
+    static void convert(Path ediFile, String format, PrintStream out) throws Exception {
+        String xml = X12_276_Parser.parseEDI(Files.readAllBytes(ediFile));
+        if (format.equals("xml")) {
+            out.print(xml);
+            return;
+        }
+        X12_276_ClaimStatus claimStatus = X12_276_Parser.parseXML(xml);
+        switch (format) {
+            case "json":
+                X12_276_Parser.writeJson(claimStatus, (OutputStream) out);
+                break;
+            case "yaml":
+                X12_276_Parser.writeYaml(claimStatus, (OutputStream) out);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown format: " + format + " (expected xml, json or yaml)");
+        }
+    }
 }
@@ -0,0 +1,214 @@
+package org.example.XML;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the asynchronous 276 facade and the in-flight byte admission it shares with the
+ * other transaction modules.
+ */
+public class X12_276_AsyncParserTest {
+
+    @Test
+    public void testComposedStagesMatchSynchronousApi() throws Exception {
+        byte[] edi = X12_276_ParserTest.sample276().getBytes(StandardCharsets.ISO_8859_1);
+        try (X12_276_AsyncParser parser = new X12_276_AsyncParser(2, 16, 1024 * 1024,
+                X12_276_AsyncParser.AdmissionPolicy.QUEUE)) {
+            CompletableFuture<String> json = parser.read(edi).thenCompose(parser::toJson);
+            CompletableFuture<String> ediOut = parser.read(edi).thenCompose(parser::toEdi);
+
+            X12_276_ClaimStatus expected = X12_276_Parser.parseXML(X12_276_Parser.parseEDI(edi));
+            assertEquals(X12_276_Parser.toJson(expected), json.get(60, TimeUnit.SECONDS));
+            assertEquals(X12_276_Parser.xmlToEDI(expected), ediOut.get(60, TimeUnit.SECONDS));
+            assertEquals(0, parser.getInFlightBytes());
+        }
+    }
+
+    @Test
+    public void testRejectPastInFlightLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        byte[] edi = X12_276_ParserTest.sample276().getBytes(StandardCharsets.ISO_8859_1);
+        try (X12_276_AsyncParser parser = new X12_276_AsyncParser(2, 16, edi.length + 10,
+                X12_276_AsyncParser.AdmissionPolicy.REJECT)) {
+            CompletableFuture<String> running = parser.submit(edi.length, () -> {
+                release.await();
+                return "done";
+            });
+            try {
+                parser.parseEDI(edi).get(5, TimeUnit.SECONDS);
+                fail("Expected admission to be rejected");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+            assertEquals("Small work still fits", "small", parser.submit(10, () -> "small").get(5, TimeUnit.SECONDS));
+
+            release.countDown();
+            assertEquals("done", running.get(5, TimeUnit.SECONDS));
+            assertTrue(parser.parseEDI(edi).get(60, TimeUnit.SECONDS).contains("1234567890"));
+        }
+    }
+
+    @Test
+    public void testQueuedWorkRunsInOrderAsBytesAreReleased() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> order = new ArrayList<>();
+        try (X12_276_AsyncParser parser = new X12_276_AsyncParser(4, 16, 100,
+                X12_276_AsyncParser.AdmissionPolicy.QUEUE)) {
+            CompletableFuture<String> running = parser.submit(80, () -> {
+                release.await();
+                return "first";
+            });
+            List<CompletableFuture<Integer>> queued = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                int task = i;
+                queued.add(parser.submit(60, () -> {
+                    synchronized (order) {
+                        order.add(task);
+                    }
+                    return task;
+                }));
+            }
+            // Nothing may overtake the queue, even work that would fit.
+            CompletableFuture<String> small = parser.submit(1, () -> "small");
+            assertEquals(4, parser.getQueuedCount());
+            assertEquals(80, parser.getInFlightBytes());
+            assertFalse(small.isDone());
+
+            release.countDown();
+            assertEquals("first", running.get(5, TimeUnit.SECONDS));
+            for (CompletableFuture<Integer> future : queued) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+            assertEquals("small", small.get(5, TimeUnit.SECONDS));
+            assertEquals(List.of(0, 1, 2), order);
+            assertEquals(0, parser.getQueuedCount());
+        }
+    }
+
+    @Test
+    public void testSerializeStagesWeighTheModel() throws Exception {
+        byte[] edi = X12_276_ParserTest.sample276().getBytes(StandardCharsets.ISO_8859_1);
+        X12_276_ClaimStatus claimStatus = X12_276_Parser.parseXML(X12_276_Parser.parseEDI(edi));
+        long modelBytes = X12_ModelWalker.estimateBytes(claimStatus);
+        assertTrue(modelBytes > edi.length);
+
+        CountDownLatch release = new CountDownLatch(1);
+        try (X12_276_AsyncParser parser = new X12_276_AsyncParser(2, 16, modelBytes,
+                X12_276_AsyncParser.AdmissionPolicy.REJECT)) {
+            CompletableFuture<String> running = parser.submit(1, () -> {
+                release.await();
+                return "done";
+            });
+            try {
+                parser.toJson(claimStatus).get(5, TimeUnit.SECONDS);
+                fail("Serializing should not bypass the in-flight limit");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+            release.countDown();
+            assertEquals("done", running.get(5, TimeUnit.SECONDS));
+            assertEquals(X12_276_Parser.toJson(claimStatus), parser.toJson(claimStatus).get(60, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testQueuedWorkWaitsForRoomInThePool() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (X12_276_AsyncParser parser = new X12_276_AsyncParser(1, 1, 1024 * 1024,
+                X12_276_AsyncParser.AdmissionPolicy.QUEUE)) {
+            List<CompletableFuture<Integer>> tasks = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                int task = i;
+                tasks.add(parser.submit(1, () -> {
+                    release.await();
+                    return task;
+                }));
+            }
+            assertEquals("One running and one in the pool's queue; the rest wait for admission", 3,
+                    parser.getQueuedCount());
+            release.countDown();
+            for (int i = 0; i < tasks.size(); i++) {
+                assertEquals(i, (int) tasks.get(i).get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(0, parser.getQueuedCount());
+            assertEquals(0, parser.getInFlightBytes());
+        }
+    }
+
+    @Test
+    public void testRejectPastTaskLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (X12_276_AsyncParser parser = new X12_276_AsyncParser(1, 1, 1024 * 1024,
+                X12_276_AsyncParser.AdmissionPolicy.REJECT)) {
+            CompletableFuture<String> running = parser.submit(1, () -> {
+                release.await();
+                return "running";
+            });
+            CompletableFuture<String> queued = parser.submit(1, () -> "queued");
+            try {
+                parser.submit(1, () -> "over").get(5, TimeUnit.SECONDS);
+                fail("Expected the task limit to reject");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+                assertEquals("Task limit of 2 reached", e.getCause().getMessage());
+            }
+            release.countDown();
+            assertEquals("running", running.get(5, TimeUnit.SECONDS));
+            assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testFailedTaskReleasesItsBytes() throws Exception {
+        try (X12_276_AsyncParser parser = new X12_276_AsyncParser(1, 4, 100,
+                X12_276_AsyncParser.AdmissionPolicy.REJECT)) {
+            try {
+                parser.read("not EDI".getBytes(StandardCharsets.ISO_8859_1)).get(60, TimeUnit.SECONDS);
+                fail("Expected the parse to fail");
+            } catch (ExecutionException expected) {
+                // expected
+            }
+            assertEquals(0, parser.getInFlightBytes());
+            assertEquals("next", parser.submit(100, () -> "next").get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testCloseFailsQueuedWork() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        X12_276_AsyncParser parser = new X12_276_AsyncParser(1, 4, 100, X12_276_AsyncParser.AdmissionPolicy.QUEUE);
+        CompletableFuture<String> running = parser.submit(100, () -> {
+            release.await();
+            return "admitted";
+        });
+        CompletableFuture<String> queued = parser.submit(1, () -> "never");
+        parser.close();
+        release.countDown();
+
+        assertEquals("Admitted work runs to completion", "admitted", running.get(5, TimeUnit.SECONDS));
+        try {
+            queued.get(5, TimeUnit.SECONDS);
+            fail("Queued work should be failed by close");
+        } catch (CancellationException expected) {
+            assertTrue(queued.isCancelled());
+        }
+        try {
+            parser.submit(1, () -> "late").get(5, TimeUnit.SECONDS);
+            fail("A closed facade should reject work");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+            assertEquals("X12_276_AsyncParser is closed", e.getCause().getMessage());
+        }
+    }
+}
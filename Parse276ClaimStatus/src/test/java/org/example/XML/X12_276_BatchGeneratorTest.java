@@ -0,0 +1,309 @@
+package org.example.XML;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for writing 276 inquiries from 837 claims and reading them back with {@link X12_276_Parser}.
+ */
+public class X12_276_BatchGeneratorTest {
+
+    /** The level each HL level code must hang under. */
+    private static final Map<String, String> PARENT_LEVEL = Map.of("21", "20", "19", "21", "22", "19", "23", "22");
+
+    /**
+     * @return the generator's output cut into its interchanges
+     */
+    private static List<String> interchanges(byte[] edi) {
+        String text = new String(edi, StandardCharsets.ISO_8859_1);
+        List<String> interchanges = new ArrayList<>();
+        int start = text.indexOf("ISA*");
+        while (start >= 0) {
+            int next = text.indexOf("ISA*", start + 1);
+            interchanges.add(next < 0 ? text.substring(start) : text.substring(start, next));
+            start = next;
+        }
+        return interchanges;
+    }
+
+    private static X12_276_ClaimStatus parse(String interchange) throws Exception {
+        return X12_276_Parser.parseXML(X12_276_Parser.parseEDI(interchange.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    private static List<X12_276_ClaimStatus.ClaimStatusTracking> trackings(X12_276_ClaimStatus.Transaction transaction) {
+        List<X12_276_ClaimStatus.ClaimStatusTracking> trackings = new ArrayList<>();
+        for (X12_276_ClaimStatus.HierarchicalLevel level : transaction.getHierarchicalLevel()) {
+            if (level.getClaimStatusTracking() != null) {
+                trackings.addAll(level.getClaimStatusTracking());
+            }
+        }
+        return trackings;
+    }
+
+    /**
+     * Check SE01/SE02 against each transaction set, GE01/GE02 against the group and
+     * IEA01/IEA02 against the interchange, counting the segments as written.
+     */
+    private static void assertEnvelopes(String interchange) {
+        String isa13 = null;
+        String gs06 = null;
+        String st02 = null;
+        int segments = 0;
+        int sets = 0;
+        for (String segment : interchange.split("~")) {
+            String[] e = segment.strip().split("\\*", -1);
+            switch (e[0]) {
+                case "ISA":
+                    isa13 = e[13];
+                    break;
+                case "GS":
+                    gs06 = e[6];
+                    break;
+                case "ST":
+                    st02 = e[2];
+                    segments = 0;
+                    sets++;
+                    break;
+                case "SE":
+                    assertEquals("SE01 of set " + st02, Integer.toString(segments + 1), e[1]);
+                    assertEquals(st02, e[2]);
+                    break;
+                case "GE":
+                    assertEquals(Integer.toString(sets), e[1]);
+                    assertEquals(gs06, e[2]);
+                    break;
+                case "IEA":
+                    assertEquals("1", e[1]);
+                    assertEquals(isa13, e[2]);
+                    break;
+                default:
+                    break;
+            }
+            segments++;
+        }
+    }
+
+    /**
+     * Check that HL ids count up from 1, that each parent is an earlier HL of the level above,
+     * and that HL04 says whether any HL hangs under it.
+     */
+    private static void assertHierarchy(X12_276_ClaimStatus.Transaction transaction) {
+        Map<String, String> levelCodes = new HashMap<>();
+        Set<String> parents = new HashSet<>();
+        List<X12_276_ClaimStatus.HierarchicalLevel> levels = transaction.getHierarchicalLevel();
+        for (int i = 0; i < levels.size(); i++) {
+            X12_276_ClaimStatus.Hl hl = levels.get(i).getHl();
+            assertEquals(Integer.toString(i + 1), hl.getHierarchicalIdNumber());
+            String parentLevel = PARENT_LEVEL.get(hl.getHierarchicalLevelCode());
+            if (parentLevel == null) {
+                assertEquals("20", hl.getHierarchicalLevelCode());
+                assertNull(hl.getHierarchicalParentId());
+            } else {
+                assertEquals("HL " + hl.getHierarchicalIdNumber(), parentLevel, levelCodes.get(hl.getHierarchicalParentId()));
+                parents.add(hl.getHierarchicalParentId());
+            }
+            levelCodes.put(hl.getHierarchicalIdNumber(), hl.getHierarchicalLevelCode());
+        }
+        for (X12_276_ClaimStatus.HierarchicalLevel level : levels) {
+            X12_276_ClaimStatus.Hl hl = level.getHl();
+            boolean hasChildren = parents.contains(hl.getHierarchicalIdNumber());
+            assertEquals("HL04 of HL " + hl.getHierarchicalIdNumber(), hasChildren,
+                    "1".equals(hl.getHierarchicalChildCode()));
+        }
+    }
+
+    private static byte[] generate(int claimsPerTransaction, int transactionsPerInterchange, long firstControlNumber,
+                                   int claims) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (X12_276_BatchGenerator generator = new X12_276_BatchGenerator(out, "SENDER", "RECEIVER",
+                firstControlNumber, claimsPerTransaction, transactionsPerInterchange)) {
+            for (int i = 1; i <= claims; i++) {
+                generator.add(X12_277_TraceIndexTest.claim(String.format("PCN%03d", i), i % 2 == 0));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testClaimsFromAn837ParseBack() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (X12_276_BatchGenerator generator = new X12_276_BatchGenerator(out, "SENDER", "RECEIVER", 7);
+             InputStream in = new ByteArrayInputStream(X12_277_ParserTest.resource("claims837.edi"))) {
+            assertEquals(5, generator.addAll(in, claim -> true));
+        }
+        List<String> interchanges = interchanges(out.toByteArray());
+        assertEquals(1, interchanges.size());
+        assertEnvelopes(interchanges.get(0));
+
+        X12_276_ClaimStatus claimStatus = parse(interchanges.get(0));
+        assertEquals("000000007", claimStatus.getInterchangeHeader().getInterchangeControlNumber());
+        assertEquals(5, X12_ConversionEvents.claimCount(claimStatus));
+        X12_276_ClaimStatus.Transaction transaction = claimStatus.getTransaction().get(0);
+        assertHierarchy(transaction);
+
+        List<String> levelCodes = new ArrayList<>();
+        for (X12_276_ClaimStatus.HierarchicalLevel level : transaction.getHierarchicalLevel()) {
+            levelCodes.add(level.getHl().getHierarchicalLevelCode());
+        }
+        assertEquals(List.of("20", "21", "19", "22", "22", "22", "23", "19", "22"), levelCodes);
+        assertEquals("ABC MEDICAL BILLING SERVICE", transaction.getHierarchicalLevel().get(1).getNm1().getNameLastOrOrg());
+        assertEquals("1666666666", transaction.getHierarchicalLevel().get(7).getNm1().getIdCode());
+
+        List<X12_276_ClaimStatus.ClaimStatusTracking> trackings = trackings(transaction);
+        List<String> traces = new ArrayList<>();
+        List<String> patientControlNumbers = new ArrayList<>();
+        for (X12_276_ClaimStatus.ClaimStatusTracking tracking : trackings) {
+            traces.add(tracking.getTrn().getReferenceIdentification());
+            patientControlNumbers.add(tracking.getRef().get(tracking.getRef().size() - 1).getId());
+        }
+        assertEquals(List.of("000000007-1", "000000007-2", "000000007-3", "000000007-4", "000000007-5"), traces);
+        assertEquals(List.of("PCN001", "PCN002", "PCN003", "PCN004", "PCN005"), patientControlNumbers);
+
+        X12_276_ClaimStatus.ClaimStatusTracking second = trackings.get(1);
+        assertEquals("1K", second.getRef().get(0).getQualifier());
+        assertEquals("ORIG0002", second.getRef().get(0).getId());
+        assertEquals("EJ", second.getRef().get(1).getQualifier());
+        assertEquals("350.00", second.getAmt().getAmount());
+        assertEquals("RD8", second.getDtp().get(0).getFormat());
+        assertEquals("20240512-20240514", second.getDtp().get(0).getDate());
+
+        // The dependent's claim sits in its own 2000E, under a second 2000D for the same subscriber.
+        X12_276_ClaimStatus.HierarchicalLevel ownClaims = transaction.getHierarchicalLevel().get(4);
+        X12_276_ClaimStatus.HierarchicalLevel aboveDependent = transaction.getHierarchicalLevel().get(5);
+        X12_276_ClaimStatus.HierarchicalLevel dependent = transaction.getHierarchicalLevel().get(6);
+        assertEquals("345678901", ownClaims.getNm1().getIdCode());
+        assertEquals("345678901", aboveDependent.getNm1().getIdCode());
+        assertEquals("0", ownClaims.getHl().getHierarchicalChildCode());
+        assertEquals("19700101", ownClaims.getDmg().getDate());
+        assertEquals("000000007-3", ownClaims.getClaimStatusTracking().get(0).getTrn().getReferenceIdentification());
+        assertNull("Only a subscriber who is the patient has a 2000D DMG", aboveDependent.getDmg());
+        assertNull(aboveDependent.getClaimStatusTracking());
+        assertEquals("QC", dependent.getNm1().getEntityIdCode());
+        assertEquals("20100101", dependent.getDmg().getDate());
+        assertEquals("000000007-4", dependent.getClaimStatusTracking().get(0).getTrn().getReferenceIdentification());
+    }
+
+    @Test
+    public void testSplitsTransactionsAndInterchanges() throws Exception {
+        List<String> interchanges = interchanges(generate(2, 2, 42, 7));
+        assertEquals(2, interchanges.size());
+
+        List<Integer> claimsPerSet = new ArrayList<>();
+        for (int i = 0; i < interchanges.size(); i++) {
+            assertEnvelopes(interchanges.get(i));
+            X12_276_ClaimStatus claimStatus = parse(interchanges.get(i));
+            assertEquals(String.format("%09d", 42 + i), claimStatus.getInterchangeHeader().getInterchangeControlNumber());
+            assertEquals(Integer.toString(42 + i), claimStatus.getGroupHeader().getGroupControlNumber());
+            assertEquals(2, claimStatus.getTransaction().size());
+            for (int set = 0; set < claimStatus.getTransaction().size(); set++) {
+                X12_276_ClaimStatus.Transaction transaction = claimStatus.getTransaction().get(set);
+                assertEquals(String.format("%04d", set + 1),
+                        transaction.getTransactionSetHeader().getTransactionSetControlNumber());
+                assertHierarchy(transaction);
+                claimsPerSet.add(trackings(transaction).size());
+            }
+        }
+        assertEquals(List.of(2, 2, 2, 1), claimsPerSet);
+    }
+
+    @Test
+    public void testControlNumberRollsOver() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        X12_276_BatchGenerator generator = new X12_276_BatchGenerator(out, "SENDER", "RECEIVER", 999_999_999, 1, 1);
+        for (int i = 1; i <= 3; i++) {
+            generator.add(X12_277_TraceIndexTest.claim("PCN" + i, false));
+        }
+        generator.close();
+        assertEquals(2, generator.getLastInterchangeControlNumber());
+
+        List<String> controlNumbers = new ArrayList<>();
+        for (String interchange : interchanges(out.toByteArray())) {
+            assertEnvelopes(interchange);
+            controlNumbers.add(parse(interchange).getInterchangeHeader().getInterchangeControlNumber());
+        }
+        assertEquals(List.of("999999999", "000000001", "000000002"), controlNumbers);
+
+        for (long invalid : new long[]{0, 1_000_000_000}) {
+            try {
+                new X12_276_BatchGenerator(out, "SENDER", "RECEIVER", invalid);
+                fail("Accepted control number " + invalid);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Claims for a new subscriber every five claims, every third subscriber asking for a dependent.
+     */
+    private static Iterator<X12_276_BatchGenerator.Claim> syntheticClaims(int count) {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public X12_276_BatchGenerator.Claim next() {
+                int subscriber = next / 5;
+                X12_276_BatchGenerator.Claim claim = X12_277_TraceIndexTest.claim(
+                        String.format("PCN%09d", next++), subscriber % 3 == 0);
+                claim.setSubscriberId(String.format("S%09d", subscriber));
+                return claim;
+            }
+        };
+    }
+
+    /**
+     * @return bytes allocated by this thread per claim written
+     */
+    private static double allocatedPerClaim(int claims) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] written = new long[1];
+        OutputStream discard = new OutputStream() {
+            @Override
+            public void write(int b) {
+                written[0]++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                written[0] += len;
+            }
+        };
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        try (X12_276_BatchGenerator generator = new X12_276_BatchGenerator(discard, "SENDER", "RECEIVER", 1)) {
+            assertEquals(claims, generator.addAll(syntheticClaims(claims), claim -> true));
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertTrue(written[0] > claims * 100L);
+        return (double) allocated / claims;
+    }
+
+    @Test
+    public void testLargeStreamAllocatesTheSamePerClaim() throws Exception {
+        allocatedPerClaim(20_000);
+        double small = allocatedPerClaim(20_000);
+        double large = allocatedPerClaim(200_000);
+        assertTrue(String.format("%.0f bytes allocated per claim at 200000 claims but %.0f at 20000", large, small),
+                large <= 1.5 * small);
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.XML;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for 276 parsing and serializing, and for refilling one model per thread.
+ */
+public class X12_276_ParserTest {
+
+    static String sample276() throws Exception {
+        return new String(X12_277_ParserTest.resource("input276.edi"), StandardCharsets.ISO_8859_1);
+    }
+
+    private static long enginesBuilt(String config) {
+        return X12_Metrics.global().histogram("x12_engine_creation_seconds",
+                "Time to build a Smooks engine from its config", new String[]{"config"}, config).getCount();
+    }
+
+    @Test
+    public void testParseAndSerializeSample() throws Exception {
+        String edi = sample276();
+        X12_276_ClaimStatus claimStatus = X12_276_Parser.parseXML(X12_276_Parser.parseEDI(edi));
+
+        assertEquals("000000905", claimStatus.getInterchangeHeader().getInterchangeControlNumber());
+        assertEquals(1, X12_ConversionEvents.claimCount(claimStatus));
+        X12_276_ClaimStatus.Transaction transaction = claimStatus.getTransaction().get(0);
+        assertEquals("17", transaction.getTransactionSetTrailer().getNumberOfIncludedSegments());
+        List<X12_276_ClaimStatus.HierarchicalLevel> levels = transaction.getHierarchicalLevel();
+        assertEquals(4, levels.size());
+        assertEquals("InformationReceiver", levels.get(1).getNm1().getNameLastOrOrg());
+        X12_276_ClaimStatus.HierarchicalLevel subscriber = levels.get(3);
+        assertEquals("3", subscriber.getHl().getHierarchicalParentId());
+        assertEquals("19800101", subscriber.getDmg().getDate());
+        assertEquals("123456789", subscriber.getNm1().getIdCode());
+        X12_276_ClaimStatus.ClaimStatusTracking tracking = subscriber.getClaimStatusTracking().get(0);
+        assertEquals("1234567890", tracking.getTrn().getReferenceIdentification());
+        assertEquals("DOE12345", tracking.getRef().get(1).getId());
+        assertEquals("150", tracking.getAmt().getAmount());
+
+        // Serializing the model gives back the sample.
+        assertEquals(edi.replaceAll("~\\s*", "~").strip(), X12_276_Parser.xmlToEDI(claimStatus).strip());
+
+        StringWriter written = new StringWriter();
+        X12_276_Parser.writeEDI(claimStatus, written);
+        assertEquals(X12_276_Parser.xmlToEDI(claimStatus), written.toString());
+        assertEquals(claimStatus, X12_276_Parser.parseXML(X12_276_Parser.toXml(claimStatus)));
+    }
+
+    @Test
+    public void testParsesTheImplementationGuideExample() throws Exception {
+        X12_276_ClaimStatus claimStatus = X12_276_Parser.parseXML(X12_276_Parser.parseEDI(
+                X12_277_ParserTest.resource("sample_276_claim_status_request.edi")));
+
+        assertEquals(3, X12_ConversionEvents.claimCount(claimStatus));
+        List<X12_276_ClaimStatus.HierarchicalLevel> levels = claimStatus.getTransaction().get(0).getHierarchicalLevel();
+        assertEquals(8, levels.size());
+        X12_276_ClaimStatus.HierarchicalLevel dependent = levels.get(7);
+        assertEquals("23", dependent.getHl().getHierarchicalLevelCode());
+        assertEquals("7", dependent.getHl().getHierarchicalParentId());
+        X12_276_ClaimStatus.ServiceLine line = dependent.getClaimStatusTracking().get(0).getServiceLine().get(0);
+        assertEquals("HC:99203", line.getSvc().getProcedure());
+        assertEquals("1", line.getSvc().getUnits());
+        assertEquals("20050501", line.getDtp().get(0).getDate());
+    }
+
+    @Test
+    public void testEnginesAreBuiltOnce() throws Exception {
+        String edi = sample276();
+        X12_276_Parser.xmlToEDI(X12_276_Parser.parseEDI(edi));
+        long parsers = enginesBuilt(X12_276_Parser.CONFIG);
+        long serializers = enginesBuilt(X12_276_Parser.SERIALIZE_CONFIG);
+
+        for (int i = 0; i < 3; i++) {
+            X12_276_Parser.xmlToEDI(X12_276_Parser.parseEDI(edi));
+            X12_276_Parser.bindingReuse().parse(new ByteArrayInputStream(edi.getBytes(StandardCharsets.ISO_8859_1)));
+        }
+        assertEquals(1, parsers);
+        assertEquals(1, serializers);
+        assertEquals(parsers, enginesBuilt(X12_276_Parser.CONFIG));
+        assertEquals(serializers, enginesBuilt(X12_276_Parser.SERIALIZE_CONFIG));
+    }
+
+    @Test
+    public void testBindingReuseRefillsTheSameModel() throws Exception {
+        X12_BindingReuse<X12_276_ClaimStatus> reuse = X12_276_Parser.bindingReuse();
+        String sample = sample276();
+        String withoutAmt = sample.replace("AMT*T3*150~\n", "").replace("SE*17*", "SE*16*");
+        assertNotEquals(sample, withoutAmt);
+
+        byte[] edi = sample.getBytes(StandardCharsets.ISO_8859_1);
+        X12_276_ClaimStatus first = reuse.parse(edi, 0, edi.length);
+        X12_276_ClaimStatus.InterchangeHeader header = first.getInterchangeHeader();
+        assertNotNull(tracking(first).getAmt());
+
+        byte[] smaller = withoutAmt.getBytes(StandardCharsets.ISO_8859_1);
+        X12_276_ClaimStatus second = reuse.parse(smaller, 0, smaller.length);
+        assertSame(first, second);
+        assertSame(header, second.getInterchangeHeader());
+        assertNull("A segment the request lacks is dropped", tracking(second).getAmt());
+        assertEquals(X12_276_Parser.parseXML(X12_276_Parser.parseEDI(withoutAmt)), second);
+        assertEquals(X12_276_Parser.toJson(second), reuse.toJson(second).toString());
+    }
+
+    private static X12_276_ClaimStatus.ClaimStatusTracking tracking(X12_276_ClaimStatus claimStatus) {
+        return claimStatus.getTransaction().get(0).getHierarchicalLevel().get(3).getClaimStatusTracking().get(0);
+    }
+}
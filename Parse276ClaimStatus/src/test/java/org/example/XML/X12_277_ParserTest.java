@@ -0,0 +1,151 @@
+package org.example.XML;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for 277 parsing, whole-document and streamed claim by claim.
+ */
+public class X12_277_ParserTest {
+
+    static byte[] resource(String name) throws Exception {
+        Path path = Paths.get(X12_277_ParserTest.class.getClassLoader().getResource(name).toURI());
+        return Files.readAllBytes(path);
+    }
+
+    /**
+     * @return every claim status tracking loop of a model, in document order
+     */
+    private static List<X12_277_ClaimStatusResponse.ClaimStatusTracking> trackings(X12_277_ClaimStatusResponse response) {
+        List<X12_277_ClaimStatusResponse.ClaimStatusTracking> trackings = new ArrayList<>();
+        for (X12_277_ClaimStatusResponse.Transaction transaction : response.getTransaction()) {
+            for (X12_277_ClaimStatusResponse.HierarchicalLevel level : transaction.getHierarchicalLevel()) {
+                if (level.getClaimStatusTracking() != null) {
+                    trackings.addAll(level.getClaimStatusTracking());
+                }
+            }
+        }
+        return trackings;
+    }
+
+    @Test
+    public void testParseEdiAndXml() throws Exception {
+        String xml = X12_277_Parser.parseEDI(resource("input277.edi"));
+        X12_277_ClaimStatusResponse response = X12_277_Parser.parseXML(xml);
+
+        assertEquals("RECEIVERID7890", response.getInterchangeHeader().getSenderId().trim());
+        assertEquals("000000906", response.getInterchangeHeader().getInterchangeControlNumber());
+        assertEquals(1, response.getTransaction().size());
+        X12_277_ClaimStatusResponse.Transaction transaction = response.getTransaction().get(0);
+        assertEquals("0002", transaction.getTransactionSetHeader().getTransactionSetControlNumber());
+        assertEquals("30", transaction.getTransactionSetTrailer().getNumberOfIncludedSegments());
+
+        List<X12_277_ClaimStatusResponse.HierarchicalLevel> levels = transaction.getHierarchicalLevel();
+        assertEquals(6, levels.size());
+        assertEquals("CLAIMS DEPT", levels.get(0).getPer().get(0).getName());
+        assertEquals("6", levels.get(5).getHl().getHierarchicalIdNumber());
+        assertEquals("5", levels.get(5).getHl().getHierarchicalParentId());
+        assertEquals("23", levels.get(5).getHl().getHierarchicalLevelCode());
+
+        List<X12_277_ClaimStatusResponse.ClaimStatusTracking> trackings = trackings(response);
+        assertEquals(2, trackings.size());
+        assertEquals("1234567890", trackings.get(0).getTrn().getReferenceIdentification());
+        assertEquals("A1:20:PR", trackings.get(0).getStc().get(0).getStatus());
+        X12_277_ClaimStatusResponse.ClaimStatusTracking dependent = trackings.get(1);
+        assertEquals("ABCXYZ3", dependent.getTrn().getReferenceIdentification());
+        assertEquals("123456", dependent.getStc().get(0).getCheckNumber());
+        assertEquals("HC:99203", dependent.getServiceLine().get(0).getSvc().getProcedure());
+        assertEquals("1", dependent.getServiceLine().get(0).getRef().get(0).getId());
+
+        // The model survives a trip through its own XML.
+        assertEquals(response, X12_277_Parser.parseXML(X12_277_Parser.toXml(response)));
+        assertEquals(2, X12_ConversionEvents.claimCount(response));
+        assertEquals("RECEIVERID7890", X12_ConversionEvents.senderId(response));
+    }
+
+    @Test
+    public void testStreamedParseMatchesStringParse() throws Exception {
+        byte[] edi = resource("input277.edi");
+        StringWriter xml = new StringWriter();
+        X12_277_Parser.parseEDI(new ByteArrayInputStream(edi), xml);
+
+        assertEquals(X12_277_Parser.parseXML(X12_277_Parser.parseEDI(edi)),
+                X12_277_Parser.parseXML(xml.toString()));
+    }
+
+    @Test
+    public void testStreamClaimStatusesMatchesModel() throws Exception {
+        byte[] edi = resource("input277.edi");
+        List<X12_277_ClaimStatusResponse.ClaimStatusTracking> expected =
+                trackings(X12_277_Parser.parseXML(X12_277_Parser.parseEDI(edi)));
+
+        // The second parse reuses the cached engine and its shared fragment visitor.
+        for (int run = 0; run < 2; run++) {
+            List<X12_277_Parser.ClaimStatus> statuses = new ArrayList<>();
+            long count = X12_277_Parser.streamClaimStatuses(new ByteArrayInputStream(edi), statuses::add);
+
+            assertEquals(expected.size(), count);
+            assertEquals(expected.size(), statuses.size());
+            for (int i = 0; i < statuses.size(); i++) {
+                assertEquals(expected.get(i), statuses.get(i).getTracking());
+                assertNull(statuses.get(i).getInquiry());
+            }
+            assertEquals("22", statuses.get(0).getHierarchicalLevelCode());
+            assertEquals("Doe", statuses.get(0).getEntity().getNameLastOrOrg());
+            assertEquals("23", statuses.get(1).getHierarchicalLevelCode());
+            assertEquals("Joseph", statuses.get(1).getEntity().getNameFirst());
+            assertEquals("ABCXYZ3", statuses.get(1).getTraceNumber());
+        }
+    }
+
+    @Test
+    public void testConcurrentStreamsKeepTheirOwnConsumers() throws Exception {
+        byte[] edi = resource("input277.edi");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    List<String> traces = new ArrayList<>();
+                    X12_277_Parser.streamClaimStatuses(new ByteArrayInputStream(edi),
+                            status -> traces.add(status.getTraceNumber()));
+                    return traces;
+                }));
+            }
+            for (Future<List<String>> result : results) {
+                assertEquals(List.of("1234567890", "ABCXYZ3"), result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConsumerExceptionStopsTheParse() throws Exception {
+        byte[] edi = resource("input277.edi");
+        List<String> seen = new ArrayList<>();
+        try {
+            X12_277_Parser.streamClaimStatuses(new ByteArrayInputStream(edi), status -> {
+                seen.add(status.getTraceNumber());
+                throw new IllegalStateException("stop");
+            });
+            fail("The consumer's exception should end the parse");
+        } catch (RuntimeException e) {
+            assertEquals(List.of("1234567890"), seen);
+        }
+        // The shared engine is still usable afterwards.
+        assertEquals(2, X12_277_Parser.streamClaimStatuses(new ByteArrayInputStream(edi), status -> { }));
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.XML;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for joining 277 claim statuses back to the 276 inquiries they answer.
+ */
+public class X12_277_TraceIndexTest {
+
+    static X12_276_BatchGenerator.Claim claim(String patientControlNumber, boolean dependent) {
+        X12_276_BatchGenerator.Claim claim = new X12_276_BatchGenerator.Claim();
+        claim.setSubmissionDate("20240701");
+        claim.setPatientControlNumber(patientControlNumber);
+        claim.setChargeAmount("150");
+        claim.setPayerClaimControlNumber("PAYER-" + patientControlNumber);
+        claim.setServiceDateFrom("20240601");
+        claim.setPayerName("InsuranceCompany");
+        claim.setPayerId("12345");
+        claim.setReceiverName("InformationReceiver");
+        claim.setReceiverId("54321");
+        claim.setProviderName("ProviderName");
+        claim.setProviderId("1112233333");
+        claim.setSubscriberLastName("Mann");
+        claim.setSubscriberFirstName("John");
+        claim.setSubscriberId("345678901");
+        claim.setSubscriberBirthDate("19700101");
+        claim.setSubscriberGender("M");
+        if (dependent) {
+            claim.setPatientLastName("Mann");
+            claim.setPatientFirstName("Joseph");
+            claim.setPatientBirthDate("20100101");
+            claim.setPatientGender("M");
+        }
+        return claim;
+    }
+
+    /**
+     * @return the sample 277 answering the given trace numbers instead of its own
+     */
+    private static byte[] response277(String subscriberTrace, String dependentTrace) throws Exception {
+        String edi = new String(X12_277_ParserTest.resource("input277.edi"), StandardCharsets.ISO_8859_1);
+        return edi.replace("TRN*2*1234567890~", "TRN*2*" + subscriberTrace + "~")
+                .replace("TRN*2*ABCXYZ3~", "TRN*2*" + dependentTrace + "~")
+                .getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] generate(X12_277_TraceIndex index) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (X12_276_BatchGenerator generator = new X12_276_BatchGenerator(out, "SENDER", "RECEIVER", 42)) {
+            generator.setTraceIndex(index);
+            generator.add(claim("PCN001", false));
+            generator.add(claim("PCN002", true));
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testJoinsInquiriesRecordedByTheGenerator() throws Exception {
+        X12_277_TraceIndex index = new X12_277_TraceIndex();
+        generate(index);
+        assertEquals(2, index.size());
+
+        List<X12_277_Parser.ClaimStatus> statuses = new ArrayList<>();
+        X12_277_Parser.streamClaimStatuses(new ByteArrayInputStream(response277("000000042-1", "000000042-2")), index,
+                statuses::add);
+
+        assertEquals(2, statuses.size());
+        X12_277_TraceIndex.Inquiry subscriber = statuses.get(0).getInquiry();
+        assertNotNull(subscriber);
+        assertEquals("000000042-1", subscriber.getTraceNumber());
+        assertEquals("PCN001", subscriber.getPatientControlNumber());
+        assertEquals("000000042", subscriber.getInterchangeControlNumber());
+        assertEquals("0001", subscriber.getTransactionSetControlNumber());
+        assertEquals("345678901", subscriber.getSubscriberId());
+        assertEquals("PAYER-PCN001", subscriber.getPayerClaimControlNumber());
+        assertEquals("150", subscriber.getChargeAmount());
+        assertEquals("PCN002", statuses.get(1).getInquiry().getPatientControlNumber());
+    }
+
+    @Test
+    public void testIndex276MatchesTheGeneratorsIndex() throws Exception {
+        X12_277_TraceIndex recorded = new X12_277_TraceIndex();
+        byte[] edi = generate(recorded);
+
+        X12_277_TraceIndex scanned = new X12_277_TraceIndex();
+        assertEquals(2, scanned.index276(new ByteArrayInputStream(edi)));
+        for (String trace : List.of("000000042-1", "000000042-2")) {
+            assertEquals(recorded.get(trace), scanned.get(trace));
+        }
+    }
+
+    @Test
+    public void testReusedPatientControlNumbersGetTheirOwnTraces() throws Exception {
+        X12_277_TraceIndex index = new X12_277_TraceIndex();
+        X12_276_BatchGenerator.Claim other = claim("PCN001", false);
+        other.setProviderName("OtherProvider");
+        other.setProviderId("9998887777");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (X12_276_BatchGenerator generator = new X12_276_BatchGenerator(out, "SENDER", "RECEIVER", 42, 1, 1)) {
+            generator.setTraceIndex(index);
+            generator.add(claim("PCN001", false));
+            generator.add(other);
+        }
+
+        assertEquals(2, index.size());
+        assertEquals("PCN001", index.get("000000042-1").getPatientControlNumber());
+        assertEquals("000000043", index.get("000000043-1").getInterchangeControlNumber());
+        assertEquals("PCN001", index.get("000000043-1").getPatientControlNumber());
+    }
+
+    @Test
+    public void testIndex276SampleAndUnmatchedStatus() throws Exception {
+        X12_277_TraceIndex index = new X12_277_TraceIndex();
+        assertEquals(1, index.index276(new ByteArrayInputStream(X12_277_ParserTest.resource("input276.edi"))));
+
+        X12_277_TraceIndex.Inquiry inquiry = index.get("1234567890");
+        assertEquals("000000905", inquiry.getInterchangeControlNumber());
+        assertEquals("0001", inquiry.getTransactionSetControlNumber());
+
+        List<X12_277_Parser.ClaimStatus> statuses = new ArrayList<>();
+        X12_277_Parser.streamClaimStatuses(new ByteArrayInputStream(X12_277_ParserTest.resource("input277.edi")),
+                index, statuses::add);
+        assertSame(inquiry, statuses.get(0).getInquiry());
+        assertNull("ABCXYZ3 was never asked about", statuses.get(1).getInquiry());
+
+        assertSame(inquiry, index.remove("1234567890"));
+        assertNull(index.get("1234567890"));
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.claimstatus;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the native {@code x12-276} executable over the sample 276, 277 and 837 files and checks
+ * that every command produces exactly what {@link Main} does on the JVM. Run by the
+ * {@code native} profile once the image is built, where a missing executable fails the build;
+ * skipped only when run outside the profile.
+ */
+public class MainNativeImageIT {
+
+    private static final String[] FORMATS = {"xml", "json", "yaml"};
+
+    private static Path binary;
+
+    @BeforeClass
+    public static void findBinary() {
+        String path = System.getProperty("x12.native.binary");
+        Assume.assumeTrue("No native x12-276 executable configured", path != null);
+        binary = Paths.get(path);
+        assertTrue("Native x12-276 executable was not built: " + binary, Files.isExecutable(binary));
+    }
+
+    private static String nativeImage(String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(binary.toString());
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        byte[] out = process.getInputStream().readAllBytes();
+        assertTrue("native x12-276 timed out", process.waitFor(2, TimeUnit.MINUTES));
+        assertEquals(Arrays.toString(args), 0, process.exitValue());
+        return new String(out, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testConvertsInput276() throws Exception {
+        Path edi = MainTest.resource("input276.edi");
+        for (String format : FORMATS) {
+            String jvm = MainTest.convert(edi, format);
+            assertTrue(format + " output lacks the parsed claim", jvm.contains("1234567890") && jvm.contains("DOE12345"));
+            assertEquals(edi + " as " + format, jvm, nativeImage(edi.toString(), format));
+        }
+    }
+
+    @Test
+    public void testGeneratesInquiries() throws Exception {
+        String[] args = {"generate", "SENDER", "RECEIVER", "7", "0", MainTest.resource("claims837.edi").toString()};
+        ByteArrayOutputStream jvm = new ByteArrayOutputStream();
+        Main.generate(args, jvm);
+        assertEquals(unstamped(jvm.toString(StandardCharsets.UTF_8)), unstamped(nativeImage(args)));
+    }
+
+    /**
+     * @return generated EDI without the creation date and time of the ISA, GS and BHT segments
+     */
+    private static String unstamped(String edi) {
+        return edi.replaceAll("\\*\\d{6,8}\\*\\d{4}(?=[*~])", "*DATE*TIME");
+    }
+
+    @Test
+    public void testJoinsStatuses() throws Exception {
+        String[] args = {"status", MainTest.resource("input277.edi").toString(), MainTest.resource("input276.edi").toString()};
+        ByteArrayOutputStream jvm = new ByteArrayOutputStream();
+        Main.status(args, new PrintStream(jvm, true));
+        assertEquals(jvm.toString(StandardCharsets.UTF_8), nativeImage(args));
+    }
+}
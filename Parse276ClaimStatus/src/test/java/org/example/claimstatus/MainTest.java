@@ -0,0 +1,89 @@
+package org.example.claimstatus;
+
+import org.example.XML.X12_276_ClaimStatus;
+import org.example.XML.X12_276_Parser;
+import org.example.XML.X12_277_ClaimStatusResponse;
+import org.example.XML.X12_277_Parser;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs every {@link Main} command on the JVM. Besides checking the output, this is the workload
+ * the native profile records under the tracing agent, so each path the {@code x12-276} image
+ * takes must be exercised here.
+ */
+public class MainTest {
+
+    static Path resource(String name) throws Exception {
+        return Paths.get(MainTest.class.getClassLoader().getResource(name).toURI());
+    }
+
+    static String convert(Path edi, String format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Main.convert(edi, format, new PrintStream(out, true));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testConvertsToEveryFormat() throws Exception {
+        Path edi = resource("input276.edi");
+        String xml = convert(edi, "xml");
+        X12_276_ClaimStatus claimStatus = X12_276_Parser.parseXML(xml);
+        X12_276_ClaimStatus.ClaimStatusTracking tracking =
+                claimStatus.getTransaction().get(0).getHierarchicalLevel().get(3).getClaimStatusTracking().get(0);
+        assertEquals("1234567890", tracking.getTrn().getReferenceIdentification());
+        assertEquals("DOE12345", tracking.getRef().get(1).getId());
+
+        assertEquals(X12_276_Parser.toJson(claimStatus), convert(edi, "json"));
+        assertEquals(X12_276_Parser.toYaml(claimStatus), convert(edi, "yaml"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUnknownFormat() throws Exception {
+        convert(resource("input276.edi"), "csv");
+    }
+
+    @Test
+    public void testGeneratesInquiriesFromAn837() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Main.generate(new String[]{"generate", "SENDER", "RECEIVER", "7", "0", resource("claims837.edi").toString()}, out);
+
+        X12_276_ClaimStatus generated = X12_276_Parser.parseXML(X12_276_Parser.parseEDI(out.toByteArray()));
+        assertEquals("000000007", generated.getInterchangeHeader().getInterchangeControlNumber());
+        long claims = generated.getTransaction().stream()
+                .flatMap(transaction -> transaction.getHierarchicalLevel().stream())
+                .filter(level -> level.getClaimStatusTracking() != null)
+                .mapToLong(level -> level.getClaimStatusTracking().size())
+                .sum();
+        assertEquals(5, claims);
+    }
+
+    @Test
+    public void testJoinsStatusesToInquiries() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Main.status(new String[]{"status", resource("input277.edi").toString(), resource("input276.edi").toString()},
+                new PrintStream(out, true));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals(2, lines.length);
+        assertEquals("1234567890\tA1:20:PR\tDOE12345", lines[0]);
+        assertEquals("ABCXYZ3\tF1:65\tunmatched", lines[1]);
+    }
+
+    @Test
+    public void testReportsClaimsWithoutStatus() {
+        X12_277_Parser.ClaimStatus status = new X12_277_Parser.ClaimStatus();
+        status.setTracking(new X12_277_ClaimStatusResponse.ClaimStatusTracking());
+        assertEquals("no status", Main.firstStatus(status));
+        status.getTracking().setStc(new ArrayList<>());
+        assertEquals("no status", Main.firstStatus(status));
+    }
+}
@@ -1,18 +1,27 @@
 package org.example.XML;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.smooks.FilterSettings;
 import org.smooks.Smooks;
+import org.smooks.api.io.Sink;
+import org.smooks.io.sink.StreamSink;
 import org.smooks.io.sink.StringSink;
+import org.smooks.io.sink.WriterSink;
 import org.smooks.io.source.StreamSource;
 import org.xml.sax.SAXException;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 
 /**
  * X12_835_Parser provides EDI<->XML conversion for HIPAA 5010 X12 835
@@ -21,6 +30,10 @@ import java.io.IOException;
 @Slf4j
 public class X12_835_Parser {
 
+    static final String PARSE_CONFIG = "parse-835-config.xml";
+
+    static final String SERIALIZE_CONFIG = "serialize-835-config.xml";
+
     /**
      * Static instance of {@code XmlMapper} used for handling XML serialization and deserialization.
      * This mapper is utilized for converting XML strings to Java objects and vice versa,
@@ -46,8 +59,43 @@ public class X12_835_Parser {
      */
     private static final YAMLMapper yamlMapper = new YAMLMapper();
 
+    /**
+     * Whether the build generated a reflection-free binder for the model (see
+     * {@link X12_BinderGenerator}); when it did, the String, stream and writer conversions use it
+     * instead of the mappers, on generators from those mappers so each format is unchanged.
+     */
+    private static final boolean useBinder = X12_Binders.isAvailable(X12_835_Interchange.class);
+
     static {
         xmlMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        X12_ConversionEvents.registerModel(X12_835_Interchange.class, X12_835_Parser::claimCount,
+                interchange -> interchange.getInterchangeHeader() == null ? null
+                        : interchange.getInterchangeHeader().getSenderId());
+    }
+
+    private static final ThreadLocal<X12_BindingReuse<X12_835_Interchange>> bindingReuse =
+            X12_BindingReuse.perThread("835", X12_835_Interchange.class, X12_835_Parser::parseEDI);
+
+    /**
+     * @return this thread's model-binding reuse for parsing many small 835s into one recycled model; see
+     * {@link X12_BindingReuse}
+     */
+    public static X12_BindingReuse<X12_835_Interchange> bindingReuse() {
+        return bindingReuse.get();
+    }
+
+    /**
+     * @return the CLP claim payments under every LX header of an 835
+     */
+    private static long claimCount(X12_835_Interchange interchange) {
+        X12_835_Interchange.HealthCareClaimPayment payment = interchange.getHealthCareClaimPayment();
+        long claims = 0;
+        if (payment != null && payment.getLoop2000Header() != null) {
+            for (X12_835_Interchange.Loop2000Header header : payment.getLoop2000Header()) {
+                claims += header.getLoop2100ClaimPayment() == null ? 0 : header.getLoop2100ClaimPayment().size();
+            }
+        }
+        return claims;
     }
 
     /**
@@ -61,30 +109,76 @@ public class X12_835_Parser {
      * Parse an X12 835 EDI byte[] into XML using Smooks and the 835 DFDL mapping.
      */
     public static String parseEDI(byte[] ediBytes) throws IOException, SAXException {
-        try (Smooks smooks = new Smooks("parse-835-config.xml")) {
+        return parseEDI(ediBytes, X12_ValidationMode.FULL);
+    }
+
+    /**
+     * Parse an X12 835 EDI byte[] into XML at the requested validation tier.
+     * Each tier uses its own cached Smooks engine.
+     */
+    public static String parseEDI(byte[] ediBytes, X12_ValidationMode validationMode) throws IOException, SAXException {
+        if (validationMode.isStructuralPrevalidation()) {
+            X12_StructuralValidator.requireValid(ediBytes);
+        }
+        return filterEDI(ediBytes, validationMode);
+    }
+
+    /**
+     * Parse an X12 835 EDI byte[] into XML and write a 999/TA1 acknowledgement for every
+     * interchange. The acknowledgements are gathered by a streaming structural pass after the
+     * parse, which rejects the transaction set a parse failure is in and writes each
+     * interchange's acknowledgement as its IEA is read; all are flushed before returning.
+     */
+    public static String parseEDI(byte[] ediBytes, X12_ValidationMode validationMode,
+                                  X12_AcknowledgementGenerator acknowledgements) throws IOException, SAXException {
+        return acknowledgements.acknowledge(ediBytes, validationMode, () -> filterEDI(ediBytes, validationMode));
+    }
+
+    private static String filterEDI(byte[] ediBytes, X12_ValidationMode validationMode) {
+        X12_ConversionEvents.EdiToXml event = X12_ConversionEvents.ediToXml("835");
+        try {
+            Smooks smooks = X12_SmooksEngines.parser(PARSE_CONFIG, validationMode);
             log.debug("Parsing 835 EDI input ({} bytes)...", ediBytes.length);
             StringSink result = new StringSink();
-            smooks.filterSource(new StreamSource<>(new ByteArrayInputStream(ediBytes)), result);
+            smooks.filterSource(new StreamSource<>(event.countEdi(new ByteArrayInputStream(ediBytes))), result);
             String xml = result.getResult();
+            event.finish(ediBytes.length, xml.length());
             log.info("Successfully converted 835 EDI to XML.");
-            log.debug("835 XML:\n{}", xml);
             return xml;
         } catch (Exception ex) {
+            event.fail();
             // Surface parsing errors so we can fix schema/config issues (no fallback).
             log.error("Smooks failed to parse 835 EDI.", ex);
             throw ex;
         }
     }
 
+    /**
+     * Parse an X12 835 EDI byte[] into XML, rejecting remittances that were already processed,
+     * in whole or in part; the exception's result lists the claim payments seen before. The
+     * duplicate check scans the raw bytes only, so a re-sent file never reaches Smooks.
+     */
+    public static String parseEDI(byte[] ediBytes, X12_DuplicateDetector duplicateDetector) throws IOException, SAXException {
+        X12_DuplicateDetector.Result duplicates = duplicateDetector.check(ediBytes);
+        if (duplicates.isDuplicate()) {
+            // Partial duplicates too: binding them would process the seen claims twice.
+            throw new X12_DuplicateDetector.DuplicateInterchangeException(duplicates);
+        }
+        String xml = parseEDI(ediBytes);
+        // Only a successful parse is recorded, so a corrected resubmission is not a duplicate.
+        duplicateDetector.record(duplicates);
+        return xml;
+    }
+
     /**
      * Serialize XML (conforming to 835_mapping.dfdl.xsd) back to X12 835 EDI using Smooks.
      */
     public static String toEDIString(String xml) throws IOException, SAXException {
-        try (Smooks smooks = new Smooks("serialize-835-config.xml")) {
-            smooks.setFilterSettings(FilterSettings.newSaxNgSettings().setDefaultSerializationOn(false));
+        X12_ConversionEvents.XmlToEdi event = X12_ConversionEvents.xmlToEdi("835");
+        try {
+            Smooks smooks = X12_SmooksEngines.serializer(SERIALIZE_CONFIG);
             final byte[] xmlBytes = xml.getBytes();
             log.debug("Serializing 835 XML input ({} bytes)...", xmlBytes.length);
-            log.debug("Input XML structure: {}", xml.substring(0, Math.min(500, xml.length())));
 
             // Validate XML structure before processing
             if (!xml.contains("<interchange-header>")) {
@@ -92,13 +186,15 @@ public class X12_835_Parser {
                 throw new IllegalArgumentException("XML must contain interchange-header element as defined in 835_mapping.dfdl.xsd");
             }
 
-            StringSink ediResult = new StringSink();
-            smooks.filterSource(new StreamSource<>(new ByteArrayInputStream(xmlBytes)), ediResult);
-            String edi = ediResult.getResult();
+            StringWriter ediResult = new StringWriter();
+            smooks.filterSource(new StreamSource<>(new ByteArrayInputStream(xmlBytes)),
+                    new WriterSink<>(event.countEdi(ediResult)));
+            String edi = ediResult.toString();
+            event.finishEdiOutput(xmlBytes.length);
             log.info("Successfully converted XML to 835 EDI.");
-            log.debug("835 EDI:\n{}", edi);
             return edi;
         } catch (Exception ex) {
+            event.fail();
             // Surface serialization errors as well to ensure schema/config are correct.
             log.error("Smooks failed to serialize 835 XML. Input XML: {}",
                     xml.substring(0, Math.min(200, xml.length())), ex);
@@ -106,6 +202,33 @@ public class X12_835_Parser {
         }
     }
 
+    /**
+     * Converts the given EDI data into XML, returning the cached result if an identical
+     * payload was parsed before.
+     *
+     * @param ediInput The input EDI data as a byte array that needs to be converted to XML.
+     * @param cache    The content-addressed parse cache to consult and fill.
+     * @return A string containing the XML representation of the given EDI data.
+     * @throws IOException  If an I/O error occurs during the conversion process.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static String parseEDI(byte[] ediInput, X12_ParseCache cache) throws IOException, SAXException {
+        return cache.parseEDI(X12_ParseCache.TransactionType.X835, ediInput);
+    }
+
+    /**
+     * Parse XML into an X12_835_Interchange object, returning the cached object if identical XML was
+     * bound before. A cached object is shared and must not be modified.
+     *
+     * @param xml   The XML string to parse
+     * @param cache The content-addressed parse cache to consult and fill.
+     * @return The parsed X12_835_Interchange object
+     * @throws IOException If parsing fails
+     */
+    public static X12_835_Interchange parseXML(String xml, X12_ParseCache cache) throws IOException {
+        return (X12_835_Interchange) cache.parseXML(X12_ParseCache.TransactionType.X835, xml);
+    }
+
     /**
      * Parse XML string into X12_835_Interchange object.
      *
@@ -114,12 +237,17 @@ public class X12_835_Parser {
      * @throws IOException If parsing fails
      */
     public static X12_835_Interchange parseXML(String xml) throws IOException {
+        X12_ConversionEvents.XmlToModel event = X12_ConversionEvents.xmlToModel("835");
         try {
-            log.debug("Parsing XML to X12_835_Interchange: {}", xml);
-            X12_835_Interchange result = xmlMapper.readValue(xml, X12_835_Interchange.class);
+            log.debug("Parsing XML to X12_835_Interchange ({} chars)", xml.length());
+            X12_835_Interchange result = useBinder
+                    ? X12_Binders.fromXml(xml, X12_835_Interchange.class)
+                    : xmlMapper.readValue(xml, X12_835_Interchange.class);
+            event.finishModel(xml.length(), 0, result);
             log.debug("Successfully parsed XML to X12_850_Interchange");
             return result;
         } catch (Exception e) {
+            event.fail();
             log.error("Error parsing XML to X12_850_Interchange: {}", e.getMessage(), e);
             throw e;
         }
@@ -134,12 +262,17 @@ public class X12_835_Parser {
      * @throws IOException If conversion fails
      */
     public static String toXml(X12_835_Interchange interchange) throws IOException {
+        X12_ConversionEvents.ModelToText event = X12_ConversionEvents.modelToText("835", "xml");
         try {
             log.debug("Converting X12_850_Interchange to XML");
-            String result = xmlMapper.writeValueAsString(interchange);
-            log.debug("Successfully converted X12_850_Interchange to XML: {}", result);
+            String result = useBinder
+                    ? X12_Binders.toXml(interchange, X12_835_Interchange.class, false)
+                    : xmlMapper.writeValueAsString(interchange);
+            event.finishModel(0, result.length(), interchange);
+            log.debug("Successfully converted X12_850_Interchange to XML ({} chars)", result.length());
             return result;
         } catch (Exception e) {
+            event.fail();
             log.error("Error converting X12_850_Interchange to XML: {}", e.getMessage(), e);
             throw e;
         }
@@ -153,12 +286,17 @@ public class X12_835_Parser {
      * @throws IOException If conversion fails
      */
     public static String toJson(X12_835_Interchange interchange) throws IOException {
+        X12_ConversionEvents.ModelToText event = X12_ConversionEvents.modelToText("835", "json");
         try {
             log.debug("Converting X12_850_Interchange to JSON");
-            String result = jsonMapper.writeValueAsString(interchange);
-            log.debug("Successfully converted X12_850_Interchange to JSON: {}", result);
+            String result = useBinder
+                    ? X12_Binders.toJson(interchange, X12_835_Interchange.class)
+                    : jsonMapper.writeValueAsString(interchange);
+            event.finishModel(0, result.length(), interchange);
+            log.debug("Successfully converted X12_850_Interchange to JSON ({} chars)", result.length());
             return result;
         } catch (Exception e) {
+            event.fail();
             log.error("Error converting X12_850_Interchange to JSON: {}", e.getMessage(), e);
             throw e;
         }
@@ -173,12 +311,17 @@ public class X12_835_Parser {
      */
     public static String toYaml(X12_835_Interchange interchange) throws IOException {
         String result = null;
+        X12_ConversionEvents.ModelToText event = X12_ConversionEvents.modelToText("835", "yaml");
         try {
             log.debug("Converting X12_850_Interchange to YAML");
-            result = yamlMapper.writeValueAsString(interchange);
-            log.debug("Successfully converted X12_850_Interchange to YAML: {}", result);
+            result = useBinder
+                    ? X12_Binders.writeValueAsString(yamlMapper, interchange, X12_835_Interchange.class, false)
+                    : yamlMapper.writeValueAsString(interchange);
+            event.finishModel(0, result.length(), interchange);
+            log.debug("Successfully converted X12_850_Interchange to YAML ({} chars)", result.length());
             return result;
         } catch (Exception e) {
+            event.fail();
             log.error("Error converting X12_850_Interchange to YAML: {}", e.getMessage(), e);
         }
         return result;
@@ -196,4 +339,270 @@ public class X12_835_Parser {
         return toEDIString(toXml(interchange));
     }
 
+    /**
+     * Parses X12 835 EDI from a stream and writes the XML straight to the given output,
+     * so the document is never held as a String.
+     *
+     * @param ediInput  The EDI input stream.
+     * @param xmlOutput Receives the XML; it is flushed but left open.
+     * @throws IOException  If an I/O error occurs during the conversion process.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static void parseEDI(InputStream ediInput, OutputStream xmlOutput) throws IOException, SAXException {
+        X12_ConversionEvents.EdiToXml event = X12_ConversionEvents.ediToXml("835");
+        filterEDI(event, ediInput, new StreamSink<>(event.countOutput(X12_Sinks.nonClosing(xmlOutput))));
+    }
+
+    /**
+     * Parses X12 835 EDI from a stream and writes the XML to the given writer.
+     *
+     * @param ediInput  The EDI input stream.
+     * @param xmlOutput Receives the XML; it is flushed but left open.
+     * @throws IOException  If an I/O error occurs during the conversion process.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static void parseEDI(InputStream ediInput, Writer xmlOutput) throws IOException, SAXException {
+        X12_ConversionEvents.EdiToXml event = X12_ConversionEvents.ediToXml("835");
+        filterEDI(event, ediInput, new WriterSink<>(event.countOutput(X12_Sinks.nonClosing(xmlOutput))));
+    }
+
+    /**
+     * Parses X12 835 EDI from a stream and writes the XML to the given channel.
+     *
+     * @param ediInput  The EDI input stream.
+     * @param xmlOutput Receives the XML; it is left open.
+     * @throws IOException  If an I/O error occurs during the conversion process.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static void parseEDI(InputStream ediInput, WritableByteChannel xmlOutput) throws IOException, SAXException {
+        parseEDI(ediInput, X12_Sinks.nonClosing(xmlOutput));
+    }
+
+    private static void filterEDI(X12_ConversionEvents.EdiToXml event, InputStream ediInput, Sink sink) {
+        Smooks ediToXml = X12_SmooksEngines.parser(PARSE_CONFIG, X12_ValidationMode.FULL);
+        try {
+            ediToXml.filterSource(new StreamSource<>(event.countEdi(ediInput)), sink);
+        } catch (RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finish();
+        log.info("Successfully converted EDI to XML");
+    }
+
+    /**
+     * Parse XML from a stream into an X12_835_Interchange object.
+     *
+     * @param xml The XML input stream
+     * @return The parsed X12_835_Interchange object
+     * @throws IOException If parsing fails
+     */
+    public static X12_835_Interchange parseXML(InputStream xml) throws IOException {
+        X12_ConversionEvents.XmlToModel event = X12_ConversionEvents.xmlToModel("835");
+        X12_835_Interchange result;
+        try {
+            InputStream counted = event.countInput(xml);
+            result = useBinder
+                    ? X12_Binders.fromXml(counted, X12_835_Interchange.class)
+                    : xmlMapper.readValue(counted, X12_835_Interchange.class);
+        } catch (IOException | RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finishModel(result);
+        return result;
+    }
+
+    /**
+     * Write an X12_835_Interchange object as XML to the given output, which is flushed but left open.
+     */
+    public static void writeXml(X12_835_Interchange interchange, OutputStream out) throws IOException {
+        write(xmlMapper, false, interchange, out);
+    }
+
+    public static void writeXml(X12_835_Interchange interchange, Writer out) throws IOException {
+        write(xmlMapper, false, interchange, out);
+    }
+
+    public static void writeXml(X12_835_Interchange interchange, WritableByteChannel out) throws IOException {
+        writeXml(interchange, X12_Sinks.nonClosing(out));
+    }
+
+    /**
+     * Write an X12_835_Interchange object as JSON to the given output, which is flushed but left open.
+     */
+    public static void writeJson(X12_835_Interchange interchange, OutputStream out) throws IOException {
+        write(jsonMapper, false, interchange, out);
+    }
+
+    public static void writeJson(X12_835_Interchange interchange, Writer out) throws IOException {
+        write(jsonMapper, false, interchange, out);
+    }
+
+    public static void writeJson(X12_835_Interchange interchange, WritableByteChannel out) throws IOException {
+        writeJson(interchange, X12_Sinks.nonClosing(out));
+    }
+
+    /**
+     * Write an X12_835_Interchange object as YAML to the given output, which is flushed but left open.
+     */
+    public static void writeYaml(X12_835_Interchange interchange, OutputStream out) throws IOException {
+        write(yamlMapper, false, interchange, out);
+    }
+
+    public static void writeYaml(X12_835_Interchange interchange, Writer out) throws IOException {
+        write(yamlMapper, false, interchange, out);
+    }
+
+    public static void writeYaml(X12_835_Interchange interchange, WritableByteChannel out) throws IOException {
+        writeYaml(interchange, X12_Sinks.nonClosing(out));
+    }
+
+    private static void write(ObjectMapper mapper, boolean nonEmpty, X12_835_Interchange interchange, OutputStream out)
+            throws IOException {
+        if (useBinder) {
+            X12_Sinks.writeBound(mapper, interchange, X12_835_Interchange.class, nonEmpty, out, "835");
+        } else {
+            X12_Sinks.writeValue(mapper, interchange, out, "835");
+        }
+    }
+
+    private static void write(ObjectMapper mapper, boolean nonEmpty, X12_835_Interchange interchange, Writer out) throws IOException {
+        if (useBinder) {
+            X12_Sinks.writeBound(mapper, interchange, X12_835_Interchange.class, nonEmpty, out, "835");
+        } else {
+            X12_Sinks.writeValue(mapper, interchange, out, "835");
+        }
+    }
+
+    /**
+     * Converts XML read from a stream into EDI written straight to the given output.
+     *
+     * @param xmlInput  The XML input stream.
+     * @param ediOutput Receives the EDI; it is flushed but left open.
+     * @throws IOException  If an I/O error occurs during the conversion process.
+     * @throws SAXException If an error occurs while parsing the XML input.
+     */
+    public static void xmlToEDI(InputStream xmlInput, OutputStream ediOutput) throws IOException, SAXException {
+        X12_ConversionEvents.XmlToEdi event = X12_ConversionEvents.xmlToEdi("835");
+        serialize(event, xmlInput, new StreamSink<>(event.countOutput(X12_Sinks.nonClosing(ediOutput))));
+    }
+
+    public static void xmlToEDI(InputStream xmlInput, Writer ediOutput) throws IOException, SAXException {
+        X12_ConversionEvents.XmlToEdi event = X12_ConversionEvents.xmlToEdi("835");
+        serialize(event, xmlInput, new WriterSink<>(event.countOutput(X12_Sinks.nonClosing(ediOutput))));
+    }
+
+    public static void xmlToEDI(InputStream xmlInput, WritableByteChannel ediOutput) throws IOException, SAXException {
+        xmlToEDI(xmlInput, X12_Sinks.nonClosing(ediOutput));
+    }
+
+    private static void serialize(X12_ConversionEvents.XmlToEdi event, InputStream xmlInput, Sink sink) {
+        Smooks xmlToEdi = X12_SmooksEngines.serializer(SERIALIZE_CONFIG);
+        try {
+            xmlToEdi.filterSource(new StreamSource<>(event.countInput(xmlInput)), sink);
+        } catch (RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finish();
+        log.info("Successfully converted XML back to EDI");
+    }
+
+    /**
+     * Converts the given {@link X12_835_Interchange} object into EDI written to the given output.
+     * The intermediate XML is streamed rather than held in memory.
+     */
+    public static void writeEDI(X12_835_Interchange interchange, OutputStream out) throws IOException, SAXException {
+        try (InputStream xml = intermediateXml(interchange)) {
+            xmlToEDI(xml, out);
+        }
+    }
+
+    public static void writeEDI(X12_835_Interchange interchange, Writer out) throws IOException, SAXException {
+        try (InputStream xml = intermediateXml(interchange)) {
+            xmlToEDI(xml, out);
+        }
+    }
+
+    public static void writeEDI(X12_835_Interchange interchange, WritableByteChannel out) throws IOException, SAXException {
+        try (InputStream xml = intermediateXml(interchange)) {
+            xmlToEDI(xml, out);
+        }
+    }
+
+    /**
+     * @return the XML of the interchange, streamed from a writer thread through a bounded pipe so
+     * it is never held whole
+     */
+    private static InputStream intermediateXml(X12_835_Interchange interchange) {
+        return X12_Sinks.pipe("835", xml -> writeXml(interchange, xml));
+    }
+
+    /**
+     * Parses an X12 835 EDI file, which may be gzip, zstd or deflate compressed, and returns its XML.
+     *
+     * @param ediFile The EDI file; compression is detected from its content.
+     * @return A string containing the XML representation of the file.
+     * @throws IOException  If the file cannot be read or decompressed.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static String parseEDI(Path ediFile) throws IOException, SAXException {
+        try (InputStream in = X12_Compression.open(ediFile)) {
+            return parseEDI(in.readAllBytes());
+        }
+    }
+
+    /**
+     * Streams an X12 835 EDI file into an XML file. Compressed input is decompressed on a
+     * separate thread while it is parsed; the output is compressed if its name ends in
+     * {@code .gz}, {@code .zst} or {@code .zz}.
+     *
+     * @param ediFile The EDI file; compression is detected from its content.
+     * @param xmlFile The XML file to write.
+     * @throws IOException  If a file cannot be read or written.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static void parseEDI(Path ediFile, Path xmlFile) throws IOException, SAXException {
+        try (InputStream in = X12_Compression.open(ediFile);
+             OutputStream out = X12_Compression.create(xmlFile)) {
+            parseEDI(in, out);
+        }
+    }
+
+    /**
+     * Write an X12_835_Interchange object as XML to a file, compressed according to its extension.
+     */
+    public static void writeXml(X12_835_Interchange interchange, Path file) throws IOException {
+        try (OutputStream out = X12_Compression.create(file)) {
+            writeXml(interchange, out);
+        }
+    }
+
+    /**
+     * Write an X12_835_Interchange object as JSON to a file, compressed according to its extension.
+     */
+    public static void writeJson(X12_835_Interchange interchange, Path file) throws IOException {
+        try (OutputStream out = X12_Compression.create(file)) {
+            writeJson(interchange, out);
+        }
+    }
+
+    /**
+     * Write an X12_835_Interchange object as YAML to a file, compressed according to its extension.
+     */
+    public static void writeYaml(X12_835_Interchange interchange, Path file) throws IOException {
+        try (OutputStream out = X12_Compression.create(file)) {
+            writeYaml(interchange, out);
+        }
+    }
+
+    /**
+     * Write an X12_835_Interchange object as EDI to a file, compressed according to its extension.
+     */
+    public static void writeEDI(X12_835_Interchange interchange, Path file) throws IOException, SAXException {
+        try (OutputStream out = X12_Compression.create(file)) {
+            writeEDI(interchange, out);
+        }
+    }
 }
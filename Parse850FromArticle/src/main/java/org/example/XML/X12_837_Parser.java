@@ -1,18 +1,27 @@
 package org.example.XML;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.smooks.FilterSettings;
 import org.smooks.Smooks;
+import org.smooks.api.io.Sink;
+import org.smooks.io.sink.StreamSink;
 import org.smooks.io.sink.StringSink;
+import org.smooks.io.sink.WriterSink;
 import org.smooks.io.source.StreamSource;
 import org.xml.sax.SAXException;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 
 /**
  * The X12_837_Parser class provides methods for parsing, converting, and
@@ -23,17 +32,44 @@ import java.io.IOException;
 @Slf4j
 public class X12_837_Parser {
 
+    static final String PARSE_CONFIG = "parse-837-config.xml";
+
+    static final String SERIALIZE_CONFIG = "serialize-837-config.xml";
+
     private static final XmlMapper xmlMapper = new XmlMapper();
 
     private static final JsonMapper jsonMapper = new JsonMapper();
 
     private static final YAMLMapper yamlMapper = new YAMLMapper();
 
+    /**
+     * Whether the build generated a reflection-free binder for the model (see
+     * {@link X12_BinderGenerator}); when it did, the String, stream and writer conversions use it
+     * instead of the mappers, on generators from those mappers so each format is unchanged.
+     */
+    private static final boolean useBinder = X12_Binders.isAvailable(X12_837_Interchange.class);
+
     static {
         xmlMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         // Configure XML mapper to not include null or empty values
         xmlMapper.setSerializationInclusion(com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL);
         xmlMapper.setSerializationInclusion(com.fasterxml.jackson.annotation.JsonInclude.Include.NON_EMPTY);
+        X12_ConversionEvents.registerModel(X12_837_Interchange.class,
+                interchange -> interchange.getLoop2300ClaimInformation() == null ? 0
+                        : interchange.getLoop2300ClaimInformation().size(),
+                interchange -> interchange.getInterchangeHeader() == null ? null
+                        : interchange.getInterchangeHeader().getSenderId());
+    }
+
+    private static final ThreadLocal<X12_BindingReuse<X12_837_Interchange>> bindingReuse =
+            X12_BindingReuse.perThread("837", X12_837_Interchange.class, X12_837_Parser::parseEDI);
+
+    /**
+     * @return this thread's model-binding reuse for parsing many small 837s into one recycled model; see
+     * {@link X12_BindingReuse}
+     */
+    public static X12_BindingReuse<X12_837_Interchange> bindingReuse() {
+        return bindingReuse.get();
     }
 
     /**
@@ -57,20 +93,114 @@ public class X12_837_Parser {
      * @throws SAXException If an error occurs while parsing the EDI input.
      */
     public static String parseEDI(byte[] ediInput) throws IOException, SAXException {
-        StringSink result;
-        try (Smooks ediToXml = new Smooks("parse-837-config.xml")) {
-            log.debug("Loaded EDI input file with {} bytes", ediInput.length);
+        return parseEDI(ediInput, X12_ValidationMode.FULL);
+    }
 
-            result = new StringSink();
-            ediToXml.filterSource(new StreamSource<>(new ByteArrayInputStream(ediInput)), result);
+    /**
+     * Converts the given EDI data into XML using the requested validation tier.
+     *
+     * @param ediInput       The input EDI data as a byte array that needs to be converted to XML.
+     * @param validationMode How much validation to perform; each tier uses its own cached Smooks engine.
+     * @return A string containing the XML representation of the given EDI data.
+     * @throws X12_StructuralValidator.StructuralValidationException If structural validation was requested and failed.
+     * @throws IOException  If an I/O error occurs during the conversion process.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static String parseEDI(byte[] ediInput, X12_ValidationMode validationMode) throws IOException, SAXException {
+        if (validationMode.isStructuralPrevalidation()) {
+            X12_StructuralValidator.requireValid(ediInput);
+        }
+        return filterEDI(ediInput, validationMode);
+    }
+
+    /**
+     * Converts the given EDI data into XML and writes a 999/TA1 acknowledgement for every
+     * interchange. The acknowledgements are gathered by a streaming structural pass after the
+     * parse, which rejects the transaction set a parse failure is in and writes each
+     * interchange's acknowledgement as its IEA is read.
+     *
+     * @param ediInput         The input EDI data as a byte array that needs to be converted to XML.
+     * @param validationMode   How much validation to perform before acknowledging acceptance.
+     * @param acknowledgements Receives the acknowledgement state; it is flushed before this method returns.
+     * @return A string containing the XML representation of the given EDI data.
+     * @throws IOException  If an I/O error occurs during the conversion process.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static String parseEDI(byte[] ediInput, X12_ValidationMode validationMode,
+                                  X12_AcknowledgementGenerator acknowledgements) throws IOException, SAXException {
+        return acknowledgements.acknowledge(ediInput, validationMode, () -> filterEDI(ediInput, validationMode));
+    }
+
+    private static String filterEDI(byte[] ediInput, X12_ValidationMode validationMode) {
+        Smooks ediToXml = X12_SmooksEngines.parser(PARSE_CONFIG, validationMode);
+        log.debug("Loaded EDI input file with {} bytes", ediInput.length);
+
+        X12_ConversionEvents.EdiToXml event = X12_ConversionEvents.ediToXml("837");
+        StringSink result = new StringSink();
+        try {
+            ediToXml.filterSource(new StreamSource<>(event.countEdi(new ByteArrayInputStream(ediInput))), result);
+        } catch (RuntimeException e) {
+            event.fail();
+            throw e;
         }
         String xmlResult = result.getResult();
+        event.finish(ediInput.length, xmlResult.length());
         log.info("Successfully converted EDI to XML");
-        log.debug("XML result: {}", xmlResult);
-        System.out.printf("Converted to XML:%s %n", xmlResult);
         return xmlResult;
     }
 
+    /**
+     * Converts the given EDI data into XML after rejecting interchanges that have already
+     * been processed or that carry a claim that has. The duplicate check scans the raw bytes
+     * only, so a re-sent file never pays for the Smooks parse.
+     *
+     * @param ediInput          The input EDI data as a byte array that needs to be converted to XML.
+     * @param duplicateDetector The detector holding fingerprints of previously processed input.
+     * @return A string containing the XML representation of the given EDI data.
+     * @throws X12_DuplicateDetector.DuplicateInterchangeException If the interchange, or any claim in it, was seen
+     *                                                             before; its result lists which.
+     * @throws IOException  If an I/O error occurs during the conversion process.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static String parseEDI(byte[] ediInput, X12_DuplicateDetector duplicateDetector) throws IOException, SAXException {
+        X12_DuplicateDetector.Result duplicates = duplicateDetector.check(ediInput);
+        if (duplicates.isDuplicate()) {
+            // Partial duplicates too: binding them would process the seen claims twice.
+            throw new X12_DuplicateDetector.DuplicateInterchangeException(duplicates);
+        }
+        String xml = parseEDI(ediInput);
+        // Only a successful parse is recorded, so a corrected resubmission is not a duplicate.
+        duplicateDetector.record(duplicates);
+        return xml;
+    }
+
+    /**
+     * Converts the given EDI data into XML, returning the cached result if an identical
+     * payload was parsed before.
+     *
+     * @param ediInput The input EDI data as a byte array that needs to be converted to XML.
+     * @param cache    The content-addressed parse cache to consult and fill.
+     * @return A string containing the XML representation of the given EDI data.
+     * @throws IOException  If an I/O error occurs during the conversion process.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static String parseEDI(byte[] ediInput, X12_ParseCache cache) throws IOException, SAXException {
+        return cache.parseEDI(X12_ParseCache.TransactionType.X837, ediInput);
+    }
+
+    /**
+     * Parse XML into an X12_837_Interchange object, returning the cached object if identical XML was
+     * bound before. A cached object is shared and must not be modified.
+     *
+     * @param xml   The XML string to parse
+     * @param cache The content-addressed parse cache to consult and fill.
+     * @return The parsed X12_837_Interchange object
+     * @throws IOException If parsing fails
+     */
+    public static X12_837_Interchange parseXML(String xml, X12_ParseCache cache) throws IOException {
+        return (X12_837_Interchange) cache.parseXML(X12_ParseCache.TransactionType.X837, xml);
+    }
+
     /**
      * Parse XML string into X12_837_Interchange object.
      *
@@ -79,12 +209,17 @@ public class X12_837_Parser {
      * @throws IOException If parsing fails
      */
     public static X12_837_Interchange parseXML(String xml) throws IOException {
+        X12_ConversionEvents.XmlToModel event = X12_ConversionEvents.xmlToModel("837");
         try {
-            log.debug("Parsing XML to X12_837_Interchange: {}", xml);
-            X12_837_Interchange result = xmlMapper.readValue(xml, X12_837_Interchange.class);
+            log.debug("Parsing XML to X12_837_Interchange ({} chars)", xml.length());
+            X12_837_Interchange result = useBinder
+                    ? X12_Binders.fromXml(xml, X12_837_Interchange.class)
+                    : xmlMapper.readValue(xml, X12_837_Interchange.class);
+            event.finishModel(xml.length(), 0, result);
             log.debug("Successfully parsed XML to X12_837_Interchange");
             return result;
         } catch (Exception e) {
+            event.fail();
             log.error("Error parsing XML to X12_837_Interchange: {}", e.getMessage(), e);
             throw e;
         }
@@ -98,12 +233,17 @@ public class X12_837_Parser {
      * @throws IOException If conversion fails
      */
     public static String toXml(X12_837_Interchange interchange) throws IOException {
+        X12_ConversionEvents.ModelToText event = X12_ConversionEvents.modelToText("837", "xml");
         try {
             log.debug("Converting X12_837_Interchange to XML");
-            String result = xmlMapper.writeValueAsString(interchange);
-            log.debug("Successfully converted X12_837_Interchange to XML: {}", result);
+            String result = useBinder
+                    ? X12_Binders.toXml(interchange, X12_837_Interchange.class, true)
+                    : xmlMapper.writeValueAsString(interchange);
+            event.finishModel(0, result.length(), interchange);
+            log.debug("Successfully converted X12_837_Interchange to XML ({} chars)", result.length());
             return result;
         } catch (Exception e) {
+            event.fail();
             log.error("Error converting X12_837_Interchange to XML: {}", e.getMessage(), e);
             throw e;
         }
@@ -117,12 +257,17 @@ public class X12_837_Parser {
      * @throws IOException If conversion fails
      */
     public static String toJson(X12_837_Interchange interchange) throws IOException {
+        X12_ConversionEvents.ModelToText event = X12_ConversionEvents.modelToText("837", "json");
         try {
             log.debug("Converting X12_837_Interchange to JSON");
-            String result = jsonMapper.writeValueAsString(interchange);
-            log.debug("Successfully converted X12_837_Interchange to JSON: {}", result);
+            String result = useBinder
+                    ? X12_Binders.toJson(interchange, X12_837_Interchange.class)
+                    : jsonMapper.writeValueAsString(interchange);
+            event.finishModel(0, result.length(), interchange);
+            log.debug("Successfully converted X12_837_Interchange to JSON ({} chars)", result.length());
             return result;
         } catch (Exception e) {
+            event.fail();
             log.error("Error converting X12_837_Interchange to JSON: {}", e.getMessage(), e);
             throw e;
         }
@@ -137,12 +282,17 @@ public class X12_837_Parser {
      */
     public static String toYaml(X12_837_Interchange interchange) throws IOException {
         String result = null;
+        X12_ConversionEvents.ModelToText event = X12_ConversionEvents.modelToText("837", "yaml");
         try {
             log.debug("Converting X12_837_Interchange to YAML");
-            result = yamlMapper.writeValueAsString(interchange);
-            log.debug("Successfully converted X12_837_Interchange to YAML: {}", result);
+            result = useBinder
+                    ? X12_Binders.writeValueAsString(yamlMapper, interchange, X12_837_Interchange.class, false)
+                    : yamlMapper.writeValueAsString(interchange);
+            event.finishModel(0, result.length(), interchange);
+            log.debug("Successfully converted X12_837_Interchange to YAML ({} chars)", result.length());
             return result;
         } catch (Exception e) {
+            event.fail();
             log.error("Error converting X12_837_Interchange to YAML: {}", e.getMessage(), e);
         }
         return result;
@@ -157,18 +307,21 @@ public class X12_837_Parser {
      * @throws SAXException If an error occurs while parsing the XML input.
      */
     public static String xmlToEDI(String xmlResult) throws IOException, SAXException {
-        StringSink ediResult;
-        try (Smooks xmlToEdi = new Smooks("serialize-837-config.xml")) {
-
-            xmlToEdi.setFilterSettings(FilterSettings.newSaxNgSettings().setDefaultSerializationOn(false));
-            final byte[] xmlInput = xmlResult.getBytes();
-            log.debug("Prepared XML input with {} bytes", xmlInput.length);
+        Smooks xmlToEdi = X12_SmooksEngines.serializer(SERIALIZE_CONFIG);
+        final byte[] xmlInput = xmlResult.getBytes();
+        log.debug("Prepared XML input with {} bytes", xmlInput.length);
 
-            ediResult = new StringSink();
-            xmlToEdi.filterSource(new StreamSource<>(new ByteArrayInputStream(xmlInput)), ediResult);
+        X12_ConversionEvents.XmlToEdi event = X12_ConversionEvents.xmlToEdi("837");
+        StringWriter ediResult = new StringWriter();
+        try {
+            xmlToEdi.filterSource(new StreamSource<>(new ByteArrayInputStream(xmlInput)),
+                    new WriterSink<>(event.countEdi(ediResult)));
+        } catch (RuntimeException e) {
+            event.fail();
+            throw e;
         }
+        event.finishEdiOutput(xmlInput.length);
         log.info("Successfully converted XML back to EDI");
-        log.debug("EDI result: {}", ediResult.getResult());
         return ediResult.toString();
     }
 
@@ -184,4 +337,291 @@ public class X12_837_Parser {
         return xmlToEDI(toXml(interchange));
     }
 
-}
\ No newline at end of file
+    /**
+     * Parses X12 837 EDI from a stream and writes the XML straight to the given output,
+     * so the document is never held as a String.
+     *
+     * @param ediInput  The EDI input stream.
+     * @param xmlOutput Receives the XML; it is flushed but left open.
+     * @throws IOException  If an I/O error occurs during the conversion process.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static void parseEDI(InputStream ediInput, OutputStream xmlOutput) throws IOException, SAXException {
+        X12_ConversionEvents.EdiToXml event = X12_ConversionEvents.ediToXml("837");
+        filterEDI(event, ediInput, new StreamSink<>(event.countOutput(X12_Sinks.nonClosing(xmlOutput))));
+    }
+
+    /**
+     * Parses X12 837 EDI from a stream and writes the XML to the given writer.
+     *
+     * @param ediInput  The EDI input stream.
+     * @param xmlOutput Receives the XML; it is flushed but left open.
+     * @throws IOException  If an I/O error occurs during the conversion process.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static void parseEDI(InputStream ediInput, Writer xmlOutput) throws IOException, SAXException {
+        X12_ConversionEvents.EdiToXml event = X12_ConversionEvents.ediToXml("837");
+        filterEDI(event, ediInput, new WriterSink<>(event.countOutput(X12_Sinks.nonClosing(xmlOutput))));
+    }
+
+    /**
+     * Parses X12 837 EDI from a stream and writes the XML to the given channel.
+     *
+     * @param ediInput  The EDI input stream.
+     * @param xmlOutput Receives the XML; it is left open.
+     * @throws IOException  If an I/O error occurs during the conversion process.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static void parseEDI(InputStream ediInput, WritableByteChannel xmlOutput) throws IOException, SAXException {
+        parseEDI(ediInput, X12_Sinks.nonClosing(xmlOutput));
+    }
+
+    private static void filterEDI(X12_ConversionEvents.EdiToXml event, InputStream ediInput, Sink sink) {
+        Smooks ediToXml = X12_SmooksEngines.parser(PARSE_CONFIG, X12_ValidationMode.FULL);
+        try {
+            ediToXml.filterSource(new StreamSource<>(event.countEdi(ediInput)), sink);
+        } catch (RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finish();
+        log.info("Successfully converted EDI to XML");
+    }
+
+    /**
+     * Parse XML from a stream into an X12_837_Interchange object.
+     *
+     * @param xml The XML input stream
+     * @return The parsed X12_837_Interchange object
+     * @throws IOException If parsing fails
+     */
+    public static X12_837_Interchange parseXML(InputStream xml) throws IOException {
+        X12_ConversionEvents.XmlToModel event = X12_ConversionEvents.xmlToModel("837");
+        X12_837_Interchange result;
+        try {
+            InputStream counted = event.countInput(xml);
+            result = useBinder
+                    ? X12_Binders.fromXml(counted, X12_837_Interchange.class)
+                    : xmlMapper.readValue(counted, X12_837_Interchange.class);
+        } catch (IOException | RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finishModel(result);
+        return result;
+    }
+
+    /**
+     * Parse XML into a memory-compacted X12_837_Interchange for holding many claims in memory.
+     * The result serializes to the same XML, but its lists are immutable; see
+     * {@link X12_ModelCompactor}.
+     *
+     * @param xml The XML string to parse
+     * @return The parsed and compacted X12_837_Interchange object
+     * @throws IOException If parsing fails
+     */
+    public static X12_837_Interchange parseXMLCompact(String xml) throws IOException {
+        return X12_ModelCompactor.compact(parseXML(xml));
+    }
+
+    /**
+     * Parse XML from a stream into a memory-compacted X12_837_Interchange; see
+     * {@link #parseXMLCompact(String)}.
+     */
+    public static X12_837_Interchange parseXMLCompact(InputStream xml) throws IOException {
+        return X12_ModelCompactor.compact(parseXML(xml));
+    }
+
+    /**
+     * Write an X12_837_Interchange object as XML to the given output, which is flushed but left open.
+     */
+    public static void writeXml(X12_837_Interchange interchange, OutputStream out) throws IOException {
+        write(xmlMapper, true, interchange, out);
+    }
+
+    public static void writeXml(X12_837_Interchange interchange, Writer out) throws IOException {
+        write(xmlMapper, true, interchange, out);
+    }
+
+    public static void writeXml(X12_837_Interchange interchange, WritableByteChannel out) throws IOException {
+        writeXml(interchange, X12_Sinks.nonClosing(out));
+    }
+
+    /**
+     * Write an X12_837_Interchange object as JSON to the given output, which is flushed but left open.
+     */
+    public static void writeJson(X12_837_Interchange interchange, OutputStream out) throws IOException {
+        write(jsonMapper, false, interchange, out);
+    }
+
+    public static void writeJson(X12_837_Interchange interchange, Writer out) throws IOException {
+        write(jsonMapper, false, interchange, out);
+    }
+
+    public static void writeJson(X12_837_Interchange interchange, WritableByteChannel out) throws IOException {
+        writeJson(interchange, X12_Sinks.nonClosing(out));
+    }
+
+    /**
+     * Write an X12_837_Interchange object as YAML to the given output, which is flushed but left open.
+     */
+    public static void writeYaml(X12_837_Interchange interchange, OutputStream out) throws IOException {
+        write(yamlMapper, false, interchange, out);
+    }
+
+    public static void writeYaml(X12_837_Interchange interchange, Writer out) throws IOException {
+        write(yamlMapper, false, interchange, out);
+    }
+
+    public static void writeYaml(X12_837_Interchange interchange, WritableByteChannel out) throws IOException {
+        writeYaml(interchange, X12_Sinks.nonClosing(out));
+    }
+
+    private static void write(ObjectMapper mapper, boolean nonEmpty, X12_837_Interchange interchange, OutputStream out)
+            throws IOException {
+        if (useBinder) {
+            X12_Sinks.writeBound(mapper, interchange, X12_837_Interchange.class, nonEmpty, out, "837");
+        } else {
+            X12_Sinks.writeValue(mapper, interchange, out, "837");
+        }
+    }
+
+    private static void write(ObjectMapper mapper, boolean nonEmpty, X12_837_Interchange interchange, Writer out) throws IOException {
+        if (useBinder) {
+            X12_Sinks.writeBound(mapper, interchange, X12_837_Interchange.class, nonEmpty, out, "837");
+        } else {
+            X12_Sinks.writeValue(mapper, interchange, out, "837");
+        }
+    }
+
+    /**
+     * Converts XML read from a stream into EDI written straight to the given output.
+     *
+     * @param xmlInput  The XML input stream.
+     * @param ediOutput Receives the EDI; it is flushed but left open.
+     * @throws IOException  If an I/O error occurs during the conversion process.
+     * @throws SAXException If an error occurs while parsing the XML input.
+     */
+    public static void xmlToEDI(InputStream xmlInput, OutputStream ediOutput) throws IOException, SAXException {
+        X12_ConversionEvents.XmlToEdi event = X12_ConversionEvents.xmlToEdi("837");
+        serialize(event, xmlInput, new StreamSink<>(event.countOutput(X12_Sinks.nonClosing(ediOutput))));
+    }
+
+    public static void xmlToEDI(InputStream xmlInput, Writer ediOutput) throws IOException, SAXException {
+        X12_ConversionEvents.XmlToEdi event = X12_ConversionEvents.xmlToEdi("837");
+        serialize(event, xmlInput, new WriterSink<>(event.countOutput(X12_Sinks.nonClosing(ediOutput))));
+    }
+
+    public static void xmlToEDI(InputStream xmlInput, WritableByteChannel ediOutput) throws IOException, SAXException {
+        xmlToEDI(xmlInput, X12_Sinks.nonClosing(ediOutput));
+    }
+
+    private static void serialize(X12_ConversionEvents.XmlToEdi event, InputStream xmlInput, Sink sink) {
+        Smooks xmlToEdi = X12_SmooksEngines.serializer(SERIALIZE_CONFIG);
+        try {
+            xmlToEdi.filterSource(new StreamSource<>(event.countInput(xmlInput)), sink);
+        } catch (RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finish();
+        log.info("Successfully converted XML back to EDI");
+    }
+
+    /**
+     * Converts the given {@link X12_837_Interchange} object into EDI written to the given output.
+     * The intermediate XML is streamed rather than held in memory.
+     */
+    public static void writeEDI(X12_837_Interchange interchange, OutputStream out) throws IOException, SAXException {
+        try (InputStream xml = intermediateXml(interchange)) {
+            xmlToEDI(xml, out);
+        }
+    }
+
+    public static void writeEDI(X12_837_Interchange interchange, Writer out) throws IOException, SAXException {
+        try (InputStream xml = intermediateXml(interchange)) {
+            xmlToEDI(xml, out);
+        }
+    }
+
+    public static void writeEDI(X12_837_Interchange interchange, WritableByteChannel out) throws IOException, SAXException {
+        try (InputStream xml = intermediateXml(interchange)) {
+            xmlToEDI(xml, out);
+        }
+    }
+
+    /**
+     * @return the XML of the interchange, streamed from a writer thread through a bounded pipe so
+     * it is never held whole
+     */
+    private static InputStream intermediateXml(X12_837_Interchange interchange) {
+        return X12_Sinks.pipe("837", xml -> writeXml(interchange, xml));
+    }
+
+    /**
+     * Parses an X12 837 EDI file, which may be gzip, zstd or deflate compressed, and returns its XML.
+     *
+     * @param ediFile The EDI file; compression is detected from its content.
+     * @return A string containing the XML representation of the file.
+     * @throws IOException  If the file cannot be read or decompressed.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static String parseEDI(Path ediFile) throws IOException, SAXException {
+        try (InputStream in = X12_Compression.open(ediFile)) {
+            return parseEDI(in.readAllBytes());
+        }
+    }
+
+    /**
+     * Streams an X12 837 EDI file into an XML file. Compressed input is decompressed on a
+     * separate thread while it is parsed; the output is compressed if its name ends in
+     * {@code .gz}, {@code .zst} or {@code .zz}.
+     *
+     * @param ediFile The EDI file; compression is detected from its content.
+     * @param xmlFile The XML file to write.
+     * @throws IOException  If a file cannot be read or written.
+     * @throws SAXException If an error occurs while parsing the EDI input.
+     */
+    public static void parseEDI(Path ediFile, Path xmlFile) throws IOException, SAXException {
+        try (InputStream in = X12_Compression.open(ediFile);
+             OutputStream out = X12_Compression.create(xmlFile)) {
+            parseEDI(in, out);
+        }
+    }
+
+    /**
+     * Write an X12_837_Interchange object as XML to a file, compressed according to its extension.
+     */
+    public static void writeXml(X12_837_Interchange interchange, Path file) throws IOException {
+        try (OutputStream out = X12_Compression.create(file)) {
+            writeXml(interchange, out);
+        }
+    }
+
+    /**
+     * Write an X12_837_Interchange object as JSON to a file, compressed according to its extension.
+     */
+    public static void writeJson(X12_837_Interchange interchange, Path file) throws IOException {
+        try (OutputStream out = X12_Compression.create(file)) {
+            writeJson(interchange, out);
+        }
+    }
+
+    /**
+     * Write an X12_837_Interchange object as YAML to a file, compressed according to its extension.
+     */
+    public static void writeYaml(X12_837_Interchange interchange, Path file) throws IOException {
+        try (OutputStream out = X12_Compression.create(file)) {
+            writeYaml(interchange, out);
+        }
+    }
+
+    /**
+     * Write an X12_837_Interchange object as EDI to a file, compressed according to its extension.
+     */
+    public static void writeEDI(X12_837_Interchange interchange, Path file) throws IOException, SAXException {
+        try (OutputStream out = X12_Compression.create(file)) {
+            writeEDI(interchange, out);
+        }
+    }
+}
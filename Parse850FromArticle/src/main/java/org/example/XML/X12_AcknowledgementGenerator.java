@@ -0,0 +1,504 @@
+package org.example.XML;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Builds X12 999 (implementation acknowledgement) and TA1 (interchange acknowledgement)
+ * responses while inbound EDI is being read.
+ * <p>
+ * The generator listens to the streaming {@link X12_StructuralValidator} pass, recording
+ * per transaction set whether it is accepted or rejected and the position of any segment
+ * errors. When an inbound IEA is reached the interchange is sealed, and its TA1 and one
+ * 999 per functional group are written to the output. Nothing beyond that per-set status
+ * is retained, so a batch of 100k claims is acknowledged without a second parse.
+ * <p>
+ * With {@link #setAutoFlush(boolean) auto-flush} off, sealed interchanges are held until
+ * {@link #flush()} is called, so a caller can still reject them with
+ * {@link #rejectPending(String)}. A DFDL failure reported by Smooks is instead recorded with
+ * {@link #rejectParseFailure(Throwable)} before the structural pass: the pass rejects the
+ * transaction set holding the failure's location as its reader reaches it, and each
+ * interchange is still written as soon as its IEA is read.
+ */
+@Slf4j
+public class X12_AcknowledgementGenerator implements X12_StructuralValidator.Listener {
+
+    static final String IMPLEMENTATION_GUIDE_999 = "005010X231A1";
+
+    private static final DateTimeFormatter ISA_DATE = DateTimeFormatter.ofPattern("yyMMdd");
+    private static final DateTimeFormatter GS_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HHmm");
+
+    private final Writer out;
+    private boolean generateTa1 = true;
+    private boolean generate999 = true;
+    private boolean autoFlush = true;
+    private long nextControlNumber = 1;
+    private long nextGroupControlNumber = 1;
+    private Clock clock = Clock.systemDefaultZone();
+
+    private final List<InterchangeAck> pending = new ArrayList<>();
+    private InterchangeAck interchange;
+    private GroupAck group;
+    private TransactionSetAck transactionSet;
+    private int acknowledgementsWritten;
+
+    /** Byte offset of a recorded parse failure not yet reached by the reader, or -1. */
+    private long failureLocation = -1;
+    private boolean rejectAll;
+    private TransactionSetAck failedSet;
+    private String failedSegmentId;
+    private long failedPosition;
+
+    /**
+     * @param out where the acknowledgement interchanges are written
+     */
+    public X12_AcknowledgementGenerator(Writer out) {
+        this.out = out;
+    }
+
+    public void setGenerateTa1(boolean generateTa1) {
+        this.generateTa1 = generateTa1;
+    }
+
+    public void setGenerate999(boolean generate999) {
+        this.generate999 = generate999;
+    }
+
+    public boolean isAutoFlush() {
+        return autoFlush;
+    }
+
+    public void setAutoFlush(boolean autoFlush) {
+        this.autoFlush = autoFlush;
+    }
+
+    /**
+     * @param nextControlNumber the ISA13 (and first GS06) control number used for the next acknowledgement
+     */
+    public void setNextControlNumber(long nextControlNumber) {
+        this.nextControlNumber = nextControlNumber;
+        this.nextGroupControlNumber = nextControlNumber;
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @return the number of acknowledgement interchanges written so far
+     */
+    public int getAcknowledgementsWritten() {
+        return acknowledgementsWritten;
+    }
+
+    @Override
+    public void onSegment(X12_SegmentReader.Segment segment) {
+        if (failureLocation >= 0 && segment.getOffset() > failureLocation) {
+            // The segment before this one holds the failure.
+            rejectFailedSegment();
+        }
+        TransactionSetAck enclosing = transactionSet;
+        if (segment.is("ISA")) {
+            interchange = new InterchangeAck(segment);
+        } else if (segment.is("GS")) {
+            group = new GroupAck(segment);
+            if (interchange != null) {
+                interchange.groups.add(group);
+            }
+        } else if (segment.is("ST")) {
+            transactionSet = new TransactionSetAck(segment);
+            if (rejectAll) {
+                transactionSet.errorCode = "5";
+            }
+            if (group != null) {
+                group.transactionSets.add(transactionSet);
+            }
+            enclosing = transactionSet;
+        } else if (segment.is("SE")) {
+            transactionSet = null;
+        } else if (segment.is("GE")) {
+            if (group != null) {
+                group.declaredCount = segment.getElement(1).trim();
+            }
+            group = null;
+        } else if (segment.is("IEA")) {
+            if (failureLocation >= 0 && failureLocation <= segment.getOffset() + segment.getBytes().length) {
+                // Reject before the interchange is sealed and written.
+                failedSet = null;
+                failedSegmentId = "IEA";
+                rejectFailedSegment();
+            }
+            sealInterchange();
+        } else if (transactionSet != null) {
+            transactionSet.position++;
+        }
+        if (failureLocation >= 0) {
+            failedSet = enclosing;
+            failedSegmentId = segment.getId();
+            failedPosition = enclosing == null ? 0 : segment.is("SE") ? enclosing.position + 1 : enclosing.position;
+        }
+    }
+
+    @Override
+    public void onError(X12_StructuralValidator.ValidationError error) {
+        String segmentId = error.getSegmentId();
+        switch (error.getType()) {
+            case COUNT_MISMATCH:
+                if ("SE".equals(segmentId)) {
+                    rejectTransactionSet("4");
+                } else if ("GE".equals(segmentId)) {
+                    rejectGroup("5");
+                } else {
+                    rejectInterchange("021");
+                }
+                break;
+            case CONTROL_NUMBER_MISMATCH:
+                if ("SE".equals(segmentId)) {
+                    rejectTransactionSet("3");
+                } else if ("GE".equals(segmentId)) {
+                    rejectGroup("4");
+                } else {
+                    rejectInterchange("001");
+                }
+                break;
+            case MISSING_TRAILER:
+                if ("ST".equals(segmentId) || "SE".equals(segmentId)) {
+                    rejectTransactionSet("2");
+                    transactionSet = null;
+                } else if ("GS".equals(segmentId) || "GE".equals(segmentId)) {
+                    rejectGroup("3");
+                    group = null;
+                } else {
+                    rejectInterchange("023");
+                    sealInterchange();
+                }
+                break;
+            case UNRECOGNIZED_SEGMENT:
+                if (transactionSet != null) {
+                    transactionSet.segmentErrors.add(new SegmentError(segmentId, transactionSet.position + 1, "1"));
+                    rejectTransactionSet("5");
+                }
+                break;
+            default:
+                rejectInterchange("024");
+                break;
+        }
+    }
+
+    @Override
+    public void onEnd() {
+        if (failureLocation >= 0) {
+            rejectFailedSegment();
+        }
+        rejectAll = false;
+        sealInterchange();
+        if (autoFlush) {
+            flush();
+        }
+    }
+
+    /**
+     * The parsers' acknowledging {@code parseEDI}: run the DFDL parse, then the structural
+     * pass that acknowledges the input, recording a parse failure first so the pass rejects
+     * the set it is in. The parse runs first so each interchange's acknowledgement is final,
+     * and written, when its IEA is read. Everything is flushed before this returns.
+     *
+     * @param parse the parser's DFDL parse of {@code input}
+     * @throws X12_StructuralValidator.StructuralValidationException if the tier requires
+     *         structural validation and it failed; a parse failure is added as suppressed
+     */
+    <T> T acknowledge(byte[] input, X12_ValidationMode validationMode, Supplier<T> parse)
+            throws IOException, X12_StructuralValidator.StructuralValidationException {
+        T result = null;
+        RuntimeException failure = null;
+        try {
+            result = parse.get();
+        } catch (RuntimeException e) {
+            failure = e;
+            rejectParseFailure(e);
+        }
+        try {
+            X12_StructuralValidator.Result validation = X12_StructuralValidator.validate(input, this);
+            if (validationMode.isStructuralPrevalidation() && !validation.isValid()) {
+                X12_StructuralValidator.StructuralValidationException invalid =
+                        new X12_StructuralValidator.StructuralValidationException(validation);
+                if (failure != null) {
+                    invalid.addSuppressed(failure);
+                }
+                throw invalid;
+            }
+        } finally {
+            flush();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return result;
+    }
+
+    /**
+     * Mark every transaction set of the sealed, not yet written interchanges as rejected.
+     * Used when the full parse fails after the structural pass accepted the input.
+     */
+    public void rejectPending(String reason) {
+        log.warn("Rejecting {} pending interchange acknowledgement(s): {}", pending.size(), reason);
+        for (InterchangeAck pendingInterchange : pending) {
+            for (GroupAck pendingGroup : pendingInterchange.groups) {
+                for (TransactionSetAck set : pendingGroup.transactionSets) {
+                    if (set.errorCode == null) {
+                        set.errorCode = "5";
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a DFDL parse failure for the next structural pass to acknowledge. The pass
+     * rejects the transaction set holding the location Smooks reported ("preceding byte N"),
+     * with an IK3 for the segment at that location, and leaves the other sets accepted.
+     * Daffodil reports a failure inside one of several sets at that set's ST, so the set is
+     * then rejected without an IK3. A failure with no location rejects every set.
+     */
+    public void rejectParseFailure(Throwable failure) {
+        failureLocation = X12_BatchParser.dataLocation(failure);
+        rejectAll = failureLocation < 0;
+        failedSet = null;
+        failedSegmentId = null;
+        if (rejectAll) {
+            log.warn("Rejecting every transaction set: the parse failed without a location: {}", failure.getMessage());
+        }
+    }
+
+    private void rejectFailedSegment() {
+        long location = failureLocation;
+        failureLocation = -1;
+        if (failedSet == null) {
+            // The failure is in an envelope segment: reject the interchange's sets.
+            log.warn("Rejecting the interchange's transaction sets: the parse failed at {}", failedSegmentId);
+            if (interchange != null) {
+                for (GroupAck failedGroup : interchange.groups) {
+                    for (TransactionSetAck set : failedGroup.transactionSets) {
+                        if (set.errorCode == null) {
+                            set.errorCode = "5";
+                        }
+                    }
+                }
+            }
+            return;
+        }
+        if ("ST".equals(failedSegmentId)) {
+            log.warn("Rejecting transaction set {}: the parse failed in it", failedSet.controlNumber);
+        } else {
+            log.warn("Rejecting transaction set {}: the parse failed at segment {} ({}), byte {}",
+                    failedSet.controlNumber, failedPosition, failedSegmentId, location);
+            // 2: unexpected segment, the closest IK304 code for a segment the schema did not accept.
+            failedSet.segmentErrors.add(new SegmentError(failedSegmentId, failedPosition, "2"));
+        }
+        if (failedSet.errorCode == null) {
+            failedSet.errorCode = "5";
+        }
+    }
+
+    /**
+     * Write every sealed interchange acknowledgement and flush the output.
+     */
+    public void flush() {
+        try {
+            for (InterchangeAck ack : pending) {
+                write(ack);
+            }
+            pending.clear();
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write acknowledgement", e);
+        }
+    }
+
+    private void sealInterchange() {
+        if (interchange == null) {
+            return;
+        }
+        pending.add(interchange);
+        interchange = null;
+        group = null;
+        transactionSet = null;
+        if (autoFlush) {
+            flush();
+        }
+    }
+
+    private void rejectTransactionSet(String code) {
+        if (transactionSet != null && transactionSet.errorCode == null) {
+            transactionSet.errorCode = code;
+        }
+    }
+
+    private void rejectGroup(String code) {
+        if (group != null && group.errorCode == null) {
+            group.errorCode = code;
+        }
+    }
+
+    private void rejectInterchange(String noteCode) {
+        if (interchange != null && "000".equals(interchange.noteCode)) {
+            interchange.noteCode = noteCode;
+        }
+    }
+
+    private void write(InterchangeAck ack) throws IOException {
+        boolean writeTa1 = generateTa1;
+        boolean write999 = generate999 && !ack.groups.isEmpty();
+        if (!writeTa1 && !write999) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        String controlNumber = String.format("%09d", nextControlNumber++);
+        segment("ISA", "00", "          ", "00", "          ", ack.receiverQualifier, pad15(ack.receiverId),
+                ack.senderQualifier, pad15(ack.senderId), ISA_DATE.format(now), TIME.format(now), "^", "00501",
+                controlNumber, "0", ack.usageIndicator, ":");
+        if (writeTa1) {
+            segment("TA1", ack.controlNumber, ack.date, ack.time, "000".equals(ack.noteCode) ? "A" : "R", ack.noteCode);
+        }
+        int groupCount = 0;
+        if (write999) {
+            for (GroupAck groupAck : ack.groups) {
+                write999(groupAck, now, Long.toString(nextGroupControlNumber++), ack);
+                groupCount++;
+            }
+        }
+        segment("IEA", Integer.toString(groupCount), controlNumber);
+        acknowledgementsWritten++;
+    }
+
+    private void write999(GroupAck groupAck, LocalDateTime now, String groupControlNumber, InterchangeAck ack) throws IOException {
+        segment("GS", "FA", groupAck.receiver, groupAck.sender, GS_DATE.format(now), TIME.format(now),
+                groupControlNumber, "X", IMPLEMENTATION_GUIDE_999);
+        int segments = 0;
+        segments += segment("ST", "999", "0001", IMPLEMENTATION_GUIDE_999);
+        segments += segment("AK1", groupAck.functionalIdentifier, groupAck.controlNumber, groupAck.version);
+        int accepted = 0;
+        for (TransactionSetAck set : groupAck.transactionSets) {
+            segments += set.implementationConvention.isEmpty()
+                    ? segment("AK2", set.identifier, set.controlNumber)
+                    : segment("AK2", set.identifier, set.controlNumber, set.implementationConvention);
+            for (SegmentError error : set.segmentErrors) {
+                segments += segment("IK3", error.segmentId, Long.toString(error.position), "", error.code);
+            }
+            if (set.errorCode == null && groupAck.errorCode == null && "000".equals(ack.noteCode)) {
+                segments += segment("IK5", "A");
+                accepted++;
+            } else {
+                segments += segment("IK5", "R", set.errorCode == null ? "5" : set.errorCode);
+            }
+        }
+        int received = groupAck.transactionSets.size();
+        String included = groupAck.declaredCount != null && !groupAck.declaredCount.isEmpty()
+                ? groupAck.declaredCount : Integer.toString(received);
+        String status = accepted == received && groupAck.errorCode == null ? "A" : accepted == 0 ? "R" : "P";
+        segments += groupAck.errorCode == null
+                ? segment("AK9", status, included, Integer.toString(received), Integer.toString(accepted))
+                : segment("AK9", status, included, Integer.toString(received), Integer.toString(accepted), groupAck.errorCode);
+        segment("SE", Integer.toString(segments + 1), "0001");
+        segment("GE", "1", groupControlNumber);
+    }
+
+    private int segment(String id, String... elements) throws IOException {
+        out.write(id);
+        for (String element : elements) {
+            out.write('*');
+            out.write(element);
+        }
+        out.write("~\n");
+        return 1;
+    }
+
+    private static String pad15(String value) {
+        StringBuilder padded = new StringBuilder(value);
+        while (padded.length() < 15) {
+            padded.append(' ');
+        }
+        return padded.toString();
+    }
+
+    private static final class InterchangeAck {
+        final String senderQualifier;
+        final String senderId;
+        final String receiverQualifier;
+        final String receiverId;
+        final String date;
+        final String time;
+        final String controlNumber;
+        final String usageIndicator;
+        final List<GroupAck> groups = new ArrayList<>();
+        String noteCode = "000";
+
+        InterchangeAck(X12_SegmentReader.Segment isa) {
+            senderQualifier = isa.getElement(5);
+            senderId = isa.getElement(6).trim();
+            receiverQualifier = isa.getElement(7);
+            receiverId = isa.getElement(8).trim();
+            date = isa.getElement(9);
+            time = isa.getElement(10);
+            controlNumber = isa.getElement(13);
+            usageIndicator = isa.getElement(15).isEmpty() ? "P" : isa.getElement(15);
+        }
+    }
+
+    private static final class GroupAck {
+        final String functionalIdentifier;
+        final String sender;
+        final String receiver;
+        final String controlNumber;
+        final String version;
+        final List<TransactionSetAck> transactionSets = new ArrayList<>();
+        String declaredCount;
+        String errorCode;
+
+        GroupAck(X12_SegmentReader.Segment gs) {
+            functionalIdentifier = gs.getElement(1);
+            sender = gs.getElement(2);
+            receiver = gs.getElement(3);
+            controlNumber = gs.getElement(6);
+            version = gs.getElement(8);
+        }
+    }
+
+    private static final class TransactionSetAck {
+        final String identifier;
+        final String controlNumber;
+        final String implementationConvention;
+        final List<SegmentError> segmentErrors = new ArrayList<>();
+        /** Position of the last segment seen, counting ST as 1. */
+        long position = 1;
+        String errorCode;
+
+        TransactionSetAck(X12_SegmentReader.Segment st) {
+            identifier = st.getElement(1);
+            controlNumber = st.getElement(2);
+            implementationConvention = st.getElement(3);
+        }
+    }
+
+    private static final class SegmentError {
+        final String segmentId;
+        final long position;
+        final String code;
+
+        SegmentError(String segmentId, long position, String code) {
+            this.segmentId = segmentId;
+            this.position = position;
+            this.code = code;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.XML;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Non-blocking facade over {@link X12_837_Parser}, {@link X12_835_Parser} and {@link X12_850_Parser}.
+ * <p>
+ * Every operation runs under the in-flight byte admission of {@link X12_AdmissionExecutor} and
+ * returns a {@link CompletableFuture}, so parse, bind and serialize stages can be composed with
+ * {@code thenCompose} without tying up request threads. Each stage is admitted separately:
+ * parse stages weigh the EDI bytes, bind stages the XML characters and serialize stages the
+ * model's estimated size ({@link X12_ModelWalker#estimateBytes}), taken on the calling thread.
+ */
+public class X12_AsyncParser extends X12_AdmissionExecutor {
+
+    /**
+     * Create a facade with one worker per CPU, a queue of 1024 tasks, a 256 MB in-flight limit
+     * and queueing admission.
+     */
+    public X12_AsyncParser() {
+        this(Runtime.getRuntime().availableProcessors(), 1024, 256L * 1024 * 1024, AdmissionPolicy.QUEUE);
+    }
+
+    /**
+     * @param threads          number of worker threads
+     * @param queueCapacity    number of admitted tasks that may wait for a worker
+     * @param maxInFlightBytes input bytes that may be admitted at once
+     * @param admissionPolicy  what to do with work beyond the byte limit
+     */
+    public X12_AsyncParser(int threads, int queueCapacity, long maxInFlightBytes, AdmissionPolicy admissionPolicy) {
+        super(threads, queueCapacity, maxInFlightBytes, admissionPolicy, "x12-parser-");
+    }
+
+    /**
+     * Use a caller-supplied executor. It is not shut down by {@link #close()}.
+     */
+    public X12_AsyncParser(ExecutorService executor, long maxInFlightBytes, AdmissionPolicy admissionPolicy) {
+        super(executor, maxInFlightBytes, admissionPolicy);
+    }
+
+    // ---- 837 ----
+
+    public CompletableFuture<String> parse837(byte[] ediInput) {
+        return submit(ediInput.length, () -> X12_837_Parser.parseEDI(ediInput));
+    }
+
+    public CompletableFuture<X12_837_Interchange> bind837(String xml) {
+        return submit(xml.length(), () -> X12_837_Parser.parseXML(xml));
+    }
+
+    /**
+     * EDI -> XML -> {@link X12_837_Interchange}, each stage admitted separately.
+     */
+    public CompletableFuture<X12_837_Interchange> read837(byte[] ediInput) {
+        return parse837(ediInput).thenCompose(this::bind837);
+    }
+
+    public CompletableFuture<String> toJson(X12_837_Interchange interchange) {
+        return submit(X12_ModelWalker.estimateBytes(interchange), () -> X12_837_Parser.toJson(interchange));
+    }
+
+    public CompletableFuture<String> toYaml(X12_837_Interchange interchange) {
+        return submit(X12_ModelWalker.estimateBytes(interchange), () -> X12_837_Parser.toYaml(interchange));
+    }
+
+    public CompletableFuture<String> toEdi(X12_837_Interchange interchange) {
+        return submit(X12_ModelWalker.estimateBytes(interchange), () -> X12_837_Parser.toEdiString(interchange));
+    }
+
+    // ---- 835 ----
+
+    public CompletableFuture<String> parse835(byte[] ediInput) {
+        return submit(ediInput.length, () -> X12_835_Parser.parseEDI(ediInput));
+    }
+
+    public CompletableFuture<X12_835_Interchange> bind835(String xml) {
+        return submit(xml.length(), () -> X12_835_Parser.parseXML(xml));
+    }
+
+    /**
+     * EDI -> XML -> {@link X12_835_Interchange}, each stage admitted separately.
+     */
+    public CompletableFuture<X12_835_Interchange> read835(byte[] ediInput) {
+        return parse835(ediInput).thenCompose(this::bind835);
+    }
+
+    public CompletableFuture<String> toJson(X12_835_Interchange interchange) {
+        return submit(X12_ModelWalker.estimateBytes(interchange), () -> X12_835_Parser.toJson(interchange));
+    }
+
+    public CompletableFuture<String> toYaml(X12_835_Interchange interchange) {
+        return submit(X12_ModelWalker.estimateBytes(interchange), () -> X12_835_Parser.toYaml(interchange));
+    }
+
+    public CompletableFuture<String> toEdi(X12_835_Interchange interchange) {
+        return submit(X12_ModelWalker.estimateBytes(interchange), () -> X12_835_Parser.toEDIString(interchange));
+    }
+
+    // ---- 850 ----
+
+    public CompletableFuture<String> parse850(byte[] ediInput) {
+        return submit(ediInput.length, () -> X12_850_Parser.parseEDI(ediInput));
+    }
+
+    public CompletableFuture<X12_850_Interchange> bind850(String xml) {
+        return submit(xml.length(), () -> X12_850_Parser.parseXML(xml));
+    }
+
+    /**
+     * EDI -> XML -> {@link X12_850_Interchange}, each stage admitted separately.
+     */
+    public CompletableFuture<X12_850_Interchange> read850(byte[] ediInput) {
+        return parse850(ediInput).thenCompose(this::bind850);
+    }
+
+    public CompletableFuture<String> toJson(X12_850_Interchange interchange) {
+        return submit(X12_ModelWalker.estimateBytes(interchange), () -> X12_850_Parser.toJson(interchange));
+    }
+
+    public CompletableFuture<String> toYaml(X12_850_Interchange interchange) {
+        return submit(X12_ModelWalker.estimateBytes(interchange), () -> X12_850_Parser.toYaml(interchange));
+    }
+
+    public CompletableFuture<String> toEdi(X12_850_Interchange interchange) {
+        return submit(X12_ModelWalker.estimateBytes(interchange), () -> X12_850_Parser.toEdiString(interchange));
+    }
+}
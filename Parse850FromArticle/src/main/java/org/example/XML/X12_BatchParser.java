@@ -0,0 +1,571 @@
+package org.example.XML;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses large batches transaction set by transaction set, so that a malformed set (or
+ * claim) is rejected on its own instead of failing the whole file.
+ * <p>
+ * The input is streamed with {@link X12_SegmentReader}. Each ST/SE transaction set is
+ * wrapped in its interchange's ISA and GS, closed with a GE and IEA of its own, and parsed as
+ * a standalone interchange; accepted sets are handed to an {@link XmlOutput} as they are
+ * parsed. When a set fails in an 837 or 835, its claims (the 2300 or 2100 loops, as placed by
+ * {@link X12_LoopGrammar}) are isolated by bisection: halves of the set are re-parsed with the
+ * set's other segments, the halves that parse are accepted, and failing halves are split
+ * again down to single claims. A few bad claims in a large set therefore cost a few parses
+ * each rather than one per claim. A set whose failure lies before its first claim, or an
+ * 850, is rejected whole.
+ * <p>
+ * Every rejection is recorded as a {@link Rejection} with the byte offsets of the rejected
+ * segments and, when the DFDL parser reports one, of the segment it failed at. If a
+ * quarantine stream is set, each rejected set or claim is also written to it as a
+ * standalone interchange that can be corrected and resubmitted. Not thread-safe.
+ */
+@Slf4j
+public final class X12_BatchParser {
+
+    /** Daffodil parse errors end with the position the parser gave up at. */
+    private static final Pattern DATA_LOCATION = Pattern.compile("preceding byte (\\d+)");
+
+    private final X12_ValidationMode validationMode;
+    private OutputStream quarantine;
+
+    public X12_BatchParser() {
+        this(X12_ValidationMode.FULL);
+    }
+
+    public X12_BatchParser(X12_ValidationMode validationMode) {
+        this.validationMode = validationMode;
+    }
+
+    /**
+     * Write rejected sets and claims to {@code quarantine} as standalone interchanges. The
+     * stream is flushed after each one and left open.
+     */
+    public void setQuarantine(OutputStream quarantine) {
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Receives the XML of each accepted transaction set, or of each accepted part of a set
+     * whose claims were isolated.
+     */
+    @FunctionalInterface
+    public interface XmlOutput {
+        void accept(TransactionSet set, String xml) throws IOException;
+    }
+
+    /**
+     * An accepted transaction set, or an accepted part of one.
+     */
+    @Data
+    public static class TransactionSet {
+        private X12_ParseCache.TransactionType type;
+        /** ISA13. */
+        private String interchangeControlNumber;
+        /** ST02. */
+        private String transactionSetControlNumber;
+        /** Offset of the ST within the input. */
+        private long offset;
+        /** Bytes from the ST to the end of the SE terminator. */
+        private long length;
+        /** False when this is the part of a set left after rejecting some of its claims. */
+        private boolean complete;
+        /** The claims in this part (CLM01 or CLP01) when incomplete; empty otherwise. */
+        private List<String> claimIds = new ArrayList<>();
+    }
+
+    /**
+     * A rejected transaction set or claim.
+     */
+    @Data
+    public static class Rejection {
+        /** The ST01 of the set, e.g. {@code 837}. */
+        private String transactionSetId;
+        /** ISA13. */
+        private String interchangeControlNumber;
+        /** ST02. */
+        private String transactionSetControlNumber;
+        /** CLM01 or CLP01 of the rejected claim, or null when the whole set was rejected. */
+        private String claimId;
+        /** Offset within the input of the first rejected segment. */
+        private long offset;
+        /** Bytes from {@link #offset} to the end of the last rejected segment. */
+        private long length;
+        /** Offset within the input of the segment the parser failed at, or -1 if unknown. */
+        private long errorOffset = -1;
+        /** The ID of that segment, or null if unknown. */
+        private String errorSegmentId;
+        private String message;
+    }
+
+    /**
+     * Counts and rejections of one batch.
+     */
+    @Data
+    public static class Result {
+        private long transactionSets;
+        /** Sets parsed whole. */
+        private long acceptedSets;
+        /** Sets of which some claims were rejected and the rest accepted. */
+        private long partiallyAcceptedSets;
+        /** Sets rejected whole. */
+        private long rejectedSets;
+        private long rejectedClaims;
+        private List<Rejection> rejections = new ArrayList<>();
+
+        public boolean isClean() {
+            return rejections.isEmpty();
+        }
+    }
+
+    /**
+     * Parse every transaction set of a batch.
+     *
+     * @param edi    one or more interchanges
+     * @param output receives the XML of accepted sets and parts of sets
+     * @throws IOException if reading the input, or writing the output or the quarantine, fails
+     */
+    public Result parse(InputStream edi, XmlOutput output) throws IOException {
+        Result result = new Result();
+        try (X12_SegmentReader reader = new X12_SegmentReader(edi)) {
+            X12_SegmentReader.Segment isa = null;
+            X12_SegmentReader.Segment gs = null;
+            List<X12_SegmentReader.Segment> set = null;
+            for (X12_SegmentReader.Segment segment = reader.next(); segment != null; segment = reader.next()) {
+                if (segment.is("ST")) {
+                    if (set != null) {
+                        unterminated(result, isa, set);
+                    }
+                    set = new ArrayList<>();
+                    set.add(segment);
+                } else if (segment.is("SE")) {
+                    if (set != null) {
+                        set.add(segment);
+                        new Envelope(isa, gs, set, reader.getSegmentTerminator()).parse(result, output);
+                        set = null;
+                    }
+                } else if (segment.is("ISA") || segment.is("GS") || segment.is("GE") || segment.is("IEA")) {
+                    if (set != null) {
+                        unterminated(result, isa, set);
+                        set = null;
+                    }
+                    if (segment.is("ISA")) {
+                        isa = segment;
+                        gs = null;
+                    } else if (segment.is("GS")) {
+                        gs = segment;
+                    }
+                } else if (set != null) {
+                    set.add(segment);
+                }
+            }
+            if (set != null) {
+                unterminated(result, isa, set);
+            }
+        }
+        return result;
+    }
+
+    private void unterminated(Result result, X12_SegmentReader.Segment isa, List<X12_SegmentReader.Segment> set)
+            throws IOException {
+        Rejection rejection = rejection(isa, set, null);
+        rejection.setMessage("Transaction set " + set.get(0).getElement(2) + " is not terminated by an SE segment");
+        result.transactionSets++;
+        result.rejectedSets++;
+        reject(result, rejection, null);
+    }
+
+    private void reject(Result result, Rejection rejection, byte[] interchange) throws IOException {
+        log.warn("Rejected transaction set {}{} at offset {}: {}", rejection.getTransactionSetControlNumber(),
+                rejection.getClaimId() == null ? "" : " claim " + rejection.getClaimId(), rejection.getOffset(),
+                rejection.getMessage());
+        result.rejections.add(rejection);
+        if (quarantine != null && interchange != null) {
+            quarantine.write(interchange);
+            quarantine.flush();
+        }
+    }
+
+    private static Rejection rejection(X12_SegmentReader.Segment isa, List<X12_SegmentReader.Segment> segments, String claimId) {
+        Rejection rejection = new Rejection();
+        rejection.setTransactionSetId(segments.get(0).getElement(1));
+        rejection.setInterchangeControlNumber(isa == null ? null : isa.getElement(13));
+        rejection.setTransactionSetControlNumber(segments.get(0).getElement(2));
+        rejection.setClaimId(claimId);
+        X12_SegmentReader.Segment first = segments.get(0);
+        X12_SegmentReader.Segment last = segments.get(segments.size() - 1);
+        rejection.setOffset(first.getOffset());
+        rejection.setLength(last.getOffset() + last.getBytes().length + 1 - first.getOffset());
+        return rejection;
+    }
+
+    private static X12_ParseCache.TransactionType typeOf(String transactionSetId) {
+        switch (transactionSetId) {
+            case "837":
+                return X12_ParseCache.TransactionType.X837;
+            case "835":
+                return X12_ParseCache.TransactionType.X835;
+            case "850":
+                return X12_ParseCache.TransactionType.X850;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the prefix of the claim loop name of a transaction type, or null if its sets are
+     *         not split by claim
+     */
+    private static String claimLoop(X12_ParseCache.TransactionType type) {
+        switch (type) {
+            case X837:
+                return "Loop_2300";
+            case X835:
+                return "Loop_2100";
+            default:
+                return null;
+        }
+    }
+
+    private String parse(X12_ParseCache.TransactionType type, byte[] edi) throws Exception {
+        switch (type) {
+            case X837:
+                return X12_837_Parser.parseEDI(edi, validationMode);
+            case X835:
+                return X12_835_Parser.parseEDI(edi, validationMode);
+            default:
+                return X12_850_Parser.parseEDI(edi, validationMode);
+        }
+    }
+
+    /**
+     * One transaction set with its envelope, and the standalone interchanges built from it.
+     */
+    private final class Envelope {
+        private final X12_SegmentReader.Segment isa;
+        private final X12_SegmentReader.Segment gs;
+        private final List<X12_SegmentReader.Segment> set;
+        private final byte terminator;
+        private final X12_ParseCache.TransactionType type;
+        /** Per segment of the set: the claim it belongs to, or -1. */
+        private int[] claimOf;
+        /** Per segment outside the claims: the loop occurrence it belongs to that can hold claims, or 0. */
+        private long[] anchorOf;
+        /** Per claim: its segments' indexes, and the occurrences of the loops holding it. */
+        private final List<List<Integer>> claims = new ArrayList<>();
+        private final List<Set<Long>> claimAnchors = new ArrayList<>();
+
+        Envelope(X12_SegmentReader.Segment isa, X12_SegmentReader.Segment gs, List<X12_SegmentReader.Segment> set,
+                 byte terminator) {
+            this.isa = isa;
+            this.gs = gs;
+            this.set = set;
+            this.terminator = terminator;
+            this.type = typeOf(set.get(0).getElement(1));
+        }
+
+        void parse(Result result, XmlOutput output) throws IOException {
+            result.transactionSets++;
+            List<Integer> all = new ArrayList<>();
+            for (int i = 0; i < set.size(); i++) {
+                all.add(i);
+            }
+            Unit whole = new Unit(all);
+            if (type == null || isa == null || gs == null) {
+                result.rejectedSets++;
+                Rejection rejection = rejection(isa, set, null);
+                rejection.setMessage(type == null ? "No parser for transaction set " + set.get(0).getElement(1)
+                        : "Transaction set outside an ISA/GS envelope");
+                reject(result, rejection, isa == null || gs == null ? null : whole.bytes);
+                return;
+            }
+            Exception failure = whole.parse();
+            if (failure == null) {
+                result.acceptedSets++;
+                output.accept(transactionSet(true, List.of()), whole.xml);
+                return;
+            }
+            String claimLoop = claimLoop(type);
+            if (claimLoop != null) {
+                placeClaims(claimLoop);
+            }
+            int failedAt = whole.failedSegment(failure);
+            if (claims.isEmpty() || failedAt >= 0 && failedAt < claims.get(0).get(0)) {
+                // Nothing to isolate, or the set is broken before its first claim.
+                result.rejectedSets++;
+                reject(result, whole.rejection(failure, null), whole.bytes);
+                return;
+            }
+            List<Integer> indexes = new ArrayList<>();
+            for (int c = 0; c < claims.size(); c++) {
+                indexes.add(c);
+            }
+            int rejectedBefore = result.rejections.size();
+            isolate(indexes, whole, failure, result, output);
+            if (result.rejections.size() - rejectedBefore == claims.size()) {
+                result.rejectedSets++;
+            } else {
+                result.partiallyAcceptedSets++;
+            }
+        }
+
+        /**
+         * Accept the claims that parse and reject the others, halving failing groups.
+         *
+         * @param parsed  the unit of these claims when it was already parsed, or null
+         * @param failure its failure
+         */
+        private void isolate(List<Integer> group, Unit parsed, Exception failure, Result result,
+                             XmlOutput output) throws IOException {
+            Unit unit = parsed;
+            if (unit == null) {
+                unit = new Unit(segmentsOf(group));
+                failure = unit.parse();
+                if (failure == null) {
+                    List<String> ids = new ArrayList<>();
+                    for (int claim : group) {
+                        ids.add(claimId(claim));
+                    }
+                    output.accept(transactionSet(false, ids), unit.xml);
+                    return;
+                }
+            }
+            if (group.size() == 1) {
+                result.rejectedClaims++;
+                List<X12_SegmentReader.Segment> segments = new ArrayList<>();
+                for (int index : claims.get(group.get(0))) {
+                    segments.add(set.get(index));
+                }
+                Rejection rejection = unit.rejection(failure, claimId(group.get(0)));
+                Rejection span = rejection(isa, segments, null);
+                rejection.setOffset(span.getOffset());
+                rejection.setLength(span.getLength());
+                reject(result, rejection, unit.bytes);
+                return;
+            }
+            int half = group.size() / 2;
+            isolate(group.subList(0, half), null, null, result, output);
+            isolate(group.subList(half, group.size()), null, null, result, output);
+        }
+
+        /**
+         * Walk the set through the grammar to find which segments belong to which claim, and
+         * which of the other segments sit in loops that hold claims (the 2000 header loops of
+         * an 835) and so go only with the claims they hold.
+         */
+        private void placeClaims(String claimLoop) {
+            X12_LoopGrammar grammar = X12_LoopGrammar.of(type);
+            X12_LoopGrammar.Node claimNode = find(grammar.getRoot(), claimLoop);
+            Set<X12_LoopGrammar.Node> holders = new HashSet<>();
+            if (claimNode != null) {
+                for (X12_LoopGrammar.Node node = claimNode.parent; node != null && node.parent != null; node = node.parent) {
+                    holders.add(node);
+                }
+            }
+            claimOf = new int[set.size()];
+            anchorOf = new long[set.size()];
+            Map<Long, Integer> claimBySerial = new HashMap<>();
+            X12_LoopGrammar.Cursor cursor = grammar.cursor();
+            cursor.accept(isa);
+            cursor.accept(gs);
+            for (int i = 0; i < set.size(); i++) {
+                cursor.accept(set.get(i));
+                claimOf[i] = -1;
+                Set<Long> anchors = new HashSet<>();
+                long anchor = 0;
+                for (int level = 0; level < cursor.depth(); level++) {
+                    X12_LoopGrammar.Node node = cursor.node(level);
+                    if (node == claimNode) {
+                        long serial = cursor.serial(level);
+                        Integer claim = claimBySerial.get(serial);
+                        if (claim == null) {
+                            claim = claims.size();
+                            claimBySerial.put(serial, claim);
+                            claims.add(new ArrayList<>());
+                            claimAnchors.add(anchors);
+                        }
+                        claimOf[i] = claim;
+                        claims.get(claim).add(i);
+                        break;
+                    }
+                    if (holders.contains(node)) {
+                        anchor = cursor.serial(level);
+                        anchors.add(anchor);
+                    }
+                }
+                anchorOf[i] = anchor;
+            }
+        }
+
+        private X12_LoopGrammar.Node find(X12_LoopGrammar.Node node, String loop) {
+            if (node.name.startsWith(loop + "_")) {
+                return node;
+            }
+            for (X12_LoopGrammar.Node child : node.children) {
+                X12_LoopGrammar.Node found = find(child, loop);
+                if (found != null) {
+                    return found;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return the segments of a group of claims with the set's other segments they need
+         */
+        private List<Integer> segmentsOf(List<Integer> group) {
+            Set<Integer> members = new HashSet<>(group);
+            Set<Long> anchors = new HashSet<>();
+            for (int claim : group) {
+                anchors.addAll(claimAnchors.get(claim));
+            }
+            List<Integer> indexes = new ArrayList<>();
+            for (int i = 0; i < set.size(); i++) {
+                if (claimOf[i] >= 0 ? members.contains(claimOf[i]) : anchorOf[i] == 0 || anchors.contains(anchorOf[i])) {
+                    indexes.add(i);
+                }
+            }
+            return indexes;
+        }
+
+        private String claimId(int claim) {
+            return set.get(claims.get(claim).get(0)).getElement(1);
+        }
+
+        private TransactionSet transactionSet(boolean complete, List<String> claimIds) {
+            TransactionSet transactionSet = new TransactionSet();
+            transactionSet.setType(type);
+            transactionSet.setInterchangeControlNumber(isa.getElement(13));
+            transactionSet.setTransactionSetControlNumber(set.get(0).getElement(2));
+            Rejection span = rejection(isa, set, null);
+            transactionSet.setOffset(span.getOffset());
+            transactionSet.setLength(span.getLength());
+            transactionSet.setComplete(complete);
+            transactionSet.setClaimIds(new ArrayList<>(claimIds));
+            return transactionSet;
+        }
+
+        /**
+         * A standalone interchange holding some of the set's segments, with the SE count,
+         * GE and IEA rewritten to match.
+         */
+        private final class Unit {
+            final byte[] bytes;
+            /** Start of each set segment within {@link #bytes}, and its index in the set. */
+            final int[] starts;
+            final int[] indexes;
+            String xml;
+
+            Unit(List<Integer> segments) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                starts = new int[segments.size()];
+                indexes = new int[segments.size()];
+                if (isa != null) {
+                    write(out, isa.getBytes());
+                }
+                if (gs != null) {
+                    write(out, gs.getBytes());
+                }
+                byte separator = set.get(0).getElementSeparator();
+                for (int i = 0; i < segments.size(); i++) {
+                    int index = segments.get(i);
+                    starts[i] = out.size();
+                    indexes[i] = index;
+                    X12_SegmentReader.Segment segment = set.get(index);
+                    if (index == set.size() - 1 && segment.is("SE")) {
+                        write(out, text(separator, "SE", String.valueOf(segments.size()), segment.getElement(2)));
+                    } else {
+                        write(out, segment.getBytes());
+                    }
+                }
+                if (gs != null) {
+                    write(out, text(separator, "GE", "1", gs.getElement(6)));
+                }
+                if (isa != null) {
+                    write(out, text(separator, "IEA", "1", isa.getElement(13)));
+                }
+                bytes = out.toByteArray();
+            }
+
+            private void write(ByteArrayOutputStream out, byte[] segment) {
+                out.write(segment, 0, segment.length);
+                out.write(terminator);
+                out.write('\n');
+            }
+
+            private byte[] text(byte separator, String... elements) {
+                return String.join(String.valueOf((char) separator), elements).getBytes(StandardCharsets.ISO_8859_1);
+            }
+
+            /**
+             * @return the failure, or null once {@link #xml} holds the result
+             */
+            Exception parse() {
+                try {
+                    xml = X12_BatchParser.this.parse(type, bytes);
+                    return null;
+                } catch (Exception e) {
+                    return e;
+                }
+            }
+
+            /**
+             * @return the index in the set of the segment the parser failed at, or -1
+             */
+            int failedSegment(Exception failure) {
+                long position = dataLocation(failure);
+                if (position < 0) {
+                    return -1;
+                }
+                int found = Arrays.binarySearch(starts, (int) Math.min(position, Integer.MAX_VALUE));
+                int at = found >= 0 ? found : -found - 2;
+                return at < 0 ? -1 : indexes[at];
+            }
+
+            Rejection rejection(Exception failure, String claimId) {
+                Rejection rejection = X12_BatchParser.rejection(isa, set, claimId);
+                int failed = failedSegment(failure);
+                if (failed >= 0) {
+                    rejection.setErrorOffset(set.get(failed).getOffset());
+                    rejection.setErrorSegmentId(set.get(failed).getId());
+                }
+                String message = String.valueOf(rootCause(failure).getMessage());
+                int newline = message.indexOf('\n');
+                rejection.setMessage(newline < 0 ? message : message.substring(0, newline));
+                return rejection;
+            }
+        }
+    }
+
+    /**
+     * @return the byte offset in the parsed input at which a Daffodil parse failed, or -1
+     */
+    static long dataLocation(Throwable failure) {
+        Matcher matcher = DATA_LOCATION.matcher(String.valueOf(rootCause(failure).getMessage()));
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        while (e.getCause() != null && e.getCause() != e) {
+            e = e.getCause();
+        }
+        return e;
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.XML;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code x12} command-line converter.
+ * <pre>
+ *   x12 parse    [-t 837|835|850|276|277] [-m none|structural|full] [-o out.xml] in.edi
+ *   x12 convert  [-t ...] [-f json|yaml|xml|edi] [-o out.json] in.edi|in.xml
+ *   x12 validate [-t ...] [-m structural|full] [--ack out.999] in.edi...
+ *   x12 split    -o dir in.edi...
+ *   x12 query    -q 'Loop_2300[Loop_2310B/NM1/NM109 = "1234567893"]/CLM/CLM01' in.edi...
+ *   x12 batch    [-m ...] [-o dir] [--quarantine rejected.edi] in.edi...
+ *   x12 diff     [-t 837|835] original.edi|.xml resubmission.edi|.xml
+ *   x12 roundtrip [-m ...] corpus-dir|in.edi...
+ *   x12 train    -a x12.jsa in.edi...
+ * </pre>
+ * The transaction type is taken from the ST segment unless given. Each command is its own
+ * {@link X12_CliCommand}: see {@link X12_CliConvert}, {@link X12_CliValidate},
+ * {@link X12_CliSplit}, {@link X12_CliQuery}, {@link X12_CliBatch}, {@link X12_CliDiff},
+ * {@link X12_CliRoundTrip} and {@link X12_CliTrain}. Inputs may be gzip, zstd or deflate
+ * compressed, and an output name ending in {@code .gz}, {@code .zst} or {@code .zz} is
+ * compressed (see {@link X12_Compression}). Without {@code -o}, output goes to standard
+ * output; library logging and diagnostics go to standard error.
+ * <p>
+ * Exit status is 0 on success, 1 when validation or conversion fails, and 2 on a usage error.
+ */
+public final class X12_Cli {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILED = 1;
+    static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = "x12 parse|convert|validate|split|query|batch|diff|roundtrip|train [options] <file>...";
+
+    private static final Map<String, X12_CliCommand> COMMANDS = Map.of(
+            "parse", new X12_CliConvert(true),
+            "convert", new X12_CliConvert(false),
+            "validate", new X12_CliValidate(),
+            "split", new X12_CliSplit(),
+            "query", new X12_CliQuery(),
+            "batch", new X12_CliBatch(),
+            "diff", new X12_CliDiff(),
+            "roundtrip", new X12_CliRoundTrip(),
+            "train", new X12_CliTrain(),
+            X12_CliTrain.EXERCISE, X12_CliTrain::exercise);
+
+    private X12_Cli() {
+    }
+
+    public static void main(String[] args) {
+        // Quiet by default; must be set before the first logger is created.
+        if (System.getProperty("org.slf4j.simpleLogger.defaultLogLevel") == null) {
+            System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+        }
+        // Keep standard output for converted data.
+        PrintStream out = System.out;
+        System.setOut(System.err);
+        System.exit(run(args, out, System.err));
+    }
+
+    /**
+     * Run one command.
+     *
+     * @return the process exit status
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        Options options = options();
+        CommandLine cmd;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            return usage(err, options, e.getMessage());
+        }
+        List<String> arguments = cmd.getArgList();
+        if (arguments.isEmpty() || cmd.hasOption("help")) {
+            return usage(err, options, null);
+        }
+        String command = arguments.get(0);
+        List<Path> inputs = new ArrayList<>();
+        for (String argument : arguments.subList(1, arguments.size())) {
+            inputs.add(Paths.get(argument));
+        }
+        if (inputs.isEmpty()) {
+            return usage(err, options, "No input files");
+        }
+        X12_CliCommand handler = COMMANDS.get(command);
+        if (handler == null) {
+            return usage(err, options, "Unknown command: " + command);
+        }
+        try {
+            return handler.run(cmd, inputs, out, err);
+        } catch (IllegalArgumentException e) {
+            return usage(err, options, e.getMessage());
+        } catch (Exception e) {
+            err.println("x12: " + command + " failed: " + e);
+            return EXIT_FAILED;
+        }
+    }
+
+    private static Options options() {
+        Options options = new Options();
+        options.addOption(Option.builder("t").longOpt("type").hasArg().argName("837|835|850|276|277")
+                .desc("Transaction type; detected from the ST segment when omitted").build());
+        options.addOption(Option.builder("f").longOpt("format").hasArg().argName("FORMAT")
+                .desc("convert output format: json (default), yaml, xml or edi").build());
+        options.addOption(Option.builder("m").longOpt("validation").hasArg().argName("MODE")
+                .desc("Validation mode: none, structural or full (default)").build());
+        options.addOption(Option.builder("o").longOpt("output").hasArg().argName("FILE")
+                .desc("Output file, compressed by extension; standard output when omitted (split, batch: output directory)").build());
+        options.addOption(Option.builder().longOpt("ack").hasArg().argName("FILE")
+                .desc("validate: write 999/TA1 acknowledgements to FILE").build());
+        options.addOption(Option.builder("q").longOpt("query").hasArg().argName("EXPR")
+                .desc("query: path query to evaluate, e.g. Loop_2100[CLP/CLP04 > 1000]/CLP").build());
+        options.addOption(Option.builder().longOpt("quarantine").hasArg().argName("FILE")
+                .desc("batch: write rejected transaction sets and claims to FILE").build());
+        options.addOption(Option.builder("a").longOpt("archive").hasArg().argName("FILE")
+                .desc("train: AppCDS archive to create").build());
+        options.addOption(Option.builder("h").longOpt("help").desc("Show this help").build());
+        return options;
+    }
+
+    private static int usage(PrintStream err, Options options, String message) {
+        PrintWriter writer = new PrintWriter(err);
+        if (message != null) {
+            writer.println("x12: " + message);
+        }
+        new HelpFormatter().printHelp(writer, HelpFormatter.DEFAULT_WIDTH, USAGE, null, options,
+                HelpFormatter.DEFAULT_LEFT_PAD, HelpFormatter.DEFAULT_DESC_PAD, null);
+        writer.flush();
+        return EXIT_USAGE;
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.XML;
+
+import org.apache.commons.cli.CommandLine;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * {@code x12 batch} parses each transaction set on its own (see {@link X12_BatchParser}),
+ * writes the XML of accepted sets to the {@code -o} directory, and prints one tab-separated
+ * line per rejected set or claim: the file, the offset and length of the rejected bytes,
+ * ST02, the claim, the error offset and the message.
+ */
+final class X12_CliBatch implements X12_CliCommand {
+
+    @Override
+    public int run(CommandLine cmd, List<Path> inputs, PrintStream out, PrintStream err) throws Exception {
+        X12_BatchParser parser = new X12_BatchParser(X12_CliSupport.validationMode(cmd, X12_ValidationMode.FULL));
+        Path directory = cmd.hasOption("output") ? Paths.get(cmd.getOptionValue("output")) : null;
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        long rejected = 0;
+        try (OutputStream quarantine = cmd.hasOption("quarantine")
+                ? X12_Compression.create(Paths.get(cmd.getOptionValue("quarantine"))) : null) {
+            parser.setQuarantine(quarantine);
+            for (Path input : inputs) {
+                String name = input.getFileName().toString();
+                int[] written = {0};
+                X12_BatchParser.Result result;
+                try (InputStream in = X12_Compression.open(input)) {
+                    result = parser.parse(in, (set, xml) -> {
+                        if (directory != null) {
+                            Files.writeString(directory.resolve(String.format("%s.%05d.xml", name, ++written[0])), xml);
+                        }
+                    });
+                }
+                for (X12_BatchParser.Rejection rejection : result.getRejections()) {
+                    out.println(input + "\t" + rejection.getOffset() + "\t" + rejection.getLength() + "\t"
+                            + rejection.getTransactionSetControlNumber() + "\t"
+                            + (rejection.getClaimId() == null ? "" : rejection.getClaimId()) + "\t"
+                            + rejection.getErrorOffset() + "\t" + rejection.getMessage());
+                }
+                rejected += result.getRejections().size();
+            }
+        }
+        return rejected == 0 ? X12_Cli.EXIT_OK : X12_Cli.EXIT_FAILED;
+    }
+}
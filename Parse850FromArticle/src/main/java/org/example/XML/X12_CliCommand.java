@@ -0,0 +1,23 @@
+package org.example.XML;
+
+import org.apache.commons.cli.CommandLine;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * One command of the {@code x12} command-line converter (see {@link X12_Cli}).
+ */
+@FunctionalInterface
+interface X12_CliCommand {
+
+    /**
+     * @param inputs the files named after the command; never empty
+     * @param out    where converted data and reports go
+     * @param err    where diagnostics go
+     * @return the process exit status
+     * @throws IllegalArgumentException on a usage error, which is reported with the help text
+     */
+    int run(CommandLine cmd, List<Path> inputs, PrintStream out, PrintStream err) throws Exception;
+}
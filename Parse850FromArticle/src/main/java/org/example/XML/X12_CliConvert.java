@@ -0,0 +1,55 @@
+package org.example.XML;
+
+import org.apache.commons.cli.CommandLine;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * {@code x12 parse} converts EDI to XML; {@code x12 convert} converts EDI or XML to JSON,
+ * YAML, XML or EDI.
+ */
+final class X12_CliConvert implements X12_CliCommand {
+
+    private final boolean ediToXml;
+
+    /**
+     * @param ediToXml true for {@code parse}, false for {@code convert}
+     */
+    X12_CliConvert(boolean ediToXml) {
+        this.ediToXml = ediToXml;
+    }
+
+    @Override
+    public int run(CommandLine cmd, List<Path> inputs, PrintStream out, PrintStream err) throws Exception {
+        if (inputs.size() > 1 && cmd.hasOption("output")) {
+            throw new IllegalArgumentException("--output takes a single input file");
+        }
+        for (Path input : inputs) {
+            convert(cmd, input, out);
+        }
+        return X12_Cli.EXIT_OK;
+    }
+
+    private void convert(CommandLine cmd, Path input, PrintStream stdout) throws Exception {
+        byte[] bytes = X12_CliSupport.read(input);
+        boolean xmlInput = X12_CliSupport.isXml(bytes);
+        if (ediToXml && xmlInput) {
+            throw new IllegalArgumentException(input + " is already XML");
+        }
+        X12_ParseCache.TransactionType type = X12_CliSupport.type(cmd, bytes, xmlInput);
+        X12_ValidationMode mode = X12_CliSupport.validationMode(cmd, X12_ValidationMode.FULL);
+        String xml = xmlInput ? new String(bytes, StandardCharsets.UTF_8) : X12_CliSupport.parseEDI(type, bytes, mode);
+
+        try (OutputStream out = X12_CliSupport.open(cmd, stdout)) {
+            if (ediToXml) {
+                out.write(xml.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            X12_CliSupport.write(type, X12_CliSupport.parseXML(type, xml), cmd.getOptionValue("format", "json"), out);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.XML;
+
+import org.apache.commons.cli.CommandLine;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * {@code x12 diff} compares two 837s or 835s claim by claim (see {@link X12_StructuralDiff})
+ * and prints one line per change; it exits with 1 when they differ.
+ */
+final class X12_CliDiff implements X12_CliCommand {
+
+    @Override
+    public int run(CommandLine cmd, List<Path> inputs, PrintStream out, PrintStream err) throws Exception {
+        if (inputs.size() != 2) {
+            throw new IllegalArgumentException("diff takes two input files");
+        }
+        Object[] models = new Object[2];
+        X12_ParseCache.TransactionType[] types = new X12_ParseCache.TransactionType[2];
+        for (int i = 0; i < 2; i++) {
+            byte[] bytes = X12_CliSupport.read(inputs.get(i));
+            boolean xmlInput = X12_CliSupport.isXml(bytes);
+            types[i] = X12_CliSupport.type(cmd, bytes, xmlInput);
+            if (types[i] != X12_ParseCache.TransactionType.X837 && types[i] != X12_ParseCache.TransactionType.X835) {
+                throw new IllegalArgumentException("diff compares 837 or 835 files");
+            }
+            String xml = xmlInput ? new String(bytes, StandardCharsets.UTF_8) : X12_CliSupport.parseEDI(types[i], bytes, X12_ValidationMode.NONE);
+            models[i] = X12_CliSupport.parseXML(types[i], xml);
+        }
+        if (types[0] != types[1]) {
+            throw new IllegalArgumentException("Cannot diff an " + types[0] + " with an " + types[1]);
+        }
+        X12_StructuralDiff.Result result = X12_StructuralDiff.diffModels(models[0], models[1]);
+        for (X12_StructuralDiff.Change change : result.getChanges()) {
+            out.println(change.getType() + "\t" + change.getPath()
+                    + (change.getType() == X12_StructuralDiff.ChangeType.CHANGED
+                    ? "\t" + change.getOldValue() + "\t" + change.getNewValue() : ""));
+        }
+        return result.isIdentical() ? X12_Cli.EXIT_OK : X12_Cli.EXIT_FAILED;
+    }
+}
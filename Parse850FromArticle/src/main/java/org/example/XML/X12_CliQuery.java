@@ -0,0 +1,49 @@
+package org.example.XML;
+
+import org.apache.commons.cli.CommandLine;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * {@code x12 query} streams each file through an {@link X12_Query} and prints one
+ * tab-separated line per match: the file, the loop path, the element name and the
+ * {@code name=value} pairs.
+ */
+final class X12_CliQuery implements X12_CliCommand {
+
+    @Override
+    public int run(CommandLine cmd, List<Path> inputs, PrintStream out, PrintStream err) throws Exception {
+        if (!cmd.hasOption("query")) {
+            throw new IllegalArgumentException("query requires --query EXPR");
+        }
+        for (Path input : inputs) {
+            query(cmd, input, out);
+        }
+        return X12_Cli.EXIT_OK;
+    }
+
+    private static void query(CommandLine cmd, Path input, PrintStream stdout) throws IOException {
+        try (InputStream in = new BufferedInputStream(X12_Compression.open(input))) {
+            X12_ParseCache.TransactionType type;
+            if (cmd.hasOption("type")) {
+                type = X12_CliSupport.transactionType(cmd.getOptionValue("type"));
+            } else {
+                in.mark(X12_Router.SNIFF_LENGTH);
+                byte[] head = in.readNBytes(X12_Router.SNIFF_LENGTH);
+                in.reset();
+                type = X12_CliSupport.sniff(head);
+            }
+            X12_Query.compile(type, cmd.getOptionValue("query")).evaluate(in, record -> {
+                StringBuilder line = new StringBuilder().append(input).append('\t').append(record.getLoopPath())
+                        .append('\t').append(record.getName());
+                record.getValues().forEach((key, value) -> line.append('\t').append(key).append('=').append(value));
+                stdout.println(line);
+            });
+        }
+    }
+}
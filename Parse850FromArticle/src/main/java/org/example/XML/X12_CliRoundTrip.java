@@ -0,0 +1,36 @@
+package org.example.XML;
+
+import org.apache.commons.cli.CommandLine;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * {@code x12 roundtrip} runs every interchange of the given files and directories through
+ * EDI -> XML -> model -> EDI (see {@link X12_RoundTripVerifier}), prints the statistics and
+ * sample differences, and exits with 1 unless every round trip was lossless.
+ */
+final class X12_CliRoundTrip implements X12_CliCommand {
+
+    @Override
+    public int run(CommandLine cmd, List<Path> inputs, PrintStream out, PrintStream err) throws Exception {
+        X12_RoundTripVerifier verifier = new X12_RoundTripVerifier();
+        verifier.setValidationMode(X12_CliSupport.validationMode(cmd, X12_ValidationMode.NONE));
+        boolean lossless = true;
+        for (Path input : inputs) {
+            X12_RoundTripVerifier.Report report = verifier.verify(input);
+            out.println(input + ": " + report);
+            for (X12_RoundTripVerifier.Failure failure : report.getFailures()) {
+                out.println("  " + failure.getFile() + " @" + failure.getInterchangeOffset() + " " + failure.getStage()
+                        + " failed: " + failure.getMessage());
+            }
+            for (X12_RoundTripVerifier.Mismatch mismatch : report.getMismatches()) {
+                out.println("  " + mismatch.getFile() + " @" + mismatch.getInterchangeOffset() + " segment "
+                        + mismatch.getSegment() + ": " + mismatch.getExpected() + " -> " + mismatch.getActual());
+            }
+            lossless &= report.isLossless();
+        }
+        return lossless ? X12_Cli.EXIT_OK : X12_Cli.EXIT_FAILED;
+    }
+}
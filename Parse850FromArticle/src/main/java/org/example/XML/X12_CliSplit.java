@@ -0,0 +1,27 @@
+package org.example.XML;
+
+import org.apache.commons.cli.CommandLine;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * {@code x12 split} copies the interchanges of mixed files into one file per transaction
+ * type (see {@link X12_Router}) and prints each file written.
+ */
+final class X12_CliSplit implements X12_CliCommand {
+
+    @Override
+    public int run(CommandLine cmd, List<Path> inputs, PrintStream out, PrintStream err) throws Exception {
+        if (!cmd.hasOption("output")) {
+            throw new IllegalArgumentException("split requires --output DIR");
+        }
+        for (Path input : inputs) {
+            X12_Router.split(input, Paths.get(cmd.getOptionValue("output")))
+                    .forEach((type, file) -> out.println(type + "\t" + file));
+        }
+        return X12_Cli.EXIT_OK;
+    }
+}
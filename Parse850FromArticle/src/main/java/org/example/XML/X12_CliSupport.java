@@ -0,0 +1,220 @@
+package org.example.XML;
+
+import org.apache.commons.cli.CommandLine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Option handling and per-transaction-type dispatch shared by the {@code x12} commands.
+ * <p>
+ * The 276 and 277 parsers have a single Smooks engine, so for them the {@code full} and
+ * {@code structural} validation modes both mean a structural pre-check before the parse.
+ * A 277 has no serializer and no YAML writer, so it converts to JSON and XML only.
+ */
+final class X12_CliSupport {
+
+    private X12_CliSupport() {
+    }
+
+    static byte[] read(Path input) throws IOException {
+        try (InputStream in = X12_Compression.open(input)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * @return the {@code --output} file, compressed by its extension, or standard output
+     *         wrapped so that closing it only flushes
+     */
+    static OutputStream open(CommandLine cmd, PrintStream stdout) throws IOException {
+        return cmd.hasOption("output")
+                ? X12_Compression.create(Paths.get(cmd.getOptionValue("output")))
+                : X12_Sinks.nonClosing(stdout);
+    }
+
+    static boolean isXml(byte[] bytes) {
+        for (byte b : bytes) {
+            if (!Character.isWhitespace(b)) {
+                return b == '<';
+            }
+        }
+        return false;
+    }
+
+    static X12_ValidationMode validationMode(CommandLine cmd, X12_ValidationMode defaultMode) {
+        String value = cmd.getOptionValue("validation");
+        if (value == null) {
+            return defaultMode;
+        }
+        try {
+            return X12_ValidationMode.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown validation mode: " + value);
+        }
+    }
+
+    /**
+     * @return the {@code --type} option, or the type read from the envelope of EDI input
+     */
+    static X12_ParseCache.TransactionType type(CommandLine cmd, byte[] bytes, boolean xmlInput) {
+        String value = cmd.getOptionValue("type");
+        if (value != null) {
+            return transactionType(value);
+        }
+        if (xmlInput) {
+            throw new IllegalArgumentException("--type is required for XML input");
+        }
+        return sniff(bytes);
+    }
+
+    static X12_ParseCache.TransactionType transactionType(String value) {
+        switch (value) {
+            case "837":
+                return X12_ParseCache.TransactionType.X837;
+            case "835":
+                return X12_ParseCache.TransactionType.X835;
+            case "850":
+                return X12_ParseCache.TransactionType.X850;
+            case "276":
+                return X12_ParseCache.TransactionType.X276;
+            case "277":
+                return X12_ParseCache.TransactionType.X277;
+            default:
+                throw new IllegalArgumentException("Unsupported transaction type: " + value);
+        }
+    }
+
+    /**
+     * Read the transaction type from the envelope of the first interchange.
+     */
+    static X12_ParseCache.TransactionType sniff(byte[] edi) {
+        X12_Router.Interchange interchange = X12_Router.sniff(edi, Math.min(edi.length, X12_Router.SNIFF_LENGTH));
+        if (interchange == null || interchange.getTransactionSetId() == null && interchange.getFunctionalId() == null) {
+            throw new IllegalArgumentException("No ST segment found; pass --type");
+        }
+        if (interchange.getType() == null) {
+            throw new IllegalArgumentException("Unsupported transaction type: " + interchange.getTypeName());
+        }
+        return interchange.getType();
+    }
+
+    static String parseEDI(X12_ParseCache.TransactionType type, byte[] edi, X12_ValidationMode mode) throws Exception {
+        switch (type) {
+            case X837:
+                return X12_837_Parser.parseEDI(edi, mode);
+            case X835:
+                return X12_835_Parser.parseEDI(edi, mode);
+            case X850:
+                return X12_850_Parser.parseEDI(edi, mode);
+            default:
+                if (mode.isStructuralPrevalidation()) {
+                    X12_StructuralValidator.requireValid(edi);
+                }
+                return type == X12_ParseCache.TransactionType.X276
+                        ? X12_276_Parser.parseEDI(edi) : X12_277_Parser.parseEDI(edi);
+        }
+    }
+
+    static Object parseXML(X12_ParseCache.TransactionType type, String xml) throws IOException {
+        switch (type) {
+            case X837:
+                return X12_837_Parser.parseXML(xml);
+            case X835:
+                return X12_835_Parser.parseXML(xml);
+            case X276:
+                return X12_276_Parser.parseXML(xml);
+            case X277:
+                return X12_277_Parser.parseXML(xml);
+            default:
+                return X12_850_Parser.parseXML(xml);
+        }
+    }
+
+    /**
+     * Write a model as json, yaml, xml or edi.
+     */
+    static void write(X12_ParseCache.TransactionType type, Object model, String format, OutputStream out) throws Exception {
+        switch (format) {
+            case "json":
+            case "yaml":
+            case "xml":
+            case "edi":
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown format: " + format);
+        }
+        switch (type) {
+            case X837: {
+                X12_837_Interchange interchange = (X12_837_Interchange) model;
+                if (format.equals("json")) {
+                    X12_837_Parser.writeJson(interchange, out);
+                } else if (format.equals("yaml")) {
+                    X12_837_Parser.writeYaml(interchange, out);
+                } else if (format.equals("xml")) {
+                    X12_837_Parser.writeXml(interchange, out);
+                } else {
+                    X12_837_Parser.writeEDI(interchange, out);
+                }
+                break;
+            }
+            case X835: {
+                X12_835_Interchange interchange = (X12_835_Interchange) model;
+                if (format.equals("json")) {
+                    X12_835_Parser.writeJson(interchange, out);
+                } else if (format.equals("yaml")) {
+                    X12_835_Parser.writeYaml(interchange, out);
+                } else if (format.equals("xml")) {
+                    X12_835_Parser.writeXml(interchange, out);
+                } else {
+                    X12_835_Parser.writeEDI(interchange, out);
+                }
+                break;
+            }
+            case X276: {
+                X12_276_ClaimStatus claimStatus = (X12_276_ClaimStatus) model;
+                if (format.equals("json")) {
+                    X12_276_Parser.writeJson(claimStatus, out);
+                } else if (format.equals("yaml")) {
+                    X12_276_Parser.writeYaml(claimStatus, out);
+                } else if (format.equals("xml")) {
+                    X12_276_Parser.writeXml(claimStatus, out);
+                } else {
+                    X12_276_Parser.writeEDI(claimStatus, out);
+                }
+                break;
+            }
+            case X277: {
+                X12_277_ClaimStatusResponse response = (X12_277_ClaimStatusResponse) model;
+                if (format.equals("json")) {
+                    X12_277_Parser.writeJson(response, out);
+                } else if (format.equals("xml")) {
+                    out.write(X12_277_Parser.toXml(response).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    throw new IllegalArgumentException("A 277 cannot be converted to " + format);
+                }
+                break;
+            }
+            default: {
+                X12_850_Interchange interchange = (X12_850_Interchange) model;
+                if (format.equals("json")) {
+                    X12_850_Parser.writeJson(interchange, out);
+                } else if (format.equals("yaml")) {
+                    X12_850_Parser.writeYaml(interchange, out);
+                } else if (format.equals("xml")) {
+                    X12_850_Parser.writeXml(interchange, out);
+                } else {
+                    X12_850_Parser.writeEDI(interchange, out);
+                }
+                break;
+            }
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.XML;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.cli.CommandLine;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code x12 train} runs the other commands' code paths over the given sample files in a
+ * child JVM started with {@code -XX:ArchiveClassesAtExit}, producing an AppCDS archive of the
+ * Smooks, DFDL and Jackson classes they load. Later runs started with
+ * {@code -XX:SharedArchiveFile} and the same class path map those classes instead of loading
+ * and verifying them, which is most of the start-up cost of a short conversion.
+ */
+@Slf4j
+final class X12_CliTrain implements X12_CliCommand {
+
+    /** Hidden command run by {@code train} inside the archiving JVM. */
+    static final String EXERCISE = "exercise";
+
+    @Override
+    public int run(CommandLine cmd, List<Path> inputs, PrintStream out, PrintStream err) throws Exception {
+        if (!cmd.hasOption("archive")) {
+            throw new IllegalArgumentException("train requires --archive");
+        }
+        Path archive = Paths.get(cmd.getOptionValue("archive"));
+        for (Path input : inputs) {
+            if (!Files.isRegularFile(input)) {
+                throw new IllegalArgumentException("No such file: " + input);
+            }
+        }
+        String classPath = System.getProperty("java.class.path");
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-XX:ArchiveClassesAtExit=" + archive.toAbsolutePath());
+        command.add("-cp");
+        command.add(classPath);
+        command.add(X12_Cli.class.getName());
+        command.add(EXERCISE);
+        for (Path input : inputs) {
+            command.add(input.toAbsolutePath().toString());
+        }
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        int status = process.waitFor();
+        if (status != 0 || !Files.isRegularFile(archive)) {
+            err.println("x12: training run failed with status " + status);
+            return X12_Cli.EXIT_FAILED;
+        }
+        err.printf("x12: wrote %s (%d KB). Start later runs with:%n  java -XX:SharedArchiveFile=%s -cp %s %s ...%n",
+                archive, Files.size(archive) / 1024, archive.toAbsolutePath(), classPath, X12_Cli.class.getName());
+        return X12_Cli.EXIT_OK;
+    }
+
+    /**
+     * The {@link #EXERCISE} command: drive every code path a short run would take, so their
+     * classes are archived. A sample that fails one step (an invalid file, say) still
+     * exercises the others; the failure is logged.
+     */
+    static int exercise(CommandLine cmd, List<Path> inputs, PrintStream out, PrintStream err) throws Exception {
+        for (Path input : inputs) {
+            byte[] bytes = X12_CliSupport.read(input);
+            X12_ParseCache.TransactionType type = X12_CliSupport.sniff(bytes);
+            X12_StructuralValidator.validate(bytes, new X12_AcknowledgementGenerator(Writer.nullWriter()));
+            String xml = null;
+            for (X12_ValidationMode mode : X12_ValidationMode.values()) {
+                try {
+                    xml = X12_CliSupport.parseEDI(type, bytes, mode);
+                } catch (Exception e) {
+                    log.warn("{} ({}): {}", input, mode, e.getMessage());
+                }
+            }
+            if (xml == null) {
+                continue;
+            }
+            Object model = X12_CliSupport.parseXML(type, xml);
+            for (String format : new String[]{"json", "yaml", "xml", "edi"}) {
+                try {
+                    X12_CliSupport.write(type, model, format, OutputStream.nullOutputStream());
+                } catch (Exception e) {
+                    log.warn("{} ({}): {}", input, format, e.getMessage());
+                }
+            }
+        }
+        return X12_Cli.EXIT_OK;
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.XML;
+
+import org.apache.commons.cli.CommandLine;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code x12 validate} checks each file structurally and, at {@code full}, with a DFDL parse,
+ * and prints {@code valid} or {@code INVALID} with one line per problem. With {@code --ack}
+ * it also writes a 999/TA1 acknowledgement for every interchange (see
+ * {@link X12_AcknowledgementGenerator}).
+ */
+final class X12_CliValidate implements X12_CliCommand {
+
+    @Override
+    public int run(CommandLine cmd, List<Path> inputs, PrintStream out, PrintStream err) throws Exception {
+        X12_ValidationMode mode = X12_CliSupport.validationMode(cmd, X12_ValidationMode.FULL);
+        if (mode == X12_ValidationMode.NONE) {
+            throw new IllegalArgumentException("validate needs structural or full validation");
+        }
+        Writer ackOut = cmd.hasOption("ack")
+                ? new OutputStreamWriter(X12_Compression.create(Paths.get(cmd.getOptionValue("ack"))), StandardCharsets.UTF_8)
+                : null;
+        int invalid = 0;
+        try {
+            for (Path input : inputs) {
+                if (!validate(cmd, mode, input, ackOut, out)) {
+                    invalid++;
+                }
+            }
+        } finally {
+            if (ackOut != null) {
+                ackOut.close();
+            }
+        }
+        return invalid == 0 ? X12_Cli.EXIT_OK : X12_Cli.EXIT_FAILED;
+    }
+
+    private static boolean validate(CommandLine cmd, X12_ValidationMode mode, Path input, Writer ackOut,
+                                    PrintStream stdout) throws Exception {
+        byte[] bytes = X12_CliSupport.read(input);
+        X12_AcknowledgementGenerator acknowledgements = ackOut == null ? null : new X12_AcknowledgementGenerator(ackOut);
+        Exception parseFailure = null;
+        if (mode == X12_ValidationMode.FULL) {
+            // Parse first so the structural pass can acknowledge a DFDL failure as it reads.
+            try {
+                X12_CliSupport.parseEDI(X12_CliSupport.type(cmd, bytes, false), bytes, X12_ValidationMode.FULL);
+            } catch (Exception e) {
+                parseFailure = e;
+                if (acknowledgements != null) {
+                    acknowledgements.rejectParseFailure(e);
+                }
+            }
+        }
+        List<String> problems = new ArrayList<>();
+        X12_StructuralValidator.Result result = X12_StructuralValidator.validate(bytes, acknowledgements);
+        for (X12_StructuralValidator.ValidationError error : result.getErrors()) {
+            problems.add(error.getType() + " at segment " + error.getSegmentPosition() + " (" + error.getSegmentId()
+                    + ", byte " + error.getByteOffset() + "): " + error.getMessage());
+        }
+        if (result.isValid() && parseFailure != null) {
+            problems.add("DFDL validation failed: " + parseFailure.getMessage());
+        }
+        stdout.println(input + ": " + (problems.isEmpty() ? "valid" : "INVALID"));
+        for (String problem : problems) {
+            stdout.println("  " + problem);
+        }
+        return problems.isEmpty();
+    }
+}
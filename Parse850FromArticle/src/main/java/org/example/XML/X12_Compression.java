@@ -0,0 +1,173 @@
+package org.example.XML;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+import io.airlift.compress.zstd.ZstdOutputStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Transparent gzip, zstd and deflate (zlib) handling for the parsers' file entry points.
+ * <p>
+ * Input compression is detected from the leading magic bytes, so archived files can be
+ * passed as-is regardless of their name. Compressed input is decompressed on a separate
+ * thread into the bounded chunk queue of {@link X12_Sinks#pipe}, pipelining decompression
+ * with the Smooks parse that consumes it. Output compression is chosen from the file extension
+ * ({@code .gz}, {@code .zst}, {@code .zz}) or given explicitly.
+ */
+@Slf4j
+public final class X12_Compression {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final int QUEUED_CHUNKS = 8;
+
+    private X12_Compression() {
+    }
+
+    /**
+     * Supported compression formats.
+     */
+    public enum Codec {
+        NONE(""),
+        GZIP(".gz"),
+        ZSTD(".zst"),
+        /** zlib-wrapped deflate, as written by {@link DeflaterOutputStream}. */
+        DEFLATE(".zz");
+
+        private final String extension;
+
+        Codec(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @return the codec implied by the file name's extension, or {@link #NONE}
+         */
+        public static Codec forFileName(String fileName) {
+            String lower = fileName.toLowerCase(Locale.ROOT);
+            if (lower.endsWith(".gz") || lower.endsWith(".gzip")) {
+                return GZIP;
+            }
+            if (lower.endsWith(".zst") || lower.endsWith(".zstd")) {
+                return ZSTD;
+            }
+            if (lower.endsWith(".zz") || lower.endsWith(".deflate")) {
+                return DEFLATE;
+            }
+            return NONE;
+        }
+    }
+
+    /**
+     * Identify the compression of data from its first bytes.
+     */
+    public static Codec detect(byte[] header, int length) {
+        if (length >= 2 && (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B) {
+            return Codec.GZIP;
+        }
+        if (length >= 4 && (header[0] & 0xFF) == 0x28 && (header[1] & 0xFF) == 0xB5
+                && (header[2] & 0xFF) == 0x2F && (header[3] & 0xFF) == 0xFD) {
+            return Codec.ZSTD;
+        }
+        // zlib: CM=8 in the low nibble of CMF and the 16-bit header is a multiple of 31.
+        if (length >= 2 && (header[0] & 0x0F) == 8 && (((header[0] & 0xFF) << 8) | (header[1] & 0xFF)) % 31 == 0) {
+            return Codec.DEFLATE;
+        }
+        return Codec.NONE;
+    }
+
+    /**
+     * Open a possibly compressed file for reading.
+     */
+    public static InputStream open(Path file) throws IOException {
+        return decompress(Files.newInputStream(file));
+    }
+
+    /**
+     * Detect the compression of a stream and return a stream of the decompressed bytes.
+     * Uncompressed input is returned buffered; compressed input is decompressed on a
+     * background thread. Closing the returned stream closes {@code in}.
+     */
+    public static InputStream decompress(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, CHUNK_SIZE);
+        buffered.mark(4);
+        byte[] header = buffered.readNBytes(4);
+        buffered.reset();
+        Codec codec = detect(header, header.length);
+        switch (codec) {
+            case GZIP:
+                return pipelined(new GZIPInputStream(buffered, CHUNK_SIZE), codec);
+            case ZSTD:
+                return pipelined(new ZstdInputStream(buffered), codec);
+            case DEFLATE:
+                return pipelined(new InflaterInputStream(buffered), codec);
+            default:
+                return buffered;
+        }
+    }
+
+    /**
+     * Create a file for writing, compressed according to its extension.
+     */
+    public static OutputStream create(Path file) throws IOException {
+        return create(file, Codec.forFileName(file.getFileName().toString()));
+    }
+
+    public static OutputStream create(Path file, Codec codec) throws IOException {
+        return compress(Files.newOutputStream(file), codec);
+    }
+
+    /**
+     * Wrap a stream so that bytes written to it are compressed. Closing the returned stream
+     * finishes the compressed format and closes {@code out}.
+     */
+    public static OutputStream compress(OutputStream out, Codec codec) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out, CHUNK_SIZE);
+        switch (codec) {
+            case GZIP:
+                return new BufferedOutputStream(new GZIPOutputStream(buffered, CHUNK_SIZE), CHUNK_SIZE);
+            case ZSTD:
+                return new BufferedOutputStream(new ZstdOutputStream(buffered), CHUNK_SIZE);
+            case DEFLATE:
+                return new BufferedOutputStream(new DeflaterOutputStream(buffered), CHUNK_SIZE);
+            default:
+                return buffered;
+        }
+    }
+
+    /**
+     * Run a decompressing stream on an {@link X12_Sinks#pipe} producer thread, so decompression
+     * runs ahead of, but never far ahead of, parsing. Closing the result closes {@code source}.
+     */
+    private static InputStream pipelined(InputStream source, Codec codec) {
+        InputStream pipe = X12_Sinks.pipe("x12-" + codec.name().toLowerCase(Locale.ROOT) + "-decompress-",
+                QUEUED_CHUNKS, "Decompression failed", source::transferTo);
+        return new FilterInputStream(pipe) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    source.close();
+                }
+            }
+        };
+    }
+}
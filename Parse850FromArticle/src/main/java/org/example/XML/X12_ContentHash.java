@@ -0,0 +1,91 @@
+package org.example.XML;
+
+/**
+ * Fast, non-cryptographic 64-bit content hash (FNV-1a with a murmur-style finalizer).
+ * <p>
+ * Used to fingerprint EDI payloads and claim contents where a cryptographic digest
+ * would cost far more than the lookup it guards. Collisions are possible, so callers
+ * that must be exact (e.g. duplicate rejection) confirm a hit against an exact store.
+ */
+public final class X12_ContentHash {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long state;
+    private long length;
+
+    public X12_ContentHash() {
+        this(0L);
+    }
+
+    /**
+     * @param seed mixed into the initial state so independent hash functions can be derived
+     */
+    public X12_ContentHash(long seed) {
+        this.state = FNV_OFFSET_BASIS ^ seed;
+    }
+
+    public X12_ContentHash update(byte[] data) {
+        return update(data, 0, data.length);
+    }
+
+    public X12_ContentHash update(byte[] data, int offset, int len) {
+        long h = state;
+        for (int i = offset; i < offset + len; i++) {
+            h ^= (data[i] & 0xFF);
+            h *= FNV_PRIME;
+        }
+        state = h;
+        length += len;
+        return this;
+    }
+
+    public X12_ContentHash update(byte b) {
+        state = (state ^ (b & 0xFF)) * FNV_PRIME;
+        length++;
+        return this;
+    }
+
+    public X12_ContentHash update(CharSequence text) {
+        long h = state;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            h = (h ^ (c & 0xFF)) * FNV_PRIME;
+            h = (h ^ (c >>> 8)) * FNV_PRIME;
+        }
+        state = h;
+        length += text.length() * 2L;
+        return this;
+    }
+
+    /**
+     * @return the finalized hash value; the hash may continue to be updated afterwards
+     */
+    public long getValue() {
+        return mix(state ^ length);
+    }
+
+    /**
+     * Convenience one-shot hash of a byte array.
+     */
+    public static long hash(byte[] data) {
+        return new X12_ContentHash().update(data).getValue();
+    }
+
+    /**
+     * Convenience one-shot hash of a string.
+     */
+    public static long hash(CharSequence text, long seed) {
+        return new X12_ContentHash(seed).update(text).getValue();
+    }
+
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,478 @@
+package org.example.XML;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-running local conversion server on the JDK's built-in {@link HttpServer}.
+ * <pre>
+ *   POST /837/parse?format=json|yaml|xml|edi   body: 837 EDI
+ *   POST /835/parse?format=...                 body: 835 EDI
+ *   POST /850/parse?format=...                 body: 850 EDI
+ *   POST /276/parse?format=...                 body: 276 EDI
+ *   GET  /metrics                              Prometheus text: HTTP and parser metrics
+ * </pre>
+ * The Smooks engines are built once when the server starts (see {@link X12_SmooksEngines})
+ * and the parsers' Jackson mappers stay resident, so a request pays only for the conversion.
+ * {@code format=xml} (the default) streams the Smooks output straight into the response;
+ * the other formats bind the model from the Smooks output as it is written, through a pipe
+ * rather than a buffer, and stream the model out.
+ * <p>
+ * At most {@code maxConcurrent} conversions run at once. Up to {@code queueCapacity} more
+ * wait up to {@code queueTimeoutMillis} for a slot; anything beyond that is answered with
+ * 503 straight away. Input that fails to parse is answered with 422 when nothing has been
+ * sent yet; once a streamed response has started the connection is dropped instead, so a
+ * client never mistakes a truncated body for a complete one.
+ * <p>
+ * {@code /metrics} combines this server's request metrics with the parsers' stage metrics
+ * from {@link X12_Metrics#global()}, so a Prometheus scrape sees per-route latency next to
+ * per-partner throughput and error counts.
+ */
+@Slf4j
+public class X12_ConversionServer implements AutoCloseable {
+
+    /**
+     * Converts one EDI document of a transaction type to the requested format.
+     */
+    @FunctionalInterface
+    public interface Converter {
+        void convert(InputStream edi, String format, OutputStream out) throws Exception;
+    }
+
+    /**
+     * Bytes the response buffers before committing to a 200; errors inside this window still
+     * get a proper status.
+     */
+    private static final int COMMIT_THRESHOLD = 64 * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore slots;
+    private final int queueCapacity;
+    private final long queueTimeoutMillis;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Map<String, Converter> routes = new ConcurrentHashMap<>();
+    private final X12_Metrics metrics = new X12_Metrics();
+    private final X12_Metrics.Counter rejected;
+
+    /**
+     * Listen on the loopback interface with one conversion slot per CPU, a queue of 64 and a
+     * 30 second queue timeout.
+     *
+     * @param port the port, or 0 for an ephemeral one
+     */
+    public X12_ConversionServer(int port) throws IOException {
+        this(new InetSocketAddress("127.0.0.1", port), Runtime.getRuntime().availableProcessors(), 64, 30_000);
+    }
+
+    /**
+     * @param address            where to listen
+     * @param maxConcurrent      conversions that may run at once
+     * @param queueCapacity      requests that may wait for a free slot
+     * @param queueTimeoutMillis how long a queued request waits before it is answered with 503
+     */
+    public X12_ConversionServer(InetSocketAddress address, int maxConcurrent, int queueCapacity, long queueTimeoutMillis)
+            throws IOException {
+        this.slots = new Semaphore(maxConcurrent, true);
+        this.queueCapacity = queueCapacity;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.server = HttpServer.create(address, maxConcurrent + queueCapacity);
+        this.executor = Executors.newCachedThreadPool(new WorkerThreadFactory());
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+
+        rejected = metrics.counter("x12_http_rejected_total", "Requests answered with 503 because the queue was full",
+                new String[0]);
+        metrics.gauge("x12_http_free_slots", "Conversion slots not in use", slots::availablePermits);
+        metrics.gauge("x12_http_queued_requests", "Requests waiting for a conversion slot", waiting::get);
+
+        register("837", X12_ConversionServer::convert837);
+        register("835", X12_ConversionServer::convert835);
+        register("850", X12_ConversionServer::convert850);
+        register("276", X12_ConversionServer::convert276);
+    }
+
+    /**
+     * Serve {@code POST /<transaction>/parse} with the given converter, replacing any
+     * existing route for the transaction.
+     */
+    public void register(String transaction, Converter converter) {
+        routes.put(transaction, converter);
+        getHistogram(transaction);
+    }
+
+    /**
+     * Build the Smooks engines behind the built-in routes and start accepting requests.
+     */
+    public X12_ConversionServer start() {
+        long startTime = System.nanoTime();
+        X12_SmooksEngines.parser(X12_837_Parser.PARSE_CONFIG, X12_ValidationMode.FULL);
+        X12_SmooksEngines.parser(X12_835_Parser.PARSE_CONFIG, X12_ValidationMode.FULL);
+        X12_SmooksEngines.parser(X12_850_Parser.PARSE_CONFIG, X12_ValidationMode.FULL);
+        X12_SmooksEngines.parser(X12_276_Parser.CONFIG);
+        X12_SmooksEngines.serializer(X12_837_Parser.SERIALIZE_CONFIG);
+        X12_SmooksEngines.serializer(X12_835_Parser.SERIALIZE_CONFIG);
+        X12_SmooksEngines.serializer(X12_850_Parser.SERIALIZE_CONFIG);
+        X12_SmooksEngines.serializer(X12_276_Parser.SERIALIZE_CONFIG);
+        server.start();
+        log.info("Conversion server listening on {} (warm-up {} ms)", server.getAddress(),
+                (System.nanoTime() - startTime) / 1_000_000);
+        return this;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the request latency histogram for a transaction route
+     */
+    public X12_Metrics.Histogram getHistogram(String transaction) {
+        return metrics.histogram("x12_http_request_duration_seconds", "Time to answer a conversion request",
+                new String[]{"route"}, transaction);
+    }
+
+    /**
+     * @return requests answered with 503 because the queue was full or timed out
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    // ---- request handling ----
+
+    private void handle(HttpExchange exchange) throws IOException {
+        // Not try-with-resources: closing a chunked response writes its final chunk. When a
+        // handler throws instead, HttpServer drops the connection without it.
+        serve(exchange);
+        exchange.close();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/metrics")) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Use GET");
+                return;
+            }
+            byte[] body = (metrics.scrape() + X12_Metrics.global().scrape()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            return;
+        }
+
+        String[] parts = path.split("/");
+        Converter converter = parts.length == 3 && parts[2].equals("parse") ? routes.get(parts[1]) : null;
+        if (converter == null) {
+            sendError(exchange, 404, "No such endpoint: " + path);
+            return;
+        }
+        if (!exchange.getRequestMethod().equals("POST")) {
+            sendError(exchange, 405, "Use POST");
+            return;
+        }
+        String format = queryParameter(exchange, "format", "xml");
+        String contentType = contentType(format);
+        if (contentType == null) {
+            sendError(exchange, 400, "Unknown format: " + format + " (expected xml, json, yaml or edi)");
+            return;
+        }
+
+        if (!acquire()) {
+            rejected.increment();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "Server busy");
+            return;
+        }
+        long start = System.nanoTime();
+        int status = 500;
+        try {
+            status = convert(exchange, converter, format, contentType);
+        } finally {
+            slots.release();
+            getHistogram(parts[1]).record(System.nanoTime() - start);
+            metrics.counter("x12_http_requests_total", "Conversion requests by route and status",
+                    new String[]{"route", "status"}, parts[1], Integer.toString(status)).increment();
+        }
+    }
+
+    private boolean acquire() {
+        if (slots.tryAcquire()) {
+            return true;
+        }
+        if (waiting.incrementAndGet() > queueCapacity) {
+            waiting.decrementAndGet();
+            return false;
+        }
+        try {
+            return slots.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the status sent
+     */
+    private static int convert(HttpExchange exchange, Converter converter, String format, String contentType)
+            throws IOException {
+        ResponseStream out = new ResponseStream(exchange, contentType);
+        try (InputStream in = exchange.getRequestBody()) {
+            converter.convert(in, format, out);
+        } catch (Exception e) {
+            if (out.committed) {
+                log.warn("Conversion failed after the response started; dropping the connection", e);
+                throw new IOException("Conversion failed after the response started", e);
+            }
+            log.debug("Conversion failed", e);
+            sendError(exchange, 422, rootMessage(e));
+            return 422;
+        }
+        out.finish();
+        return 200;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static String rootMessage(Throwable e) {
+        while (e.getCause() != null && e.getCause() != e) {
+            e = e.getCause();
+        }
+        return e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name, String defaultValue) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return defaultValue;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            if (key.equals(name)) {
+                return eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static String contentType(String format) {
+        switch (format) {
+            case "xml":
+                return "application/xml";
+            case "json":
+                return "application/json";
+            case "yaml":
+                return "application/yaml";
+            case "edi":
+                return "application/edi-x12";
+            default:
+                return null;
+        }
+    }
+
+    // ---- converters ----
+
+    private static void convert837(InputStream edi, String format, OutputStream out) throws Exception {
+        if (format.equals("xml")) {
+            X12_837_Parser.parseEDI(edi, out);
+            return;
+        }
+        X12_837_Interchange interchange = bind("837", xml -> X12_837_Parser.parseEDI(edi, xml), X12_837_Parser::parseXML);
+        if (format.equals("json")) {
+            X12_837_Parser.writeJson(interchange, out);
+        } else if (format.equals("yaml")) {
+            X12_837_Parser.writeYaml(interchange, out);
+        } else {
+            X12_837_Parser.writeEDI(interchange, out);
+        }
+    }
+
+    private static void convert835(InputStream edi, String format, OutputStream out) throws Exception {
+        if (format.equals("xml")) {
+            X12_835_Parser.parseEDI(edi, out);
+            return;
+        }
+        X12_835_Interchange interchange = bind("835", xml -> X12_835_Parser.parseEDI(edi, xml), X12_835_Parser::parseXML);
+        if (format.equals("json")) {
+            X12_835_Parser.writeJson(interchange, out);
+        } else if (format.equals("yaml")) {
+            X12_835_Parser.writeYaml(interchange, out);
+        } else {
+            X12_835_Parser.writeEDI(interchange, out);
+        }
+    }
+
+    private static void convert850(InputStream edi, String format, OutputStream out) throws Exception {
+        if (format.equals("xml")) {
+            X12_850_Parser.parseEDI(edi, out);
+            return;
+        }
+        X12_850_Interchange interchange = bind("850", xml -> X12_850_Parser.parseEDI(edi, xml), X12_850_Parser::parseXML);
+        if (format.equals("json")) {
+            X12_850_Parser.writeJson(interchange, out);
+        } else if (format.equals("yaml")) {
+            X12_850_Parser.writeYaml(interchange, out);
+        } else {
+            X12_850_Parser.writeEDI(interchange, out);
+        }
+    }
+
+    private static void convert276(InputStream edi, String format, OutputStream out) throws Exception {
+        if (format.equals("xml")) {
+            X12_276_Parser.parseEDI(edi, out);
+            return;
+        }
+        X12_276_ClaimStatus claimStatus = bind("276", xml -> X12_276_Parser.parseEDI(edi, xml), X12_276_Parser::parseXML);
+        if (format.equals("json")) {
+            X12_276_Parser.writeJson(claimStatus, out);
+        } else if (format.equals("yaml")) {
+            X12_276_Parser.writeYaml(claimStatus, out);
+        } else {
+            X12_276_Parser.writeEDI(claimStatus, out);
+        }
+    }
+
+    @FunctionalInterface
+    private interface XmlBinder<T> {
+        T parseXML(InputStream xml) throws IOException;
+    }
+
+    /**
+     * Bind the XML a streaming {@code parseEDI} writes while it is being written. The rest of
+     * the pipe is drained afterwards, so a parse that fails after the last element still
+     * fails the request.
+     */
+    private static <T> T bind(String transactionType, X12_Sinks.StreamWriter parseEDI, XmlBinder<T> binder)
+            throws IOException {
+        try (InputStream xml = X12_Sinks.pipe(transactionType, parseEDI)) {
+            // Jackson closes its source once the value is read; keep the pipe open to drain it.
+            T model = binder.parseXML(new FilterInputStream(xml) {
+                @Override
+                public void close() {
+                }
+            });
+            xml.transferTo(OutputStream.nullOutputStream());
+            return model;
+        }
+    }
+
+    /**
+     * Buffers the start of a response so a conversion error can still be reported with a
+     * status code, then switches to chunked streaming.
+     */
+    private static final class ResponseStream extends OutputStream {
+
+        private final HttpExchange exchange;
+        private final String contentType;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private OutputStream body;
+        private boolean committed;
+
+        ResponseStream(HttpExchange exchange, String contentType) {
+            this.exchange = exchange;
+            this.contentType = contentType;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (committed) {
+                body.write(b, off, len);
+                return;
+            }
+            buffer.write(b, off, len);
+            if (buffer.size() >= COMMIT_THRESHOLD) {
+                commit(0);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Flushing before the threshold would commit the status too early.
+            if (committed) {
+                body.flush();
+            }
+        }
+
+        /**
+         * Send whatever is buffered; a response that never reached the threshold goes out
+         * with a Content-Length instead of chunked.
+         */
+        void finish() throws IOException {
+            if (!committed) {
+                commit(buffer.size());
+            }
+            body.flush();
+        }
+
+        private void commit(long contentLength) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, contentLength);
+            committed = true;
+            body = exchange.getResponseBody();
+            buffer.writeTo(body);
+            buffer = null;
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "x12-server-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Run the server until the process is killed.
+     *
+     * @param args optional port (default 8837)
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8837;
+        X12_ConversionServer server = new X12_ConversionServer(port).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "x12-server-shutdown"));
+    }
+}
@@ -0,0 +1,421 @@
+package org.example.XML;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Detects re-sent interchanges and claims before they reach the Smooks/Jackson pipeline.
+ * <p>
+ * Every interchange is fingerprinted by ISA sender, receiver and control number, and
+ * every claim by its CLM01 (837) or CLP01 (835) identifier plus a hash of the claim's
+ * segments. Fingerprints are checked against a Bloom filter first; only a filter hit
+ * consults the exact fingerprint log, which is loaded lazily, so the common "never
+ * seen" case costs a few memory probes. Both the filter and the log live in the
+ * given directory and survive restarts.
+ * <p>
+ * {@link #check(byte[])} only reports; {@link #record(Result)} remembers what a check found
+ * new, so callers record an input once it has been processed successfully and a failed
+ * parse can be resubmitted. Two identical inputs checked concurrently, before either is
+ * recorded, are both reported as new.
+ * <p>
+ * The fingerprint log is the source of truth; the filter file is a snapshot of it that
+ * records how much of the log it covers. Opening a detector replays log entries written
+ * after the snapshot, and rebuilds the filter from the whole log when the snapshot is
+ * missing or does not match it, so entries the log's buffer flushed before a crash are
+ * still found. Instances are thread-safe. Call {@link #close()} (or {@link #flush()}) to
+ * snapshot the filter.
+ */
+@Slf4j
+public class X12_DuplicateDetector implements Closeable {
+
+    static final String BLOOM_FILE = "dedup.bloom";
+    static final String FINGERPRINT_FILE = "dedup.fingerprints";
+
+    private final Path directory;
+    private final BloomFilter bloomFilter;
+    private final BufferedWriter fingerprintLog;
+    private Set<String> exactFingerprints;
+
+    /**
+     * Open (or create) a detector sized for one million fingerprints at a 0.1% false positive rate.
+     */
+    public X12_DuplicateDetector(Path directory) throws IOException {
+        this(directory, 1_000_000, 0.001);
+    }
+
+    /**
+     * Open (or create) a detector. Sizing only applies when the directory holds no existing filter.
+     *
+     * @param directory          where the filter and fingerprint log are stored
+     * @param expectedInsertions expected number of fingerprints
+     * @param falsePositiveRate  desired Bloom filter false positive probability
+     */
+    public X12_DuplicateDetector(Path directory, long expectedInsertions, double falsePositiveRate) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        Path bloomPath = directory.resolve(BLOOM_FILE);
+        Path logPath = directory.resolve(FINGERPRINT_FILE);
+        long logLength = terminateLog(logPath);
+        BloomFilter snapshot = null;
+        long covered = 0;
+        if (Files.exists(bloomPath)) {
+            try (InputStream in = Files.newInputStream(bloomPath)) {
+                DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+                snapshot = BloomFilter.readFrom(data);
+                covered = data.readLong();
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable duplicate filter {}: {}", bloomPath, e.toString());
+                snapshot = null;
+            }
+        }
+        if (snapshot == null || covered > logLength) {
+            // No snapshot, or one taken of a different log: everything in the log is replayed.
+            snapshot = BloomFilter.create(expectedInsertions, falsePositiveRate);
+            covered = 0;
+        }
+        this.bloomFilter = snapshot;
+        long replayed = replay(logPath, covered);
+        log.debug("Opened duplicate filter in {}, replaying {} fingerprints logged after its snapshot", directory, replayed);
+        this.fingerprintLog = Files.newBufferedWriter(logPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * End a log whose last line was cut short by a crash, so the next entry starts a line.
+     *
+     * @return the log's length, 0 when there is none
+     */
+    private static long terminateLog(Path logPath) throws IOException {
+        if (!Files.exists(logPath)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long length = channel.size();
+            if (length == 0) {
+                return 0;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, length - 1);
+            if (last.get(0) == '\n') {
+                return length;
+            }
+            channel.write(ByteBuffer.wrap(new byte[]{'\n'}), length);
+            return length + 1;
+        }
+    }
+
+    /**
+     * Put every fingerprint logged from {@code offset} on into the filter.
+     *
+     * @return the number of fingerprints replayed
+     */
+    private long replay(Path logPath, long offset) throws IOException {
+        if (!Files.exists(logPath)) {
+            return 0;
+        }
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ);
+             BufferedReader reader = new BufferedReader(Channels.newReader(channel.position(offset), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    bloomFilter.put(line);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Fingerprint the EDI and report which interchanges/claims have been seen before,
+     * without recording anything.
+     */
+    public synchronized Result check(byte[] ediInput) throws IOException {
+        return evaluate(fingerprint(ediInput));
+    }
+
+    /**
+     * Record the fingerprints a {@link #check(byte[])} found new, so later submissions of
+     * the same interchanges and claims are detected.
+     */
+    public synchronized void record(Result result) throws IOException {
+        for (String fingerprint : result.unseen) {
+            // Another caller may have recorded it since the check.
+            if (!seen(fingerprint)) {
+                remember(fingerprint);
+            }
+        }
+    }
+
+    /**
+     * Flush the fingerprint log and snapshot the Bloom filter with the log length it covers.
+     */
+    public synchronized void flush() throws IOException {
+        fingerprintLog.flush();
+        long covered = Files.size(directory.resolve(FINGERPRINT_FILE));
+        Path target = directory.resolve(BLOOM_FILE);
+        Path temp = directory.resolve(BLOOM_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            bloomFilter.writeTo(out);
+            out.writeLong(covered);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            fingerprintLog.close();
+        }
+    }
+
+    private Result evaluate(Fingerprints fingerprints) throws IOException {
+        Result result = new Result();
+        result.setInterchangeCount(fingerprints.interchanges.size());
+        result.setClaimCount(fingerprints.claims.size());
+        for (String interchange : fingerprints.interchanges) {
+            if (seen(interchange)) {
+                result.getDuplicateInterchanges().add(interchange);
+            } else {
+                result.unseen.add(interchange);
+            }
+        }
+        for (String claim : fingerprints.claims) {
+            if (seen(claim)) {
+                result.getDuplicateClaims().add(claim);
+            } else {
+                result.unseen.add(claim);
+            }
+        }
+        if (result.isDuplicate()) {
+            log.info("Duplicate EDI detected: {} of {} interchanges, {} of {} claims already seen",
+                    result.getDuplicateInterchanges().size(), result.getInterchangeCount(),
+                    result.getDuplicateClaims().size(), result.getClaimCount());
+        }
+        return result;
+    }
+
+    private boolean seen(String fingerprint) throws IOException {
+        if (!bloomFilter.mightContain(fingerprint)) {
+            return false;
+        }
+        return exactFingerprints().contains(fingerprint);
+    }
+
+    private void remember(String fingerprint) throws IOException {
+        bloomFilter.put(fingerprint);
+        if (exactFingerprints != null) {
+            exactFingerprints.add(fingerprint);
+        }
+        fingerprintLog.write(fingerprint);
+        fingerprintLog.newLine();
+    }
+
+    private Set<String> exactFingerprints() throws IOException {
+        if (exactFingerprints == null) {
+            fingerprintLog.flush();
+            Set<String> loaded = new HashSet<>();
+            try (BufferedReader reader = Files.newBufferedReader(directory.resolve(FINGERPRINT_FILE), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        loaded.add(line);
+                    }
+                }
+            }
+            log.debug("Loaded {} exact fingerprints after Bloom filter hit", loaded.size());
+            exactFingerprints = loaded;
+        }
+        return exactFingerprints;
+    }
+
+    /**
+     * Extract interchange and claim fingerprints from raw EDI in a single pass.
+     */
+    static Fingerprints fingerprint(byte[] ediInput) throws IOException {
+        Fingerprints fingerprints = new Fingerprints();
+        try (X12_SegmentReader reader = new X12_SegmentReader(ediInput)) {
+            String sender = "";
+            String claimType = null;
+            String claimId = null;
+            X12_ContentHash claimHash = null;
+            X12_SegmentReader.Segment segment;
+            while ((segment = reader.next()) != null) {
+                if (claimId != null && endsClaim(segment, claimType)) {
+                    fingerprints.claims.add(claimType + "|" + sender + "|" + claimId + "|" + Long.toHexString(claimHash.getValue()));
+                    claimId = null;
+                }
+                if (segment.is("ISA")) {
+                    sender = segment.getElement(6).trim();
+                    fingerprints.interchanges.add("ISA|" + sender + "|" + segment.getElement(8).trim()
+                            + "|" + segment.getElement(13).trim());
+                } else if (segment.is("CLM") || segment.is("CLP")) {
+                    claimType = segment.getId();
+                    claimId = segment.getElement(1);
+                    claimHash = new X12_ContentHash();
+                }
+                if (claimId != null) {
+                    claimHash.update(segment.getBytes()).update((byte) '~');
+                }
+            }
+            if (claimId != null) {
+                fingerprints.claims.add(claimType + "|" + sender + "|" + claimId + "|" + Long.toHexString(claimHash.getValue()));
+            }
+        }
+        return fingerprints;
+    }
+
+    private static boolean endsClaim(X12_SegmentReader.Segment segment, String claimType) {
+        if (segment.is("CLM") || segment.is("CLP") || segment.is("HL") || segment.is("SE")) {
+            return true;
+        }
+        // In an 835, LX starts a new header loop and PLB follows the last claim.
+        return "CLP".equals(claimType) && (segment.is("LX") || segment.is("PLB"));
+    }
+
+    static final class Fingerprints {
+        final List<String> interchanges = new ArrayList<>();
+        final List<String> claims = new ArrayList<>();
+    }
+
+    /**
+     * Outcome of a duplicate check.
+     */
+    @Data
+    public static class Result {
+        private int interchangeCount;
+        private int claimCount;
+        private List<String> duplicateInterchanges = new ArrayList<>();
+        private List<String> duplicateClaims = new ArrayList<>();
+        /** Fingerprints not seen before, for {@link X12_DuplicateDetector#record(Result)}. */
+        @ToString.Exclude
+        @EqualsAndHashCode.Exclude
+        @Getter(AccessLevel.NONE)
+        private final transient List<String> unseen = new ArrayList<>();
+
+        public boolean isDuplicate() {
+            return !duplicateInterchanges.isEmpty() || !duplicateClaims.isEmpty();
+        }
+
+        /**
+         * @return true when the input carries nothing new: a re-sent interchange, or
+         * an interchange whose every claim has already been seen
+         */
+        public boolean isFullDuplicate() {
+            return (interchangeCount > 0 && duplicateInterchanges.size() == interchangeCount)
+                    || (claimCount > 0 && duplicateClaims.size() == claimCount);
+        }
+    }
+
+    /**
+     * Raised by the parsers when an input is rejected as a duplicate.
+     */
+    public static class DuplicateInterchangeException extends IOException {
+        private final Result result;
+
+        public DuplicateInterchangeException(Result result) {
+            super("Duplicate EDI rejected: interchanges " + result.getDuplicateInterchanges()
+                    + ", " + result.getDuplicateClaims().size() + " of " + result.getClaimCount() + " claims already seen");
+            this.result = result;
+        }
+
+        public Result getResult() {
+            return result;
+        }
+    }
+
+    /**
+     * Minimal Bloom filter over strings using double hashing of two 64-bit hashes.
+     */
+    static final class BloomFilter {
+        private static final int MAGIC = 0x58424C4D; // "XBLM"
+
+        private final long[] bits;
+        private final long bitCount;
+        private final int hashCount;
+
+        private BloomFilter(long[] bits, int hashCount) {
+            this.bits = bits;
+            this.bitCount = (long) bits.length * Long.SIZE;
+            this.hashCount = hashCount;
+        }
+
+        static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+            long n = Math.max(1, expectedInsertions);
+            long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + Long.SIZE - 1) / Long.SIZE);
+            return new BloomFilter(new long[Math.max(1, words)], k);
+        }
+
+        boolean mightContain(String value) {
+            long h1 = X12_ContentHash.hash(value, 0L);
+            long h2 = X12_ContentHash.hash(value, 0x9E3779B97F4A7C15L);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void put(String value) {
+            long h1 = X12_ContentHash.hash(value, 0L);
+            long h2 = X12_ContentHash.hash(value, 0x9E3779B97F4A7C15L);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(hashCount);
+            out.writeInt(bits.length);
+            for (long word : bits) {
+                out.writeLong(word);
+            }
+        }
+
+        static BloomFilter readFrom(DataInputStream data) throws IOException {
+            if (data.readInt() != MAGIC) {
+                throw new IOException("Not a duplicate filter file");
+            }
+            int hashCount = data.readInt();
+            long[] bits = new long[data.readInt()];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = data.readLong();
+            }
+            return new BloomFilter(bits, hashCount);
+        }
+    }
+}
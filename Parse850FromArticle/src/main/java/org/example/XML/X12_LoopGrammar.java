@@ -0,0 +1,477 @@
+package org.example.XML;
+
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The loop and segment structure of a transaction's DFDL schema, with a {@link Cursor} that
+ * follows raw EDI segments through it without converting anything to XML.
+ * <p>
+ * The grammar keeps what the DFDL parser uses to place a segment: the order of each
+ * sequence, {@code minOccurs}/{@code maxOccurs}, the segment initiators and the simple
+ * {@code element eq 'value'} discriminators that tell loops starting with the same segment
+ * apart (the NM1 of 2310A from the NM1 of 2310B). Grammars are loaded once per type and are
+ * immutable.
+ */
+final class X12_LoopGrammar {
+
+    private static final String XSD = XMLConstants.W3C_XML_SCHEMA_NS_URI;
+    private static final String DFDL = "http://www.ogf.org/dfdl/dfdl-1.0/";
+    private static final Pattern COMPARISON = Pattern.compile("(?:\\./)?([\\w-]+)\\s+eq\\s+'([^']*)'");
+    private static final Map<X12_ParseCache.TransactionType, X12_LoopGrammar> grammars = new ConcurrentHashMap<>();
+
+    private final Node root;
+
+    private X12_LoopGrammar(Node root) {
+        this.root = root;
+    }
+
+    static X12_LoopGrammar of(X12_ParseCache.TransactionType type) {
+        return grammars.computeIfAbsent(type, X12_LoopGrammar::load);
+    }
+
+    /**
+     * @return the classpath resource of a transaction type's DFDL schema
+     */
+    static String schemaResource(X12_ParseCache.TransactionType type) {
+        switch (type) {
+            case X837:
+                return "837_mapping.dfdl.xsd";
+            case X835:
+                return "835_mapping.dfdl.xsd";
+            case X276:
+                return "claimstatus276.xsd";
+            case X277:
+                return "claimstatus277.xsd";
+            default:
+                return "mapping.dfdl.xsd";
+        }
+    }
+
+    Node getRoot() {
+        return root;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A loop (or other group) or a segment of the grammar.
+     */
+    static final class Node {
+        final String name;
+        final Node parent;
+        /** The DFDL initiator of a segment, or null for a group. */
+        final String initiator;
+        final int minOccurs;
+        final int maxOccurs;
+        final List<Node> children = new ArrayList<>();
+        /** A segment's element names, element {@code i} (as numbered in the guides) at {@code i - 1}. */
+        String[] elements = new String[0];
+        /** The component names of composite elements, parallel to {@link #elements}; null for simple ones. */
+        String[][] components = new String[0][];
+        /** The element a discriminator tests, or 0 when the segment has none. */
+        int discriminatorElement;
+        Set<String> discriminatorValues = Set.of();
+
+        Node(String name, Node parent, String initiator, int minOccurs, int maxOccurs) {
+            this.name = name;
+            this.parent = parent;
+            this.initiator = initiator;
+            this.minOccurs = minOccurs;
+            this.maxOccurs = maxOccurs;
+        }
+
+        boolean isSegment() {
+            return initiator != null;
+        }
+
+        boolean isLoop() {
+            return name.startsWith("Loop_");
+        }
+
+        /**
+         * @return the 1-based position of a named element, or 0
+         */
+        int elementIndex(String element) {
+            for (int i = 0; i < elements.length; i++) {
+                if (elements[i].equals(element)) {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+
+        boolean accepts(X12_SegmentReader.Segment segment) {
+            return segment.is(initiator) && (discriminatorElement == 0
+                    || discriminatorValues.contains(segment.getElement(discriminatorElement)));
+        }
+
+        /**
+         * @return whether a group can start with the segment
+         */
+        boolean starts(X12_SegmentReader.Segment segment) {
+            for (Node child : children) {
+                if (child.isSegment() ? child.accepts(segment) : child.starts(segment)) {
+                    return true;
+                }
+                if (child.minOccurs > 0) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return parent == null ? name : parent + "/" + name;
+        }
+    }
+
+    /**
+     * Places segments, in order, the way a DFDL parse of the same input would: each segment
+     * goes to the first element at or after the current position of the innermost open group
+     * that accepts it, closing groups until one does. A required element is not skipped over.
+     * A segment no open group accepts is left unplaced and does not move the cursor, except
+     * that an ISA, GS or ST starts over at the top of the grammar (the next envelope of a
+     * multi-interchange file). Not thread-safe.
+     */
+    final class Cursor {
+
+        private final List<Frame> frames = new ArrayList<>();
+        private long serials;
+
+        private Cursor() {
+            frames.add(new Frame(root, 1, ++serials));
+        }
+
+        /**
+         * Place the next segment.
+         *
+         * @return the segment's node, or null when it has no place in the grammar
+         */
+        Node accept(X12_SegmentReader.Segment segment) {
+            for (int level = frames.size() - 1; level >= 0; level--) {
+                int index = find(frames.get(level), segment, false);
+                if (index >= 0) {
+                    while (frames.size() > level + 1) {
+                        frames.remove(frames.size() - 1);
+                    }
+                    return enter(frames.get(level), index, segment);
+                }
+            }
+            if (segment.is("ISA") || segment.is("GS") || segment.is("ST")) {
+                Frame top = new Frame(root, 1, ++serials);
+                int index = find(top, segment, true);
+                if (index >= 0) {
+                    frames.clear();
+                    frames.add(top);
+                    return enter(top, index, segment);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return the number of open groups, the root included
+         */
+        int depth() {
+            return frames.size();
+        }
+
+        Node node(int level) {
+            return frames.get(level).group;
+        }
+
+        /**
+         * @return the 1-based occurrence of the open group at {@code level} among its siblings
+         */
+        int occurrence(int level) {
+            return frames.get(level).occurrence;
+        }
+
+        /**
+         * @return an id unique to each group occurrence opened by this cursor
+         */
+        long serial(int level) {
+            return frames.get(level).serial;
+        }
+
+        private int find(Frame frame, X12_SegmentReader.Segment segment, boolean lenient) {
+            List<Node> children = frame.group.children;
+            for (int i = frame.position; i < children.size(); i++) {
+                Node child = children.get(i);
+                int used = i == frame.position ? frame.count : 0;
+                if (used < child.maxOccurs && (child.isSegment() ? child.accepts(segment) : child.starts(segment))) {
+                    return i;
+                }
+                if (!lenient && used < child.minOccurs) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        private Node enter(Frame frame, int index, X12_SegmentReader.Segment segment) {
+            while (true) {
+                frame.count = index == frame.position ? frame.count + 1 : 1;
+                frame.position = index;
+                Node child = frame.group.children.get(index);
+                if (child.isSegment()) {
+                    return child;
+                }
+                frame = new Frame(child, frame.count, ++serials);
+                frames.add(frame);
+                index = find(frame, segment, false);
+            }
+        }
+    }
+
+    private static final class Frame {
+        final Node group;
+        final int occurrence;
+        final long serial;
+        int position;
+        int count;
+
+        Frame(Node group, int occurrence, long serial) {
+            this.group = group;
+            this.occurrence = occurrence;
+            this.serial = serial;
+        }
+    }
+
+    // ---- loading ----
+
+    private static X12_LoopGrammar load(X12_ParseCache.TransactionType type) {
+        String resource = schemaResource(type);
+        try (InputStream in = X12_LoopGrammar.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("DFDL schema not found on classpath: " + resource);
+            }
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            Element schema = factory.newDocumentBuilder().parse(in).getDocumentElement();
+            Map<String, Element> types = new HashMap<>();
+            Map<String, Element> elements = new HashMap<>();
+            Element docRoot = null;
+            for (Element child : children(schema)) {
+                if ("complexType".equals(child.getLocalName())) {
+                    types.put(child.getAttribute("name"), child);
+                } else if ("element".equals(child.getLocalName())) {
+                    elements.put(child.getAttribute("name"), child);
+                    if (docRoot == null || "true".equals(child.getAttributeNS("http://www.ibm.com/schema/extensions", "docRoot"))) {
+                        docRoot = child;
+                    }
+                }
+            }
+            if (docRoot == null) {
+                throw new IllegalStateException("No root element in DFDL schema " + resource);
+            }
+            Node root = new Node(docRoot.getAttribute("name"), null, null, 1, 1);
+            new Loader(types, elements).group(docRoot, root, new HashSet<>());
+            return new X12_LoopGrammar(root);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IllegalStateException("Cannot read DFDL schema " + resource, e);
+        }
+    }
+
+    private static final class Loader {
+        private final Map<String, Element> types;
+        private final Map<String, Element> elements;
+
+        Loader(Map<String, Element> types, Map<String, Element> elements) {
+            this.types = types;
+            this.elements = elements;
+        }
+
+        /**
+         * Add the element declarations of a group's content, nested sequences flattened.
+         */
+        void group(Element declaration, Node group, Set<String> expanding) {
+            for (Element child : children(content(declaration))) {
+                if ("sequence".equals(child.getLocalName()) || "choice".equals(child.getLocalName())) {
+                    group(child, group, expanding);
+                } else if ("complexType".equals(child.getLocalName())) {
+                    group(child, group, expanding);
+                } else if ("element".equals(child.getLocalName())) {
+                    element(child, group, expanding);
+                }
+            }
+        }
+
+        private void element(Element declaration, Node group, Set<String> expanding) {
+            int min = occurs(declaration.getAttribute("minOccurs"), 1);
+            int max = occurs(declaration.getAttribute("maxOccurs"), 1);
+            String ref = localName(declaration.getAttribute("ref"));
+            if (!ref.isEmpty()) {
+                // A reference to a global element takes the occurrence bounds of the reference.
+                Element global = elements.get(ref);
+                if (global == null || !expanding.add(ref)) {
+                    return;
+                }
+                Node node = node(global, group, min, max, expanding);
+                expanding.remove(ref);
+                group.children.add(node);
+                return;
+            }
+            group.children.add(node(declaration, group, min, max, expanding));
+        }
+
+        private Node node(Element declaration, Node group, int min, int max, Set<String> expanding) {
+            String initiator = declaration.getAttributeNS(DFDL, "initiator");
+            Node node = new Node(declaration.getAttribute("name"), group, initiator.isEmpty() ? null : initiator, min, max);
+            if (node.isSegment()) {
+                segment(declaration, node);
+            } else {
+                group(declaration, node, expanding);
+            }
+            return node;
+        }
+
+        private void segment(Element declaration, Node segment) {
+            List<String> names = new ArrayList<>();
+            List<String[]> components = new ArrayList<>();
+            for (Element field : fields(declaration)) {
+                names.add(field.getAttribute("name"));
+                List<Element> parts = fields(field);
+                String[] componentNames = null;
+                if (!parts.isEmpty()) {
+                    componentNames = new String[parts.size()];
+                    for (int i = 0; i < parts.size(); i++) {
+                        componentNames[i] = parts.get(i).getAttribute("name");
+                    }
+                }
+                components.add(componentNames);
+            }
+            segment.elements = names.toArray(new String[0]);
+            segment.components = components.toArray(new String[0][]);
+            for (Element annotation : descendants(declaration, "discriminator")) {
+                discriminator(annotation.getAttribute("test"), segment);
+            }
+        }
+
+        /**
+         * Keep a discriminator of the form {@code a eq 'x' or a eq 'y'}; any other test is
+         * not checked, so the segment is placed on its initiator alone.
+         */
+        private static void discriminator(String test, Node segment) {
+            String expression = test.trim();
+            if (expression.startsWith("{") && expression.endsWith("}")) {
+                expression = expression.substring(1, expression.length() - 1);
+            }
+            String element = null;
+            Set<String> values = new HashSet<>();
+            for (String alternative : expression.split("\\s+or\\s+")) {
+                Matcher matcher = COMPARISON.matcher(alternative.trim());
+                if (!matcher.matches() || element != null && !element.equals(matcher.group(1))) {
+                    return;
+                }
+                element = matcher.group(1);
+                values.add(matcher.group(2));
+            }
+            int index = element == null ? 0 : segment.elementIndex(element);
+            if (index > 0) {
+                segment.discriminatorElement = index;
+                segment.discriminatorValues = Collections.unmodifiableSet(values);
+            }
+        }
+
+        /**
+         * @return the element declarations of a segment's or composite's sequence, in order
+         */
+        private List<Element> fields(Element declaration) {
+            List<Element> fields = new ArrayList<>();
+            Element content = content(declaration);
+            if (content != null) {
+                collectFields(content, fields);
+            }
+            return fields;
+        }
+
+        private static void collectFields(Element node, List<Element> fields) {
+            for (Element child : children(node)) {
+                if ("element".equals(child.getLocalName())) {
+                    fields.add(child);
+                } else if (!"annotation".equals(child.getLocalName())) {
+                    collectFields(child, fields);
+                }
+            }
+        }
+
+        /**
+         * @return the complex type of an element declaration (inline or named), or the
+         *         declaration itself when it is a type or model group
+         */
+        private Element content(Element declaration) {
+            if (!"element".equals(declaration.getLocalName())) {
+                return declaration;
+            }
+            for (Element child : children(declaration)) {
+                if ("complexType".equals(child.getLocalName())) {
+                    return child;
+                }
+            }
+            return types.get(localName(declaration.getAttribute("type")));
+        }
+    }
+
+    private static int occurs(String value, int defaultValue) {
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
+        return "unbounded".equals(value) ? Integer.MAX_VALUE : Integer.parseInt(value);
+    }
+
+    private static String localName(String qualified) {
+        return qualified.substring(qualified.indexOf(':') + 1);
+    }
+
+    private static List<Element> children(Element parent) {
+        List<Element> children = new ArrayList<>();
+        if (parent == null) {
+            return children;
+        }
+        for (org.w3c.dom.Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element && XSD.equals(child.getNamespaceURI())) {
+                children.add((Element) child);
+            }
+        }
+        return children;
+    }
+
+    private static List<Element> descendants(Element parent, String dfdlName) {
+        List<Element> found = new ArrayList<>();
+        for (org.w3c.dom.Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                Element element = (Element) child;
+                if (DFDL.equals(element.getNamespaceURI()) && dfdlName.equals(element.getLocalName())) {
+                    found.add(element);
+                } else if (!"complexType".equals(element.getLocalName())) {
+                    found.addAll(descendants(element, dfdlName));
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.XML;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+/**
+ * Shrinks a parsed transaction model in place for bulk or long-lived in-memory use.
+ * <p>
+ * Binding leaves a graph sized for construction, not for keeping: each repeated segment
+ * list is an {@code ArrayList} with spare capacity, loops that were present but empty still
+ * hold an empty list or an object whose fields are all null, and every occurrence of an
+ * element value is its own String even though X12 repeats the same qualifiers, dates and
+ * identifiers across every claim. Compacting
+ * <ul>
+ *   <li>replaces empty lists with the shared {@link List#of()} sentinel and copies the
+ *   others into exactly-sized immutable lists,</li>
+ *   <li>drops optional segments and loops left with no values, and</li>
+ *   <li>shares one String instance per distinct element value. The JVM's compact strings
+ *   already store X12's Latin-1 text as one byte per character, so after sharing each
+ *   distinct value costs a single byte array.</li>
+ * </ul>
+ * The serialized XML is unchanged, since the parsers already omit null and empty values;
+ * JSON and YAML show dropped segments as {@code null}. Compacted lists reject
+ * modification, so compact a model only once it is complete.
+ */
+public final class X12_ModelCompactor {
+
+    private final Map<String, String> strings = new HashMap<>();
+
+    private X12_ModelCompactor() {
+    }
+
+    /**
+     * Compact a model in place.
+     *
+     * @return the same model
+     */
+    public static <T> T compact(T model) {
+        if (model != null) {
+            new X12_ModelCompactor().compactObject(model);
+        }
+        return model;
+    }
+
+    /**
+     * @return true if the object holds no values after compacting
+     */
+    private boolean compactObject(Object object) {
+        boolean empty = true;
+        for (Field field : X12_ModelWalker.fields(object.getClass())) {
+            if (field.getType().isPrimitive()) {
+                continue;
+            }
+            try {
+                Object value = field.get(object);
+                Object compacted = compactValue(value);
+                if (compacted != value) {
+                    field.set(object, compacted);
+                }
+                empty &= compacted == null;
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot compact " + field, e);
+            }
+        }
+        return empty;
+    }
+
+    /**
+     * @return the value to keep in place of {@code value}, or null to drop it
+     */
+    private Object compactValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String) {
+            return strings.computeIfAbsent((String) value, key -> key);
+        }
+        if (value instanceof List) {
+            return compactList((List<?>) value);
+        }
+        if (X12_ModelWalker.isModel(value.getClass())) {
+            return compactObject(value) ? null : value;
+        }
+        return value;
+    }
+
+    private List<?> compactList(List<?> list) {
+        if (list.isEmpty()) {
+            return List.of();
+        }
+        ArrayList<Object> elements = new ArrayList<>(list);
+        boolean hasNull = false;
+        for (ListIterator<Object> it = elements.listIterator(); it.hasNext(); ) {
+            Object element = it.next();
+            if (element == null) {
+                hasNull = true;
+            } else if (element instanceof String) {
+                it.set(compactValue(element));
+            } else if (X12_ModelWalker.isModel(element.getClass())) {
+                // Keep empty elements: dropping them would shift the positions of the others.
+                compactObject(element);
+            }
+        }
+        if (hasNull) {
+            elements.trimToSize();
+            return elements;
+        }
+        return List.copyOf(elements);
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.XML;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed cache of parse results, bounded by an approximate memory budget.
+ * <p>
+ * Entries are keyed on the transaction type, the kind of step (EDI to XML, or XML to
+ * model) and a 128-bit fingerprint of the input made from two independently seeded
+ * {@link X12_ContentHash} values plus the input length, so retries, replays and
+ * reconciliation reruns of an identical payload become a lookup. Eviction is
+ * least-recently-used by weight: XML results weigh their UTF-16 size, and bound models
+ * the heap {@link X12_ModelWalker#estimateBytes} finds them to retain.
+ * <p>
+ * Every call returns its own deep copy of a cached model ({@link X12_ModelWalker#copy}), so
+ * a caller may modify what it gets without affecting later hits; copying the object graph
+ * is far cheaper than binding it again. Loads run outside the cache lock, so two threads
+ * missing on the same key may both parse it.
+ */
+@Slf4j
+public class X12_ParseCache {
+
+    private static final long SECOND_SEED = 0x9E3779B97F4A7C15L;
+
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * The transaction types whose results can be cached.
+     */
+    public enum TransactionType {
+        X837, X835, X850, X276, X277
+    }
+
+    private enum Step {
+        EDI_TO_XML, XML_TO_MODEL
+    }
+
+    private final long maxWeight;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * @param maxWeightBytes approximate memory budget for cached results
+     */
+    public X12_ParseCache(long maxWeightBytes) {
+        this.maxWeight = maxWeightBytes;
+    }
+
+    /**
+     * EDI to XML through the cache.
+     */
+    public String parseEDI(TransactionType type, byte[] ediInput) throws IOException, SAXException {
+        Key key = new Key(type, Step.EDI_TO_XML, ediInput.length,
+                X12_ContentHash.hash(ediInput), new X12_ContentHash(SECOND_SEED).update(ediInput).getValue());
+        String cached = (String) get(key);
+        if (cached != null) {
+            return cached;
+        }
+        String xml;
+        switch (type) {
+            case X837:
+                xml = X12_837_Parser.parseEDI(ediInput);
+                break;
+            case X835:
+                xml = X12_835_Parser.parseEDI(ediInput);
+                break;
+            case X276:
+                xml = X12_276_Parser.parseEDI(ediInput);
+                break;
+            case X277:
+                xml = X12_277_Parser.parseEDI(ediInput);
+                break;
+            default:
+                xml = X12_850_Parser.parseEDI(ediInput);
+                break;
+        }
+        put(key, xml, 2L * xml.length());
+        return xml;
+    }
+
+    /**
+     * XML to model through the cache. The returned object is the caller's own copy.
+     */
+    public Object parseXML(TransactionType type, String xml) throws IOException {
+        Key key = new Key(type, Step.XML_TO_MODEL, xml.length(),
+                X12_ContentHash.hash(xml, 0L), X12_ContentHash.hash(xml, SECOND_SEED));
+        Object cached = get(key);
+        if (cached != null) {
+            return X12_ModelWalker.copy(cached);
+        }
+        Object model;
+        switch (type) {
+            case X837:
+                model = X12_837_Parser.parseXML(xml);
+                break;
+            case X835:
+                model = X12_835_Parser.parseXML(xml);
+                break;
+            case X276:
+                model = X12_276_Parser.parseXML(xml);
+                break;
+            case X277:
+                model = X12_277_Parser.parseXML(xml);
+                break;
+            default:
+                model = X12_850_Parser.parseXML(xml);
+                break;
+        }
+        put(key, model, X12_ModelWalker.estimateBytes(model));
+        return X12_ModelWalker.copy(model);
+    }
+
+    public X12_837_Interchange parse837(byte[] ediInput) throws IOException, SAXException {
+        return (X12_837_Interchange) parseXML(TransactionType.X837, parseEDI(TransactionType.X837, ediInput));
+    }
+
+    public X12_835_Interchange parse835(byte[] ediInput) throws IOException, SAXException {
+        return (X12_835_Interchange) parseXML(TransactionType.X835, parseEDI(TransactionType.X835, ediInput));
+    }
+
+    public X12_850_Interchange parse850(byte[] ediInput) throws IOException, SAXException {
+        return (X12_850_Interchange) parseXML(TransactionType.X850, parseEDI(TransactionType.X850, ediInput));
+    }
+
+    public X12_276_ClaimStatus parse276(byte[] ediInput) throws IOException, SAXException {
+        return (X12_276_ClaimStatus) parseXML(TransactionType.X276, parseEDI(TransactionType.X276, ediInput));
+    }
+
+    public X12_277_ClaimStatusResponse parse277(byte[] ediInput) throws IOException, SAXException {
+        return (X12_277_ClaimStatusResponse) parseXML(TransactionType.X277, parseEDI(TransactionType.X277, ediInput));
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hitCount, missCount, evictionCount, entries.size(), weight, maxWeight);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private synchronized Object get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.value;
+    }
+
+    private synchronized void put(Key key, Object value, long valueWeight) {
+        long entryWeight = valueWeight + ENTRY_OVERHEAD;
+        if (entryWeight > maxWeight) {
+            log.debug("Not caching {} result of {} bytes; budget is {}", key.type, entryWeight, maxWeight);
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(value, entryWeight));
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += entryWeight;
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            Map.Entry<Key, Entry> evicted = eldest.next();
+            weight -= evicted.getValue().weight;
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Point-in-time cache statistics.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private long hitCount;
+        private long missCount;
+        private long evictionCount;
+        private int entryCount;
+        private long weight;
+        private long maxWeight;
+
+        public double getHitRate() {
+            long requests = hitCount + missCount;
+            return requests == 0 ? 0.0 : (double) hitCount / requests;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static final class Key {
+        private final TransactionType type;
+        private final Step step;
+        private final long length;
+        private final long hash;
+        private final long secondHash;
+    }
+
+    @AllArgsConstructor
+    private static final class Entry {
+        private final Object value;
+        private final long weight;
+    }
+}
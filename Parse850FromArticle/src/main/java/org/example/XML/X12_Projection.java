@@ -0,0 +1,770 @@
+package org.example.XML;
+
+import lombok.Data;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Extracts only the segments a job needs from converted XML, instead of binding the whole
+ * model with {@code parseXML}.
+ * <p>
+ * A projection is compiled from paths over the loop and segment names of the transaction's
+ * DFDL schema, for example {@code Loop_2100/CLP} and {@code Loop_2110/SVC} for an 835, or
+ * {@code Loop_2300/CLM} and {@code HI} for an 837. A step matches an element named exactly
+ * like it, a loop whose name starts with it ({@code Loop_2100} matches
+ * {@code Loop_2100_ClaimPayment}), or a segment whose DFDL initiator it is ({@code CLP}
+ * matches {@code claim-payment-information}). As in the XPath {@code //a/b}, the first step
+ * may match at any depth and each further step must match a child of the previous one.
+ * <p>
+ * The XML is read as a stream by a minimal scanner. Using the schema, every element whose
+ * subtree cannot hold a match is skipped by searching for its end tag, so most of a document
+ * is passed over without being tokenized or decoded.
+ * Each match becomes a flat {@link Record}. A projection is immutable and may be shared
+ * between threads.
+ */
+public final class X12_Projection {
+
+    private static final String XSD = XMLConstants.W3C_XML_SCHEMA_NS_URI;
+    private static final String DFDL = "http://www.ogf.org/dfdl/dfdl-1.0/";
+    private static final Map<X12_ParseCache.TransactionType, Schema> schemas = new ConcurrentHashMap<>();
+
+    private final X12_ParseCache.TransactionType type;
+    private final String[][] paths;
+    private final Schema schema;
+    /** Element names whose subtree may hold a match; everything else is skipped. */
+    private final Set<String> relevant;
+    /** For each relevant element name and path, the bit set of steps the name matches. */
+    private final Map<String, int[]> stepMatches = new HashMap<>();
+
+    /**
+     * One projected element: a segment, or a whole loop when the path ends at one.
+     */
+    @Data
+    public static class Record {
+        /** The enclosing loops with their 1-based occurrence, e.g. {@code Loop_2000_Header[1]/Loop_2100_ClaimPayment[2]}. */
+        private String loopPath;
+        /** The XML element name, e.g. {@code claim-payment-information}. */
+        private String name;
+        /** The DFDL initiator, e.g. {@code CLP}, or null for a loop. */
+        private String segmentId;
+        /** Leaf values by element name; nested elements are keyed by their path below the record. */
+        private Map<String, String> values = new LinkedHashMap<>();
+
+        public String get(String key) {
+            return values.get(key);
+        }
+    }
+
+    private X12_Projection(X12_ParseCache.TransactionType type, String[][] paths, Schema schema) {
+        this.type = type;
+        this.paths = paths;
+        this.schema = schema;
+        Set<String> targets = new HashSet<>();
+        for (String[] path : paths) {
+            Set<String> matches = schema.matching(path[path.length - 1]);
+            if (matches.isEmpty()) {
+                throw new IllegalArgumentException("Path " + String.join("/", path) + " matches nothing in the "
+                        + type + " schema");
+            }
+            targets.addAll(matches);
+        }
+        this.relevant = schema.ancestorsOf(targets);
+        for (String name : relevant) {
+            int[] matches = new int[paths.length];
+            for (int p = 0; p < paths.length; p++) {
+                for (int k = 0; k < paths[p].length; k++) {
+                    if (schema.matches(paths[p][k], name)) {
+                        matches[p] |= 1 << k;
+                    }
+                }
+            }
+            stepMatches.put(name, matches);
+        }
+    }
+
+    /**
+     * Compile a projection.
+     *
+     * @param paths slash-separated steps, e.g. {@code Loop_2110/SVC}
+     * @throws IllegalArgumentException if a path ends in a step that matches nothing in the schema
+     */
+    public static X12_Projection of(X12_ParseCache.TransactionType type, String... paths) {
+        if (paths.length == 0) {
+            throw new IllegalArgumentException("No paths to project");
+        }
+        String[][] compiled = new String[paths.length][];
+        for (int i = 0; i < paths.length; i++) {
+            compiled[i] = paths[i].split("/");
+            if (compiled[i].length > 31 || Arrays.asList(compiled[i]).contains("")) {
+                throw new IllegalArgumentException("Invalid path: " + paths[i]);
+            }
+        }
+        return new X12_Projection(type, compiled, schemas.computeIfAbsent(type, Schema::load));
+    }
+
+    /**
+     * Convert EDI with the cached engine of the projection's transaction type and project the
+     * result. The XML is streamed to the scanner through {@link X12_Sinks#pipe} as it is
+     * produced, so it is never held in memory whole.
+     */
+    public List<Record> projectEDI(byte[] edi) throws IOException, SAXException {
+        X12_Sinks.StreamWriter parseEDI;
+        switch (type) {
+            case X837:
+                parseEDI = xml -> X12_837_Parser.parseEDI(new ByteArrayInputStream(edi), xml);
+                break;
+            case X835:
+                parseEDI = xml -> X12_835_Parser.parseEDI(new ByteArrayInputStream(edi), xml);
+                break;
+            case X276:
+                parseEDI = xml -> X12_276_Parser.parseEDI(new ByteArrayInputStream(edi), xml);
+                break;
+            case X277:
+                parseEDI = xml -> X12_277_Parser.parseEDI(new ByteArrayInputStream(edi), xml);
+                break;
+            default:
+                parseEDI = xml -> X12_850_Parser.parseEDI(new ByteArrayInputStream(edi), xml);
+                break;
+        }
+        List<Record> records = new ArrayList<>();
+        try (InputStream xml = X12_Sinks.pipe(type.name().substring(1), parseEDI)) {
+            project(xml, records::add);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return records;
+    }
+
+    public List<Record> project(String xml) {
+        return project(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public List<Record> project(byte[] xml) {
+        List<Record> records = new ArrayList<>();
+        project(new ByteArrayInputStream(xml), records::add);
+        return records;
+    }
+
+    /**
+     * Stream the records of a UTF-8 XML document to a consumer, in document order. The
+     * document is read through a fixed-size window, however large it is.
+     *
+     * @return the number of records
+     * @throws IllegalArgumentException if the XML is malformed
+     */
+    public long project(InputStream xml, Consumer<Record> consumer) {
+        X12_ConversionEvents.XmlToModel event = X12_ConversionEvents.xmlToModel(type.name().substring(1));
+        XmlScanner scanner = new XmlScanner(xml);
+        long count = 0;
+        try {
+            // Per open element: its name, the path steps matched so far and its children's occurrences.
+            List<String> names = new ArrayList<>();
+            List<int[]> states = new ArrayList<>();
+            List<Map<String, Integer>> occurrences = new ArrayList<>();
+            List<Integer> indexes = new ArrayList<>();
+            states.add(new int[paths.length]);
+            occurrences.add(null);
+            for (int token = scanner.next(null); token != XmlScanner.EOF; token = scanner.next(null)) {
+                if (token == XmlScanner.END) {
+                    if (names.isEmpty()) {
+                        throw new IllegalArgumentException("Unbalanced end tag at offset " + scanner.consumed());
+                    }
+                    names.remove(names.size() - 1);
+                    states.remove(states.size() - 1);
+                    occurrences.remove(occurrences.size() - 1);
+                    indexes.remove(indexes.size() - 1);
+                    continue;
+                }
+                String name = scanner.name;
+                if (!names.isEmpty() && !relevant.contains(name)) {
+                    scanner.skipElement();
+                    continue;
+                }
+                int index = index(occurrences, name);
+                int[] state = stepMatches.containsKey(name) ? advance(states.get(states.size() - 1), name) : new int[paths.length];
+                if (isMatch(state)) {
+                    Record record = new Record();
+                    record.setLoopPath(loopPath(names, indexes));
+                    record.setName(name);
+                    record.setSegmentId(schema.initiators.get(name));
+                    capture(scanner, record.getValues());
+                    consumer.accept(record);
+                    count++;
+                    continue;
+                }
+                names.add(name);
+                states.add(state);
+                occurrences.add(null);
+                indexes.add(index);
+            }
+        } catch (IOException e) {
+            event.fail();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finish(scanner.consumed(), 0);
+        return count;
+    }
+
+    /**
+     * @return for each path, the bit set of step counts matched along the chain ending at {@code name}
+     */
+    private int[] advance(int[] parent, String name) {
+        int[] matches = stepMatches.get(name);
+        int[] state = new int[paths.length];
+        for (int p = 0; p < paths.length; p++) {
+            // The first step may start anywhere; later steps must continue the parent's match.
+            state[p] = (matches[p] & (parent[p] | 1)) << 1;
+        }
+        return state;
+    }
+
+    private boolean isMatch(int[] state) {
+        for (int p = 0; p < paths.length; p++) {
+            if ((state[p] & (1 << paths[p].length)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count an occurrence of a loop among its siblings.
+     *
+     * @return its 1-based occurrence, or 0 for anything but a loop
+     */
+    private static int index(List<Map<String, Integer>> occurrences, String name) {
+        if (!name.startsWith("Loop_")) {
+            return 0;
+        }
+        int last = occurrences.size() - 1;
+        Map<String, Integer> counts = occurrences.get(last);
+        if (counts == null) {
+            counts = new HashMap<>();
+            occurrences.set(last, counts);
+        }
+        return counts.merge(name, 1, Integer::sum);
+    }
+
+    private static String loopPath(List<String> names, List<Integer> indexes) {
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            if (name.startsWith("Loop_")) {
+                if (path.length() > 0) {
+                    path.append('/');
+                }
+                path.append(name).append('[').append(indexes.get(i)).append(']');
+            }
+        }
+        return path.toString();
+    }
+
+    /**
+     * Read the element just started into flat leaf values, up to and including its end tag.
+     */
+    private static void capture(XmlScanner scanner, Map<String, String> values) throws IOException {
+        List<String> keys = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        boolean leaf = true;
+        int depth = 1;
+        while (depth > 0) {
+            int token = scanner.next(text);
+            if (token == XmlScanner.START) {
+                keys.add(keys.isEmpty() ? scanner.name : keys.get(keys.size() - 1) + "/" + scanner.name);
+                text.setLength(0);
+                leaf = true;
+                depth++;
+            } else if (token == XmlScanner.END) {
+                depth--;
+                if (depth > 0) {
+                    String key = keys.remove(keys.size() - 1);
+                    if (leaf) {
+                        values.put(key, text.toString());
+                    }
+                    leaf = false;
+                }
+            } else {
+                throw new IllegalArgumentException("Unexpected end of XML at offset " + scanner.consumed());
+            }
+        }
+    }
+
+    /**
+     * Minimal pull scanner over the UTF-8 XML the Smooks configs produce: elements, text,
+     * the predefined and numeric entities, and CDATA sections. Comments, processing
+     * instructions and DOCTYPEs are passed over and attributes are ignored. Input is read
+     * through a window that only grows to hold a single tag.
+     * <p>
+     * {@link #skipElement()} is what makes projection cheap: it searches for the element's
+     * end tag byte by byte, without tokenizing or decoding anything in between.
+     */
+    private static final class XmlScanner {
+
+        static final int START = 1;
+        static final int END = 2;
+        static final int EOF = -1;
+
+        private final InputStream in;
+        private byte[] buffer = new byte[64 * 1024];
+        private int position;
+        private int limit;
+        private long discarded;
+        private boolean pendingEnd;
+        private final String[] names = new String[1024];
+        /** Name of the element the last START token was for. */
+        String name;
+
+        XmlScanner(InputStream in) {
+            this.in = in;
+        }
+
+        long consumed() {
+            return discarded + position;
+        }
+
+        /**
+         * Move to the next start or end tag.
+         *
+         * @param text receives the decoded text before the tag, or null to pass over it
+         */
+        int next(StringBuilder text) throws IOException {
+            if (pendingEnd) {
+                pendingEnd = false;
+                return END;
+            }
+            while (true) {
+                int lt = find((byte) '<', text);
+                if (lt < 0) {
+                    return EOF;
+                }
+                if (!ensure(2)) {
+                    throw new IllegalArgumentException("Truncated tag at offset " + consumed());
+                }
+                byte second = buffer[position + 1];
+                if (second == '?') {
+                    skipPast("?>");
+                } else if (second == '!') {
+                    if (startsWith("<!--")) {
+                        skipPast("-->");
+                    } else if (startsWith("<![CDATA[")) {
+                        position += 9;
+                        int end = indexOf("]]>");
+                        if (text != null) {
+                            text.append(new String(buffer, position, end - position, StandardCharsets.UTF_8));
+                        }
+                        position = end + 3;
+                    } else {
+                        skipPast(">");
+                    }
+                } else {
+                    return tag();
+                }
+            }
+        }
+
+        /**
+         * Pass over the content and end tag of the element just started.
+         */
+        void skipElement() throws IOException {
+            if (pendingEnd) {
+                pendingEnd = false;
+                return;
+            }
+            String skipped = name;
+            int depth = 1;
+            while (depth > 0) {
+                if (find((byte) '<', null) < 0 || !ensure(skipped.length() + 3)) {
+                    throw new IllegalArgumentException("Unexpected end of XML in <" + skipped + ">");
+                }
+                boolean end = buffer[position + 1] == '/';
+                int nameStart = position + (end ? 2 : 1);
+                if (matchesName(nameStart, skipped)) {
+                    if (end) {
+                        depth--;
+                    } else {
+                        int close = indexOf(">");
+                        if (buffer[close - 1] != '/') {
+                            depth++;
+                        }
+                    }
+                }
+                position++;
+            }
+            position = indexOf(">") + 1;
+        }
+
+        private boolean matchesName(int start, String expected) {
+            int n = expected.length();
+            for (int i = 0; i < n; i++) {
+                if (buffer[start + i] != expected.charAt(i)) {
+                    return false;
+                }
+            }
+            byte after = buffer[start + n];
+            return after == '>' || after == '/' || after <= ' ';
+        }
+
+        /**
+         * Read the tag at the current position.
+         */
+        private int tag() throws IOException {
+            int close = indexOf(">");
+            boolean end = buffer[position + 1] == '/';
+            int start = position + (end ? 2 : 1);
+            int stop = start;
+            while (stop < close && buffer[stop] != '/' && buffer[stop] > ' ') {
+                stop++;
+            }
+            if (!end) {
+                name = name(start, stop - start);
+            }
+            pendingEnd = !end && buffer[close - 1] == '/';
+            position = close + 1;
+            return end ? END : START;
+        }
+
+        /**
+         * @return the element name in {@code buffer[start, start + length)}, reusing the
+         *         String of an earlier tag with the same name
+         */
+        private String name(int start, int length) {
+            int hash = length;
+            for (int i = start; i < start + length; i++) {
+                hash = 31 * hash + buffer[i];
+            }
+            int slot = hash & (names.length - 1);
+            String cached = names[slot];
+            if (cached != null && cached.length() == length) {
+                int i = 0;
+                while (i < length && cached.charAt(i) == buffer[start + i]) {
+                    i++;
+                }
+                if (i == length) {
+                    return cached;
+                }
+            }
+            String name = new String(buffer, start, length, StandardCharsets.UTF_8);
+            names[slot] = name;
+            return name;
+        }
+
+        /**
+         * Advance to the next occurrence of {@code b}, decoding the bytes passed into {@code text}.
+         *
+         * @return its position, or -1 at the end of the input
+         */
+        private int find(byte b, StringBuilder text) throws IOException {
+            while (true) {
+                int from = position;
+                for (int i = from; i < limit; i++) {
+                    if (buffer[i] == b) {
+                        append(text, from, i);
+                        position = i;
+                        return i;
+                    }
+                }
+                position = append(text, from, limit);
+                if (!fill()) {
+                    return -1;
+                }
+            }
+        }
+
+        /**
+         * @return where decoding stopped: {@code to}, or the start of a multi-byte character
+         *         the window ends in the middle of, which is decoded once it is complete
+         */
+        private int append(StringBuilder text, int from, int to) {
+            if (text == null || from == to) {
+                return to;
+            }
+            int end = to;
+            if (to == limit) {
+                int back = to - 1;
+                while (back >= from && back > to - 4 && (buffer[back] & 0xC0) == 0x80) {
+                    back--;
+                }
+                if (back >= from && (buffer[back] & 0xC0) == 0xC0 && !complete(back, to)) {
+                    end = back;
+                }
+            }
+            boolean plain = true;
+            for (int i = from; i < end && plain; i++) {
+                plain = buffer[i] >= 0 && buffer[i] != '&';
+            }
+            if (plain) {
+                for (int i = from; i < end; i++) {
+                    text.append((char) buffer[i]);
+                }
+            } else {
+                text.append(unescape(new String(buffer, from, end - from, StandardCharsets.UTF_8)));
+            }
+            return end;
+        }
+
+        private boolean complete(int lead, int to) {
+            int b = buffer[lead] & 0xff;
+            int length = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+            return to - lead >= length;
+        }
+
+        /**
+         * @return the position of {@code s} at or after the current position, which stays in the window
+         */
+        private int indexOf(String s) throws IOException {
+            int from = 0;
+            while (true) {
+                search:
+                for (int i = position + from; i + s.length() <= limit; i++) {
+                    for (int j = 0; j < s.length(); j++) {
+                        if (buffer[i + j] != s.charAt(j)) {
+                            continue search;
+                        }
+                    }
+                    return i;
+                }
+                from = Math.max(0, limit - position - s.length() + 1);
+                if (!fill()) {
+                    throw new IllegalArgumentException("Expected " + s + " after offset " + consumed());
+                }
+            }
+        }
+
+        private void skipPast(String s) throws IOException {
+            position = indexOf(s) + s.length();
+        }
+
+        private boolean startsWith(String s) throws IOException {
+            if (!ensure(s.length())) {
+                return false;
+            }
+            for (int i = 0; i < s.length(); i++) {
+                if (buffer[position + i] != s.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return true if {@code n} bytes from the current position are in the window
+         */
+        private boolean ensure(int n) throws IOException {
+            while (limit - position < n) {
+                if (!fill()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Read more input, keeping the window from the current position on.
+         *
+         * @return false at the end of the input
+         */
+        private boolean fill() throws IOException {
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                discarded += position;
+                limit -= position;
+                position = 0;
+            }
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int n = in.read(buffer, limit, buffer.length - limit);
+            if (n <= 0) {
+                return false;
+            }
+            limit += n;
+            return true;
+        }
+
+        private static String unescape(String s) {
+            StringBuilder out = new StringBuilder(s.length());
+            int i = 0;
+            while (i < s.length()) {
+                char c = s.charAt(i);
+                int semicolon = c == '&' ? s.indexOf(';', i) : -1;
+                if (semicolon < 0) {
+                    out.append(c);
+                    i++;
+                    continue;
+                }
+                String entity = s.substring(i + 1, semicolon);
+                switch (entity) {
+                    case "amp":
+                        out.append('&');
+                        break;
+                    case "lt":
+                        out.append('<');
+                        break;
+                    case "gt":
+                        out.append('>');
+                        break;
+                    case "quot":
+                        out.append('"');
+                        break;
+                    case "apos":
+                        out.append('\'');
+                        break;
+                    default:
+                        if (entity.startsWith("#x")) {
+                            out.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+                        } else if (entity.startsWith("#")) {
+                            out.appendCodePoint(Integer.parseInt(entity.substring(1)));
+                        } else {
+                            throw new IllegalArgumentException("Unknown entity &" + entity + ";");
+                        }
+                        break;
+                }
+                i = semicolon + 1;
+            }
+            return out.toString();
+        }
+    }
+
+    /**
+     * The element names, initiators and nesting of a DFDL schema, merged over every
+     * declaration of the same name.
+     */
+    private static final class Schema {
+
+        final Map<String, String> initiators = new HashMap<>();
+        final Map<String, Set<String>> children = new HashMap<>();
+        private final Map<String, Set<String>> matching = new ConcurrentHashMap<>();
+
+        static Schema load(X12_ParseCache.TransactionType type) {
+            String resource = X12_LoopGrammar.schemaResource(type);
+            try (InputStream in = X12_Projection.class.getClassLoader().getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new IOException("DFDL schema not found on classpath: " + resource);
+                }
+                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware(true);
+                Element root = factory.newDocumentBuilder().parse(in).getDocumentElement();
+                Schema schema = new Schema();
+                Map<String, Element> types = new HashMap<>();
+                for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+                    if (node instanceof Element && XSD.equals(node.getNamespaceURI())
+                            && "complexType".equals(node.getLocalName())) {
+                        types.put(((Element) node).getAttribute("name"), (Element) node);
+                    }
+                }
+                schema.collect(root, null, types, new HashSet<>());
+                return schema;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ParserConfigurationException | SAXException e) {
+                throw new IllegalStateException("Cannot read DFDL schema " + resource, e);
+            }
+        }
+
+        /**
+         * Record the element declarations below {@code node}, nested under {@code parent}.
+         */
+        private void collect(Element node, String parent, Map<String, Element> types, Set<String> expanding) {
+            for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (!(child instanceof Element) || !XSD.equals(child.getNamespaceURI())) {
+                    continue;
+                }
+                Element element = (Element) child;
+                if (!"element".equals(element.getLocalName())) {
+                    if (!"complexType".equals(element.getLocalName()) || parent != null) {
+                        collect(element, parent, types, expanding);
+                    }
+                    continue;
+                }
+                String name = element.getAttribute("name");
+                if (name.isEmpty()) {
+                    // A reference to a global element, whose declaration is collected on its own.
+                    String ref = element.getAttribute("ref");
+                    if (!ref.isEmpty() && parent != null) {
+                        String target = ref.substring(ref.indexOf(':') + 1);
+                        children.computeIfAbsent(target, key -> new HashSet<>());
+                        children.get(parent).add(target);
+                    }
+                    continue;
+                }
+                String initiator = element.getAttributeNS(DFDL, "initiator");
+                if (!initiator.isEmpty()) {
+                    initiators.put(name, initiator);
+                }
+                children.computeIfAbsent(name, key -> new HashSet<>());
+                if (parent != null) {
+                    children.get(parent).add(name);
+                }
+                collect(element, name, types, expanding);
+                String typeName = element.getAttribute("type");
+                Element type = types.get(typeName.substring(typeName.indexOf(':') + 1));
+                if (type != null && expanding.add(typeName)) {
+                    collect(type, name, types, expanding);
+                    expanding.remove(typeName);
+                }
+            }
+        }
+
+        boolean matches(String step, String name) {
+            return step.equals(name) || step.equals(initiators.get(name))
+                    || name.startsWith(step) && name.length() > step.length() && name.charAt(step.length()) == '_';
+        }
+
+        /**
+         * @return the declared element names a step matches
+         */
+        Set<String> matching(String step) {
+            return matching.computeIfAbsent(step, key -> {
+                Set<String> names = new HashSet<>();
+                for (String name : children.keySet()) {
+                    if (matches(step, name)) {
+                        names.add(name);
+                    }
+                }
+                return Collections.unmodifiableSet(names);
+            });
+        }
+
+        /**
+         * @return the targets and every element name that may contain one of them
+         */
+        Set<String> ancestorsOf(Set<String> targets) {
+            Map<String, Set<String>> parents = new HashMap<>();
+            children.forEach((parent, names) -> names.forEach(name ->
+                    parents.computeIfAbsent(name, key -> new HashSet<>()).add(parent)));
+            Set<String> result = new HashSet<>();
+            List<String> pending = new ArrayList<>(targets);
+            while (!pending.isEmpty()) {
+                String name = pending.remove(pending.size() - 1);
+                if (result.add(name)) {
+                    pending.addAll(parents.getOrDefault(name, Set.of()));
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,835 @@
+package org.example.XML;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Answers ad-hoc questions about an EDI file in a single streaming pass, without converting
+ * it to XML or binding a model.
+ * <p>
+ * A query is a path over the loop, segment and element names of the transaction's DFDL
+ * schema, with XPath-like predicates in brackets:
+ * <pre>
+ *   Loop_2300[Loop_2310B/NM1/identification-code = '1122334455']/CLM/claim-submitters-identifier
+ *   Loop_2100[CLP/claim-payment-amount &gt; 1000]/CLP
+ *   Loop_2110[CAS/CAS01 = 'CO' and LQ]
+ * </pre>
+ * Loop and segment steps match as in {@link X12_Projection}: by name, by loop name prefix
+ * or by segment initiator, the first step at any depth. Below a segment, a step names an
+ * element (or a component of a composite) by its schema name or by its position, as
+ * {@code CLP04} or {@code 04}. A predicate is a path relative to its step, compared with
+ * {@code = != < <= > >=} to a quoted string or to a number (compared numerically), or on its
+ * own to test that the path occurs; predicates combine with {@code and}, {@code or} and
+ * parentheses. As in XPath, a comparison holds when any occurrence of its path satisfies it.
+ * <p>
+ * The EDI is read with {@link X12_SegmentReader} and each segment is placed in the loops of
+ * the schema by an {@link X12_LoopGrammar.Cursor}. Predicates are pushed down at compile
+ * time to the segments whose elements they read, and are tested on those segments as they
+ * stream past; only those and the selected segments have their elements decoded, every
+ * other segment is matched by its ID alone. A match inside a loop with a predicate is held
+ * until the loop ends and is then emitted or dropped, so memory is bounded by the largest
+ * such loop rather than by the file.
+ * <p>
+ * Each match is returned as an {@link X12_Projection.Record}: a segment with its non-empty
+ * elements, an element or component on its own, or a whole loop with the elements of its
+ * segments keyed by their path below it. A compiled query is immutable and may be shared
+ * between threads.
+ */
+public final class X12_Query {
+
+    private final String text;
+    /** Selections by the loop or segment node they select or select elements of. */
+    private final Map<X12_LoopGrammar.Node, List<Selection>> selections = new HashMap<>();
+    /** Predicate comparisons by the loop or segment node they read. */
+    private final Map<X12_LoopGrammar.Node, List<Binding>> bindings = new HashMap<>();
+    private final X12_LoopGrammar grammar;
+
+    private X12_Query(String text, X12_LoopGrammar grammar) {
+        this.text = text;
+        this.grammar = grammar;
+    }
+
+    /**
+     * Compile a query against a transaction type's schema.
+     *
+     * @throws IllegalArgumentException if the query is malformed, or a path in it matches
+     *                                  nothing in the schema
+     */
+    public static X12_Query compile(X12_ParseCache.TransactionType type, String query) {
+        X12_Query compiled = new X12_Query(query, X12_LoopGrammar.of(type));
+        Parser parser = new Parser(query);
+        List<Step> steps = parser.path(true);
+        parser.expectEnd();
+        compiled.bind(steps, parser.atoms);
+        return compiled;
+    }
+
+    public List<X12_Projection.Record> evaluate(byte[] edi) throws IOException {
+        List<X12_Projection.Record> records = new ArrayList<>();
+        evaluate(new ByteArrayInputStream(edi), records::add);
+        return records;
+    }
+
+    /**
+     * Stream the matches in an EDI stream to a consumer. A match is passed on as soon as the
+     * predicates of its enclosing loops are decided, i.e. when the innermost loop with a
+     * predicate ends.
+     *
+     * @return the number of matches
+     */
+    public long evaluate(InputStream edi, Consumer<X12_Projection.Record> consumer) throws IOException {
+        Evaluation evaluation = new Evaluation(consumer);
+        try (X12_SegmentReader reader = new X12_SegmentReader(edi)) {
+            for (X12_SegmentReader.Segment segment = reader.next(); segment != null; segment = reader.next()) {
+                evaluation.accept(segment);
+            }
+        }
+        evaluation.finish();
+        return evaluation.count;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    // ---- compilation ----
+
+    /**
+     * Resolve the selection path and its predicates against the grammar.
+     */
+    private void bind(List<Step> steps, List<Atom> atoms) {
+        List<Target[]> chains = new ArrayList<>();
+        collect(grammar.getRoot(), steps.get(0), chains);
+        for (int k = 1; k < steps.size(); k++) {
+            List<Target[]> next = new ArrayList<>();
+            for (Target[] chain : chains) {
+                for (Target child : chain[k - 1].children(steps.get(k).name)) {
+                    Target[] longer = Arrays.copyOf(chain, k + 1);
+                    longer[k] = child;
+                    next.add(longer);
+                }
+            }
+            chains = next;
+        }
+        if (chains.isEmpty()) {
+            throw new IllegalArgumentException("Query " + text + " matches nothing in the schema");
+        }
+
+        boolean[] resolved = new boolean[atoms.size()];
+        Map<X12_LoopGrammar.Node, List<Atom>> bound = new HashMap<>();
+        for (Target[] chain : chains) {
+            Selection selection = new Selection(chain[chain.length - 1]);
+            List<X12_LoopGrammar.Node> owners = new ArrayList<>();
+            List<Expr> predicates = new ArrayList<>();
+            for (int k = 0; k < chain.length; k++) {
+                Expr predicate = steps.get(k).predicate;
+                if (predicate == null) {
+                    continue;
+                }
+                Target owner = chain[k];
+                if (owner.element > 0) {
+                    throw new IllegalArgumentException("Predicates apply to loops and segments, not to element "
+                            + steps.get(k).name);
+                }
+                if (owner.node.isSegment()) {
+                    selection.segmentPredicate = predicate;
+                } else {
+                    owners.add(owner.node);
+                    predicates.add(predicate);
+                }
+                // Push each comparison down to the nodes it reads, once per owner.
+                for (Atom atom : predicate.atoms()) {
+                    List<Atom> done = bound.computeIfAbsent(owner.node, key -> new ArrayList<>());
+                    if (done.contains(atom)) {
+                        continue;
+                    }
+                    done.add(atom);
+                    List<Target> targets = List.of(owner);
+                    for (String step : atom.path) {
+                        List<Target> next = new ArrayList<>();
+                        for (Target target : targets) {
+                            next.addAll(target.children(step));
+                        }
+                        targets = next;
+                    }
+                    for (Target target : targets) {
+                        resolved[atom.bit] = true;
+                        bindings.computeIfAbsent(target.node, key -> new ArrayList<>())
+                                .add(new Binding(owner.node, atom, target));
+                    }
+                }
+            }
+            selection.owners = owners.toArray(new X12_LoopGrammar.Node[0]);
+            selection.predicates = predicates.toArray(new Expr[0]);
+            selections.computeIfAbsent(selection.target.node, key -> new ArrayList<>()).add(selection);
+        }
+        for (Atom atom : atoms) {
+            if (!resolved[atom.bit]) {
+                throw new IllegalArgumentException("Predicate path " + String.join("/", atom.path)
+                        + " matches nothing in the schema");
+            }
+        }
+    }
+
+    /**
+     * Collect every target in the subtree of {@code node} that a first step matches.
+     */
+    private static void collect(X12_LoopGrammar.Node node, Step step, List<Target[]> chains) {
+        Target target = new Target(node, 0, 0);
+        if (target.matches(step.name)) {
+            chains.add(new Target[]{target});
+        }
+        if (node.isSegment()) {
+            for (Target element : target.allChildren()) {
+                if (element.matches(step.name)) {
+                    chains.add(new Target[]{element});
+                }
+                for (Target component : element.allChildren()) {
+                    if (component.matches(step.name)) {
+                        chains.add(new Target[]{component});
+                    }
+                }
+            }
+        }
+        for (X12_LoopGrammar.Node child : node.children) {
+            collect(child, step, chains);
+        }
+    }
+
+    /**
+     * A loop or segment of the grammar, or an element or component of a segment.
+     */
+    private static final class Target {
+        final X12_LoopGrammar.Node node;
+        /** 1-based element position, or 0 for the node itself. */
+        final int element;
+        /** 1-based component position, or 0 for the whole element. */
+        final int component;
+
+        Target(X12_LoopGrammar.Node node, int element, int component) {
+            this.node = node;
+            this.element = element;
+            this.component = component;
+        }
+
+        boolean matches(String step) {
+            if (element == 0) {
+                String name = node.name;
+                return step.equals(name) || step.equals(node.initiator)
+                        || name.startsWith(step) && name.length() > step.length() && name.charAt(step.length()) == '_';
+            }
+            int position = component == 0 ? element : component;
+            String name = component == 0 ? node.elements[element - 1] : node.components[element - 1][component - 1];
+            String number = String.format("%02d", position);
+            return step.equals(name) || step.equals(number) || component == 0 && step.equals(node.initiator + number);
+        }
+
+        List<Target> allChildren() {
+            List<Target> children = new ArrayList<>();
+            if (element == 0) {
+                if (node.isSegment()) {
+                    for (int i = 1; i <= node.elements.length; i++) {
+                        children.add(new Target(node, i, 0));
+                    }
+                } else {
+                    for (X12_LoopGrammar.Node child : node.children) {
+                        children.add(new Target(child, 0, 0));
+                    }
+                }
+            } else if (component == 0 && node.components[element - 1] != null) {
+                for (int c = 1; c <= node.components[element - 1].length; c++) {
+                    children.add(new Target(node, element, c));
+                }
+            }
+            return children;
+        }
+
+        List<Target> children(String step) {
+            List<Target> matches = new ArrayList<>();
+            for (Target child : allChildren()) {
+                if (child.matches(step)) {
+                    matches.add(child);
+                }
+            }
+            return matches;
+        }
+
+        /**
+         * @return the element or component value in a segment of this target's node, or "" if absent
+         */
+        String value(X12_SegmentReader.Segment segment) {
+            String value = segment.getElement(element);
+            return component == 0 ? value : component(value, segment.getComponentSeparator(), component);
+        }
+
+        String key() {
+            String name = node.elements[element - 1];
+            return component == 0 ? name : name + "/" + node.components[element - 1][component - 1];
+        }
+    }
+
+    private static String component(String value, byte separator, int index) {
+        int start = 0;
+        for (int i = 1; i < index; i++) {
+            start = value.indexOf(separator, start) + 1;
+            if (start == 0) {
+                return "";
+            }
+        }
+        int end = value.indexOf(separator, start);
+        return end < 0 ? value.substring(start) : value.substring(start, end);
+    }
+
+    /**
+     * What a query selects at one node, and the predicates along the way.
+     */
+    private static final class Selection {
+        final Target target;
+        /** The predicate of the segment step, tested on the segment itself; null if none. */
+        Expr segmentPredicate;
+        /** The loops with predicates enclosing the target, outermost first, and their predicates. */
+        X12_LoopGrammar.Node[] owners;
+        Expr[] predicates;
+
+        Selection(Target target) {
+            this.target = target;
+        }
+    }
+
+    /**
+     * A comparison pushed down to the node it reads.
+     */
+    private static final class Binding {
+        /** The loop or segment whose predicate the comparison belongs to. */
+        final X12_LoopGrammar.Node owner;
+        final Atom atom;
+        final Target target;
+
+        Binding(X12_LoopGrammar.Node owner, Atom atom, Target target) {
+            this.owner = owner;
+            this.atom = atom;
+            this.target = target;
+        }
+
+        boolean test(X12_SegmentReader.Segment segment) {
+            if (target.element == 0) {
+                return true;
+            }
+            String value = target.value(segment);
+            return !value.isEmpty() && atom.compare(value);
+        }
+    }
+
+    // ---- evaluation ----
+
+    /**
+     * An open loop occurrence, parallel to the cursor's groups.
+     */
+    private static final class Scope {
+        final X12_LoopGrammar.Node node;
+        final int occurrence;
+        final long serial;
+        /** The comparisons of this loop's predicates that held so far. */
+        long bits;
+        /** Matches waiting for this loop's predicate. */
+        List<Pending> pending;
+        /** The record of this loop when the query selects it, and the selection. */
+        X12_Projection.Record capture;
+        Selection captureSelection;
+
+        Scope(X12_LoopGrammar.Node node, int occurrence, long serial) {
+            this.node = node;
+            this.occurrence = occurrence;
+            this.serial = serial;
+        }
+    }
+
+    private static final class Pending {
+        final X12_Projection.Record record;
+        final Selection selection;
+        /** The index in {@link Selection#owners} of the loop the match waits for, or -1 when decided. */
+        int owner;
+
+        Pending(X12_Projection.Record record, Selection selection) {
+            this.record = record;
+            this.selection = selection;
+            this.owner = selection.owners.length - 1;
+        }
+    }
+
+    private final class Evaluation {
+        private final Consumer<X12_Projection.Record> consumer;
+        private final X12_LoopGrammar.Cursor cursor = grammar.cursor();
+        private final List<Scope> scopes = new ArrayList<>();
+        private int captures;
+        long count;
+
+        Evaluation(Consumer<X12_Projection.Record> consumer) {
+            this.consumer = consumer;
+        }
+
+        void accept(X12_SegmentReader.Segment segment) {
+            X12_LoopGrammar.Node node = cursor.accept(segment);
+            if (node == null) {
+                return;
+            }
+            sync();
+            long local = 0;
+            for (Binding binding : bindings.getOrDefault(node, List.of())) {
+                if (binding.test(segment)) {
+                    if (binding.owner == node) {
+                        local |= 1L << binding.atom.bit;
+                    } else {
+                        scope(binding.owner).bits |= 1L << binding.atom.bit;
+                    }
+                }
+            }
+            if (captures > 0) {
+                for (int level = 0; level < scopes.size(); level++) {
+                    Scope scope = scopes.get(level);
+                    if (scope.capture != null) {
+                        capture(scope.capture.getValues(), level + 1, node, segment);
+                    }
+                }
+            }
+            for (Selection selection : selections.getOrDefault(node, List.of())) {
+                if (selection.segmentPredicate != null && !selection.segmentPredicate.test(local)) {
+                    continue;
+                }
+                X12_Projection.Record record = record(node, loopPath(scopes.size()));
+                if (selection.target.element == 0) {
+                    values(record.getValues(), "", node, segment);
+                } else {
+                    String value = selection.target.value(segment);
+                    if (value.isEmpty()) {
+                        continue;
+                    }
+                    record.getValues().put(selection.target.key(), value);
+                }
+                route(new Pending(record, selection));
+            }
+        }
+
+        void finish() {
+            while (!scopes.isEmpty()) {
+                close(scopes.remove(scopes.size() - 1));
+            }
+        }
+
+        /**
+         * Close the scopes of loops the cursor left and open those it entered.
+         */
+        private void sync() {
+            int common = 0;
+            while (common < scopes.size() && common < cursor.depth()
+                    && scopes.get(common).serial == cursor.serial(common)) {
+                common++;
+            }
+            while (scopes.size() > common) {
+                close(scopes.remove(scopes.size() - 1));
+            }
+            for (int level = common; level < cursor.depth(); level++) {
+                X12_LoopGrammar.Node node = cursor.node(level);
+                Scope scope = new Scope(node, cursor.occurrence(level), cursor.serial(level));
+                for (Binding binding : bindings.getOrDefault(node, List.of())) {
+                    scope(binding.owner).bits |= 1L << binding.atom.bit;
+                }
+                List<Selection> selected = selections.get(node);
+                if (selected != null) {
+                    scope.captureSelection = selected.get(0);
+                    scope.capture = record(node, loopPath(level));
+                    captures++;
+                }
+                scopes.add(scope);
+            }
+        }
+
+        private void close(Scope scope) {
+            if (scope.capture != null) {
+                captures--;
+                Pending pending = new Pending(scope.capture, scope.captureSelection);
+                if (pending.owner >= 0 && pending.selection.owners[pending.owner] == scope.node) {
+                    waitFor(scope, pending);
+                } else {
+                    route(pending);
+                }
+            }
+            if (scope.pending != null) {
+                for (Pending pending : scope.pending) {
+                    if (pending.selection.predicates[pending.owner].test(scope.bits)) {
+                        pending.owner--;
+                        route(pending);
+                    }
+                }
+            }
+        }
+
+        private void route(Pending pending) {
+            if (pending.owner < 0) {
+                consumer.accept(pending.record);
+                count++;
+                return;
+            }
+            waitFor(scope(pending.selection.owners[pending.owner]), pending);
+        }
+
+        private void waitFor(Scope scope, Pending pending) {
+            if (scope.pending == null) {
+                scope.pending = new ArrayList<>();
+            }
+            scope.pending.add(pending);
+        }
+
+        private Scope scope(X12_LoopGrammar.Node node) {
+            for (int level = scopes.size() - 1; level >= 0; level--) {
+                if (scopes.get(level).node == node) {
+                    return scopes.get(level);
+                }
+            }
+            throw new IllegalStateException("Loop " + node.name + " is not open");
+        }
+
+        /**
+         * @return the open loops above {@code level} with their occurrences, e.g.
+         *         {@code Loop_2000_Header[1]/Loop_2100_ClaimPayment[2]}
+         */
+        private String loopPath(int level) {
+            StringBuilder path = new StringBuilder();
+            for (int i = 0; i < level; i++) {
+                Scope scope = scopes.get(i);
+                if (scope.node.isLoop()) {
+                    if (path.length() > 0) {
+                        path.append('/');
+                    }
+                    path.append(scope.node.name).append('[').append(scope.occurrence).append(']');
+                }
+            }
+            return path.toString();
+        }
+
+        /**
+         * Add a segment's elements to a loop's record, keyed by their path below the loop.
+         */
+        private void capture(Map<String, String> values, int from, X12_LoopGrammar.Node node,
+                             X12_SegmentReader.Segment segment) {
+            StringBuilder prefix = new StringBuilder();
+            for (int level = from; level < scopes.size(); level++) {
+                prefix.append(scopes.get(level).node.name).append('/');
+            }
+            prefix.append(node.name).append('/');
+            values(values, prefix.toString(), node, segment);
+        }
+    }
+
+    private static X12_Projection.Record record(X12_LoopGrammar.Node node, String loopPath) {
+        X12_Projection.Record record = new X12_Projection.Record();
+        record.setLoopPath(loopPath);
+        record.setName(node.name);
+        record.setSegmentId(node.initiator);
+        return record;
+    }
+
+    /**
+     * Put a segment's non-empty elements, composites split into their components.
+     */
+    private static void values(Map<String, String> values, String prefix, X12_LoopGrammar.Node node,
+                               X12_SegmentReader.Segment segment) {
+        int count = Math.min(segment.getElementCount() - 1, node.elements.length);
+        for (int i = 1; i <= count; i++) {
+            String value = segment.getElement(i);
+            if (value.isEmpty()) {
+                continue;
+            }
+            String[] components = node.components[i - 1];
+            if (components == null) {
+                values.put(prefix + node.elements[i - 1], value);
+                continue;
+            }
+            for (int c = 1; c <= components.length; c++) {
+                String part = component(value, segment.getComponentSeparator(), c);
+                if (!part.isEmpty()) {
+                    values.put(prefix + node.elements[i - 1] + "/" + components[c - 1], part);
+                }
+            }
+        }
+    }
+
+    // ---- syntax ----
+
+    private static final class Step {
+        final String name;
+        /** The step's bracketed predicates, joined with and; null if none. */
+        Expr predicate;
+
+        Step(String name) {
+            this.name = name;
+        }
+    }
+
+    private abstract static class Expr {
+        abstract boolean test(long bits);
+
+        abstract List<Atom> atoms();
+    }
+
+    private static final class Junction extends Expr {
+        final boolean and;
+        final List<Expr> operands;
+
+        Junction(boolean and, List<Expr> operands) {
+            this.and = and;
+            this.operands = operands;
+        }
+
+        @Override
+        boolean test(long bits) {
+            for (Expr operand : operands) {
+                if (operand.test(bits) != and) {
+                    return !and;
+                }
+            }
+            return and;
+        }
+
+        @Override
+        List<Atom> atoms() {
+            List<Atom> atoms = new ArrayList<>();
+            for (Expr operand : operands) {
+                atoms.addAll(operand.atoms());
+            }
+            return atoms;
+        }
+    }
+
+    /**
+     * A path occurrence test or comparison; which of them held is tracked as bit {@link #bit}.
+     */
+    private static final class Atom extends Expr {
+        final int bit;
+        final List<String> path;
+        /** The comparison operator, or null for an occurrence test. */
+        final String operator;
+        final String literal;
+        /** The literal when it was written as a number, compared numerically. */
+        final BigDecimal number;
+
+        Atom(int bit, List<String> path, String operator, String literal, BigDecimal number) {
+            this.bit = bit;
+            this.path = path;
+            this.operator = operator;
+            this.literal = literal;
+            this.number = number;
+        }
+
+        @Override
+        boolean test(long bits) {
+            return (bits & 1L << bit) != 0;
+        }
+
+        @Override
+        List<Atom> atoms() {
+            return List.of(this);
+        }
+
+        boolean compare(String value) {
+            if (operator == null) {
+                return true;
+            }
+            int comparison;
+            if (number != null) {
+                try {
+                    comparison = new BigDecimal(value.trim()).compareTo(number);
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            } else {
+                comparison = value.compareTo(literal);
+            }
+            switch (operator) {
+                case "=":
+                    return comparison == 0;
+                case "!=":
+                    return comparison != 0;
+                case "<":
+                    return comparison < 0;
+                case "<=":
+                    return comparison <= 0;
+                case ">":
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+    }
+
+    /**
+     * Recursive-descent parser of the query syntax.
+     */
+    private static final class Parser {
+        private final String text;
+        private int pos;
+        final List<Atom> atoms = new ArrayList<>();
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        List<Step> path(boolean predicates) {
+            List<Step> steps = new ArrayList<>();
+            do {
+                Step step = new Step(word());
+                while (peek('[')) {
+                    if (!predicates) {
+                        throw error("Predicates cannot be nested");
+                    }
+                    pos++;
+                    Expr predicate = or();
+                    expect(']');
+                    step.predicate = step.predicate == null ? predicate
+                            : new Junction(true, List.of(step.predicate, predicate));
+                }
+                steps.add(step);
+            } while (consume('/'));
+            return steps;
+        }
+
+        void expectEnd() {
+            skipSpace();
+            if (pos < text.length()) {
+                throw error("Unexpected '" + text.charAt(pos) + "'");
+            }
+        }
+
+        private Expr or() {
+            List<Expr> operands = new ArrayList<>(List.of(and()));
+            while (keyword("or")) {
+                operands.add(and());
+            }
+            return operands.size() == 1 ? operands.get(0) : new Junction(false, operands);
+        }
+
+        private Expr and() {
+            List<Expr> operands = new ArrayList<>(List.of(primary()));
+            while (keyword("and")) {
+                operands.add(primary());
+            }
+            return operands.size() == 1 ? operands.get(0) : new Junction(true, operands);
+        }
+
+        private Expr primary() {
+            if (consume('(')) {
+                Expr expr = or();
+                expect(')');
+                return expr;
+            }
+            List<String> path = new ArrayList<>();
+            for (Step step : path(false)) {
+                path.add(step.name);
+            }
+            String operator = operator();
+            String literal = null;
+            BigDecimal number = null;
+            if (operator != null) {
+                skipSpace();
+                if (peek('\'') || peek('"')) {
+                    char quote = text.charAt(pos++);
+                    int end = text.indexOf(quote, pos);
+                    if (end < 0) {
+                        throw error("Unterminated string");
+                    }
+                    literal = text.substring(pos, end);
+                    pos = end + 1;
+                } else {
+                    literal = word();
+                    try {
+                        number = new BigDecimal(literal);
+                    } catch (NumberFormatException e) {
+                        throw error("Expected a quoted string or a number, not " + literal);
+                    }
+                }
+            }
+            if (atoms.size() == Long.SIZE) {
+                throw error("Too many comparisons");
+            }
+            Atom atom = new Atom(atoms.size(), path, operator, literal, number);
+            atoms.add(atom);
+            return atom;
+        }
+
+        private String operator() {
+            skipSpace();
+            for (String operator : new String[]{"!=", "<=", ">=", "=", "<", ">"}) {
+                if (text.startsWith(operator, pos)) {
+                    pos += operator.length();
+                    return operator;
+                }
+            }
+            return null;
+        }
+
+        private String word() {
+            skipSpace();
+            int start = pos;
+            while (pos < text.length() && isWordChar(text.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error(pos < text.length() ? "Unexpected '" + text.charAt(pos) + "'" : "Unexpected end");
+            }
+            return text.substring(start, pos);
+        }
+
+        private boolean keyword(String keyword) {
+            skipSpace();
+            int end = pos + keyword.length();
+            if (text.regionMatches(true, pos, keyword, 0, keyword.length())
+                    && (end == text.length() || !isWordChar(text.charAt(end)))) {
+                pos = end;
+                return true;
+            }
+            return false;
+        }
+
+        private static boolean isWordChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+        }
+
+        private boolean peek(char c) {
+            skipSpace();
+            return pos < text.length() && text.charAt(pos) == c;
+        }
+
+        private boolean consume(char c) {
+            if (peek(c)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        private void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " of query: " + text);
+        }
+    }
+}
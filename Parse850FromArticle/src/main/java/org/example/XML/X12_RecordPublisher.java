@@ -0,0 +1,502 @@
+package org.example.XML;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cold {@link Flow.Publisher} that emits the records of an X12 file as they are parsed:
+ * 837 claims ({@code Loop_2300_ClaimInformation}), 835 claim payments ({@code Loop_2100_ClaimPayment})
+ * or 850 line items.
+ * <p>
+ * The file is read one segment at a time with {@link X12_SegmentReader}. Records are gathered
+ * into small windows of at most {@code min(demand, batchSize)} records; each window is wrapped
+ * in a synthetic interchange (the original ISA/GS/ST, the transaction header and the enclosing
+ * HL or LX context, with corrected SE/GE/IEA counts) and run through the regular Smooks/DFDL
+ * parse and Jackson binding. Only the current window is ever held in memory, so a slow
+ * subscriber pauses reading instead of forcing the whole file into memory.
+ * <p>
+ * Each subscription opens the file on its first {@code request(n)} and closes it on completion,
+ * error or {@link Flow.Subscription#cancel() cancellation}. Signals are delivered serially from
+ * the configured executor; the overloads without one share a pool of one thread per processor.
+ *
+ * @param <T> the record type emitted
+ */
+@Slf4j
+public abstract class X12_RecordPublisher<T> implements Flow.Publisher<T> {
+
+    public static final int DEFAULT_BATCH_SIZE = 32;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Shared by the overloads without an executor: one daemon thread per processor, started on
+     * demand and stopped after a minute idle. A subscription has at most one drain task queued,
+     * so the queue holds at most one task per active subscription; when more subscriptions are
+     * draining than there are threads, the rest wait their turn. Pass an executor to size it
+     * differently.
+     */
+    private static final ExecutorService DEFAULT_EXECUTOR = defaultExecutor(Runtime.getRuntime().availableProcessors());
+
+    private final Path file;
+    private final Executor executor;
+    private final int batchSize;
+
+    protected X12_RecordPublisher(Path file, Executor executor, int batchSize) {
+        this.file = Objects.requireNonNull(file, "file");
+        this.executor = Objects.requireNonNull(executor, "executor");
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    static ThreadPoolExecutor defaultExecutor(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "x12-record-publisher-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Emit every {@code Loop_2300_ClaimInformation} of an 837 file.
+     */
+    public static X12_RecordPublisher<X12_837_Interchange.Loop2300ClaimInformation> claims837(Path file) {
+        return claims837(file, DEFAULT_EXECUTOR, DEFAULT_BATCH_SIZE);
+    }
+
+    public static X12_RecordPublisher<X12_837_Interchange.Loop2300ClaimInformation> claims837(Path file, Executor executor, int batchSize) {
+        return new Claims837(file, executor, batchSize);
+    }
+
+    /**
+     * Emit every {@code Loop_2100_ClaimPayment} of an 835 file.
+     */
+    public static X12_RecordPublisher<X12_835_Interchange.Loop2100ClaimPayment> claimPayments835(Path file) {
+        return claimPayments835(file, DEFAULT_EXECUTOR, DEFAULT_BATCH_SIZE);
+    }
+
+    public static X12_RecordPublisher<X12_835_Interchange.Loop2100ClaimPayment> claimPayments835(Path file, Executor executor, int batchSize) {
+        return new ClaimPayments835(file, executor, batchSize);
+    }
+
+    /**
+     * Emit every PO1 line item of an 850 file.
+     */
+    public static X12_RecordPublisher<X12_850_Interchange.Item> lineItems850(Path file) {
+        return lineItems850(file, DEFAULT_EXECUTOR, DEFAULT_BATCH_SIZE);
+    }
+
+    public static X12_RecordPublisher<X12_850_Interchange.Item> lineItems850(Path file, Executor executor, int batchSize) {
+        return new LineItems850(file, executor, batchSize);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        subscriber.onSubscribe(new RecordSubscription(subscriber));
+    }
+
+    /**
+     * @return true if the segment starts a new record
+     */
+    protected abstract boolean isRecordStart(X12_SegmentReader.Segment segment);
+
+    /**
+     * @return true if the segment starts a loop that encloses the following records and must be
+     * replayed in front of every window (HL in 837, LX in 835)
+     */
+    protected boolean isContextStart(X12_SegmentReader.Segment segment) {
+        return false;
+    }
+
+    /**
+     * Update the enclosing context for a new context start segment. The default discards the
+     * previous context.
+     */
+    protected void updateContext(List<X12_SegmentReader.Segment> context, X12_SegmentReader.Segment segment) {
+        context.clear();
+        context.add(segment);
+    }
+
+    /**
+     * @return segments (without terminator) the schema requires after the records of a window
+     * that does not already contain them
+     */
+    protected List<String> requiredTrailers(List<X12_SegmentReader.Segment> body, int records, char elementSeparator) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Parse one synthetic interchange and return its records.
+     */
+    protected abstract List<T> parseWindow(byte[] ediInput) throws IOException, SAXException;
+
+    private final class RecordSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final Deque<T> buffered = new ArrayDeque<>();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private boolean done;
+        private Windower windower;
+
+        RecordSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("request(n) must be positive: " + n);
+            } else {
+                requested.accumulateAndGet(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!done) {
+                    drain();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (cancelled) {
+                finish();
+                return;
+            }
+            if (invalidRequest != null) {
+                finish();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            try {
+                long demand = requested.get();
+                long emitted = 0;
+                while (emitted != demand && !cancelled) {
+                    T record = buffered.poll();
+                    if (record == null) {
+                        if (windower == null) {
+                            windower = new Windower(Files.newInputStream(file));
+                        }
+                        int wanted = (int) Math.min(demand - emitted, batchSize);
+                        byte[] window = windower.next(wanted);
+                        if (window == null) {
+                            finish();
+                            subscriber.onComplete();
+                            return;
+                        }
+                        buffered.addAll(parseWindow(window));
+                        continue;
+                    }
+                    subscriber.onNext(record);
+                    emitted++;
+                }
+                if (demand != Long.MAX_VALUE && emitted > 0) {
+                    requested.addAndGet(-emitted);
+                }
+                if (cancelled) {
+                    finish();
+                }
+            } catch (Exception e) {
+                finish();
+                subscriber.onError(e);
+            }
+        }
+
+        private void finish() {
+            done = true;
+            buffered.clear();
+            if (windower != null) {
+                try {
+                    windower.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close {}", file, e);
+                }
+                windower = null;
+            }
+        }
+    }
+
+    /**
+     * Cuts the segment stream into self-contained interchanges of a bounded number of records.
+     */
+    private final class Windower {
+        private final X12_SegmentReader reader;
+        private X12_SegmentReader.Segment isa;
+        private X12_SegmentReader.Segment gs;
+        private X12_SegmentReader.Segment st;
+        private final List<X12_SegmentReader.Segment> header = new ArrayList<>();
+        private final List<X12_SegmentReader.Segment> context = new ArrayList<>();
+        private final List<X12_SegmentReader.Segment> windowContext = new ArrayList<>();
+        private final List<X12_SegmentReader.Segment> body = new ArrayList<>();
+        private X12_SegmentReader.Segment pending;
+        private boolean inHeader;
+        private boolean inContext;
+        private int records;
+
+        Windower(InputStream in) {
+            this.reader = new X12_SegmentReader(in);
+        }
+
+        /**
+         * @return the next window of at most {@code maxRecords} records, or null at end of input
+         */
+        byte[] next(int maxRecords) throws IOException {
+            while (true) {
+                X12_SegmentReader.Segment segment = pending != null ? pending : reader.next();
+                pending = null;
+                if (segment == null) {
+                    return records > 0 ? build() : null;
+                }
+                if (segment.is("ISA")) {
+                    isa = segment;
+                } else if (segment.is("GS")) {
+                    gs = segment;
+                } else if (segment.is("ST")) {
+                    st = segment;
+                    header.clear();
+                    context.clear();
+                    body.clear();
+                    records = 0;
+                    inHeader = true;
+                    inContext = false;
+                } else if (segment.is("SE")) {
+                    byte[] window = records > 0 ? build() : null;
+                    st = null;
+                    if (window != null) {
+                        return window;
+                    }
+                } else if (segment.is("GE") || segment.is("IEA")) {
+                    // Envelope trailers are regenerated for each window.
+                } else if (st == null) {
+                    log.debug("Ignoring {} outside of a transaction set", segment.getId());
+                } else if (isRecordStart(segment)) {
+                    if (records == maxRecords) {
+                        pending = segment;
+                        return build();
+                    }
+                    if (records == 0) {
+                        windowContext.clear();
+                        windowContext.addAll(context);
+                    }
+                    inHeader = false;
+                    inContext = false;
+                    records++;
+                    body.add(segment);
+                } else if (isContextStart(segment)) {
+                    inHeader = false;
+                    inContext = true;
+                    updateContext(context, segment);
+                    addToWindow(segment);
+                } else if (inHeader) {
+                    header.add(segment);
+                } else if (inContext) {
+                    context.add(segment);
+                    addToWindow(segment);
+                } else {
+                    addToWindow(segment);
+                }
+            }
+        }
+
+        private void addToWindow(X12_SegmentReader.Segment segment) {
+            if (records > 0) {
+                body.add(segment);
+            }
+        }
+
+        private byte[] build() throws IOException {
+            if (isa == null || gs == null || st == null) {
+                throw new IOException("Record found outside of a complete ISA/GS/ST envelope");
+            }
+            byte terminator = reader.getSegmentTerminator();
+            char separator = (char) st.getElementSeparator();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+            int segments = 0;
+            write(out, isa.getBytes(), terminator);
+            write(out, gs.getBytes(), terminator);
+            for (List<X12_SegmentReader.Segment> part : List.of(List.of(st), header, windowContext, body)) {
+                for (X12_SegmentReader.Segment segment : part) {
+                    write(out, segment.getBytes(), terminator);
+                    segments++;
+                }
+            }
+            for (String trailer : requiredTrailers(body, records, separator)) {
+                write(out, trailer.getBytes(StandardCharsets.ISO_8859_1), terminator);
+                segments++;
+            }
+            segments++;
+            write(out, ("SE" + separator + segments + separator + st.getElement(2)).getBytes(StandardCharsets.ISO_8859_1), terminator);
+            write(out, ("GE" + separator + "1" + separator + gs.getElement(6)).getBytes(StandardCharsets.ISO_8859_1), terminator);
+            write(out, ("IEA" + separator + "1" + separator + isa.getElement(13)).getBytes(StandardCharsets.ISO_8859_1), terminator);
+
+            body.clear();
+            records = 0;
+            return out.toByteArray();
+        }
+
+        private void write(ByteArrayOutputStream out, byte[] segment, byte terminator) {
+            out.write(segment, 0, segment.length);
+            out.write(terminator);
+        }
+
+        void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class Claims837 extends X12_RecordPublisher<X12_837_Interchange.Loop2300ClaimInformation> {
+        Claims837(Path file, Executor executor, int batchSize) {
+            super(file, executor, batchSize);
+        }
+
+        @Override
+        protected boolean isRecordStart(X12_SegmentReader.Segment segment) {
+            return segment.is("CLM");
+        }
+
+        @Override
+        protected boolean isContextStart(X12_SegmentReader.Segment segment) {
+            return segment.is("HL");
+        }
+
+        /**
+         * Keep the parent HL levels (billing provider, subscriber) and drop siblings.
+         */
+        @Override
+        protected void updateContext(List<X12_SegmentReader.Segment> context, X12_SegmentReader.Segment segment) {
+            String parent = segment.getElement(2);
+            int keep = 0;
+            if (!parent.isEmpty()) {
+                boolean inParent = false;
+                for (int i = 0; i < context.size(); i++) {
+                    X12_SegmentReader.Segment existing = context.get(i);
+                    if (existing.is("HL")) {
+                        if (inParent) {
+                            break;
+                        }
+                        inParent = parent.equals(existing.getElement(1));
+                    }
+                    keep = i + 1;
+                }
+                if (!inParent) {
+                    keep = 0;
+                }
+            }
+            context.subList(keep, context.size()).clear();
+            context.add(segment);
+        }
+
+        @Override
+        protected List<X12_837_Interchange.Loop2300ClaimInformation> parseWindow(byte[] ediInput) throws IOException, SAXException {
+            X12_837_Interchange interchange = X12_837_Parser.parseXML(X12_837_Parser.parseEDI(ediInput, X12_ValidationMode.NONE));
+            return interchange.getLoop2300ClaimInformation() != null
+                    ? interchange.getLoop2300ClaimInformation() : Collections.emptyList();
+        }
+    }
+
+    private static final class ClaimPayments835 extends X12_RecordPublisher<X12_835_Interchange.Loop2100ClaimPayment> {
+        ClaimPayments835(Path file, Executor executor, int batchSize) {
+            super(file, executor, batchSize);
+        }
+
+        @Override
+        protected boolean isRecordStart(X12_SegmentReader.Segment segment) {
+            return segment.is("CLP");
+        }
+
+        @Override
+        protected boolean isContextStart(X12_SegmentReader.Segment segment) {
+            return segment.is("LX");
+        }
+
+        @Override
+        protected List<X12_835_Interchange.Loop2100ClaimPayment> parseWindow(byte[] ediInput) throws IOException, SAXException {
+            X12_835_Interchange interchange = X12_835_Parser.parseXML(X12_835_Parser.parseEDI(ediInput, X12_ValidationMode.NONE));
+            List<X12_835_Interchange.Loop2100ClaimPayment> payments = new ArrayList<>();
+            if (interchange.getHealthCareClaimPayment() != null && interchange.getHealthCareClaimPayment().getLoop2000Header() != null) {
+                for (X12_835_Interchange.Loop2000Header header : interchange.getHealthCareClaimPayment().getLoop2000Header()) {
+                    if (header.getLoop2100ClaimPayment() != null) {
+                        payments.addAll(header.getLoop2100ClaimPayment());
+                    }
+                }
+            }
+            return payments;
+        }
+    }
+
+    private static final class LineItems850 extends X12_RecordPublisher<X12_850_Interchange.Item> {
+        LineItems850(Path file, Executor executor, int batchSize) {
+            super(file, executor, batchSize);
+        }
+
+        @Override
+        protected boolean isRecordStart(X12_SegmentReader.Segment segment) {
+            return segment.is("PO1");
+        }
+
+        /**
+         * The 850 schema requires CTT after the line items.
+         */
+        @Override
+        protected List<String> requiredTrailers(List<X12_SegmentReader.Segment> body, int records, char elementSeparator) {
+            for (X12_SegmentReader.Segment segment : body) {
+                if (segment.is("CTT")) {
+                    return Collections.emptyList();
+                }
+            }
+            return List.of("CTT" + elementSeparator + records);
+        }
+
+        @Override
+        protected List<X12_850_Interchange.Item> parseWindow(byte[] ediInput) throws IOException, SAXException {
+            X12_850_Interchange interchange = X12_850_Parser.parseXML(X12_850_Parser.parseEDI(ediInput, X12_ValidationMode.NONE));
+            return interchange.getItems() != null && interchange.getItems().getItemList() != null
+                    ? interchange.getItems().getItemList() : Collections.emptyList();
+        }
+    }
+}
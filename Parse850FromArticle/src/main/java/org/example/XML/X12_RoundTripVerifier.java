@@ -0,0 +1,455 @@
+package org.example.XML;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks that EDI survives EDI -> XML -> model -> EDI unchanged, across a whole corpus.
+ * <p>
+ * Each file (gzip, zstd or deflate compressed ones included, see {@link X12_Compression})
+ * is streamed with {@link X12_SegmentReader} and cut into interchanges, and each
+ * interchange is round-tripped on a worker thread through the parser of the type named by
+ * its first ST segment. Only the interchanges being verified are held in memory: the
+ * reader waits once the configured number of input bytes is in flight, so corpora of any
+ * total size are verified in bounded memory (a single interchange is still parsed whole).
+ * <p>
+ * The original and the round-tripped interchange are compared segment by segment after
+ * normalizing what X12 leaves to the sender: the delimiters (each side is read with the ones
+ * its own ISA declares), whitespace between segments and around them, and trailing empty
+ * elements and components. A segment missing from or added to the output is reported as
+ * such and the comparison continues in step, rather than reporting every segment after it.
+ * Interchanges whose round trip throws are counted by the stage that failed.
+ */
+@Slf4j
+public final class X12_RoundTripVerifier {
+
+    private final int threads;
+    private final long maxInFlightBytes;
+    private X12_ValidationMode validationMode = X12_ValidationMode.NONE;
+    private int maxSamples = 100;
+
+    /**
+     * Verify with one thread per CPU and up to 256 MB of input in flight.
+     */
+    public X12_RoundTripVerifier() {
+        this(Runtime.getRuntime().availableProcessors(), 256L * 1024 * 1024);
+    }
+
+    /**
+     * @param threads          number of worker threads
+     * @param maxInFlightBytes input bytes that may be read ahead of the workers
+     */
+    public X12_RoundTripVerifier(int threads, long maxInFlightBytes) {
+        if (threads < 1 || maxInFlightBytes < 1) {
+            throw new IllegalArgumentException("threads and maxInFlightBytes must be positive");
+        }
+        this.threads = threads;
+        this.maxInFlightBytes = maxInFlightBytes;
+    }
+
+    /**
+     * Validation applied by the EDI parse; {@link X12_ValidationMode#NONE} by default, since
+     * the round trip rather than the content is being checked.
+     */
+    public void setValidationMode(X12_ValidationMode validationMode) {
+        this.validationMode = validationMode;
+    }
+
+    /**
+     * Number of mismatches and failures kept in the report as samples; all are counted.
+     */
+    public void setMaxSamples(int maxSamples) {
+        this.maxSamples = maxSamples;
+    }
+
+    /**
+     * The step of the round trip that threw.
+     */
+    public enum Stage {
+        /** EDI to XML, or the transaction type is not supported. */
+        PARSE,
+        /** XML to model. */
+        BIND,
+        /** Model back to EDI. */
+        SERIALIZE
+    }
+
+    /**
+     * A segment that differs after the round trip. {@code expected} is null for a segment the
+     * round trip added and {@code actual} for one it dropped.
+     */
+    @Data
+    public static class Mismatch {
+        private Path file;
+        /** Offset of the interchange's ISA within the file. */
+        private long interchangeOffset;
+        /** 1-based position of the segment in the original interchange. */
+        private long segment;
+        private String segmentId;
+        private String expected;
+        private String actual;
+    }
+
+    @Data
+    public static class Failure {
+        private Path file;
+        private long interchangeOffset;
+        private Stage stage;
+        private String message;
+    }
+
+    @Data
+    public static class Report {
+        private long files;
+        private long interchanges;
+        /** Input bytes, as read after decompression. */
+        private long bytes;
+        /** Segments of the original interchanges. */
+        private long segments;
+        private long identicalInterchanges;
+        private long mismatchedInterchanges;
+        private long failedInterchanges;
+        /** Segments present on both sides with different content. */
+        private long changedSegments;
+        private long missingSegments;
+        private long extraSegments;
+        /** Differing segments (changed, missing or extra) by segment ID. */
+        private Map<String, Long> mismatchesBySegment = new TreeMap<>();
+        private Map<Stage, Long> failuresByStage = new EnumMap<>(Stage.class);
+        private List<Mismatch> mismatches = new ArrayList<>();
+        private List<Failure> failures = new ArrayList<>();
+        private long elapsedNanos;
+
+        public boolean isLossless() {
+            return mismatchedInterchanges == 0 && failedInterchanges == 0;
+        }
+
+        public double getMegabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytes / (elapsedNanos / 1e9) / (1 << 20);
+        }
+
+        public double getSegmentsPerSecond() {
+            return elapsedNanos == 0 ? 0 : segments / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d files, %d interchanges, %d segments: %d identical, %d mismatched "
+                            + "(%d changed, %d missing, %d extra segments), %d failed %s; %.1f MB/s, %.0f segments/s",
+                    files, interchanges, segments, identicalInterchanges, mismatchedInterchanges, changedSegments,
+                    missingSegments, extraSegments, failedInterchanges, failuresByStage, getMegabytesPerSecond(),
+                    getSegmentsPerSecond());
+        }
+    }
+
+    /**
+     * Verify a file, or every regular file under a directory.
+     */
+    public Report verify(Path corpus) throws IOException, InterruptedException {
+        List<Path> files;
+        if (Files.isDirectory(corpus)) {
+            try (Stream<Path> walk = Files.walk(corpus)) {
+                files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+        } else {
+            files = List.of(corpus);
+        }
+        return verify(files);
+    }
+
+    public Report verify(List<Path> files) throws IOException, InterruptedException {
+        Report report = new Report();
+        long start = System.nanoTime();
+        // Permits are KB of input in flight.
+        int permits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxInFlightBytes >> 10));
+        Semaphore inFlight = new Semaphore(permits);
+        ExecutorService workers = Executors.newFixedThreadPool(threads, new WorkerThreadFactory());
+        try {
+            for (Path file : files) {
+                synchronized (report) {
+                    report.files++;
+                }
+                try (InputStream in = X12_Compression.open(file);
+                     X12_SegmentReader reader = new X12_SegmentReader(in)) {
+                    ByteArrayOutputStream interchange = null;
+                    long offset = 0;
+                    for (X12_SegmentReader.Segment segment = reader.next(); segment != null; segment = reader.next()) {
+                        if (segment.is("ISA")) {
+                            if (interchange != null) {
+                                submit(workers, inFlight, permits, report, file, offset, interchange.toByteArray());
+                            }
+                            interchange = new ByteArrayOutputStream();
+                            offset = segment.getOffset();
+                        }
+                        if (interchange == null) {
+                            continue;
+                        }
+                        interchange.write(segment.getBytes());
+                        interchange.write(reader.getSegmentTerminator());
+                        interchange.write('\n');
+                        if (segment.is("IEA")) {
+                            submit(workers, inFlight, permits, report, file, offset, interchange.toByteArray());
+                            interchange = null;
+                        }
+                    }
+                    if (interchange != null) {
+                        submit(workers, inFlight, permits, report, file, offset, interchange.toByteArray());
+                    }
+                    synchronized (report) {
+                        report.bytes += reader.getPosition();
+                    }
+                }
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        log.info("Round trip of {}", report);
+        return report;
+    }
+
+    private void submit(ExecutorService workers, Semaphore inFlight, int permits, Report report, Path file, long offset,
+                        byte[] interchange) throws InterruptedException {
+        int weight = (int) Math.min(permits, Math.max(1, interchange.length >> 10));
+        inFlight.acquire(weight);
+        workers.execute(() -> {
+            try {
+                verify(report, file, offset, interchange);
+            } catch (RuntimeException | Error e) {
+                log.error("Round trip of {} at offset {} failed unexpectedly", file, offset, e);
+            } finally {
+                inFlight.release(weight);
+            }
+        });
+    }
+
+    private void verify(Report report, Path file, long offset, byte[] original) {
+        List<String> expected = normalize(original);
+        Stage stage = Stage.PARSE;
+        byte[] roundTripped;
+        try {
+            String type = "";
+            for (String segment : expected) {
+                if (segment.startsWith("ST*")) {
+                    type = segment.substring(3, Math.min(segment.length(), 6));
+                    break;
+                }
+            }
+            switch (type) {
+                case "837": {
+                    String xml = X12_837_Parser.parseEDI(original, validationMode);
+                    stage = Stage.BIND;
+                    X12_837_Interchange model = X12_837_Parser.parseXML(xml);
+                    stage = Stage.SERIALIZE;
+                    roundTripped = X12_837_Parser.toEdiString(model).getBytes(StandardCharsets.ISO_8859_1);
+                    break;
+                }
+                case "835": {
+                    String xml = X12_835_Parser.parseEDI(original, validationMode);
+                    stage = Stage.BIND;
+                    X12_835_Interchange model = X12_835_Parser.parseXML(xml);
+                    stage = Stage.SERIALIZE;
+                    roundTripped = X12_835_Parser.toEDIString(model).getBytes(StandardCharsets.ISO_8859_1);
+                    break;
+                }
+                case "850": {
+                    String xml = X12_850_Parser.parseEDI(original, validationMode);
+                    stage = Stage.BIND;
+                    X12_850_Interchange model = X12_850_Parser.parseXML(xml);
+                    stage = Stage.SERIALIZE;
+                    roundTripped = X12_850_Parser.toEdiString(model).getBytes(StandardCharsets.ISO_8859_1);
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unsupported transaction type: " + (type.isEmpty() ? "no ST segment" : type));
+            }
+        } catch (Exception e) {
+            Failure failure = new Failure();
+            failure.setFile(file);
+            failure.setInterchangeOffset(offset);
+            failure.setStage(stage);
+            String message = String.valueOf(e.getMessage());
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                message = String.valueOf(cause.getMessage());
+            }
+            int newline = message.indexOf('\n');
+            failure.setMessage(newline < 0 ? message : message.substring(0, newline));
+            synchronized (report) {
+                report.interchanges++;
+                report.segments += expected.size();
+                report.failedInterchanges++;
+                report.failuresByStage.merge(stage, 1L, Long::sum);
+                if (report.failures.size() < maxSamples) {
+                    report.failures.add(failure);
+                }
+            }
+            return;
+        }
+        List<Mismatch> mismatches = compare(expected, normalize(roundTripped));
+        synchronized (report) {
+            report.interchanges++;
+            report.segments += expected.size();
+            if (mismatches.isEmpty()) {
+                report.identicalInterchanges++;
+                return;
+            }
+            report.mismatchedInterchanges++;
+            for (Mismatch mismatch : mismatches) {
+                mismatch.setFile(file);
+                mismatch.setInterchangeOffset(offset);
+                if (mismatch.getExpected() == null) {
+                    report.extraSegments++;
+                } else if (mismatch.getActual() == null) {
+                    report.missingSegments++;
+                } else {
+                    report.changedSegments++;
+                }
+                report.mismatchesBySegment.merge(mismatch.getSegmentId(), 1L, Long::sum);
+                if (report.mismatches.size() < maxSamples) {
+                    report.mismatches.add(mismatch);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compare two normalized interchanges segment by segment, stepping over a single missing
+     * or extra segment to stay in step.
+     *
+     * @return the differences, without file or interchange offset
+     */
+    static List<Mismatch> compare(List<String> expected, List<String> actual) {
+        List<Mismatch> mismatches = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < expected.size() || j < actual.size()) {
+            String e = i < expected.size() ? expected.get(i) : null;
+            String a = j < actual.size() ? actual.get(j) : null;
+            if (e != null && e.equals(a)) {
+                i++;
+                j++;
+            } else if (e != null && a != null && j + 1 < actual.size() && e.equals(actual.get(j + 1))) {
+                mismatches.add(mismatch(i + 1, null, a));
+                j++;
+            } else if (e != null && a != null && i + 1 < expected.size() && a.equals(expected.get(i + 1))) {
+                mismatches.add(mismatch(i + 1, e, null));
+                i++;
+            } else {
+                mismatches.add(mismatch(i + 1, e, a));
+                if (e != null) {
+                    i++;
+                }
+                if (a != null) {
+                    j++;
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    private static Mismatch mismatch(long position, String expected, String actual) {
+        Mismatch mismatch = new Mismatch();
+        mismatch.setSegment(position);
+        String segment = expected != null ? expected : actual;
+        int separator = segment.indexOf('*');
+        mismatch.setSegmentId(separator < 0 ? segment : segment.substring(0, separator));
+        mismatch.setExpected(expected);
+        mismatch.setActual(actual);
+        return mismatch;
+    }
+
+    /**
+     * @return the segments of an interchange with {@code *} and {@code :} as delimiters,
+     *         surrounding whitespace and trailing empty elements and components removed
+     */
+    static List<String> normalize(byte[] edi) {
+        List<String> segments = new ArrayList<>();
+        try (X12_SegmentReader reader = new X12_SegmentReader(edi)) {
+            for (X12_SegmentReader.Segment segment = reader.next(); segment != null; segment = reader.next()) {
+                segments.add(normalize(segment));
+            }
+        } catch (IOException e) {
+            // Truncated ISA: compare what was read.
+            log.debug("Stopped normalizing at {}", e.getMessage());
+        }
+        return segments;
+    }
+
+    private static String normalize(X12_SegmentReader.Segment segment) {
+        byte[] bytes = segment.getBytes();
+        int length = bytes.length;
+        while (length > 0 && Character.isWhitespace(bytes[length - 1])) {
+            length--;
+        }
+        boolean isa = segment.is("ISA");
+        List<String> elements = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || bytes[i] == segment.getElementSeparator()) {
+                if (isa && elements.size() == 16) {
+                    // ISA16 is the component separator itself.
+                    elements.add(":");
+                } else {
+                    elements.add(element(bytes, start, i, isa ? -1 : segment.getComponentSeparator()));
+                }
+                start = i + 1;
+            }
+        }
+        int end = elements.size();
+        while (end > 1 && elements.get(end - 1).isEmpty()) {
+            end--;
+        }
+        return String.join("*", elements.subList(0, end));
+    }
+
+    /**
+     * @param separator the component separator, or -1 for an element without components
+     */
+    private static String element(byte[] bytes, int from, int to, int separator) {
+        if (separator >= 0) {
+            // Drop trailing empty components.
+            int end = to;
+            while (end > from && bytes[end - 1] == separator) {
+                end--;
+            }
+            to = end;
+        }
+        StringBuilder element = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            element.append(bytes[i] == separator ? ':' : (char) (bytes[i] & 0xFF));
+        }
+        return element.toString();
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "x12-round-trip-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package org.example.XML;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.xml.sax.SAXException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Front door for inbound files whose transaction type is not known in advance.
+ * <p>
+ * The type is read from the envelope at the start of an interchange: ST01 (falling back to
+ * the GS01 functional identifier when the ST lies beyond the sniffed bytes), with ST03 (or
+ * GS08) recorded as the implementation guide. Only the first {@value #SNIFF_LENGTH} bytes are
+ * looked at, so a file is dispatched to the cached engine of the right parser without trying
+ * parsers until one succeeds.
+ * <p>
+ * Files holding several interchanges, possibly of different types, are first {@link #scan
+ * scanned} for their ISA boundaries. {@link #split} then copies each interchange into one
+ * file per transaction type with {@link FileChannel#transferTo}, which lets the kernel move
+ * the bytes without passing them through the heap, and {@link #route} parses each interchange
+ * on its own straight from its byte range of the file. Both need an uncompressed file;
+ * compressed input can still go through {@link #parseEDI(InputStream, OutputStream)}.
+ */
+@Slf4j
+public final class X12_Router {
+
+    /** Bytes read to find the ISA, GS and ST of an interchange. */
+    static final int SNIFF_LENGTH = 512;
+
+    private X12_Router() {
+    }
+
+    /**
+     * The envelope of one interchange and where it lies in its file.
+     */
+    @Data
+    public static class Interchange {
+        /** Offset of the ISA within the file. */
+        private long offset;
+        /** Bytes up to the next ISA or the end of the file, including trailing line breaks. */
+        private long length;
+        /** ISA06, trimmed. */
+        private String senderId;
+        /** ISA13. */
+        private String interchangeControlNumber;
+        /** GS01, e.g. {@code HC} for claims or {@code HP} for remittances. */
+        private String functionalId;
+        /** ST01 of the first transaction set. */
+        private String transactionSetId;
+        /** ST03 of the first transaction set, or GS08 when it has none. */
+        private String implementationGuide;
+
+        /**
+         * @return the parser for this interchange, or null if there is none (a 999, say)
+         */
+        public X12_ParseCache.TransactionType getType() {
+            String id = transactionSetId != null ? transactionSetId : transactionSetFor(functionalId);
+            if (id == null) {
+                return null;
+            }
+            switch (id) {
+                case "837":
+                    return X12_ParseCache.TransactionType.X837;
+                case "835":
+                    return X12_ParseCache.TransactionType.X835;
+                case "850":
+                    return X12_ParseCache.TransactionType.X850;
+                case "276":
+                    return X12_ParseCache.TransactionType.X276;
+                case "277":
+                    return X12_ParseCache.TransactionType.X277;
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * @return ST01, or the transaction set GS01 implies, or {@code unknown}
+         */
+        String getTypeName() {
+            String id = transactionSetId != null ? transactionSetId : transactionSetFor(functionalId);
+            return id != null ? id : "unknown";
+        }
+    }
+
+    /**
+     * Receives the XML of each interchange {@link #route} parses.
+     */
+    @FunctionalInterface
+    public interface XmlOutput {
+        /**
+         * @return the stream for this interchange's XML; it is closed once the interchange is parsed
+         */
+        OutputStream open(Interchange interchange) throws IOException;
+    }
+
+    /**
+     * Read the envelope of the interchange at the start of {@code head}.
+     *
+     * @return the envelope, or null if the bytes do not start with an ISA segment
+     */
+    public static Interchange sniff(byte[] head, int length) {
+        Interchange interchange = null;
+        try (X12_SegmentReader reader = new X12_SegmentReader(new ByteArrayInputStream(head, 0, length))) {
+            for (X12_SegmentReader.Segment segment = reader.next(); segment != null; segment = reader.next()) {
+                if (interchange == null) {
+                    if (!segment.is("ISA")) {
+                        return null;
+                    }
+                    interchange = new Interchange();
+                    interchange.setOffset(segment.getOffset());
+                }
+                if (read(interchange, segment)) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // A truncated ISA: not enough of an envelope to route on.
+            return null;
+        }
+        return interchange;
+    }
+
+    /**
+     * @return the parser for the first interchange of {@code edi}, or null if there is none
+     */
+    public static X12_ParseCache.TransactionType detect(byte[] edi) {
+        Interchange interchange = sniff(edi, Math.min(edi.length, SNIFF_LENGTH));
+        return interchange == null ? null : interchange.getType();
+    }
+
+    /**
+     * Parse one interchange of any supported type, writing its XML to the given output.
+     *
+     * @param xmlOutput receives the XML; it is flushed but left open
+     * @return the envelope the parser was chosen by
+     * @throws IllegalArgumentException if the input is not X12 or is of a type with no parser
+     */
+    public static Interchange parseEDI(InputStream ediInput, OutputStream xmlOutput) throws IOException, SAXException {
+        InputStream in = ediInput.markSupported() ? ediInput : new BufferedInputStream(ediInput);
+        in.mark(SNIFF_LENGTH);
+        byte[] head = in.readNBytes(SNIFF_LENGTH);
+        in.reset();
+        Interchange interchange = sniff(head, head.length);
+        if (interchange == null) {
+            throw new IllegalArgumentException("Input does not start with an ISA segment");
+        }
+        parse(interchange, in, xmlOutput);
+        return interchange;
+    }
+
+    /**
+     * Find the interchanges of a file in one pass. Bytes before the first ISA are ignored.
+     */
+    public static List<Interchange> scan(Path ediFile) throws IOException {
+        List<Interchange> interchanges = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(ediFile, StandardOpenOption.READ);
+             X12_SegmentReader reader = new X12_SegmentReader(Channels.newInputStream(channel))) {
+            Interchange current = null;
+            boolean envelopeRead = false;
+            for (X12_SegmentReader.Segment segment = reader.next(); segment != null; segment = reader.next()) {
+                if (segment.is("ISA")) {
+                    if (current != null) {
+                        current.setLength(segment.getOffset() - current.getOffset());
+                    }
+                    current = new Interchange();
+                    current.setOffset(segment.getOffset());
+                    interchanges.add(current);
+                    envelopeRead = false;
+                }
+                if (current != null && !envelopeRead) {
+                    envelopeRead = read(current, segment);
+                }
+            }
+            if (current != null) {
+                current.setLength(Files.size(ediFile) - current.getOffset());
+            }
+        }
+        return interchanges;
+    }
+
+    /**
+     * Copy the interchanges of a file into one file per transaction type, named
+     * {@code <file>.<ST01>.edi} (or {@code <file>.unknown.edi}) in the given directory.
+     * The bytes are moved with {@link FileChannel#transferTo}, unchanged and in file order.
+     *
+     * @return the files written, by transaction type
+     */
+    public static Map<String, Path> split(Path ediFile, Path directory) throws IOException {
+        List<Interchange> interchanges = scan(ediFile);
+        Map<String, Path> files = new LinkedHashMap<>();
+        Map<String, FileChannel> targets = new LinkedHashMap<>();
+        Files.createDirectories(directory);
+        try (FileChannel source = FileChannel.open(ediFile, StandardOpenOption.READ)) {
+            for (Interchange interchange : interchanges) {
+                String type = interchange.getTypeName();
+                FileChannel target = targets.get(type);
+                if (target == null) {
+                    Path file = directory.resolve(ediFile.getFileName() + "." + type + ".edi");
+                    target = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING);
+                    targets.put(type, target);
+                    files.put(type, file);
+                }
+                transfer(source, interchange.getOffset(), interchange.getLength(), target);
+            }
+        } finally {
+            for (FileChannel target : targets.values()) {
+                target.close();
+            }
+        }
+        log.info("Split {} interchanges of {} into {}", interchanges.size(), ediFile, files.keySet());
+        return files;
+    }
+
+    /**
+     * Parse every interchange of a file with the parser for its type. Interchanges of a
+     * type without a parser are skipped; they are still in the returned list, with a null
+     * {@link Interchange#getType()}.
+     *
+     * @return the interchanges of the file
+     */
+    public static List<Interchange> route(Path ediFile, XmlOutput xmlOutput) throws IOException, SAXException {
+        List<Interchange> interchanges = scan(ediFile);
+        try (FileChannel source = FileChannel.open(ediFile, StandardOpenOption.READ)) {
+            for (Interchange interchange : interchanges) {
+                if (interchange.getType() == null) {
+                    log.warn("Skipping interchange {} at offset {}: no parser for {} (GS01 {})",
+                            interchange.getInterchangeControlNumber(), interchange.getOffset(),
+                            interchange.getTypeName(), interchange.getFunctionalId());
+                    continue;
+                }
+                try (InputStream in = new RangeInputStream(source, interchange.getOffset(), interchange.getLength());
+                     OutputStream out = xmlOutput.open(interchange)) {
+                    parse(interchange, in, out);
+                }
+            }
+        }
+        return interchanges;
+    }
+
+    private static void parse(Interchange interchange, InputStream in, OutputStream xmlOutput)
+            throws IOException, SAXException {
+        X12_ParseCache.TransactionType type = interchange.getType();
+        if (type == null) {
+            throw new IllegalArgumentException("No parser for transaction type " + interchange.getTypeName()
+                    + " (GS01 " + interchange.getFunctionalId() + ")");
+        }
+        switch (type) {
+            case X837:
+                X12_837_Parser.parseEDI(in, xmlOutput);
+                break;
+            case X835:
+                X12_835_Parser.parseEDI(in, xmlOutput);
+                break;
+            case X276:
+                X12_276_Parser.parseEDI(in, xmlOutput);
+                break;
+            case X277:
+                X12_277_Parser.parseEDI(in, xmlOutput);
+                break;
+            default:
+                X12_850_Parser.parseEDI(in, xmlOutput);
+                break;
+        }
+    }
+
+    /**
+     * Take what routing needs from one envelope segment.
+     *
+     * @return true once the first ST was read
+     */
+    private static boolean read(Interchange interchange, X12_SegmentReader.Segment segment) {
+        if (segment.is("ISA")) {
+            interchange.setSenderId(segment.getElement(6).trim());
+            interchange.setInterchangeControlNumber(segment.getElement(13));
+        } else if (segment.is("GS")) {
+            interchange.setFunctionalId(emptyToNull(segment.getElement(1)));
+            interchange.setImplementationGuide(emptyToNull(segment.getElement(8)));
+        } else if (segment.is("ST")) {
+            interchange.setTransactionSetId(emptyToNull(segment.getElement(1)));
+            String guide = emptyToNull(segment.getElement(3));
+            if (guide != null) {
+                interchange.setImplementationGuide(guide);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the transaction set a GS01 functional identifier carries, or null
+     */
+    static String transactionSetFor(String functionalId) {
+        if (functionalId == null) {
+            return null;
+        }
+        switch (functionalId) {
+            case "HC":
+                return "837";
+            case "HP":
+                return "835";
+            case "PO":
+                return "850";
+            case "HR":
+                return "276";
+            case "HN":
+                return "277";
+            default:
+                return null;
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void transfer(FileChannel source, long offset, long length, FileChannel target) throws IOException {
+        long done = 0;
+        while (done < length) {
+            long n = source.transferTo(offset + done, length - done, target);
+            if (n <= 0) {
+                throw new IOException("File shrank while splitting at offset " + (offset + done));
+            }
+            done += n;
+        }
+    }
+
+    /**
+     * Reads one byte range of a file with positional reads, so several ranges can be read
+     * from the same channel without moving its position.
+     */
+    private static final class RangeInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        RangeInputStream(FileChannel channel, long offset, long length) {
+            this.channel = channel;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == 1 ? one[0] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (n < 0) {
+                return -1;
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+        @Override
+        public void close() {
+            // The channel belongs to the caller.
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package org.example.XML;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Field-level diff of two parsed 837 or 835 models, for comparing a resubmission with the
+ * original claim by claim.
+ * <p>
+ * Repeating loops with an identifier are aligned by it rather than by position: claims by
+ * CLM01 (837) or CLP01 (835), 837 service lines by LX01, 835 service payments by SVC01 and
+ * 835 header loops by LX01. A claim that was added, removed or moved is then reported as
+ * such rather than as changes to every claim after it; the second and later occurrences of
+ * a repeated identifier are aligned in order. Other lists are aligned by position.
+ * <p>
+ * Each aligned pair of keyed loops is first compared by a 64-bit hash of its subtree (see
+ * {@link X12_ContentHash}), and only pairs whose hashes differ are walked field by field, so
+ * a diff costs one pass over each model plus the size of the claims that changed. Pairs with
+ * equal hashes are treated as identical; a collision would hide a change, which at 64 bits
+ * is not a practical concern for claim-sized subtrees.
+ * <p>
+ * Changes are reported with a path of the models' JSON names, e.g.
+ * {@code Loop_2300_ClaimInformation[PATIENT00003]/claim-information/monetary-amount}, where a
+ * bracketed value is the identifier of a keyed loop and a bracketed number the 1-based
+ * position in another list.
+ */
+public final class X12_StructuralDiff {
+
+    /** Identifier of each keyed loop type. */
+    private static final Map<Class<?>, Function<Object, String>> KEYS = new HashMap<>();
+
+    /** The loop types that are claims. */
+    private static final Set<Class<?>> CLAIMS = Set.of(X12_837_Interchange.Loop2300ClaimInformation.class,
+            X12_837_Interchange.ClaimPayment.class, X12_835_Interchange.Loop2100ClaimPayment.class);
+
+    static {
+        key(X12_837_Interchange.Loop2300ClaimInformation.class,
+                loop -> loop.getClaimInformation() == null ? null : loop.getClaimInformation().getClaimSubmittersIdentifier());
+        key(X12_837_Interchange.ClaimPayment.class,
+                loop -> loop.getClp() == null ? null : loop.getClp().getClaimSubmittersIdentifier());
+        key(X12_837_Loop2400_Classes.Loop2400ServiceLineInformation.class,
+                loop -> loop.getServiceLineNumber() == null ? null : loop.getServiceLineNumber().getAssignedNumber());
+        key(X12_835_Interchange.Loop2000Header.class,
+                loop -> loop.getHeaderNumber() == null ? null : loop.getHeaderNumber().getAssignedNumber());
+        key(X12_835_Interchange.Loop2100ClaimPayment.class,
+                loop -> loop.getClaimPaymentInformation() == null ? null
+                        : loop.getClaimPaymentInformation().getClaimSubmittersIdentifier());
+        key(X12_835_Interchange.Loop2110ServicePayment.class,
+                loop -> loop.getServicePaymentInformation() == null ? null
+                        : loop.getServicePaymentInformation().getCompositeMedicalProcedureIdentifier());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void key(Class<T> type, Function<T, String> key) {
+        KEYS.put(type, (Function<Object, String>) key);
+    }
+
+    /** Model fields with their JSON names, in declaration order. */
+    private static final ClassValue<Property[]> PROPERTIES = new ClassValue<>() {
+        @Override
+        protected Property[] computeValue(Class<?> type) {
+            List<Property> properties = new ArrayList<>();
+            for (Field field : X12_ModelWalker.fields(type)) {
+                if (!field.getType().isPrimitive()) {
+                    JsonProperty json = field.getAnnotation(JsonProperty.class);
+                    properties.add(new Property(field, json == null || json.value().isEmpty() ? field.getName() : json.value()));
+                }
+            }
+            return properties.toArray(new Property[0]);
+        }
+    };
+
+    private static final long NULL_HASH = 0x9e3779b97f4a7c15L;
+    private static final long LIST_SEED = 0x5851f42d4c957f2dL;
+
+    public enum ChangeType {
+        ADDED, REMOVED, CHANGED
+    }
+
+    /**
+     * One difference. An added or removed loop or segment is reported once, at its own path,
+     * without values; a changed element carries both values.
+     */
+    @Data
+    public static class Change {
+        private ChangeType type;
+        private String path;
+        /** The claim the change is in, or null outside claims. */
+        private String claimId;
+        private String oldValue;
+        private String newValue;
+
+        @Override
+        public String toString() {
+            return type + " " + path + (type == ChangeType.CHANGED ? ": " + oldValue + " -> " + newValue : "");
+        }
+    }
+
+    @Data
+    public static class Result {
+        /** Claims found in both models. */
+        private long matchedClaims;
+        /** Matched claims skipped as identical. */
+        private long identicalClaims;
+        private long changedClaims;
+        private long addedClaims;
+        private long removedClaims;
+        private List<Change> changes = new ArrayList<>();
+
+        public boolean isIdentical() {
+            return changes.isEmpty();
+        }
+    }
+
+    private final Result result = new Result();
+
+    private X12_StructuralDiff() {
+    }
+
+    /**
+     * @param original     the first submission
+     * @param resubmission the one to compare with it
+     */
+    public static Result diff(X12_837_Interchange original, X12_837_Interchange resubmission) {
+        return diffModels(original, resubmission);
+    }
+
+    /**
+     * @param original     the first remittance
+     * @param resubmission the one to compare with it
+     */
+    public static Result diff(X12_835_Interchange original, X12_835_Interchange resubmission) {
+        return diffModels(original, resubmission);
+    }
+
+    static Result diffModels(Object original, Object resubmission) {
+        if (original != null && resubmission != null && original.getClass() != resubmission.getClass()) {
+            throw new IllegalArgumentException("Cannot diff " + original.getClass().getSimpleName() + " with "
+                    + resubmission.getClass().getSimpleName());
+        }
+        X12_StructuralDiff diff = new X12_StructuralDiff();
+        diff.compare("", null, original, resubmission);
+        return diff.result;
+    }
+
+    private void compare(String path, String claimId, Object a, Object b) {
+        if (a == null && b == null) {
+            return;
+        }
+        if (a == null || b == null) {
+            Object present = a == null ? b : a;
+            if (present instanceof List && ((List<?>) present).isEmpty()) {
+                return;
+            }
+            boolean scalar = present instanceof String;
+            change(a == null ? ChangeType.ADDED : ChangeType.REMOVED, path, claimId,
+                    scalar && a != null ? (String) a : null, scalar && b != null ? (String) b : null);
+            return;
+        }
+        if (a instanceof String) {
+            if (!a.equals(b)) {
+                change(ChangeType.CHANGED, path, claimId, (String) a, (String) b);
+            }
+        } else if (a instanceof List) {
+            compareLists(path, claimId, (List<?>) a, (List<?>) b);
+        } else if (X12_ModelWalker.isModel(a.getClass())) {
+            for (Property property : PROPERTIES.get(a.getClass())) {
+                compare(path.isEmpty() ? property.name : path + "/" + property.name, claimId, property.get(a), property.get(b));
+            }
+        } else if (!a.equals(b)) {
+            change(ChangeType.CHANGED, path, claimId, String.valueOf(a), String.valueOf(b));
+        }
+    }
+
+    private void compareLists(String path, String claimId, List<?> a, List<?> b) {
+        Function<Object, String> key = keyOf(a.isEmpty() ? b : a);
+        if (key == null) {
+            for (int i = 0; i < Math.max(a.size(), b.size()); i++) {
+                compare(path + "[" + (i + 1) + "]", claimId, i < a.size() ? a.get(i) : null, i < b.size() ? b.get(i) : null);
+            }
+            return;
+        }
+        Map<String, Object> unmatched = keyed(b, key);
+        for (Map.Entry<String, Object> entry : keyed(a, key).entrySet()) {
+            Object other = unmatched.remove(entry.getKey());
+            compareKeyed(path + "[" + entry.getKey() + "]", claimId, entry.getKey(), entry.getValue(), other);
+        }
+        for (Map.Entry<String, Object> entry : unmatched.entrySet()) {
+            compareKeyed(path + "[" + entry.getKey() + "]", claimId, entry.getKey(), null, entry.getValue());
+        }
+    }
+
+    private void compareKeyed(String path, String claimId, String key, Object a, Object b) {
+        Object present = a == null ? b : a;
+        boolean claim = present != null && CLAIMS.contains(present.getClass());
+        if (claim) {
+            claimId = key;
+            if (a == null) {
+                result.addedClaims++;
+            } else if (b == null) {
+                result.removedClaims++;
+            } else {
+                result.matchedClaims++;
+            }
+        }
+        if (a != null && b != null && hash(a) == hash(b)) {
+            if (claim) {
+                result.identicalClaims++;
+            }
+            return;
+        }
+        if (claim && a != null && b != null) {
+            result.changedClaims++;
+        }
+        compare(path, claimId, a, b);
+    }
+
+    /**
+     * @return the elements of a keyed list by identifier, in order; repeats get {@code #2}, {@code #3}...
+     */
+    private static Map<String, Object> keyed(List<?> list, Function<Object, String> key) {
+        Map<String, Object> keyed = new LinkedHashMap<>(list.size() * 4 / 3 + 1);
+        for (Object element : list) {
+            if (element == null) {
+                continue;
+            }
+            String id = String.valueOf(key.apply(element));
+            String unique = id;
+            for (int n = 2; keyed.containsKey(unique); n++) {
+                unique = id + "#" + n;
+            }
+            keyed.put(unique, element);
+        }
+        return keyed;
+    }
+
+    private static Function<Object, String> keyOf(List<?> list) {
+        for (Object element : list) {
+            if (element != null) {
+                return KEYS.get(element.getClass());
+            }
+        }
+        return null;
+    }
+
+    private void change(ChangeType type, String path, String claimId, String oldValue, String newValue) {
+        Change change = new Change();
+        change.setType(type);
+        change.setPath(path);
+        change.setClaimId(claimId);
+        change.setOldValue(oldValue);
+        change.setNewValue(newValue);
+        result.changes.add(change);
+    }
+
+    /**
+     * @return a hash of a subtree; empty lists hash like absent ones, as they serialize alike
+     */
+    static long hash(Object value) {
+        if (value == null) {
+            return NULL_HASH;
+        }
+        if (value instanceof String) {
+            return X12_ContentHash.hash((String) value, 0);
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            if (list.isEmpty()) {
+                return NULL_HASH;
+            }
+            long h = LIST_SEED;
+            for (Object element : list) {
+                h = X12_ContentHash.mix(h ^ hash(element)) + list.size();
+            }
+            return h;
+        }
+        if (X12_ModelWalker.isModel(value.getClass())) {
+            long h = value.getClass().getName().hashCode();
+            for (Property property : PROPERTIES.get(value.getClass())) {
+                h = X12_ContentHash.mix(h ^ hash(property.get(value))) + NULL_HASH;
+            }
+            return h;
+        }
+        return X12_ContentHash.hash(String.valueOf(value), 1);
+    }
+
+    private static final class Property {
+        final Field field;
+        final String name;
+
+        Property(Field field, String name) {
+            this.field = field;
+            this.name = name;
+        }
+
+        Object get(Object object) {
+            try {
+                return field.get(object);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot read " + field, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.example.XML;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for streaming 999/TA1 acknowledgement generation.
+ */
+public class X12_AcknowledgementGeneratorTest {
+
+    private static final String VALID_837 =
+            "ISA*00*          *00*          *ZZ*SENDER123      *ZZ*RECEIVER456    *210901*1200*^*00501*000000001*0*P*:~" +
+                    "GS*HC*SENDER123*RECEIVER456*20210901*1200*1*X*005010X223A2~" +
+                    "ST*837*0001*005010X223A2~" +
+                    "BHT*0019*00*REF123456*20210901*1200*CH~" +
+                    "NM1*41*2*SUBMITTER ORGANIZATION*****46*SUB12345~" +
+                    "NM1*40*2*RECEIVER CORPORATION*****46*REC67890~" +
+                    "SE*5*0001~" +
+                    "GE*1*1~" +
+                    "IEA*1*000000001~";
+
+    private static X12_AcknowledgementGenerator generator(StringWriter out) {
+        X12_AcknowledgementGenerator generator = new X12_AcknowledgementGenerator(out);
+        generator.setClock(Clock.fixed(Instant.parse("2025-08-15T12:34:00Z"), ZoneOffset.UTC));
+        generator.setNextControlNumber(500);
+        return generator;
+    }
+
+    @Test
+    public void testAcceptedInterchangeDuringParse() throws Exception {
+        StringWriter out = new StringWriter();
+        String xml = X12_837_Parser.parseEDI(VALID_837.getBytes(StandardCharsets.UTF_8), X12_ValidationMode.FULL, generator(out));
+        assertNotNull(xml);
+
+        String ack = out.toString();
+        assertTrue(ack, ack.startsWith("ISA*00*          *00*          *ZZ*RECEIVER456    *ZZ*SENDER123      *250815*1234*^*00501*000000500*0*P*:~"));
+        assertTrue(ack, ack.contains("TA1*000000001*210901*1200*A*000~"));
+        assertTrue(ack, ack.contains("GS*FA*RECEIVER456*SENDER123*20250815*1234*500*X*005010X231A1~"));
+        assertTrue(ack, ack.contains("AK1*HC*1*005010X223A2~"));
+        assertTrue(ack, ack.contains("AK2*837*0001*005010X223A2~"));
+        assertTrue(ack, ack.contains("IK5*A~"));
+        assertTrue(ack, ack.contains("AK9*A*1*1*1~"));
+        assertTrue(ack, ack.contains("IEA*1*000000500~"));
+
+        // The acknowledgement must itself be a structurally valid interchange.
+        X12_StructuralValidator.Result validation = X12_StructuralValidator.validate(ack.getBytes(StandardCharsets.UTF_8));
+        assertTrue(validation.getErrors().toString(), validation.isValid());
+    }
+
+    @Test
+    public void testRejectedSegmentCount() throws Exception {
+        byte[] edi = X12_LargeInputs.resource("Test835Data/input835.edi");
+        StringWriter out = new StringWriter();
+        X12_AcknowledgementGenerator generator = generator(out);
+        generator.setGenerateTa1(false);
+
+        X12_StructuralValidator.validate(edi, generator);
+
+        String ack = out.toString();
+        assertFalse(ack, ack.contains("TA1*"));
+        assertTrue(ack, ack.contains("AK1*HP*1*005010X221A1~"));
+        assertTrue(ack, ack.contains("AK2*835*0001~"));
+        assertTrue(ack, ack.contains("IK5*R*4~"));
+        assertTrue(ack, ack.contains("AK9*R*1*1*0~"));
+    }
+
+    @Test
+    public void testUnrecognizedSegmentIsReportedWithPosition() throws Exception {
+        String edi = VALID_837.replace("NM1*40*", "nm1*40*");
+        StringWriter out = new StringWriter();
+        X12_StructuralValidator.validate(edi.getBytes(StandardCharsets.UTF_8), generator(out));
+
+        String ack = out.toString();
+        assertTrue(ack, ack.contains("IK3*nm1*4**1~"));
+        assertTrue(ack, ack.contains("IK5*R*5~"));
+    }
+
+    @Test
+    public void testEachInterchangeIsAcknowledged() throws Exception {
+        String second = VALID_837.replace("000000001", "000000002");
+        String edi = VALID_837 + "\n" + second;
+        StringWriter out = new StringWriter();
+        X12_AcknowledgementGenerator generator = generator(out);
+        generator.setGenerate999(false);
+
+        X12_StructuralValidator.validate(edi.getBytes(StandardCharsets.UTF_8), generator);
+
+        assertEquals(2, generator.getAcknowledgementsWritten());
+        String ack = out.toString();
+        assertTrue(ack, ack.contains("TA1*000000001*210901*1200*A*000~"));
+        assertTrue(ack, ack.contains("TA1*000000002*210901*1200*A*000~"));
+        assertTrue(ack, ack.contains("IEA*0*000000501~"));
+    }
+
+    @Test
+    public void testInterchangeControlMismatchInTa1() throws Exception {
+        String edi = VALID_837.replace("IEA*1*000000001", "IEA*1*000000007");
+        StringWriter out = new StringWriter();
+        X12_StructuralValidator.validate(edi.getBytes(StandardCharsets.UTF_8), generator(out));
+
+        String ack = out.toString();
+        assertTrue(ack, ack.contains("TA1*000000001*210901*1200*R*001~"));
+        assertTrue(ack, ack.contains("IK5*R*5~"));
+    }
+
+    @Test
+    public void testParseFailureIsReportedAtItsSegment() throws Exception {
+        ByteArrayOutputStream generated = new ByteArrayOutputStream();
+        X12_LargeInputs.x837().write(generated, 2, 2);
+        String edi = generated.toString(StandardCharsets.ISO_8859_1);
+        // Break the first service line.
+        int set = edi.indexOf("ST*");
+        int broken = edi.indexOf("SV1*", set);
+        edi = edi.substring(0, broken) + "ZZ1*" + edi.substring(broken + 4);
+        long position = edi.substring(set, broken).chars().filter(c -> c == '~').count() + 1;
+
+        StringWriter out = new StringWriter();
+        try {
+            X12_837_Parser.parseEDI(edi.getBytes(StandardCharsets.ISO_8859_1), X12_ValidationMode.FULL, generator(out));
+            fail("The broken set should not parse");
+        } catch (RuntimeException expected) {
+            // the DFDL parse failed
+        }
+
+        String ack = out.toString();
+        assertTrue(ack, ack.contains("IK3*ZZ1*" + position + "**2~"));
+        assertTrue(ack, ack.contains("IK5*R*5~"));
+        assertTrue(ack, ack.contains("AK9*R*1*1*0~"));
+    }
+
+    @Test
+    public void testParseFailureRejectsOnlyTheFailingSet() throws Exception {
+        ByteArrayOutputStream generated = new ByteArrayOutputStream();
+        X12_LargeInputs.x837().write(generated, 4, 2);
+        String edi = generated.toString(StandardCharsets.ISO_8859_1);
+        // Break the first service line of the second transaction set.
+        int secondSet = edi.indexOf("ST*", edi.indexOf("SE*"));
+        int broken = edi.indexOf("SV1*", secondSet);
+        edi = edi.substring(0, broken) + "ZZ1*" + edi.substring(broken + 4);
+
+        StringWriter out = new StringWriter();
+        X12_AcknowledgementGenerator generator = generator(out);
+        try {
+            X12_837_Parser.parseEDI(edi.getBytes(StandardCharsets.ISO_8859_1), X12_ValidationMode.FULL, generator);
+            fail("The broken set should not parse");
+        } catch (RuntimeException expected) {
+            // the DFDL parse failed
+        }
+        assertTrue("The caller's auto-flush setting is kept", generator.isAutoFlush());
+
+        String ack = out.toString();
+        // Both sets carry the generated input's ST02.
+        String first = ack.substring(ack.indexOf("AK2*837*"), ack.lastIndexOf("AK2*837*"));
+        String second = ack.substring(ack.lastIndexOf("AK2*837*"), ack.indexOf("AK9*"));
+        assertTrue(ack, first.contains("IK5*A~"));
+        // Daffodil reports a failure in one of several sets at the set's ST, so no IK3 names the segment.
+        assertFalse(ack, second.contains("IK3*"));
+        assertTrue(ack, second.contains("IK5*R*5~"));
+        assertTrue(ack, ack.contains("AK9*P*2*2*1~"));
+        assertTrue(ack, ack.contains("TA1*000000001*"));
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.XML;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the asynchronous parser facade and its in-flight byte admission control.
+ */
+public class X12_AsyncParserTest {
+
+    private static final String VALID_837 =
+            "ISA*00*          *00*          *ZZ*SENDER123      *ZZ*RECEIVER456    *210901*1200*^*00501*000000001*0*P*:~" +
+                    "GS*HC*SENDER123*RECEIVER456*20210901*1200*1*X*005010X223A2~" +
+                    "ST*837*0001*005010X223A2~" +
+                    "BHT*0019*00*REF123456*20210901*1200*CH~" +
+                    "NM1*41*2*SUBMITTER ORGANIZATION*****46*SUB12345~" +
+                    "NM1*40*2*RECEIVER CORPORATION*****46*REC67890~" +
+                    "SE*5*0001~" +
+                    "GE*1*1~" +
+                    "IEA*1*000000001~";
+
+    @Test
+    public void testComposedStagesMatchSynchronousApi() throws Exception {
+        byte[] edi = VALID_837.getBytes(StandardCharsets.UTF_8);
+        byte[] edi850 = X12_LargeInputs.resource("inputmessage.edi");
+        try (X12_AsyncParser parser = new X12_AsyncParser(2, 16, 1024 * 1024, X12_AsyncParser.AdmissionPolicy.QUEUE)) {
+            CompletableFuture<String> json837 = parser.read837(edi).thenCompose(parser::toJson);
+            CompletableFuture<String> json850 = parser.read850(edi850).thenCompose(parser::toJson);
+
+            assertEquals(X12_837_Parser.toJson(X12_837_Parser.parseXML(X12_837_Parser.parseEDI(edi))),
+                    json837.get(60, TimeUnit.SECONDS));
+            assertEquals(X12_850_Parser.toJson(X12_850_Parser.parseXML(X12_850_Parser.parseEDI(edi850))),
+                    json850.get(60, TimeUnit.SECONDS));
+            assertEquals(0, parser.getInFlightBytes());
+        }
+    }
+
+    @Test
+    public void testRejectPastInFlightLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (X12_AsyncParser parser = new X12_AsyncParser(2, 16, 100, X12_AsyncParser.AdmissionPolicy.REJECT)) {
+            CompletableFuture<String> running = parser.submit(80, () -> {
+                release.await();
+                return "done";
+            });
+            CompletableFuture<String> rejected = parser.submit(80, () -> "never");
+            try {
+                rejected.get(5, TimeUnit.SECONDS);
+                fail("Expected admission to be rejected");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+            assertEquals("Small work still fits", "small", parser.submit(20, () -> "small").get(5, TimeUnit.SECONDS));
+
+            release.countDown();
+            assertEquals("done", running.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testQueueUntilBytesReleased() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (X12_AsyncParser parser = new X12_AsyncParser(2, 16, 100, X12_AsyncParser.AdmissionPolicy.QUEUE)) {
+            CompletableFuture<String> running = parser.submit(80, () -> {
+                release.await();
+                return "first";
+            });
+            CompletableFuture<String> queued = parser.submit(80, () -> "second");
+            assertEquals(1, parser.getQueuedCount());
+            assertEquals(80, parser.getInFlightBytes());
+            assertFalse(queued.isDone());
+
+            release.countDown();
+            assertEquals("first", running.get(5, TimeUnit.SECONDS));
+            assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+            assertEquals(0, parser.getQueuedCount());
+        }
+    }
+
+    @Test
+    public void testOversizeInputAdmittedWhenIdle() throws Exception {
+        try (X12_AsyncParser parser = new X12_AsyncParser(1, 4, 10, X12_AsyncParser.AdmissionPolicy.REJECT)) {
+            String xml = parser.parse837(VALID_837.getBytes(StandardCharsets.UTF_8)).get(60, TimeUnit.SECONDS);
+            assertTrue(xml.contains("SUB12345"));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.XML;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for batch parsing with failures isolated per transaction set and claim.
+ */
+public class X12_BatchParserTest {
+
+    private final List<X12_BatchParser.TransactionSet> accepted = new ArrayList<>();
+    private final List<String> xml = new ArrayList<>();
+    private final ByteArrayOutputStream quarantine = new ByteArrayOutputStream();
+
+    private X12_BatchParser.Result parse(String edi) throws Exception {
+        X12_BatchParser parser = new X12_BatchParser();
+        parser.setQuarantine(quarantine);
+        return parser.parse(new ByteArrayInputStream(edi.getBytes(StandardCharsets.ISO_8859_1)), (set, document) -> {
+            accepted.add(set);
+            xml.add(document);
+        });
+    }
+
+    @Test
+    public void testCleanBatch() throws Exception {
+        String edi835 = X12_LargeInputs.resourceText("Test835Data/input835_4.edi");
+        String edi850 = X12_LargeInputs.resourceText("inputmessage.edi");
+        X12_BatchParser.Result result = parse(edi835 + edi850);
+
+        assertTrue(result.isClean());
+        assertEquals(2, result.getTransactionSets());
+        assertEquals(2, result.getAcceptedSets());
+        assertEquals(0, quarantine.size());
+        assertEquals(X12_ParseCache.TransactionType.X835, accepted.get(0).getType());
+        assertEquals(X12_ParseCache.TransactionType.X850, accepted.get(1).getType());
+        assertTrue(accepted.get(0).isComplete());
+        assertEquals("1740", accepted.get(0).getTransactionSetControlNumber());
+        assertEquals("006000600", accepted.get(0).getInterchangeControlNumber());
+        assertEquals(edi835.indexOf("ST*835"), accepted.get(0).getOffset());
+        assertEquals(edi835.length() + edi850.indexOf("ST*850"), accepted.get(1).getOffset());
+
+        assertEquals(X12_835_Parser.parseXML(X12_835_Parser.parseEDI(edi835)), X12_835_Parser.parseXML(xml.get(0)));
+        assertEquals(X12_850_Parser.parseXML(X12_850_Parser.parseEDI(edi850)), X12_850_Parser.parseXML(xml.get(1)));
+    }
+
+    @Test
+    public void testRejectsOnlyTheBadClaim() throws Exception {
+        String good = X12_LargeInputs.resourceText("Test835Data/input835_4.edi");
+        String badClaim = "CLP*PATIENT ACCOUNT NUMBER*1*9.46*0";
+        String bad = good.replace(badClaim, "CLP*PATIENT ACCOUNT NUMBER*1*ABC*0");
+        X12_BatchParser.Result result = parse(good + bad + good);
+
+        assertEquals(3, result.getTransactionSets());
+        assertEquals(2, result.getAcceptedSets());
+        assertEquals(1, result.getPartiallyAcceptedSets());
+        assertEquals(1, result.getRejectedClaims());
+        assertEquals(1, result.getRejections().size());
+
+        X12_BatchParser.Rejection rejection = result.getRejections().get(0);
+        int claimOffset = good.length() + good.indexOf(badClaim);
+        int nextClaim = good.length() + good.indexOf("CLP*", good.indexOf(badClaim) + 1);
+        assertEquals("PATIENT ACCOUNT NUMBER", rejection.getClaimId());
+        assertEquals("1740", rejection.getTransactionSetControlNumber());
+        assertEquals(claimOffset, rejection.getOffset());
+        assertTrue(rejection.getOffset() + rejection.getLength() <= nextClaim);
+        assertTrue(rejection.getMessage(), rejection.getMessage().contains("ABC"));
+
+        // The other two claims of the bad set were accepted, in parts listing their claims.
+        List<String> claims = new ArrayList<>();
+        for (X12_BatchParser.TransactionSet set : accepted) {
+            if (!set.isComplete()) {
+                claims.addAll(set.getClaimIds());
+            }
+        }
+        assertEquals(List.of("PAT ACCT NUM", "PATIENT ACCOUNT NUMBER"), claims);
+        assertEquals(4, xml.size());
+
+        // The quarantined claim is a standalone interchange with the set's header and footer.
+        String quarantined = quarantine.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(quarantined.contains("CLP*PATIENT ACCOUNT NUMBER*1*ABC*0"));
+        assertFalse(quarantined.contains("PAT ACCT NUM"));
+        assertTrue(quarantined.contains("BPR*I*219.65"));
+        assertTrue(quarantined.contains("PLB*9999999995"));
+        assertTrue(quarantined.contains("IEA*1*006000600"));
+        assertTrue(X12_StructuralValidator.validate(quarantine.toByteArray(), null).isValid());
+    }
+
+    @Test
+    public void testRejectsSetsBrokenOutsideClaims() throws Exception {
+        String good = X12_LargeInputs.resourceText("Test835Data/input835_4.edi");
+        String badHeader = good.replace("TRN*1*10100000000*1000000000", "TRX*1*10100000000*1000000000");
+        String unterminated = good.replaceFirst("SE\\*\\d+\\*1740~\\s*", "");
+        X12_BatchParser.Result result = parse(badHeader + good + unterminated);
+
+        assertEquals(3, result.getTransactionSets());
+        assertEquals(1, result.getAcceptedSets());
+        assertEquals(2, result.getRejectedSets());
+        assertEquals(0, result.getRejectedClaims());
+
+        X12_BatchParser.Rejection header = result.getRejections().get(0);
+        assertNull(header.getClaimId());
+        assertEquals(badHeader.indexOf("ST*835"), header.getOffset());
+        assertEquals(badHeader.indexOf("SE*42") + "SE*42*1740~".length(), header.getOffset() + header.getLength());
+        assertEquals(badHeader.indexOf("TRX*1"), header.getErrorOffset());
+        assertEquals("TRX", header.getErrorSegmentId());
+
+        X12_BatchParser.Rejection open = result.getRejections().get(1);
+        assertTrue(open.getMessage(), open.getMessage().contains("not terminated"));
+        assertEquals(badHeader.length() + good.length() + unterminated.indexOf("ST*835"), open.getOffset());
+        assertEquals(-1, open.getErrorOffset());
+        assertTrue(quarantine.toString(StandardCharsets.ISO_8859_1).contains("TRX*1"));
+    }
+
+    @Test
+    public void testIsolatesClaimsOf837() throws Exception {
+        String edi = X12_LargeInputs.x837().generate(6);
+        // A segment the 2300 loop does not allow, in the fifth claim.
+        int fifth = edi.indexOf("CLM*PATIENT00004");
+        int next = edi.indexOf('~', fifth) + 1;
+        edi = edi.substring(0, next) + "ZZZ*1~" + edi.substring(next);
+        X12_BatchParser.Result result = parse(edi);
+
+        assertEquals(1, result.getPartiallyAcceptedSets());
+        assertEquals(1, result.getRejectedClaims());
+        X12_BatchParser.Rejection rejection = result.getRejections().get(0);
+        assertEquals("PATIENT00004", rejection.getClaimId());
+        assertEquals(fifth, rejection.getOffset());
+
+        List<String> claims = new ArrayList<>();
+        for (X12_BatchParser.TransactionSet set : accepted) {
+            claims.addAll(set.getClaimIds());
+        }
+        assertEquals(List.of("PATIENT00000", "PATIENT00001", "PATIENT00002", "PATIENT00003", "PATIENT00005"), claims);
+        List<String> parsed = new ArrayList<>();
+        for (String document : xml) {
+            Matcher matcher = Pattern.compile(">(PATIENT\\d{5})<").matcher(document);
+            while (matcher.find()) {
+                parsed.add(matcher.group(1));
+            }
+        }
+        assertEquals(claims, parsed);
+    }
+}
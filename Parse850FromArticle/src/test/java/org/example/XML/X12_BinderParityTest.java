@@ -0,0 +1,128 @@
+package org.example.XML;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the generated binders read and write exactly what Jackson's reflective
+ * mappers, configured as in the parsers, do.
+ */
+public class X12_BinderParityTest {
+
+    private static final JsonMapper jsonMapper = new JsonMapper();
+
+    private static final YAMLMapper yamlMapper = new YAMLMapper();
+
+    private static final XmlMapper xmlMapper = XmlMapper.builder()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .build();
+
+    private static final XmlMapper nonEmptyXmlMapper = XmlMapper.builder()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .serializationInclusion(JsonInclude.Include.NON_EMPTY)
+            .build();
+
+    @Test
+    public void testBindersAreGenerated() {
+        assertTrue(X12_Binders.isAvailable(X12_837_Interchange.class));
+        assertTrue(X12_Binders.isAvailable(X12_835_Interchange.class));
+        assertTrue(X12_Binders.isAvailable(X12_850_Interchange.class));
+        assertFalse(X12_Binders.isAvailable(String.class));
+    }
+
+    @Test
+    public void test837Parity() throws Exception {
+        String xml = X12_837_Parser.parseEDI(Files.readAllBytes(Paths.get("sample_837_professional.edi")));
+        X12_837_Interchange expected = xmlMapper.readValue(xml, X12_837_Interchange.class);
+
+        assertEquals(expected, X12_Binders.fromXml(xml, X12_837_Interchange.class));
+        assertEquals(nonEmptyXmlMapper.writeValueAsString(expected), X12_Binders.toXml(expected, X12_837_Interchange.class, true));
+
+        String json = jsonMapper.writeValueAsString(expected);
+        assertEquals(json, X12_Binders.toJson(expected, X12_837_Interchange.class));
+        assertEquals(expected, X12_Binders.fromJson(json, X12_837_Interchange.class));
+    }
+
+    @Test
+    public void test835Parity() throws Exception {
+        for (String name : new String[]{"Test835Data/input835.edi", "Test835Data/input835_4.edi", "Test835Data/input835_6.edi"}) {
+            String xml = X12_835_Parser.parseEDI(X12_LargeInputs.resource(name));
+            X12_835_Interchange expected = xmlMapper.readValue(xml, X12_835_Interchange.class);
+
+            assertEquals(name, expected, X12_Binders.fromXml(xml, X12_835_Interchange.class));
+            String modelXml = xmlMapper.writeValueAsString(expected);
+            assertEquals(name, modelXml, X12_Binders.toXml(expected, X12_835_Interchange.class, false));
+            assertEquals(name, xmlMapper.readValue(modelXml, X12_835_Interchange.class),
+                    X12_Binders.fromXml(modelXml, X12_835_Interchange.class));
+
+            String json = jsonMapper.writeValueAsString(expected);
+            assertEquals(name, json, X12_Binders.toJson(expected, X12_835_Interchange.class));
+            assertEquals(name, expected, X12_Binders.fromJson(json, X12_835_Interchange.class));
+        }
+    }
+
+    @Test
+    public void test850Parity() throws Exception {
+        String xml = X12_850_Parser.parseEDI(X12_LargeInputs.resource("inputmessage.edi"));
+        X12_850_Interchange expected = xmlMapper.readValue(xml, X12_850_Interchange.class);
+
+        assertEquals(expected, X12_Binders.fromXml(xml, X12_850_Interchange.class));
+        assertEquals(xmlMapper.writeValueAsString(expected), X12_Binders.toXml(expected, X12_850_Interchange.class, false));
+
+        String json = jsonMapper.writeValueAsString(expected);
+        assertEquals(json, X12_Binders.toJson(expected, X12_850_Interchange.class));
+        assertEquals(expected, X12_Binders.fromJson(json, X12_850_Interchange.class));
+    }
+
+    @Test
+    public void testParsersUseBinders() throws Exception {
+        X12_850_Interchange interchange = X12_850_Parser.parseXML(X12_850_Parser.parseEDI(X12_LargeInputs.resource("inputmessage.edi")));
+        assertEquals(jsonMapper.writeValueAsString(interchange), X12_850_Parser.toJson(interchange));
+        assertEquals(xmlMapper.writeValueAsString(interchange), X12_850_Parser.toXml(interchange));
+    }
+
+    @Test
+    public void testStreamPathsUseBinders() throws Exception {
+        String xml = X12_835_Parser.parseEDI(X12_LargeInputs.resource("Test835Data/input835.edi"));
+        X12_835_Interchange interchange = X12_835_Parser.parseXML(xml);
+        assertEquals(interchange, X12_835_Parser.parseXML(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        X12_835_Parser.writeXml(interchange, out);
+        assertEquals(xmlMapper.writeValueAsString(interchange), out.toString(StandardCharsets.UTF_8));
+        StringWriter json = new StringWriter();
+        X12_835_Parser.writeJson(interchange, json);
+        assertEquals(jsonMapper.writeValueAsString(interchange), json.toString());
+        out.reset();
+        X12_835_Parser.writeYaml(interchange, out);
+        assertEquals(yamlMapper.writeValueAsString(interchange), out.toString(StandardCharsets.UTF_8));
+        assertEquals(yamlMapper.writeValueAsString(interchange), X12_835_Parser.toYaml(interchange));
+
+        X12_837_Interchange claims = X12_837_Parser.parseXML(
+                X12_837_Parser.parseEDI(Files.readAllBytes(Paths.get("sample_837_professional.edi"))));
+        out.reset();
+        X12_837_Parser.writeXml(claims, out);
+        assertEquals(nonEmptyXmlMapper.writeValueAsString(claims), out.toString(StandardCharsets.UTF_8));
+        out.reset();
+        X12_837_Parser.writeYaml(claims, out);
+        assertEquals(yamlMapper.writeValueAsString(claims), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = com.fasterxml.jackson.core.JsonParseException.class)
+    public void testUnknownJsonPropertyFails() throws Exception {
+        X12_Binders.fromJson("{\"no-such-property\":\"x\"}", X12_850_Interchange.class);
+    }
+}
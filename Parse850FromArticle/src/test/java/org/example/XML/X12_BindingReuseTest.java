@@ -0,0 +1,93 @@
+package org.example.XML;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class X12_BindingReuseTest {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @FunctionalInterface
+    private interface Message {
+        void run() throws Exception;
+    }
+
+    /**
+     * @return bytes allocated by this thread per run, after a warm-up
+     */
+    private static long allocatedPerMessage(int runs, Message message) throws Exception {
+        for (int i = 0; i < Math.max(runs / 4, 5); i++) {
+            message.run();
+        }
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < runs; i++) {
+            message.run();
+        }
+        return (THREADS.getCurrentThreadAllocatedBytes() - before) / runs;
+    }
+
+    private static byte[] bytes(String edi) {
+        return edi.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void testRefillsTheSameModel() throws Exception {
+        X12_BindingReuse<X12_837_Interchange> reuse = X12_837_Parser.bindingReuse();
+        byte[] three = bytes(X12_LargeInputs.x837().generate(3));
+        byte[] one = bytes(X12_LargeInputs.x837().generate(1));
+
+        X12_837_Interchange first = reuse.parse(three, 0, three.length);
+        X12_837_Interchange.Loop2300ClaimInformation claim = first.getLoop2300ClaimInformation().get(0);
+        assertEquals(3, first.getLoop2300ClaimInformation().size());
+
+        X12_837_Interchange second = reuse.parse(new ByteArrayInputStream(one));
+        assertSame(first, second);
+        assertSame(claim, second.getLoop2300ClaimInformation().get(0));
+        assertEquals(1, second.getLoop2300ClaimInformation().size());
+        assertEquals(X12_837_Parser.toXml(X12_837_Parser.parseXML(X12_837_Parser.parseEDI(one))),
+                reuse.toXml(second).toString());
+    }
+
+    @Test
+    public void testClearsFieldsTheNextMessageLacks() throws Exception {
+        X12_BindingReuse<X12_837_Interchange> reuse = X12_837_Parser.bindingReuse();
+        String full = X12_837_Parser.parseEDI(X12_LargeInputs.x837().generate(1));
+        String noPayer = full.replaceAll("(?s)<Loop_2010BB_PayerName>.*?</Loop_2010BB_PayerName>", "");
+        assertNotEquals(full, noPayer);
+
+        char[] chars = full.toCharArray();
+        assertNotNull(reuse.bind(chars, 0, chars.length).getLoop2000BSubscriberDetail().get(0).getLoop2010BBPayerName());
+        chars = noPayer.toCharArray();
+        X12_837_Interchange refilled = reuse.bind(chars, 0, chars.length);
+        assertNull(refilled.getLoop2000BSubscriberDetail().get(0).getLoop2010BBPayerName());
+
+        assertEquals(X12_837_Parser.toXml(X12_837_Parser.parseXML(noPayer)), reuse.toXml(refilled).toString());
+        assertEquals(X12_837_Parser.toJson(X12_837_Parser.parseXML(noPayer)), reuse.toJson(refilled).toString());
+    }
+
+    @Test
+    public void testBindingAllocationPerMessage() throws Exception {
+        X12_BindingReuse<X12_837_Interchange> reuse = X12_837_Parser.bindingReuse();
+        char[] xml = X12_837_Parser.parseEDI(X12_LargeInputs.x837().generate(1)).toCharArray();
+
+        long bindRegular = allocatedPerMessage(2000, () -> X12_837_Parser.parseXML(new String(xml)));
+        long bindReuse = allocatedPerMessage(2000, () -> reuse.bind(xml, 0, xml.length));
+        X12_837_Interchange model = reuse.bind(xml, 0, xml.length);
+        long jsonRegular = allocatedPerMessage(2000, () -> X12_837_Parser.toJson(model));
+        long jsonReuse = allocatedPerMessage(2000, () -> reuse.toJson(model));
+        System.out.printf("837 single-claim garbage: bind %d -> %d bytes/message, json %d -> %d%n",
+                bindRegular, bindReuse, jsonRegular, jsonReuse);
+
+        // The model graph, lists and buffers are reused; what remains is the XML tokenizer's
+        // per-message state and element Strings. The EDI to XML step is not measured: it is
+        // a fresh Smooks execution either way.
+        assertTrue(bindRegular + " -> " + bindReuse, bindReuse * 3 < bindRegular * 2);
+        assertTrue(jsonRegular + " -> " + jsonReuse, jsonReuse * 3 < jsonRegular);
+    }
+}
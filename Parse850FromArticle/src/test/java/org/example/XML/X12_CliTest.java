@@ -0,0 +1,153 @@
+package org.example.XML;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the x12 command-line converter.
+ */
+public class X12_CliTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String... args) {
+        return X12_Cli.run(args, new PrintStream(out, true), new PrintStream(err, true));
+    }
+
+    @Test
+    public void testParseToStandardOutput() throws Exception {
+        Path edi = X12_LargeInputs.resourcePath("inputmessage.edi");
+        assertEquals(X12_Cli.EXIT_OK, run("parse", edi.toString()));
+        assertEquals(X12_850_Parser.parseEDI(Files.readAllBytes(edi)), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testConvertDetectsTypeAndCompressesOutput() throws Exception {
+        Path edi = X12_LargeInputs.resourcePath("Test835Data/input835_4.edi");
+        Path json = folder.getRoot().toPath().resolve("out.json.gz");
+        assertEquals(X12_Cli.EXIT_OK, run("convert", "-f", "json", "-o", json.toString(), edi.toString()));
+
+        X12_835_Interchange interchange = X12_835_Parser.parseXML(X12_835_Parser.parseEDI(Files.readAllBytes(edi)));
+        try (InputStream in = X12_Compression.open(json)) {
+            assertEquals(X12_835_Parser.toJson(interchange), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        // XML input needs an explicit type.
+        Path xml = folder.newFile("in.xml").toPath();
+        String modelXml = X12_835_Parser.toXml(interchange);
+        Files.writeString(xml, modelXml);
+        assertEquals(X12_Cli.EXIT_USAGE, run("convert", xml.toString()));
+        out.reset();
+        assertEquals(X12_Cli.EXIT_OK, run("convert", "-t", "835", "-f", "yaml", xml.toString()));
+        assertEquals(X12_835_Parser.toYaml(X12_835_Parser.parseXML(modelXml)), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testValidateExitStatus() throws Exception {
+        assertEquals(X12_Cli.EXIT_OK, run("validate", "-m", "structural", X12_LargeInputs.resourcePath("Test835Data/input835_4.edi").toString()));
+
+        Path broken = folder.newFile("broken.edi").toPath();
+        String edi = X12_LargeInputs.resourceText("inputmessage.edi").replaceFirst("SE\\*\\d+", "SE*99");
+        Files.writeString(broken, edi);
+        Path ack = folder.getRoot().toPath().resolve("ack.999");
+        assertEquals(X12_Cli.EXIT_FAILED, run("validate", "--ack", ack.toString(), broken.toString()));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("INVALID"));
+        assertTrue(Files.readString(ack).contains("ST*999"));
+    }
+
+    @Test
+    public void testQueryPrintsOneLinePerMatch() throws Exception {
+        Path edi = X12_LargeInputs.resourcePath("Test835Data/input835_4.edi");
+        assertEquals(X12_Cli.EXIT_OK, run("query", "-q", "Loop_2100[CLP/CLP04 > 0]/CLP/CLP01", edi.toString()));
+        assertEquals(edi + "\tLoop_2000_Header[1]/Loop_2100_ClaimPayment[3]\tclaim-payment-information"
+                + "\tclaim-submitters-identifier=PATIENT ACCOUNT NUMBER" + System.lineSeparator(), out.toString(StandardCharsets.UTF_8));
+
+        assertEquals(X12_Cli.EXIT_USAGE, run("query", edi.toString()));
+        assertEquals(X12_Cli.EXIT_USAGE, run("query", "-q", "Loop_2100[", edi.toString()));
+    }
+
+    @Test
+    public void testBatchQuarantinesRejectedSets() throws Exception {
+        String good = X12_LargeInputs.resourceText("Test835Data/input835_4.edi");
+        Path edi = folder.newFile("batch.edi").toPath();
+        Files.writeString(edi, good + good.replace("BPR*I", "BPX*I"));
+        Path xml = folder.getRoot().toPath().resolve("xml");
+        Path quarantine = folder.getRoot().toPath().resolve("rejected.edi");
+        assertEquals(X12_Cli.EXIT_FAILED, run("batch", "-o", xml.toString(), "--quarantine", quarantine.toString(), edi.toString()));
+
+        assertTrue(Files.exists(xml.resolve("batch.edi.00001.xml")));
+        assertFalse(Files.exists(xml.resolve("batch.edi.00002.xml")));
+        assertTrue(Files.readString(quarantine).contains("BPX*I"));
+        String[] line = out.toString(StandardCharsets.UTF_8).trim().split("\t");
+        assertEquals(edi.toString(), line[0]);
+        assertEquals(String.valueOf(good.length() + good.indexOf("ST*835")), line[1]);
+        assertEquals("1740", line[3]);
+    }
+
+    @Test
+    public void testDiffPrintsChanges() throws Exception {
+        String edi = X12_LargeInputs.resourceText("Test835Data/input835_4.edi");
+        Path resubmission = folder.newFile("resubmission.edi").toPath();
+        Files.writeString(resubmission, edi.replace("CLP*PAT ACCT NUM*1*4*0", "CLP*PAT ACCT NUM*1*4*4"));
+        Path original = X12_LargeInputs.resourcePath("Test835Data/input835_4.edi");
+
+        assertEquals(X12_Cli.EXIT_OK, run("diff", original.toString(), original.toString()));
+        assertEquals("", out.toString(StandardCharsets.UTF_8));
+        assertEquals(X12_Cli.EXIT_FAILED, run("diff", original.toString(), resubmission.toString()));
+        assertEquals("CHANGED\tHealthCareClaimPayment/Loop_2000_Header[1]/Loop_2100_ClaimPayment[PAT ACCT NUM]"
+                + "/claim-payment-information/claim-payment-amount\t0\t4" + System.lineSeparator(), out.toString(StandardCharsets.UTF_8));
+        assertEquals(X12_Cli.EXIT_USAGE, run("diff", original.toString()));
+    }
+
+    @Test
+    public void testClaimStatusTransactions() throws Exception {
+        Path inquiry = folder.getRoot().toPath().resolve("inquiry.edi");
+        Path response = folder.getRoot().toPath().resolve("response.edi");
+        try (InputStream in276 = X12_CliTest.class.getClassLoader().getResourceAsStream("input276.edi");
+             InputStream in277 = X12_CliTest.class.getClassLoader().getResourceAsStream("input277.edi")) {
+            Files.copy(in276, inquiry);
+            Files.copy(in277, response);
+        }
+
+        assertEquals(X12_Cli.EXIT_OK, run("parse", inquiry.toString()));
+        assertEquals(X12_276_Parser.parseEDI(Files.readAllBytes(inquiry)), out.toString(StandardCharsets.UTF_8));
+
+        out.reset();
+        assertEquals(X12_Cli.EXIT_OK, run("convert", "-f", "json", response.toString()));
+        assertEquals(X12_277_Parser.toJson(X12_277_Parser.parseXML(X12_277_Parser.parseEDI(Files.readAllBytes(response)))),
+                out.toString(StandardCharsets.UTF_8));
+        assertEquals(X12_Cli.EXIT_USAGE, run("convert", "-f", "edi", response.toString()));
+    }
+
+    @Test
+    public void testUsageErrors() throws Exception {
+        assertEquals(X12_Cli.EXIT_USAGE, run());
+        assertEquals(X12_Cli.EXIT_USAGE, run("frobnicate", "x.edi"));
+        assertEquals(X12_Cli.EXIT_USAGE, run("convert", "-f", "csv", X12_LargeInputs.resourcePath("inputmessage.edi").toString()));
+        assertEquals(X12_Cli.EXIT_USAGE, run("train", X12_LargeInputs.resourcePath("inputmessage.edi").toString()));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("usage: x12"));
+    }
+
+    @Test
+    public void testSniffTransactionType() throws Exception {
+        assertEquals(X12_ParseCache.TransactionType.X850, X12_CliSupport.sniff(X12_LargeInputs.resource("inputmessage.edi")));
+        assertEquals(X12_ParseCache.TransactionType.X835, X12_CliSupport.sniff(X12_LargeInputs.resource("Test835Data/input835.edi")));
+        assertEquals(X12_ParseCache.TransactionType.X276, X12_CliSupport.sniff(
+                X12_CliTest.class.getClassLoader().getResourceAsStream("input276.edi").readAllBytes()));
+        assertTrue(X12_CliSupport.isXml("  <x/>".getBytes(StandardCharsets.UTF_8)));
+    }
+}
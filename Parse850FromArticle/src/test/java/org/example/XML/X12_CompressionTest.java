@@ -0,0 +1,111 @@
+package org.example.XML;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for transparent compressed input and output.
+ */
+public class X12_CompressionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path compressedCopy(Path source, X12_Compression.Codec codec) throws IOException {
+        // Deliberately no extension: input compression is detected from content.
+        Path target = folder.newFile().toPath();
+        try (OutputStream out = X12_Compression.create(target, codec)) {
+            Files.copy(source, out);
+        }
+        return target;
+    }
+
+    @Test
+    public void testRoundTripEveryCodec() throws Exception {
+        byte[] data = new byte[1_000_000];
+        new Random(42).nextBytes(data);
+        Path plain = folder.newFile("data.bin").toPath();
+        Files.write(plain, data);
+
+        for (X12_Compression.Codec codec : X12_Compression.Codec.values()) {
+            Path compressed = compressedCopy(plain, codec);
+            byte[] header = new byte[4];
+            try (InputStream raw = Files.newInputStream(compressed)) {
+                assertEquals(codec, X12_Compression.detect(header, raw.read(header)));
+            }
+            try (InputStream in = X12_Compression.open(compressed)) {
+                assertArrayEquals(codec.name(), data, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void testCorruptInputFailsInsteadOfHanging() throws Exception {
+        StringBuilder edi = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            edi.append("CLM*PATIENT").append(i).append("*100***11:B:1*Y*A*Y*Y~\n");
+        }
+        byte[] data = edi.toString().getBytes();
+        for (X12_Compression.Codec codec : new X12_Compression.Codec[]{X12_Compression.Codec.GZIP, X12_Compression.Codec.ZSTD}) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream out = X12_Compression.compress(compressed, codec)) {
+                out.write(data);
+            }
+            byte[] bytes = compressed.toByteArray();
+            // A damaged block header, a damaged block in the middle, and a damaged trailer.
+            for (int offset : new int[]{20, bytes.length / 2, bytes.length - 6}) {
+                byte[] corrupt = bytes.clone();
+                for (int i = offset; i < Math.min(offset + 16, corrupt.length); i++) {
+                    corrupt[i] ^= 0x5A;
+                }
+                try (InputStream in = X12_Compression.decompress(new ByteArrayInputStream(corrupt))) {
+                    in.readAllBytes();
+                    fail(codec + " input corrupted at " + offset + " was read without an error");
+                } catch (IOException e) {
+                    assertEquals("Decompression failed", e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParseCompressedEdiFiles() throws Exception {
+        Path edi = X12_LargeInputs.resourcePath("inputmessage.edi");
+        String expected = X12_850_Parser.parseEDI(Files.readAllBytes(edi));
+
+        assertEquals(expected, X12_850_Parser.parseEDI(compressedCopy(edi, X12_Compression.Codec.GZIP)));
+
+        Path xml = folder.getRoot().toPath().resolve("out.xml.zst");
+        X12_850_Parser.parseEDI(compressedCopy(edi, X12_Compression.Codec.ZSTD), xml);
+        try (InputStream in = X12_Compression.open(xml)) {
+            assertEquals(expected, new String(in.readAllBytes()));
+        }
+    }
+
+    @Test
+    public void testWriteCompressedJson() throws Exception {
+        X12_850_Interchange interchange = X12_850_Parser.parseXML(X12_850_Parser.parseEDI(X12_LargeInputs.resource("inputmessage.edi")));
+        Path json = folder.getRoot().toPath().resolve("out.json.gz");
+        X12_850_Parser.writeJson(interchange, json);
+
+        byte[] header = new byte[2];
+        try (InputStream raw = Files.newInputStream(json)) {
+            assertEquals(X12_Compression.Codec.GZIP, X12_Compression.detect(header, raw.read(header)));
+        }
+        try (InputStream in = X12_Compression.open(json)) {
+            assertEquals(X12_850_Parser.toJson(interchange), new String(in.readAllBytes()));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.XML;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class X12_ConversionEventsTest {
+
+    private static long count(String edi, String segmentId) {
+        return edi.lines().flatMap(line -> List.of(line.split("~")).stream())
+                .filter(segment -> segment.trim().startsWith(segmentId + "*")).count();
+    }
+
+    private static List<RecordedEvent> events(Recording recording, String name) throws Exception {
+        Path file = Files.createTempFile("x12-events", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(name))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testSegmentCounter() {
+        String edi = "ISA*00*          *00*          *ZZ*SENDER         *ZZ*RECEIVER       *240101*1200*^*00501*000000001*0*P*:~\n"
+                + "GS*HC*S*R*20240101*1200*1*X*005010X222A1~\nST*837*0001~\nCLM*A*10~\nCLMX*B~\nCLM*C*20~\nSE*5*0001~\n";
+        X12_ConversionEvents.SegmentCounter counter = new X12_ConversionEvents.SegmentCounter("837");
+        byte[] bytes = edi.getBytes(StandardCharsets.US_ASCII);
+        // Feed in uneven pieces to cover state carried across reads.
+        counter.update(bytes, 0, 50);
+        counter.update(bytes, 50, 60);
+        counter.update(bytes, 110, bytes.length - 110);
+
+        assertEquals(bytes.length, counter.bytes);
+        assertEquals(7, counter.segments);
+        assertEquals(2, counter.claims);
+
+        X12_ConversionEvents.SegmentCounter notEdi = new X12_ConversionEvents.SegmentCounter("837");
+        notEdi.update("<xml/>".getBytes(StandardCharsets.US_ASCII), 0, 6);
+        assertEquals(6, notEdi.bytes);
+        assertEquals(0, notEdi.segments);
+    }
+
+    @Test
+    public void testStagesAreRecorded() throws Exception {
+        byte[] edi = X12_LargeInputs.resource("Test835Data/input835.edi");
+        String text = new String(edi, StandardCharsets.ISO_8859_1);
+
+        try (Recording recording = new Recording()) {
+            recording.enable("org.example.x12.EdiToXml");
+            recording.enable("org.example.x12.XmlToModel");
+            recording.enable("org.example.x12.ModelToText");
+            recording.start();
+
+            X12_835_Interchange interchange = X12_835_Parser.parseXML(X12_835_Parser.parseEDI(edi));
+            X12_835_Parser.toJson(interchange);
+            X12_835_Parser.writeYaml(interchange, new ByteArrayOutputStream());
+            X12_835_Parser.parseEDI(new ByteArrayInputStream(edi), new ByteArrayOutputStream());
+            recording.stop();
+
+            List<RecordedEvent> ediToXml = events(recording, "org.example.x12.EdiToXml");
+            assertEquals(2, ediToXml.size());
+            for (RecordedEvent event : ediToXml) {
+                assertEquals("835", event.getString("transactionType"));
+                assertEquals(edi.length, event.getLong("inputBytes"));
+                assertEquals(count(text, "CLP"), event.getLong("claimCount"));
+                assertTrue(event.getLong("segmentCount") > count(text, "CLP"));
+                assertFalse(event.getDuration().isNegative());
+            }
+            assertEquals(ediToXml.get(0).getLong("segmentCount"), ediToXml.get(1).getLong("segmentCount"));
+
+            List<RecordedEvent> xmlToModel = events(recording, "org.example.x12.XmlToModel");
+            assertEquals(1, xmlToModel.size());
+            assertEquals(count(text, "CLP"), xmlToModel.get(0).getLong("claimCount"));
+
+            List<String> formats = events(recording, "org.example.x12.ModelToText").stream()
+                    .map(event -> event.getString("format")).sorted().collect(Collectors.toList());
+            assertEquals(List.of("json", "yaml"), formats);
+        }
+    }
+
+    @Test
+    public void testStreamStagesCountTheirBytes() throws Exception {
+        byte[] edi = X12_LargeInputs.resource("Test835Data/input835.edi");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("org.example.x12.EdiToXml");
+            recording.enable("org.example.x12.XmlToModel");
+            recording.enable("org.example.x12.ModelToText");
+            recording.enable("org.example.x12.XmlToEdi");
+            recording.start();
+
+            ByteArrayOutputStream xml = new ByteArrayOutputStream();
+            X12_835_Parser.parseEDI(new ByteArrayInputStream(edi), xml);
+            X12_835_Interchange interchange = X12_835_Parser.parseXML(new ByteArrayInputStream(xml.toByteArray()));
+            ByteArrayOutputStream yaml = new ByteArrayOutputStream();
+            X12_835_Parser.writeYaml(interchange, yaml);
+            ByteArrayOutputStream ediOut = new ByteArrayOutputStream();
+            X12_835_Parser.xmlToEDI(new ByteArrayInputStream(xml.toByteArray()), ediOut);
+            recording.stop();
+
+            RecordedEvent ediToXml = events(recording, "org.example.x12.EdiToXml").get(0);
+            assertEquals(edi.length, ediToXml.getLong("inputBytes"));
+            assertEquals(xml.size(), ediToXml.getLong("outputBytes"));
+            assertEquals(xml.size(), events(recording, "org.example.x12.XmlToModel").get(0).getLong("inputBytes"));
+            assertEquals(yaml.size(), events(recording, "org.example.x12.ModelToText").get(0).getLong("outputBytes"));
+            RecordedEvent xmlToEdi = events(recording, "org.example.x12.XmlToEdi").get(0);
+            assertEquals(xml.size(), xmlToEdi.getLong("inputBytes"));
+            assertEquals(ediOut.size(), xmlToEdi.getLong("outputBytes"));
+        }
+    }
+
+    @Test
+    public void testEdiOutputIsCountedAsItIsWritten() throws Exception {
+        byte[] edi = X12_LargeInputs.resource("Test835Data/input835.edi");
+        String xml = X12_835_Parser.parseEDI(edi);
+
+        try (Recording recording = new Recording()) {
+            recording.enable("org.example.x12.XmlToEdi");
+            recording.start();
+            String written = X12_835_Parser.toEDIString(xml);
+            recording.stop();
+
+            X12_ConversionEvents.SegmentCounter expected = new X12_ConversionEvents.SegmentCounter("835");
+            byte[] bytes = written.getBytes(StandardCharsets.ISO_8859_1);
+            expected.update(bytes, 0, bytes.length);
+
+            RecordedEvent event = events(recording, "org.example.x12.XmlToEdi").get(0);
+            assertEquals(xml.getBytes(StandardCharsets.UTF_8).length, event.getLong("inputBytes"));
+            assertEquals(bytes.length, event.getLong("outputBytes"));
+            assertEquals(expected.segments, event.getLong("segmentCount"));
+            assertEquals(expected.claims, event.getLong("claimCount"));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.XML;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class X12_ConversionServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private X12_ConversionServer server;
+
+    @After
+    public void stopServer() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private HttpResponse<String> post(String path, byte[] body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testConvertsEachTransactionType() throws Exception {
+        server = new X12_ConversionServer(0).start();
+
+        byte[] edi835 = X12_LargeInputs.resource("Test835Data/input835.edi");
+        HttpResponse<String> response = post("/835/parse?format=json", edi835);
+        assertEquals(200, response.statusCode());
+        assertEquals("application/json", response.headers().firstValue("Content-Type").orElse(null));
+        assertEquals(X12_835_Parser.toJson(X12_835_Parser.parseXML(X12_835_Parser.parseEDI(edi835))), response.body());
+
+        byte[] edi837 = Files.readAllBytes(Path.of("sample_837_professional.edi"));
+        response = post("/837/parse", edi837);
+        assertEquals(200, response.statusCode());
+        assertEquals(X12_837_Parser.parseEDI(edi837), response.body());
+
+        byte[] edi850 = X12_LargeInputs.resource("inputmessage.edi");
+        response = post("/850/parse?format=yaml", edi850);
+        assertEquals(200, response.statusCode());
+        assertEquals(X12_850_Parser.toYaml(X12_850_Parser.parseXML(X12_850_Parser.parseEDI(edi850))), response.body());
+
+        assertEquals(3, server.getHistogram("835").getCount() + server.getHistogram("837").getCount()
+                + server.getHistogram("850").getCount());
+        HttpResponse<String> metrics = client.send(HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + server.getPort() + "/metrics")).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, metrics.statusCode());
+        assertTrue(metrics.body(), metrics.body().contains("x12_http_request_duration_seconds_count{route=\"835\"} 1\n"));
+        assertTrue(metrics.body(), metrics.body().contains("x12_http_requests_total{route=\"850\",status=\"200\"} 1\n"));
+        assertTrue(metrics.body(), metrics.body().contains("# TYPE x12_stage_duration_seconds histogram\n"));
+    }
+
+    @Test
+    public void testConverts276() throws Exception {
+        server = new X12_ConversionServer(0).start();
+
+        // Packaged in the Parse276ClaimStatus jar
+        byte[] edi276 = getClass().getClassLoader().getResourceAsStream("input276.edi").readAllBytes();
+        X12_276_ClaimStatus claimStatus = X12_276_Parser.parseXML(X12_276_Parser.parseEDI(edi276));
+        HttpResponse<String> response = post("/276/parse?format=json", edi276);
+        assertEquals(200, response.statusCode());
+        assertEquals(X12_276_Parser.toJson(claimStatus), response.body());
+
+        response = post("/276/parse?format=edi", edi276);
+        assertEquals(200, response.statusCode());
+        assertEquals("application/edi-x12", response.headers().firstValue("Content-Type").orElse(null));
+        assertEquals(X12_276_Parser.xmlToEDI(claimStatus), response.body());
+
+        response = post("/276/parse?format=yaml", "not EDI".getBytes(StandardCharsets.US_ASCII));
+        assertEquals("A parse failure on the pipe's writer is still reported", 422, response.statusCode());
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        server = new X12_ConversionServer(0).start();
+
+        assertEquals(404, post("/999/parse", new byte[0]).statusCode());
+        assertEquals(400, post("/835/parse?format=csv", X12_LargeInputs.resource("Test835Data/input835.edi")).statusCode());
+        assertEquals(422, post("/835/parse?format=json", "not EDI".getBytes(StandardCharsets.US_ASCII)).statusCode());
+    }
+
+    @Test
+    public void testRejectsBeyondQueue() throws Exception {
+        server = new X12_ConversionServer(new InetSocketAddress("127.0.0.1", 0), 1, 0, 1_000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        server.register("slow", (edi, format, out) -> {
+            started.countDown();
+            release.await();
+            out.write(edi.readAllBytes());
+        });
+        server.start();
+
+        CompletableFuture<HttpResponse<String>> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return post("/slow/parse", "ok".getBytes(StandardCharsets.US_ASCII));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        HttpResponse<String> second = post("/slow/parse", "ok".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(503, second.statusCode());
+        assertEquals(1, server.getRejectedCount());
+
+        release.countDown();
+        assertEquals("ok", first.get(10, TimeUnit.SECONDS).body());
+        assertEquals(1, server.getHistogram("slow").getCount());
+    }
+
+    @Test
+    public void testErrorStatusIsCounted() throws Exception {
+        server = new X12_ConversionServer(0).start();
+
+        assertEquals(422, post("/850/parse", "not EDI".getBytes(StandardCharsets.US_ASCII)).statusCode());
+        HttpResponse<String> metrics = client.send(HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + server.getPort() + "/metrics")).build(), HttpResponse.BodyHandlers.ofString());
+        assertTrue(metrics.body(), metrics.body().contains("x12_http_requests_total{route=\"850\",status=\"422\"} 1\n"));
+    }
+}
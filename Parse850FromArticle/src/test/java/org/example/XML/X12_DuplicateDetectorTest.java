@@ -0,0 +1,206 @@
+package org.example.XML;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for duplicate interchange and claim detection.
+ */
+public class X12_DuplicateDetectorTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final String CLAIM_EDI =
+            "ISA*00*          *00*          *ZZ*SENDER123      *ZZ*RECEIVER456    *210901*1200*^*00501*000000001*0*P*:~" +
+                    "GS*HC*SENDER123*RECEIVER456*20210901*1200*1*X*005010X222A1~" +
+                    "ST*837*0001*005010X222A1~" +
+                    "HL*1**20*1~" +
+                    "CLM*PATIENT001*1250.00***11:B:1*Y*A*Y*Y~" +
+                    "DTP*435*D8*20230301~" +
+                    "CLM*PATIENT002*80.00***11:B:1*Y*A*Y*Y~" +
+                    "SE*6*0001~" +
+                    "GE*1*1~" +
+                    "IEA*1*000000001~";
+
+    private static X12_DuplicateDetector.Result checkAndRecord(X12_DuplicateDetector detector, byte[] edi) throws Exception {
+        X12_DuplicateDetector.Result result = detector.check(edi);
+        detector.record(result);
+        return result;
+    }
+
+    @Test
+    public void testResentInterchangeIsDetected() throws Exception {
+        Path dir = tempFolder.newFolder("dedup").toPath();
+        byte[] edi = CLAIM_EDI.getBytes(StandardCharsets.UTF_8);
+
+        try (X12_DuplicateDetector detector = new X12_DuplicateDetector(dir, 1000, 0.01)) {
+            X12_DuplicateDetector.Result first = checkAndRecord(detector, edi);
+            assertFalse("First submission should not be a duplicate", first.isDuplicate());
+            assertEquals(1, first.getInterchangeCount());
+            assertEquals(2, first.getClaimCount());
+
+            X12_DuplicateDetector.Result second = checkAndRecord(detector, edi);
+            assertTrue("Re-sent interchange should be a full duplicate", second.isFullDuplicate());
+            assertEquals(2, second.getDuplicateClaims().size());
+        }
+    }
+
+    @Test
+    public void testFilterSurvivesRestart() throws Exception {
+        Path dir = tempFolder.newFolder("dedup").toPath();
+        byte[] edi = CLAIM_EDI.getBytes(StandardCharsets.UTF_8);
+
+        try (X12_DuplicateDetector detector = new X12_DuplicateDetector(dir, 1000, 0.01)) {
+            checkAndRecord(detector, edi);
+        }
+        assertTrue(Files.exists(dir.resolve(X12_DuplicateDetector.BLOOM_FILE)));
+
+        try (X12_DuplicateDetector detector = new X12_DuplicateDetector(dir, 1000, 0.01)) {
+            assertTrue("Duplicate should be detected after reopening", detector.check(edi).isFullDuplicate());
+        }
+    }
+
+    @Test
+    public void testFilterIsRebuiltFromTheLog() throws Exception {
+        Path dir = tempFolder.newFolder("dedup").toPath();
+        byte[] first = CLAIM_EDI.getBytes(StandardCharsets.UTF_8);
+        byte[] second = CLAIM_EDI.replace("000000001", "000000002").replace("PATIENT00", "PATIENT10")
+                .getBytes(StandardCharsets.UTF_8);
+        Path bloom = dir.resolve(X12_DuplicateDetector.BLOOM_FILE);
+        Path stale = dir.resolve("stale.bloom");
+
+        try (X12_DuplicateDetector detector = new X12_DuplicateDetector(dir, 1000, 0.01)) {
+            checkAndRecord(detector, first);
+            detector.flush();
+            Files.copy(bloom, stale);
+            checkAndRecord(detector, second);
+        }
+        // A crash after the log reached disk leaves the snapshot behind it.
+        Files.copy(stale, bloom, StandardCopyOption.REPLACE_EXISTING);
+        try (X12_DuplicateDetector detector = new X12_DuplicateDetector(dir, 1000, 0.01)) {
+            assertTrue(detector.check(first).isFullDuplicate());
+            assertTrue("Entries logged after the snapshot are replayed", detector.check(second).isFullDuplicate());
+        }
+
+        Files.delete(bloom);
+        try (X12_DuplicateDetector detector = new X12_DuplicateDetector(dir, 1000, 0.01)) {
+            assertTrue("A missing snapshot is rebuilt from the log", detector.check(first).isFullDuplicate());
+            assertTrue(detector.check(second).isFullDuplicate());
+        }
+    }
+
+    @Test
+    public void testTornLogLineIsTerminated() throws Exception {
+        Path dir = tempFolder.newFolder("dedup").toPath();
+        byte[] edi = CLAIM_EDI.getBytes(StandardCharsets.UTF_8);
+        try (X12_DuplicateDetector detector = new X12_DuplicateDetector(dir, 1000, 0.01)) {
+            checkAndRecord(detector, edi);
+        }
+        Files.delete(dir.resolve(X12_DuplicateDetector.BLOOM_FILE));
+        Files.write(dir.resolve(X12_DuplicateDetector.FINGERPRINT_FILE), "CLM|SENDER".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        byte[] next = CLAIM_EDI.replace("000000001", "000000002").replace("PATIENT00", "PATIENT10")
+                .getBytes(StandardCharsets.UTF_8);
+        try (X12_DuplicateDetector detector = new X12_DuplicateDetector(dir, 1000, 0.01)) {
+            assertFalse(checkAndRecord(detector, next).isDuplicate());
+        }
+        try (X12_DuplicateDetector detector = new X12_DuplicateDetector(dir, 1000, 0.01)) {
+            assertTrue("The entry after a torn line starts its own line", detector.check(next).isFullDuplicate());
+        }
+    }
+
+    @Test
+    public void testResentClaimsUnderNewControlNumber() throws Exception {
+        Path dir = tempFolder.newFolder("dedup").toPath();
+        String resent = CLAIM_EDI.replace("000000001", "000000002");
+        String corrected = CLAIM_EDI.replace("000000001", "000000003").replace("*80.00*", "*95.00*");
+
+        try (X12_DuplicateDetector detector = new X12_DuplicateDetector(dir, 1000, 0.01)) {
+            checkAndRecord(detector, CLAIM_EDI.getBytes(StandardCharsets.UTF_8));
+
+            X12_DuplicateDetector.Result resentResult = checkAndRecord(detector, resent.getBytes(StandardCharsets.UTF_8));
+            assertTrue("New control number is a new interchange", resentResult.getDuplicateInterchanges().isEmpty());
+            assertTrue("Identical claims should still be rejected", resentResult.isFullDuplicate());
+
+            X12_DuplicateDetector.Result correctedResult = checkAndRecord(detector, corrected.getBytes(StandardCharsets.UTF_8));
+            assertFalse("A changed claim is not a full duplicate", correctedResult.isFullDuplicate());
+            assertEquals("Only the unchanged claim is a duplicate", 1, correctedResult.getDuplicateClaims().size());
+            assertTrue(correctedResult.getDuplicateClaims().get(0).contains("PATIENT001"));
+        }
+    }
+
+    @Test
+    public void testRemittanceClaimsAreFingerprinted() throws Exception {
+        byte[] edi = X12_LargeInputs.resource("Test835Data/input835.edi");
+
+        X12_DuplicateDetector.Fingerprints fingerprints = X12_DuplicateDetector.fingerprint(edi);
+        assertEquals(1, fingerprints.interchanges.size());
+        assertEquals("ISA|PAYERID|PROVIDERID|000000001", fingerprints.interchanges.get(0));
+        assertEquals(1, fingerprints.claims.size());
+        assertTrue(fingerprints.claims.get(0).startsWith("CLP|PAYERID|CLAIM001|"));
+    }
+
+    @Test
+    public void testFailedParseIsNotRecorded() throws Exception {
+        Path dir = tempFolder.newFolder("dedup").toPath();
+        String edi = X12_LargeInputs.x837().generate(2);
+        // The broken segment sits outside the claims, so the fix leaves every fingerprint as it was.
+        byte[] broken = edi.replace("BHT*", "BHX*").getBytes(StandardCharsets.ISO_8859_1);
+        byte[] corrected = edi.getBytes(StandardCharsets.ISO_8859_1);
+        try (X12_DuplicateDetector detector = new X12_DuplicateDetector(dir, 1000, 0.01)) {
+            try {
+                X12_837_Parser.parseEDI(broken, detector);
+                fail("The broken interchange should not parse");
+            } catch (X12_DuplicateDetector.DuplicateInterchangeException e) {
+                throw e;
+            } catch (Exception expected) {
+                // the Smooks parse failed
+            }
+            assertFalse(detector.check(corrected).isDuplicate());
+
+            assertNotNull(X12_837_Parser.parseEDI(corrected, detector));
+            assertTrue(detector.check(corrected).isFullDuplicate());
+        }
+    }
+
+    @Test
+    public void testParserRejectsPartialDuplicate() throws Exception {
+        Path dir = tempFolder.newFolder("dedup").toPath();
+        byte[] corrected = CLAIM_EDI.replace("000000001", "000000003").replace("*80.00*", "*95.00*")
+                .getBytes(StandardCharsets.UTF_8);
+        try (X12_DuplicateDetector detector = new X12_DuplicateDetector(dir, 1000, 0.01)) {
+            checkAndRecord(detector, CLAIM_EDI.getBytes(StandardCharsets.UTF_8));
+            try {
+                X12_837_Parser.parseEDI(corrected, detector);
+                fail("An interchange re-sending a claim should be rejected");
+            } catch (X12_DuplicateDetector.DuplicateInterchangeException e) {
+                assertFalse(e.getResult().isFullDuplicate());
+                assertEquals(1, e.getResult().getDuplicateClaims().size());
+                assertTrue(e.getResult().getDuplicateClaims().get(0).contains("PATIENT001"));
+            }
+            assertFalse("A rejected interchange is not recorded",
+                    detector.check(corrected).getDuplicateInterchanges().size() > 0);
+        }
+    }
+
+    @Test(expected = X12_DuplicateDetector.DuplicateInterchangeException.class)
+    public void testParserRejectsDuplicateBeforeParsing() throws Exception {
+        Path dir = tempFolder.newFolder("dedup").toPath();
+        byte[] edi = CLAIM_EDI.getBytes(StandardCharsets.UTF_8);
+        try (X12_DuplicateDetector detector = new X12_DuplicateDetector(dir, 1000, 0.01)) {
+            checkAndRecord(detector, edi);
+            X12_837_Parser.parseEDI(edi, detector);
+        }
+    }
+}
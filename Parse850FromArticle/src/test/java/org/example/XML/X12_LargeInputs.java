@@ -0,0 +1,162 @@
+package org.example.XML;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test inputs: classpath resources, and 837 and 835 interchanges of any number of claims,
+ * written streaming for the scaling tests or as a String for the small ones.
+ * <p>
+ * The claims are copies of the ones in {@code sample_837_professional.edi} and
+ * {@code Test835Data/input835_4.edi} with CLM01/CLP01 made unique ({@code PATIENT00000},
+ * {@code CLAIM00000} and so on); each 837 claim's CLM02 also varies, from 100.00 up. Claims can
+ * be spread over several transaction sets, each repeating its template's header loops, so the
+ * same claims can be fed to whole-document and per-set parsing.
+ */
+final class X12_LargeInputs {
+
+    private final List<String> header;
+    private final List<List<String>> claims;
+    private final List<String> setTrailer;
+    private final List<String> envelopeTrailer;
+    private final String claimSegment;
+    /** Replaces the claim segment's leading elements; given the claim index and its CLM02. */
+    private final String claimFormat;
+
+    private X12_LargeInputs(String edi, String claimSegment, String claimFormat, String lastHeaderSegment,
+                            String setTrailerSegment) {
+        this.claimSegment = claimSegment;
+        this.claimFormat = claimFormat;
+        List<String> segments = new ArrayList<>();
+        for (String segment : edi.split("~")) {
+            if (!segment.isBlank()) {
+                segments.add(segment.strip());
+            }
+        }
+        int first = indexOf(segments, claimSegment, 0);
+        if (lastHeaderSegment != null) {
+            // The 835's claims are preceded by their LX header loop; keep that in the header.
+            first = indexOf(segments, lastHeaderSegment, 0) + 1;
+        }
+        int end = indexOf(segments, setTrailerSegment, first);
+        int se = indexOf(segments, "SE*", first);
+        header = segments.subList(0, first);
+        claims = new ArrayList<>();
+        for (String segment : segments.subList(first, end)) {
+            if (segment.startsWith(claimSegment)) {
+                claims.add(new ArrayList<>());
+            }
+            claims.get(claims.size() - 1).add(segment);
+        }
+        setTrailer = segments.subList(end, se);
+        envelopeTrailer = segments.subList(se + 1, segments.size());
+    }
+
+    static X12_LargeInputs x837() throws IOException {
+        return new X12_LargeInputs(Files.readString(Paths.get("sample_837_professional.edi"), StandardCharsets.ISO_8859_1),
+                "CLM*", "PATIENT%05d*%d.00", null, "SE*");
+    }
+
+    static X12_LargeInputs x835() throws Exception {
+        return new X12_LargeInputs(Files.readString(resourcePath("Test835Data/input835_4.edi"), StandardCharsets.ISO_8859_1),
+                "CLP*", "CLAIM%05d", "LX*", "PLB*");
+    }
+
+    static Path resourcePath(String name) throws Exception {
+        return Paths.get(X12_LargeInputs.class.getClassLoader().getResource(name).toURI());
+    }
+
+    static byte[] resource(String name) throws Exception {
+        return Files.readAllBytes(resourcePath(name));
+    }
+
+    static String resourceText(String name) throws Exception {
+        return Files.readString(resourcePath(name), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * An interchange of one transaction set holding all the claims.
+     */
+    String generate(int claimCount) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(out, claimCount, Math.max(claimCount, 1));
+        return out.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Write one interchange.
+     *
+     * @param claimsPerSet claims per transaction set; the last set holds the remainder
+     */
+    void write(OutputStream target, int claimCount, int claimsPerSet) throws IOException {
+        OutputStream out = new BufferedOutputStream(target, 1 << 16);
+        int st = indexOf(header, "ST*", 0);
+        String controlNumber = header.get(st).split("\\*")[2];
+        for (String segment : header.subList(0, st)) {
+            segment(out, segment);
+        }
+        int sets = 0;
+        for (int next = 0; next < claimCount || sets == 0; sets++) {
+            long count = 0;
+            for (String segment : header.subList(st, header.size())) {
+                segment(out, segment);
+                count++;
+            }
+            for (int last = Math.min(claimCount, next + claimsPerSet); next < last; next++) {
+                List<String> claim = claims.get(next % claims.size());
+                String first = claim.get(0);
+                segment(out, claimSegment + String.format(claimFormat, next, 100 + next % 900) + rest(first));
+                for (String segment : claim.subList(1, claim.size())) {
+                    segment(out, segment);
+                }
+                count += claim.size();
+            }
+            for (String segment : setTrailer) {
+                segment(out, segment);
+                count++;
+            }
+            segment(out, "SE*" + (count + 1) + "*" + controlNumber);
+        }
+        for (String segment : envelopeTrailer) {
+            if (segment.startsWith("GE*")) {
+                segment = "GE*" + sets + segment.substring(segment.indexOf('*', 3));
+            }
+            segment(out, segment);
+        }
+        out.flush();
+    }
+
+    /**
+     * The claim segment from the first element {@link #claimFormat} does not replace.
+     */
+    private String rest(String claim) {
+        int end = claimSegment.length() - 1;
+        for (int i = 0; i <= claimFormat.chars().filter(c -> c == '*').count(); i++) {
+            end = claim.indexOf('*', end + 1);
+        }
+        return claim.substring(end);
+    }
+
+    private static void segment(OutputStream out, String segment) throws IOException {
+        out.write(segment.getBytes(StandardCharsets.ISO_8859_1));
+        out.write('~');
+        out.write('\n');
+    }
+
+    private static int indexOf(List<String> segments, String prefix, int from) {
+        for (int i = from; i < segments.size(); i++) {
+            if (segments.get(i).startsWith(prefix)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No " + prefix + " segment");
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.XML;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class X12_MetricsTest {
+
+    private static String sender(byte[] edi) {
+        return new String(edi, 35, 15, StandardCharsets.ISO_8859_1).trim();
+    }
+
+    @Test
+    public void testHistogramQuantiles() {
+        X12_Metrics.Histogram histogram = new X12_Metrics.Histogram();
+        assertEquals(0, histogram.getQuantileNanos(0.5));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(100), histogram.getQuantileNanos(0.5));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(100), histogram.getQuantileNanos(0.99));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(51_200), histogram.getQuantileNanos(1.0));
+    }
+
+    @Test
+    public void testPrometheusFormat() {
+        X12_Metrics metrics = new X12_Metrics();
+        metrics.counter("requests_total", "Requests", new String[]{"route"}, "a\"b").add(3);
+        metrics.histogram("latency_seconds", "Latency", new String[0]).record(TimeUnit.MICROSECONDS.toNanos(75));
+        metrics.gauge("queued", "Queued", () -> 7);
+
+        String text = metrics.scrape();
+        assertTrue(text, text.contains("# HELP requests_total Requests\n# TYPE requests_total counter\n"
+                + "requests_total{route=\"a\\\"b\"} 3\n"));
+        assertTrue(text, text.contains("# TYPE latency_seconds histogram\n"));
+        assertTrue(text, text.contains("latency_seconds_bucket{le=\"5.0E-5\"} 0\n"));
+        assertTrue(text, text.contains("latency_seconds_bucket{le=\"1.0E-4\"} 1\n"));
+        assertTrue(text, text.contains("latency_seconds_bucket{le=\"+Inf\"} 1\n"));
+        assertTrue(text, text.contains("latency_seconds_count 1\n"));
+        assertTrue(text, text.contains("# TYPE queued gauge\nqueued 7\n"));
+        // Families are exported in name order.
+        assertTrue(text.indexOf("latency_seconds") < text.indexOf("queued"));
+        assertTrue(text.indexOf("queued") < text.indexOf("requests_total"));
+
+        try {
+            metrics.histogram("requests_total", "Requests", new String[]{"route"}, "a");
+            fail("a name must keep its type");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testStagesAreLabelledByPartner() throws Exception {
+        byte[] edi = X12_LargeInputs.resource("Test835Data/input835.edi");
+        String partner = sender(edi);
+        X12_Metrics metrics = X12_Metrics.global();
+        long claimsBefore = metrics.stageCounter("x12_claims_total", "edi_to_xml", "835", partner).get();
+        long segmentsBefore = metrics.stageCounter("x12_segments_total", "edi_to_xml", "835", partner).get();
+        long runsBefore = metrics.stageHistogram("edi_to_xml", "835", partner).getCount();
+        long modelsBefore = metrics.stageHistogram("xml_to_model", "835", partner).getCount();
+
+        X12_835_Interchange interchange = X12_835_Parser.parseXML(X12_835_Parser.parseEDI(edi));
+
+        assertEquals(runsBefore + 1, metrics.stageHistogram("edi_to_xml", "835", partner).getCount());
+        assertEquals(modelsBefore + 1, metrics.stageHistogram("xml_to_model", "835", partner).getCount());
+        assertEquals(X12_ConversionEvents.claimCount(interchange),
+                metrics.stageCounter("x12_claims_total", "edi_to_xml", "835", partner).get() - claimsBefore);
+        assertTrue(metrics.stageCounter("x12_segments_total", "edi_to_xml", "835", partner).get() - segmentsBefore
+                > X12_ConversionEvents.claimCount(interchange));
+        assertTrue(metrics.scrape(), metrics.scrape().contains("x12_stage_duration_seconds_count{stage=\"edi_to_xml\","
+                + "transaction=\"835\",partner=\"" + partner + "\"}"));
+    }
+
+    @Test
+    public void testFailedStagesAreCounted() throws Exception {
+        byte[] edi = X12_LargeInputs.resource("inputmessage.edi");
+        String partner = sender(edi);
+        // Keep the ISA so the partner is known, but break the transaction after it.
+        byte[] broken = new String(edi, 0, 106, StandardCharsets.ISO_8859_1).concat("GARBAGE")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        X12_Metrics.Counter errors = X12_Metrics.global()
+                .stageCounter("x12_stage_errors_total", "edi_to_xml", "850", partner);
+        long before = errors.get();
+
+        try {
+            X12_850_Parser.parseEDI(broken);
+            fail("broken EDI should not parse");
+        } catch (Exception expected) {
+            // expected
+        }
+        assertEquals(before + 1, X12_Metrics.global()
+                .stageCounter("x12_stage_errors_total", "edi_to_xml", "850", partner).get());
+    }
+
+    @Test
+    public void testPartnersAreCapped() {
+        X12_Metrics metrics = new X12_Metrics();
+        for (int i = 0; i < X12_Metrics.MAX_PARTNERS + 10; i++) {
+            metrics.recordError("edi_to_xml", "837", "PARTNER" + i);
+        }
+        metrics.recordError("edi_to_xml", "837", null);
+
+        assertEquals(1, metrics.stageCounter("x12_stage_errors_total", "edi_to_xml", "837", "PARTNER0").get());
+        assertEquals(10, metrics.stageCounter("x12_stage_errors_total", "edi_to_xml", "837",
+                X12_Metrics.OTHER_PARTNER).get());
+        assertEquals(1, metrics.stageCounter("x12_stage_errors_total", "edi_to_xml", "837",
+                X12_Metrics.UNKNOWN_PARTNER).get());
+    }
+
+    @Test
+    public void testWritePrometheusFile() throws Exception {
+        X12_Metrics metrics = new X12_Metrics();
+        metrics.counter("files_total", "Files", new String[0]).increment();
+        Path dir = Files.createTempDirectory("x12-metrics");
+        Path file = dir.resolve("x12.prom");
+        try {
+            metrics.writePrometheus(file);
+            metrics.writePrometheus(file);
+            assertEquals(metrics.scrape(), Files.readString(file));
+            try (var files = Files.list(dir)) {
+                assertEquals(1, files.count());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+}
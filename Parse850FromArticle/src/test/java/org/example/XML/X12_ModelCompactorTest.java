@@ -0,0 +1,64 @@
+package org.example.XML;
+
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class X12_ModelCompactorTest {
+
+    private static long bytesPerClaim(X12_837_Interchange interchange) {
+        return GraphLayout.parseInstance(interchange).totalSize() / interchange.getLoop2300ClaimInformation().size();
+    }
+
+    @Test
+    public void testCompactModelSerializesTheSame() throws Exception {
+        String xml = X12_837_Parser.parseEDI(X12_LargeInputs.x837().generate(3));
+
+        X12_837_Interchange regular = X12_837_Parser.parseXML(xml);
+        X12_837_Interchange compact = X12_837_Parser.parseXMLCompact(xml);
+
+        assertEquals(3, compact.getLoop2300ClaimInformation().size());
+        assertEquals("PATIENT00002", compact.getLoop2300ClaimInformation().get(2).getClaimInformation().getClaimSubmittersIdentifier());
+        assertEquals(X12_837_Parser.toXml(regular), X12_837_Parser.toXml(compact));
+    }
+
+    @Test
+    public void testSharesValuesAndSentinels() throws Exception {
+        X12_837_Interchange compact = X12_837_Parser.parseXMLCompact(X12_837_Parser.parseEDI(X12_LargeInputs.x837().generate(2)));
+
+        List<X12_837_Interchange.Loop2300ClaimInformation> claims = compact.getLoop2300ClaimInformation();
+        assertSame(claims.get(0).getClaimInformation().getHealthCareServiceLocationInformation(),
+                claims.get(1).getClaimInformation().getHealthCareServiceLocationInformation());
+        assertThrows(UnsupportedOperationException.class, () -> claims.add(null));
+
+        X12_837_Interchange.Loop2300ClaimInformation claim = new X12_837_Interchange.Loop2300ClaimInformation();
+        claim.setAssumedRelinquishedCareDate(new ArrayList<>());
+        claim.setPropertyCasualtyDate(new ArrayList<>(Arrays.asList(null, new X12_837_Interchange.DTPSegment())));
+        claim.setClaimInformation(new X12_837_Interchange.CLMSegment());
+        claim.getClaimInformation().setClaimSubmittersIdentifier("A");
+        claim.setOnsetIllnessOrSymptom(new X12_837_Interchange.DTPSegment());
+        X12_ModelCompactor.compact(claim);
+
+        assertSame(List.of(), claim.getAssumedRelinquishedCareDate());
+        assertEquals(2, claim.getPropertyCasualtyDate().size());
+        assertNotNull(claim.getClaimInformation());
+        assertNull(claim.getOnsetIllnessOrSymptom());
+    }
+
+    @Test
+    public void testFootprintPerClaim() throws Exception {
+        String xml = X12_837_Parser.parseEDI(X12_LargeInputs.x837().generate(200));
+
+        long regular = bytesPerClaim(X12_837_Parser.parseXML(xml));
+        long compact = bytesPerClaim(X12_837_Parser.parseXMLCompact(xml));
+        System.out.printf("837 model footprint: %d bytes/claim regular, %d bytes/claim compact%n", regular, compact);
+
+        // The sample claim has ~25 segments with ~80 element values; most repeat from claim to claim.
+        assertTrue(regular + " -> " + compact, compact * 2 < regular);
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.XML;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the native {@code x12} executable over the sample files and checks that it produces
+ * exactly what the JVM CLI does. Run by the {@code native} profile once the image is built,
+ * where a missing executable fails the build; skipped only when run outside the profile.
+ */
+public class X12_NativeImageIT {
+
+    private static final String[] FORMATS = {"json", "yaml", "xml"};
+
+    private static Path binary;
+
+    @BeforeClass
+    public static void findBinary() {
+        String path = System.getProperty("x12.native.binary");
+        Assume.assumeTrue("No native x12 executable configured", path != null);
+        binary = Paths.get(path);
+        assertTrue("Native x12 executable was not built: " + binary, Files.isExecutable(binary));
+    }
+
+    private static String jvm(String... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(Arrays.toString(args), X12_Cli.EXIT_OK,
+                X12_Cli.run(args, new PrintStream(out, true), new PrintStream(new ByteArrayOutputStream())));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String nativeImage(String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(binary.toString());
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        byte[] out = process.getInputStream().readAllBytes();
+        assertTrue("native x12 timed out", process.waitFor(2, TimeUnit.MINUTES));
+        assertEquals(Arrays.toString(args), X12_Cli.EXIT_OK, process.exitValue());
+        return new String(out, StandardCharsets.UTF_8);
+    }
+
+    private static void assertSameOutput(Path edi) throws Exception {
+        String file = edi.toString();
+        assertEquals(file, jvm("parse", file), nativeImage("parse", file));
+        for (String format : FORMATS) {
+            assertEquals(file + " as " + format, jvm("convert", "-f", format, file), nativeImage("convert", "-f", format, file));
+        }
+    }
+
+    @Test
+    public void test837() throws Exception {
+        assertSameOutput(Paths.get("sample_837_professional.edi"));
+    }
+
+    @Test
+    public void test835() throws Exception {
+        assertSameOutput(X12_LargeInputs.resourcePath("Test835Data/input835.edi"));
+        assertSameOutput(X12_LargeInputs.resourcePath("Test835Data/input835_4.edi"));
+    }
+
+    @Test
+    public void test850() throws Exception {
+        assertSameOutput(X12_LargeInputs.resourcePath("inputmessage.edi"));
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.XML;
+
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the content-addressed parse cache.
+ */
+public class X12_ParseCacheTest {
+
+    @Test
+    public void testIdenticalPayloadIsALookup() throws Exception {
+        X12_ParseCache cache = new X12_ParseCache(16 * 1024 * 1024);
+        byte[] edi = X12_LargeInputs.resource("Test835Data/input835_4.edi");
+
+        X12_835_Interchange first = cache.parse835(edi);
+        X12_835_Interchange second = cache.parse835(edi.clone());
+
+        assertNotSame("Each caller gets its own copy", first, second);
+        assertEquals(first, second);
+        assertEquals(X12_835_Parser.parseXML(X12_835_Parser.parseEDI(edi)), first);
+        X12_ParseCache.Stats stats = cache.getStats();
+        assertEquals(2, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(2, stats.getEntryCount());
+        assertEquals(0.5, stats.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void testParserOverloadsUseCache() throws Exception {
+        X12_ParseCache cache = new X12_ParseCache(16 * 1024 * 1024);
+        byte[] edi = X12_LargeInputs.resource("inputmessage.edi");
+        String xml = X12_850_Parser.parseEDI(edi, cache);
+
+        assertEquals(0, cache.getStats().getHitCount());
+        assertSame(xml, X12_850_Parser.parseEDI(edi, cache));
+        assertEquals(1, cache.getStats().getHitCount());
+
+        X12_850_Interchange model = X12_850_Parser.parseXML(xml, cache);
+        assertEquals(model, X12_850_Parser.parseXML(xml, cache));
+        assertEquals(2, cache.getStats().getHitCount());
+        assertEquals(2, cache.getStats().getMissCount());
+    }
+
+    @Test
+    public void testWeightBudgetEvictsLeastRecentlyUsed() throws Exception {
+        String xml835 = X12_835_Parser.parseEDI(X12_LargeInputs.resource("Test835Data/input835_4.edi"));
+        String xml850 = X12_850_Parser.parseEDI(X12_LargeInputs.resource("inputmessage.edi"));
+        // Room for either bound model on its own, but not both.
+        long budget = Math.max(X12_ModelWalker.estimateBytes(X12_835_Parser.parseXML(xml835)),
+                X12_ModelWalker.estimateBytes(X12_850_Parser.parseXML(xml850))) + 1024;
+        X12_ParseCache cache = new X12_ParseCache(budget);
+
+        X12_835_Interchange remittance = X12_835_Parser.parseXML(xml835, cache);
+        X12_850_Parser.parseXML(xml850, cache);
+        assertTrue(cache.getStats().getWeight() <= budget);
+        assertTrue(cache.getStats().getEvictionCount() > 0);
+
+        // The 835 entry was least recently used, so it is the one that was evicted.
+        assertNotSame(remittance, X12_835_Parser.parseXML(xml835, cache));
+        assertEquals(0, cache.getStats().getHitCount());
+    }
+
+    @Test
+    public void testCallersCannotChangeACachedModel() throws Exception {
+        X12_ParseCache cache = new X12_ParseCache(16 * 1024 * 1024);
+        byte[] edi = X12_LargeInputs.resource("Test835Data/input835_4.edi");
+        X12_835_Interchange pristine = X12_835_Parser.parseXML(X12_835_Parser.parseEDI(edi));
+
+        X12_835_Interchange first = cache.parse835(edi);
+        first.getInterchangeHeader().setSenderId("CHANGED");
+        first.getHealthCareClaimPayment().getLoop2000Header().clear();
+        first.setFunctionalGroupTrailer(null);
+
+        X12_835_Interchange second = cache.parse835(edi);
+        assertEquals(2, cache.getStats().getHitCount());
+        assertEquals(pristine, second);
+    }
+
+    @Test
+    public void testModelWeightCoversMeasuredModels() throws Exception {
+        String[][] samples = {
+                {"837", Paths.get("sample_837_professional.edi").toUri().toString()},
+                {"835", X12_LargeInputs.resourcePath("Test835Data/input835_4.edi").toUri().toString()},
+                {"850", X12_LargeInputs.resourcePath("inputmessage.edi").toUri().toString()}};
+        for (String[] sample : samples) {
+            byte[] edi = Files.readAllBytes(Paths.get(URI.create(sample[1])));
+            String xml;
+            Object model;
+            switch (sample[0]) {
+                case "837":
+                    xml = X12_837_Parser.parseEDI(edi);
+                    model = X12_837_Parser.parseXML(xml);
+                    break;
+                case "835":
+                    xml = X12_835_Parser.parseEDI(edi);
+                    model = X12_835_Parser.parseXML(xml);
+                    break;
+                default:
+                    xml = X12_850_Parser.parseEDI(edi);
+                    model = X12_850_Parser.parseXML(xml);
+                    break;
+            }
+            long measured = GraphLayout.parseInstance(model).totalSize();
+            long estimated = X12_ModelWalker.estimateBytes(model);
+            assertTrue(String.format("%s model retains %d bytes, estimated at %d", sample[0], measured, estimated),
+                    estimated >= measured && estimated <= 2 * measured);
+
+            X12_ParseCache cache = new X12_ParseCache(16 * 1024 * 1024);
+            cache.parseXML(X12_ParseCache.TransactionType.valueOf("X" + sample[0]), xml);
+            assertEquals(estimated + 96, cache.getStats().getWeight());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.XML;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for projection parsing of selected loops and segments.
+ */
+public class X12_ProjectionTest {
+
+    @Test
+    public void testProjectsClaimAndServicePayments() throws Exception {
+        byte[] edi = X12_LargeInputs.resource("Test835Data/input835.edi");
+        X12_Projection projection = X12_Projection.of(X12_ParseCache.TransactionType.X835, "Loop_2100/CLP", "Loop_2110/SVC");
+
+        List<X12_Projection.Record> records = projection.projectEDI(edi);
+        assertEquals(4, records.size());
+
+        X12_Projection.Record claim = records.get(0);
+        assertEquals("CLP", claim.getSegmentId());
+        assertEquals("claim-payment-information", claim.getName());
+        assertEquals("Loop_2000_Header[1]/Loop_2100_ClaimPayment[1]", claim.getLoopPath());
+        assertEquals("CLAIM001", claim.get("claim-submitters-identifier"));
+        assertEquals("1200.00", claim.get("claim-payment-amount"));
+
+        X12_Projection.Record service = records.get(3);
+        assertEquals("SVC", service.getSegmentId());
+        assertEquals("Loop_2000_Header[1]/Loop_2100_ClaimPayment[1]/Loop_2110_ServicePayment[3]", service.getLoopPath());
+        assertEquals("HC:99215", service.get("composite-medical-procedure-identifier"));
+        assertEquals("Only the projected elements", 3, service.getValues().size());
+
+        // The same paths over the XML give the same records.
+        assertEquals(records, projection.project(X12_835_Parser.parseEDI(edi)));
+    }
+
+    @Test
+    public void testStepsMatchByNameAndAtAnyDepth() throws Exception {
+        String xml = X12_837_Parser.parseEDI(X12_LargeInputs.x837().generate(3));
+
+        List<X12_Projection.Record> claims = X12_Projection.of(X12_ParseCache.TransactionType.X837, "Loop_2300/CLM").project(xml);
+        assertEquals(3, claims.size());
+        assertEquals("PATIENT00002", claims.get(2).get("claim-submitters-identifier"));
+
+        List<X12_Projection.Record> byName = X12_Projection.of(X12_ParseCache.TransactionType.X837, "claim-information").project(xml);
+        assertEquals(claims, byName);
+
+        List<X12_Projection.Record> diagnoses = X12_Projection.of(X12_ParseCache.TransactionType.X837, "HI").project(xml);
+        assertEquals(3, diagnoses.size());
+        assertEquals("HI", diagnoses.get(0).getSegmentId());
+
+        // A path ending at a loop returns the loop's leaves keyed by their path within it.
+        List<X12_Projection.Record> loops = X12_Projection.of(X12_ParseCache.TransactionType.X835, "Loop_2110")
+                .projectEDI(X12_LargeInputs.resource("Test835Data/input835.edi"));
+        assertEquals(3, loops.size());
+        assertNull(loops.get(0).getSegmentId());
+        assertEquals("M1", loops.get(0).get("healthcare-remark-codes/industry-code"));
+    }
+
+    @Test
+    public void testRejectsPathsOutsideTheSchema() {
+        assertThrows(IllegalArgumentException.class, () -> X12_Projection.of(X12_ParseCache.TransactionType.X835, "Loop_2100/CLM"));
+        assertThrows(IllegalArgumentException.class, () -> X12_Projection.of(X12_ParseCache.TransactionType.X835, "Loop_2100//CLP"));
+        assertThrows(IllegalArgumentException.class, () -> X12_Projection.of(X12_ParseCache.TransactionType.X835));
+    }
+
+    @Test
+    public void testFasterThanFullBinding() throws Exception {
+        String xml = X12_835_Parser.parseEDI(X12_LargeInputs.x835().generate(5000));
+        X12_Projection projection = X12_Projection.of(X12_ParseCache.TransactionType.X835, "Loop_2100/CLP", "Loop_2110/SVC");
+        assertEquals(10000, projection.project(xml).size());
+
+        long full = Long.MAX_VALUE;
+        long projected = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            X12_835_Parser.parseXML(xml);
+            full = Math.min(full, System.nanoTime() - start);
+            start = System.nanoTime();
+            projection.project(xml);
+            projected = Math.min(projected, System.nanoTime() - start);
+        }
+        System.out.printf("835 with 5000 claims (%d KB XML): parseXML %d ms, CLP/SVC projection %d ms%n",
+                xml.length() / 1024, full / 1_000_000, projected / 1_000_000);
+        assertTrue(full + " -> " + projected, projected < full);
+    }
+}
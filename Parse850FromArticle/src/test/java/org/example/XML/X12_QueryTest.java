@@ -0,0 +1,127 @@
+package org.example.XML;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for path queries evaluated over raw EDI.
+ */
+public class X12_QueryTest {
+
+    private static final String RENDERING_PROVIDER = "NM1*82*1*SMITH*ROBERT*M***XX*1122334455";
+
+    private static List<String> values(List<X12_Projection.Record> records, String key) {
+        List<String> values = new ArrayList<>();
+        for (X12_Projection.Record record : records) {
+            values.add(record.get(key));
+        }
+        return values;
+    }
+
+    @Test
+    public void testFindsClaimsByRenderingProvider() throws Exception {
+        // Five claims; the fourth (PATIENT00003) has a different rendering provider NPI.
+        String edi = X12_LargeInputs.x837().generate(5);
+        int fourth = -1;
+        for (int i = 0; i < 4; i++) {
+            fourth = edi.indexOf(RENDERING_PROVIDER, fourth + 1);
+        }
+        edi = edi.substring(0, fourth) + RENDERING_PROVIDER.replace("1122334455", "1234567893")
+                + edi.substring(fourth + RENDERING_PROVIDER.length());
+        byte[] bytes = edi.getBytes(StandardCharsets.ISO_8859_1);
+
+        X12_Query query = X12_Query.compile(X12_ParseCache.TransactionType.X837,
+                "Loop_2300[Loop_2310B/NM1/identification-code = '1234567893']/CLM/claim-submitters-identifier");
+        List<X12_Projection.Record> claims = query.evaluate(bytes);
+        assertEquals(List.of("PATIENT00003"), values(claims, "claim-submitters-identifier"));
+        assertEquals("Loop_2300_ClaimInformation[4]", claims.get(0).getLoopPath());
+        assertEquals("CLM", claims.get(0).getSegmentId());
+
+        // Positional element names, and a predicate that holds for the other claims.
+        List<X12_Projection.Record> others = X12_Query.compile(X12_ParseCache.TransactionType.X837,
+                "Loop_2300[Loop_2310B/NM1/NM109 != \"1234567893\"]/CLM/CLM01").evaluate(bytes);
+        assertEquals(List.of("PATIENT00000", "PATIENT00001", "PATIENT00002", "PATIENT00004"),
+                values(others, "claim-submitters-identifier"));
+
+        // A claim without a 2310B loop does not satisfy either comparison.
+        String without = edi.replaceAll("NM1\\*82\\*[^~]*", "NM1*XX*1*SMITH");
+        assertTrue(query.evaluate(without.getBytes(StandardCharsets.ISO_8859_1)).isEmpty());
+    }
+
+    @Test
+    public void testSegmentsMatchTheProjectionOfTheXml() throws Exception {
+        byte[] edi = X12_LargeInputs.resource("Test835Data/input835.edi");
+        List<X12_Projection.Record> projected = X12_Projection.of(X12_ParseCache.TransactionType.X835, "Loop_2100/CLP", "Loop_2110/SVC")
+                .projectEDI(edi);
+        List<X12_Projection.Record> queried = new ArrayList<>();
+        queried.addAll(X12_Query.compile(X12_ParseCache.TransactionType.X835, "Loop_2100/CLP").evaluate(edi));
+        queried.addAll(X12_Query.compile(X12_ParseCache.TransactionType.X835, "Loop_2110/SVC").evaluate(edi));
+        queried.sort((a, b) -> a.getLoopPath().compareTo(b.getLoopPath()));
+        assertEquals(projected, queried);
+    }
+
+    @Test
+    public void testPredicates() throws Exception {
+        byte[] edi = X12_LargeInputs.resource("Test835Data/input835_4.edi");
+
+        // Numeric comparison, on the claim loop and on the segment itself.
+        List<X12_Projection.Record> paid = X12_Query.compile(X12_ParseCache.TransactionType.X835,
+                "Loop_2100[CLP/claim-payment-amount > 0]/CLP").evaluate(edi);
+        assertEquals(List.of("223.64"), values(paid, "claim-payment-amount"));
+        assertEquals(paid, X12_Query.compile(X12_ParseCache.TransactionType.X835,
+                "CLP[CLP04 >= 223.64]").evaluate(edi));
+
+        // and / or / parentheses over several segments of a loop.
+        List<X12_Projection.Record> services = X12_Query.compile(X12_ParseCache.TransactionType.X835,
+                "Loop_2110[CAS/CAS02 = '27' or (CAS/CAS02 = '16' and LQ/LQ02 = '77')]/SVC/01").evaluate(edi);
+        assertEquals(List.of("N4:68382005501", "N4:59746011306"), values(services, "composite-medical-procedure-identifier"));
+        assertEquals("Loop_2000_Header[1]/Loop_2100_ClaimPayment[2]/Loop_2110_ServicePayment[1]", services.get(1).getLoopPath());
+
+        // A loop is returned with the elements of its segments.
+        List<X12_Projection.Record> loops = X12_Query.compile(X12_ParseCache.TransactionType.X835, "Loop_2110[AMT]").evaluate(edi);
+        assertEquals(1, loops.size());
+        assertNull(loops.get(0).getSegmentId());
+        assertEquals("N4:54092051902", loops.get(0).get("service-payment-information/composite-medical-procedure-identifier"));
+        assertEquals("B6", loops.get(0).get("service-supplemental-amount/amount-qualifier-code"));
+
+        // The NM1 segments of different loops are told apart by their qualifier.
+        assertEquals(List.of("LL99999L", "LL88888L", "LL77777L"), values(X12_Query.compile(X12_ParseCache.TransactionType.X835,
+                "NM1[entity-identifier-code = 'QC']/NM109").evaluate(edi), "identification-code"));
+    }
+
+    @Test
+    public void testRejectsInvalidQueries() {
+        for (String query : new String[]{"", "Loop_2300[", "Loop_2300[CLM/CLM01 = ]", "Loop_2300[CLM/CLM01 = abc]",
+                "Loop_2300/CLP", "Loop_2300[CLP]/CLM", "CLM/CLM01[. = '1']", "CLM extra"}) {
+            assertThrows(query, IllegalArgumentException.class,
+                    () -> X12_Query.compile(X12_ParseCache.TransactionType.X837, query));
+        }
+    }
+
+    @Test
+    public void testSinglePassFasterThanConversion() throws Exception {
+        byte[] edi = X12_LargeInputs.x837().generate(100).getBytes(StandardCharsets.ISO_8859_1);
+        X12_Query query = X12_Query.compile(X12_ParseCache.TransactionType.X837,
+                "Loop_2300[Loop_2310B/NM1/NM109 = '1122334455' and CLM/CLM02 >= 150]/CLM/CLM01");
+        assertEquals(50, query.evaluate(edi).size());
+        X12_837_Parser.parseEDI(X12_LargeInputs.x837().generate(1));
+
+        long start = System.nanoTime();
+        X12_837_Parser.parseEDI(edi);
+        long parse = System.nanoTime() - start;
+        long queried = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            start = System.nanoTime();
+            query.evaluate(edi);
+            queried = Math.min(queried, System.nanoTime() - start);
+        }
+        System.out.printf("837 with 100 claims (%d KB): parseEDI %d ms, query %d ms (%.0f MB/s)%n", edi.length / 1024,
+                parse / 1_000_000, queried / 1_000_000, edi.length / (queried / 1e9) / (1 << 20));
+        assertTrue(parse + " -> " + queried, queried < parse);
+    }
+}
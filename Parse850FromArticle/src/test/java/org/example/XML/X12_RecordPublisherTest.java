@@ -0,0 +1,194 @@
+package org.example.XML;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the demand-driven record publishers.
+ */
+public class X12_RecordPublisherTest {
+
+    private static final String MULTI_CLAIM_837 =
+            "ISA*00*          *00*          *ZZ*SENDER123      *ZZ*RECEIVER456    *210901*1200*^*00501*000000001*0*P*:~" +
+                    "GS*HC*SENDER123*RECEIVER456*20210901*1200*1*X*005010X223A2~" +
+                    "ST*837*0001*005010X223A2~" +
+                    "BHT*0019*00*REF123456*20210901*1200*CH~" +
+                    "NM1*41*2*SUBMITTER ORGANIZATION*****46*SUB12345~" +
+                    "NM1*40*2*RECEIVER CORPORATION*****46*REC67890~" +
+                    "HL*1**20*1~" +
+                    "PRV*BI*PXC*123456789~" +
+                    "HL*2*1*22*0~" +
+                    "SBR*P*18*GROUP12345~" +
+                    "CLM*CLAIM001*100.00***11:B:1*Y*A*Y*Y~" +
+                    "DTP*431*D8*20210815~" +
+                    "CLM*CLAIM002*200.00***11:B:1*Y*A*Y*Y~" +
+                    "AMT*F5*20.00~" +
+                    "CLM*CLAIM003*300.00***11:B:1*Y*A*Y*Y~" +
+                    "SE*14*0001~" +
+                    "GE*1*1~" +
+                    "IEA*1*000000001~";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testClaims837MatchFullParse() throws Exception {
+        Path file = folder.newFile("claims.edi").toPath();
+        Files.write(file, MULTI_CLAIM_837.getBytes(StandardCharsets.UTF_8));
+
+        List<X12_837_Interchange.Loop2300ClaimInformation> expected = X12_837_Parser.parseXML(
+                X12_837_Parser.parseEDI(MULTI_CLAIM_837)).getLoop2300ClaimInformation();
+        List<X12_837_Interchange.Loop2300ClaimInformation> streamed = collect(
+                X12_RecordPublisher.claims837(file, Runnable::run, 2), 1);
+
+        assertEquals(List.of("CLAIM001", "CLAIM002", "CLAIM003"), streamed.stream()
+                .map(claim -> claim.getClaimInformation().getClaimSubmittersIdentifier())
+                .collect(Collectors.toList()));
+        assertEquals(expected, streamed);
+    }
+
+    @Test
+    public void testClaimPayments835() throws Exception {
+        Path file = X12_LargeInputs.resourcePath("Test835Data/input835_4.edi");
+        X12_835_Interchange full = X12_835_Parser.parseXML(X12_835_Parser.parseEDI(Files.readAllBytes(file)));
+        List<X12_835_Interchange.Loop2100ClaimPayment> expected = new ArrayList<>();
+        full.getHealthCareClaimPayment().getLoop2000Header().forEach(header -> expected.addAll(header.getLoop2100ClaimPayment()));
+
+        assertEquals(3, expected.size());
+        assertEquals(expected, collect(X12_RecordPublisher.claimPayments835(file), Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testLineItems850() throws Exception {
+        Path file = X12_LargeInputs.resourcePath("inputmessage.edi");
+        List<X12_850_Interchange.Item> expected = X12_850_Parser.parseXML(
+                X12_850_Parser.parseEDI(Files.readAllBytes(file))).getItems().getItemList();
+
+        assertEquals(2, expected.size());
+        assertEquals(expected, collect(X12_RecordPublisher.lineItems850(file, Runnable::run, 1), 1));
+    }
+
+    @Test
+    public void testDemandAndCancellation() throws Exception {
+        Path file = folder.newFile("claims.edi").toPath();
+        Files.write(file, MULTI_CLAIM_837.getBytes(StandardCharsets.UTF_8));
+
+        List<Object> received = new CopyOnWriteArrayList<>();
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+        X12_RecordPublisher.claims837(file, Runnable::run, 8).subscribe(new Flow.Subscriber<Object>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+            }
+
+            @Override
+            public void onNext(Object item) {
+                received.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                received.add(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                received.add("complete");
+            }
+        });
+
+        assertTrue("Nothing is read before demand", received.isEmpty());
+        subscription[0].request(1);
+        assertEquals(1, received.size());
+        assertTrue(received.get(0) instanceof X12_837_Interchange.Loop2300ClaimInformation);
+
+        subscription[0].cancel();
+        subscription[0].request(5);
+        assertEquals("No signals after cancel", 1, received.size());
+    }
+
+    @Test
+    public void testDefaultPoolIsBounded() throws Exception {
+        Path file = folder.newFile("claims.edi").toPath();
+        Files.write(file, MULTI_CLAIM_837.getBytes(StandardCharsets.UTF_8));
+        ThreadPoolExecutor pool = X12_RecordPublisher.defaultExecutor(1);
+        ExecutorService subscribers = Executors.newFixedThreadPool(3);
+        try {
+            Callable<List<X12_837_Interchange.Loop2300ClaimInformation>> subscriber =
+                    () -> collect(X12_RecordPublisher.claims837(file, pool, 1), 1);
+            // Three subscriptions share the one thread, taking turns as they request more.
+            for (Future<List<X12_837_Interchange.Loop2300ClaimInformation>> claims
+                    : subscribers.invokeAll(List.of(subscriber, subscriber, subscriber))) {
+                assertEquals(3, claims.get().size());
+            }
+            assertEquals(1, pool.getLargestPoolSize());
+        } finally {
+            subscribers.shutdownNow();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Subscribe and collect every record, requesting {@code step} records at a time.
+     */
+    private static <T> List<T> collect(Flow.Publisher<T> publisher, long step) throws Exception {
+        List<T> records = new CopyOnWriteArrayList<>();
+        Throwable[] failure = new Throwable[1];
+        CountDownLatch done = new CountDownLatch(1);
+        publisher.subscribe(new Flow.Subscriber<T>() {
+            private Flow.Subscription subscription;
+            private long outstanding;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                outstanding = step;
+                subscription.request(step);
+            }
+
+            @Override
+            public void onNext(T item) {
+                records.add(item);
+                if (step != Long.MAX_VALUE && --outstanding == 0) {
+                    outstanding = step;
+                    subscription.request(step);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                failure[0] = throwable;
+                done.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+        assertTrue("Publisher did not complete", done.await(120, TimeUnit.SECONDS));
+        if (failure[0] != null) {
+            throw new AssertionError("Publisher failed", failure[0]);
+        }
+        return records;
+    }
+}
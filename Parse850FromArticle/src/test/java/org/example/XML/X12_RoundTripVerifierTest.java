@@ -0,0 +1,90 @@
+package org.example.XML;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the corpus round-trip verifier.
+ */
+public class X12_RoundTripVerifierTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> normalize(String edi) {
+        return X12_RoundTripVerifier.normalize(edi.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testNormalizesDelimitersAndWhitespace() throws Exception {
+        String edi = X12_LargeInputs.resourceText("inputmessage.edi");
+        // Other delimiters, no line breaks, and a trailing empty element and component.
+        String other = edi.replace('*', '|').replaceFirst("~\n", "!").replace("~\n", " !\r\n")
+                .replace("REF|GX|1234-01", "REF|GX|1234-01||")
+                .replace("PID|F|MONITOR", "PID|F|MONITOR^");
+        assertEquals(normalize(edi), normalize(other));
+        assertEquals("PID*F*MONITOR", normalize(edi).get(8));
+        assertEquals(21, normalize(edi).size());
+        assertNotEquals(normalize(edi), normalize(edi.replace("REF*WS*LOC1", "REF*WS*LOC2")));
+    }
+
+    @Test
+    public void testCompareStaysInStep() {
+        List<String> expected = List.of("ST*850*1", "A*1", "B*2", "C*3", "D*4", "SE*6*1");
+        List<String> actual = List.of("ST*850*1", "A*1", "C*3", "X*9", "D*4", "SE*6*2");
+
+        List<X12_RoundTripVerifier.Mismatch> mismatches = X12_RoundTripVerifier.compare(expected, actual);
+        assertEquals(3, mismatches.size());
+        assertEquals(3, mismatches.get(0).getSegment());
+        assertEquals("B*2", mismatches.get(0).getExpected());
+        assertNull(mismatches.get(0).getActual());
+        assertEquals("X", mismatches.get(1).getSegmentId());
+        assertNull(mismatches.get(1).getExpected());
+        assertEquals("SE*6*1", mismatches.get(2).getExpected());
+        assertEquals("SE*6*2", mismatches.get(2).getActual());
+
+        assertTrue(X12_RoundTripVerifier.compare(expected, expected).isEmpty());
+        assertEquals(2, X12_RoundTripVerifier.compare(expected, expected.subList(0, 4)).size());
+    }
+
+    @Test
+    public void testVerifiesCorpusInParallel() throws Exception {
+        String edi = X12_LargeInputs.resourceText("inputmessage.edi");
+        Path corpus = folder.newFolder("corpus").toPath();
+        Files.writeString(corpus.resolve("a.edi"), edi, StandardCharsets.ISO_8859_1);
+        Files.createDirectories(corpus.resolve("sub"));
+        try (OutputStream out = X12_Compression.create(corpus.resolve("sub/b.edi.gz"))) {
+            out.write((edi + edi.replace("000001001", "000001002")).getBytes(StandardCharsets.ISO_8859_1));
+        }
+        Files.writeString(corpus.resolve("c.txt"), "not EDI");
+        Files.writeString(corpus.resolve("d.edi"), edi.replace("ST*850", "ST*999"), StandardCharsets.ISO_8859_1);
+
+        // A 1 KB in-flight limit makes the reader wait for the workers after each interchange.
+        X12_RoundTripVerifier verifier = new X12_RoundTripVerifier(2, 1024);
+        X12_RoundTripVerifier.Report report = verifier.verify(corpus);
+        System.out.println(report);
+
+        assertEquals(4, report.getFiles());
+        assertEquals(4, report.getInterchanges());
+        assertEquals(3, report.getIdenticalInterchanges());
+        assertEquals(0, report.getMismatchedInterchanges());
+        assertEquals(1, report.getFailedInterchanges());
+        assertEquals(Long.valueOf(1), report.getFailuresByStage().get(X12_RoundTripVerifier.Stage.PARSE));
+        assertEquals(corpus.resolve("d.edi"), report.getFailures().get(0).getFile());
+        assertTrue(report.getFailures().get(0).getMessage().contains("999"));
+        assertEquals(84, report.getSegments());
+        assertEquals(4L * edi.length() + "not EDI".length(), report.getBytes());
+        assertTrue(report.getMegabytesPerSecond() > 0);
+        assertFalse(report.isLossless());
+        assertTrue(verifier.verify(corpus.resolve("a.edi")).isLossless());
+    }
+}
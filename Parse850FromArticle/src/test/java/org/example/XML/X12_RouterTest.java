@@ -0,0 +1,167 @@
+package org.example.XML;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for transaction type detection and the routing of mixed multi-interchange files.
+ */
+public class X12_RouterTest {
+
+    private static final String VALID_837 =
+            "ISA*00*          *00*          *ZZ*SENDER123      *ZZ*RECEIVER456    *210901*1200*^*00501*000000001*0*P*:~" +
+                    "GS*HC*SENDER123*RECEIVER456*20210901*1200*1*X*005010X223A2~" +
+                    "ST*837*0001*005010X223A2~" +
+                    "BHT*0019*00*REF123456*20210901*1200*CH~" +
+                    "NM1*41*2*SUBMITTER ORGANIZATION*****46*SUB12345~" +
+                    "NM1*40*2*RECEIVER CORPORATION*****46*REC67890~" +
+                    "SE*5*0001~" +
+                    "GE*1*1~" +
+                    "IEA*1*000000001~";
+
+    private static final String CLAIM_STATUS_276 =
+            "ISA|00|          |00|          |ZZ|SUBMITTER      |ZZ|PAYER          |240801|0930|^|00501|000000042|0|P|>\n" +
+                    "GS|HR|SUBMITTER|PAYER|20240801|0930|42|X|005010X212\n" +
+                    "ST|276|0001|005010X212\n" +
+                    "SE|2|0001\n" +
+                    "GE|1|42\n" +
+                    "IEA|1|000000042\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The sample 276 of the claim status module, read from its jar.
+     */
+    private static byte[] claimStatus276() throws Exception {
+        try (InputStream in = X12_RouterTest.class.getClassLoader().getResourceAsStream("input276.edi")) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testSniffReadsEnvelope() throws Exception {
+        byte[] edi = VALID_837.getBytes(StandardCharsets.US_ASCII);
+        X12_Router.Interchange interchange = X12_Router.sniff(edi, edi.length);
+        assertEquals("SENDER123", interchange.getSenderId());
+        assertEquals("000000001", interchange.getInterchangeControlNumber());
+        assertEquals("HC", interchange.getFunctionalId());
+        assertEquals("837", interchange.getTransactionSetId());
+        assertEquals("005010X223A2", interchange.getImplementationGuide());
+        assertEquals(X12_ParseCache.TransactionType.X837, interchange.getType());
+
+        assertEquals(X12_ParseCache.TransactionType.X850, X12_Router.detect(X12_LargeInputs.resource("inputmessage.edi")));
+        assertEquals(X12_ParseCache.TransactionType.X835, X12_Router.detect(X12_LargeInputs.resource("Test835Data/input835.edi")));
+        assertEquals(X12_ParseCache.TransactionType.X276,
+                X12_Router.detect(CLAIM_STATUS_276.getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(X12_ParseCache.TransactionType.X277, X12_Router.detect(CLAIM_STATUS_276.replace("|HR|", "|HN|")
+                .replace("ST|276", "ST|277").getBytes(StandardCharsets.US_ASCII)));
+        assertNull("No parser for a 999", X12_Router.detect(CLAIM_STATUS_276.replace("|HR|", "|FA|")
+                .replace("ST|276", "ST|999").getBytes(StandardCharsets.US_ASCII)));
+        assertNull("Not X12", X12_Router.detect("<xml/>".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void testSniffFallsBackToFunctionalId() {
+        // Cut before the ST segment: the type comes from GS01.
+        byte[] edi = VALID_837.getBytes(StandardCharsets.US_ASCII);
+        X12_Router.Interchange interchange = X12_Router.sniff(edi, VALID_837.indexOf("ST*837"));
+        assertNull(interchange.getTransactionSetId());
+        assertEquals("005010X223A2", interchange.getImplementationGuide());
+        assertEquals(X12_ParseCache.TransactionType.X837, interchange.getType());
+    }
+
+    @Test
+    public void testParseEdiDispatchesOnType() throws Exception {
+        byte[] edi835 = X12_LargeInputs.resource("Test835Data/input835.edi");
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        X12_Router.Interchange interchange = X12_Router.parseEDI(new ByteArrayInputStream(edi835), xml);
+        assertEquals(X12_ParseCache.TransactionType.X835, interchange.getType());
+        assertEquals(X12_835_Parser.parseEDI(edi835), xml.toString(StandardCharsets.UTF_8));
+
+        byte[] edi276 = claimStatus276();
+        xml.reset();
+        assertEquals(X12_ParseCache.TransactionType.X276, X12_Router.parseEDI(new ByteArrayInputStream(edi276), xml).getType());
+        assertEquals(X12_276_Parser.parseEDI(edi276), xml.toString(StandardCharsets.UTF_8));
+
+        String acknowledgement = CLAIM_STATUS_276.replace("|HR|", "|FA|").replace("ST|276", "ST|999");
+        assertThrows(IllegalArgumentException.class, () -> X12_Router.parseEDI(
+                new ByteArrayInputStream(acknowledgement.getBytes(StandardCharsets.US_ASCII)), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void testRouteMixedClaimAndClaimStatusFile() throws Exception {
+        byte[] edi837 = VALID_837.getBytes(StandardCharsets.US_ASCII);
+        byte[] edi276 = claimStatus276();
+        Path mixed = folder.getRoot().toPath().resolve("claims-and-status.edi");
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (byte[] part : new byte[][]{edi276, edi837, edi276}) {
+            content.write(part);
+            content.write('\n');
+        }
+        Files.write(mixed, content.toByteArray());
+
+        Map<Long, ByteArrayOutputStream> xml = new HashMap<>();
+        List<X12_Router.Interchange> routed = X12_Router.route(mixed,
+                interchange -> xml.computeIfAbsent(interchange.getOffset(), key -> new ByteArrayOutputStream()));
+        assertEquals(3, routed.size());
+        assertEquals(X12_ParseCache.TransactionType.X276, routed.get(0).getType());
+        assertEquals(X12_ParseCache.TransactionType.X837, routed.get(1).getType());
+        String xml276 = X12_276_Parser.parseEDI(edi276);
+        assertEquals(xml276, xml.get(routed.get(0).getOffset()).toString(StandardCharsets.UTF_8));
+        assertEquals(X12_837_Parser.parseEDI(edi837), xml.get(routed.get(1).getOffset()).toString(StandardCharsets.UTF_8));
+        assertEquals(xml276, xml.get(routed.get(2).getOffset()).toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSplitAndRouteMixedFile() throws Exception {
+        byte[] edi850 = X12_LargeInputs.resource("inputmessage.edi");
+        byte[] edi835 = X12_LargeInputs.resource("Test835Data/input835.edi");
+        byte[] edi837 = VALID_837.getBytes(StandardCharsets.US_ASCII);
+        byte[] edi276 = claimStatus276();
+        Path mixed = folder.getRoot().toPath().resolve("inbound.edi");
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write("\n".getBytes(StandardCharsets.US_ASCII));
+        for (byte[] part : new byte[][]{edi837, edi850, edi276, edi835, edi837}) {
+            content.write(part);
+            content.write('\n');
+        }
+        Files.write(mixed, content.toByteArray());
+
+        List<X12_Router.Interchange> interchanges = X12_Router.scan(mixed);
+        assertEquals(5, interchanges.size());
+        assertEquals(1, interchanges.get(0).getOffset());
+        assertEquals(edi837.length + 1, interchanges.get(0).getLength());
+        assertEquals("276", interchanges.get(2).getTransactionSetId());
+
+        Path out = folder.newFolder("split").toPath();
+        Map<String, Path> files = X12_Router.split(mixed, out);
+        assertEquals(List.of("837", "850", "276", "835"), List.copyOf(files.keySet()));
+        assertEquals(VALID_837 + "\n" + VALID_837 + "\n", Files.readString(files.get("837"), StandardCharsets.US_ASCII));
+        assertEquals(edi276.length + 1, Files.size(files.get("276")));
+        assertEquals(edi835.length + 1, Files.size(files.get("835")));
+
+        Map<String, ByteArrayOutputStream> xml = new HashMap<>();
+        List<X12_Router.Interchange> routed = X12_Router.route(mixed,
+                interchange -> xml.computeIfAbsent(interchange.getOffset() + "", key -> new ByteArrayOutputStream()));
+        assertEquals(5, routed.size());
+        assertEquals(5, xml.size());
+        assertEquals(X12_837_Parser.parseEDI(edi837), xml.get(routed.get(0).getOffset() + "").toString(StandardCharsets.UTF_8));
+        assertEquals(X12_850_Parser.parseEDI(edi850), xml.get(routed.get(1).getOffset() + "").toString(StandardCharsets.UTF_8));
+        assertEquals(X12_276_Parser.parseEDI(edi276), xml.get(routed.get(2).getOffset() + "").toString(StandardCharsets.UTF_8));
+        assertEquals(X12_835_Parser.parseEDI(edi835), xml.get(routed.get(3).getOffset() + "").toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,355 @@
+package org.example.XML;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import com.sun.management.ThreadMXBean;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs each parsing mode over generated 837s and 835s of increasing size, under the heap
+ * the {@code scaling} profile gives the test JVM, and fails on throughput or memory that
+ * does not scale:
+ * <ul>
+ *   <li>claims per second at the largest size must reach the mode's floor and at least
+ *   half the rate at the smallest size (time that grows faster than the input);</li>
+ *   <li>bytes allocated per claim, from {@link ThreadMXBean#getThreadAllocatedBytes(long)},
+ *   must stay within twice the smallest size's (allocation that grows faster than the
+ *   input);</li>
+ *   <li>the most heap held after any collection during a run, from the heap
+ *   {@link MemoryPoolMXBean}s' usage in each collection's {@link GcInfo}, must not grow
+ *   with the input for the streaming modes, and must stay within
+ *   {@code x12.scaling.bytesPerInputByte} per byte of EDI for the DFDL parses, which keep
+ *   the infoset of the whole document even when reading a stream.</li>
+ * </ul>
+ * The pools' own peaks, garbage included, are printed beside it.
+ * Run with {@code mvn -Pscaling verify}; the sizes, heap and floors are properties of the
+ * profile. The DFDL-based modes parse about a hundred claims a second, so they stop at
+ * {@code x12.scaling.dfdlClaims}. Skipped when no sizes are configured; {@link X12_ScalingTest}
+ * runs the same checks at smoke sizes in every build.
+ */
+public class X12_ScalingIT {
+
+    /** Claims per transaction set of the batch parser's input. */
+    private static final int CLAIMS_PER_SET = 100;
+    private static final long MB = 1024 * 1024;
+
+    private static int[] sizes;
+    private static int dfdlClaims;
+    /** How far the checks are loosened: floors are divided and ratios and slack multiplied by it. */
+    private static double tolerance;
+    /** How long each measurement repeats its run for. */
+    private static long minMillis;
+    private static Path directory;
+    private static final Map<String, Path> inputs = new HashMap<>();
+
+    @BeforeClass
+    public static void configure() throws IOException {
+        String claims = System.getProperty("x12.scaling.claims");
+        Assume.assumeTrue("No x12.scaling.claims configured", claims != null && !claims.isBlank());
+        configure(claims, Integer.getInteger("x12.scaling.dfdlClaims", 10_000), 1,
+                Long.getLong("x12.scaling.minMillis", 500));
+    }
+
+    static void configure(String claims, int dfdlClaimLimit, double checkTolerance, long measureMillis)
+            throws IOException {
+        sizes = Arrays.stream(claims.split(",")).map(String::trim).mapToInt(Integer::parseInt).sorted().toArray();
+        dfdlClaims = dfdlClaimLimit;
+        tolerance = checkTolerance;
+        minMillis = measureMillis;
+        inputs.clear();
+        directory = Files.createTempDirectory("x12-scaling");
+    }
+
+    @AfterClass
+    public static void cleanUp() throws IOException {
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * One parsing mode over one input file.
+     */
+    @FunctionalInterface
+    private interface Mode {
+        void run(Path input) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    private static final class Measurement {
+        final int claims;
+        final long bytes;
+        final long nanos;
+        final long allocatedBytes;
+        /** Most heap held after a collection during the run, above the heap before it. */
+        final long peakHeapGrowth;
+        /** Sum of the heap pools' peaks above the heap before the run, garbage included. */
+        final long peakPoolGrowth;
+
+        Measurement(int claims, long bytes, long nanos, long allocatedBytes, long peakHeapGrowth, long peakPoolGrowth) {
+            this.claims = claims;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+            this.peakHeapGrowth = peakHeapGrowth;
+            this.peakPoolGrowth = peakPoolGrowth;
+        }
+
+        double claimsPerSecond() {
+            return claims / (nanos / 1e9);
+        }
+
+        double allocatedPerClaim() {
+            return (double) allocatedBytes / claims;
+        }
+    }
+
+    // ---- modes ----
+
+    @Test
+    public void testStructuralValidation() throws Exception {
+        for (String type : new String[]{"837", "835"}) {
+            List<Measurement> measurements = measure("validate " + type, type, Integer.MAX_VALUE, 0, input -> {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(input))) {
+                    assertTrue(X12_StructuralValidator.validate(in).isValid());
+                }
+            });
+            assertScales("validate " + type, measurements, floor("validate", 20_000), true);
+        }
+    }
+
+    @Test
+    public void testQuery() throws Exception {
+        for (String type : new String[]{"837", "835"}) {
+            X12_ParseCache.TransactionType transactionType = type.equals("837")
+                    ? X12_ParseCache.TransactionType.X837 : X12_ParseCache.TransactionType.X835;
+            X12_Query query = X12_Query.compile(transactionType, type.equals("837") ? "CLM/CLM01" : "CLP/CLP01");
+            List<Measurement> measurements = measure("query " + type, type, Integer.MAX_VALUE, 0, input -> {
+                try (InputStream in = Files.newInputStream(input)) {
+                    query.evaluate(in, record -> { });
+                }
+            });
+            assertScales("query " + type, measurements, floor("query", 5_000), true);
+        }
+    }
+
+    @Test
+    public void testStreamingParse() throws Exception {
+        for (String type : new String[]{"837", "835"}) {
+            List<Measurement> measurements = measure("parseEDI stream " + type, type, dfdlClaims, 0, input -> {
+                try (InputStream in = Files.newInputStream(input)) {
+                    if (type.equals("837")) {
+                        X12_837_Parser.parseEDI(in, OutputStream.nullOutputStream());
+                    } else {
+                        X12_835_Parser.parseEDI(in, OutputStream.nullOutputStream());
+                    }
+                }
+            });
+            assertScales("parseEDI stream " + type, measurements, floor("stream", 20), false);
+        }
+    }
+
+    @Test
+    public void testStringPipeline() throws Exception {
+        for (String type : new String[]{"837", "835"}) {
+            List<Measurement> measurements = measure("parseEDI + parseXML " + type, type, dfdlClaims, 0, input -> {
+                byte[] edi = Files.readAllBytes(input);
+                if (type.equals("837")) {
+                    assertNotNull(X12_837_Parser.parseXML(X12_837_Parser.parseEDI(edi, X12_ValidationMode.NONE)));
+                } else {
+                    assertNotNull(X12_835_Parser.parseXML(X12_835_Parser.parseEDI(edi, X12_ValidationMode.NONE)));
+                }
+            });
+            assertScales("parseEDI + parseXML " + type, measurements, floor("string", 20), false);
+        }
+    }
+
+    @Test
+    public void testBatchParse() throws Exception {
+        for (String type : new String[]{"837", "835"}) {
+            X12_BatchParser parser = new X12_BatchParser(X12_ValidationMode.NONE);
+            List<Measurement> measurements = measure("batch " + type, type, dfdlClaims, CLAIMS_PER_SET, input -> {
+                try (InputStream in = Files.newInputStream(input)) {
+                    assertTrue(parser.parse(in, (set, xml) -> { }).isClean());
+                }
+            });
+            assertScales("batch " + type, measurements, floor("batch", 20), true);
+        }
+    }
+
+    // ---- measuring ----
+
+    private static double floor(String mode, double defaultFloor) {
+        String value = System.getProperty("x12.scaling.floor." + mode);
+        return (value == null ? defaultFloor : Double.parseDouble(value)) / tolerance;
+    }
+
+    private static Path input(String type, int claims, int claimsPerSet) throws Exception {
+        String key = type + "-" + claims + "-" + claimsPerSet;
+        Path file = inputs.get(key);
+        if (file == null) {
+            file = directory.resolve(key + ".edi");
+            X12_LargeInputs generator = type.equals("837") ? X12_LargeInputs.x837() : X12_LargeInputs.x835();
+            try (OutputStream out = Files.newOutputStream(file)) {
+                generator.write(out, claims, claimsPerSet == 0 ? claims : claimsPerSet);
+            }
+            inputs.put(key, file);
+        }
+        return file;
+    }
+
+    /**
+     * Run a mode at every configured size up to {@code maxClaims}, after a warm-up at the
+     * smallest.
+     */
+    private static List<Measurement> measure(String name, String type, int maxClaims, int claimsPerSet, Mode mode)
+            throws Exception {
+        List<Measurement> measurements = new ArrayList<>();
+        Path warmUp = input(type, sizes[0], claimsPerSet);
+        measure(sizes[0], Files.size(warmUp), () -> mode.run(warmUp));
+        for (int claims : sizes) {
+            if (claims > maxClaims) {
+                continue;
+            }
+            Path input = input(type, claims, claimsPerSet);
+            Measurement measurement = measure(claims, Files.size(input), () -> mode.run(input));
+            System.out.printf("%-24s %9d claims %8d KB: %9.0f claims/s, %9.0f bytes allocated/claim, "
+                            + "retained +%d MB, pool peaks +%d MB%n", name, claims, measurement.bytes / 1024,
+                    measurement.claimsPerSecond(), measurement.allocatedPerClaim(), measurement.peakHeapGrowth / MB,
+                    measurement.peakPoolGrowth / MB);
+            measurements.add(measurement);
+        }
+        return measurements;
+    }
+
+    /**
+     * Measure a run, repeated until it has taken {@code x12.scaling.minMillis} (or the smoke
+     * tier's limit) so that the small sizes are not timed on a few milliseconds; time and
+     * allocation are per run.
+     */
+    private static Measurement measure(int claims, long bytes, Task run) throws Exception {
+        long minNanos = minMillis * 1_000_000;
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pools.add(pool);
+            }
+        }
+        // What a run retains is what survives its collections; the pools' peaks between
+        // collections also count garbage, so they are only reported.
+        AtomicLong retained = new AtomicLong();
+        NotificationListener listener = (notification, handback) -> {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                GcInfo gc = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()).getGcInfo();
+                long used = 0;
+                for (MemoryPoolMXBean pool : pools) {
+                    MemoryUsage usage = gc.getMemoryUsageAfterGc().get(pool.getName());
+                    used += usage == null ? 0 : usage.getUsed();
+                }
+                retained.accumulateAndGet(used, Math::max);
+            }
+        };
+        System.gc();
+        long baseline = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            pool.resetPeakUsage();
+            baseline += pool.getUsage().getUsed();
+        }
+        retained.set(baseline);
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+        }
+        long thread = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long nanos;
+        long allocated;
+        try {
+            int runs = 0;
+            do {
+                run.run();
+                runs++;
+                nanos = System.nanoTime() - start;
+            } while (nanos < minNanos);
+            nanos /= runs;
+            allocated = (threads.getThreadAllocatedBytes(thread) - allocatedBefore) / runs;
+            // Collect once more so a run that ended before any collection is still measured.
+            System.gc();
+        } finally {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) collector).removeNotificationListener(listener);
+            }
+        }
+        long peak = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return new Measurement(claims, bytes, nanos, allocated, Math.max(0, retained.get() - baseline),
+                Math.max(0, peak - baseline));
+    }
+
+    private static void assertScales(String name, List<Measurement> measurements, double floor, boolean streaming) {
+        Measurement smallest = measurements.get(0);
+        Measurement largest = measurements.get(measurements.size() - 1);
+        assertTrue(String.format("%s: %.0f claims/s at %d claims is below the floor of %.0f", name,
+                largest.claimsPerSecond(), largest.claims, floor), largest.claimsPerSecond() >= floor);
+        assertTrue(String.format("%s: %.0f claims/s at %d claims but %.0f at %d", name, largest.claimsPerSecond(),
+                        largest.claims, smallest.claimsPerSecond(), smallest.claims),
+                largest.claimsPerSecond() >= smallest.claimsPerSecond() / (2 * tolerance));
+        assertTrue(String.format("%s: %.0f bytes allocated per claim at %d claims but %.0f at %d", name,
+                        largest.allocatedPerClaim(), largest.claims, smallest.allocatedPerClaim(), smallest.claims),
+                largest.allocatedPerClaim() <= 2 * tolerance * smallest.allocatedPerClaim());
+        long slack = (long) (Long.getLong("x12.scaling.slackMb", 64) * MB * tolerance);
+        if (streaming) {
+            assertTrue(String.format("%s: peak heap grew %d MB at %d claims but %d MB at %d", name,
+                            largest.peakHeapGrowth / MB, largest.claims, smallest.peakHeapGrowth / MB, smallest.claims),
+                    largest.peakHeapGrowth <= smallest.peakHeapGrowth + slack);
+        } else {
+            long budget = Long.getLong("x12.scaling.bytesPerInputByte", 64);
+            for (Measurement measurement : measurements) {
+                assertTrue(String.format("%s: peak heap grew %d MB for %d KB of EDI", name,
+                                measurement.peakHeapGrowth / MB, measurement.bytes / 1024),
+                        measurement.peakHeapGrowth <= budget * measurement.bytes + slack);
+            }
+        }
+    }
+}
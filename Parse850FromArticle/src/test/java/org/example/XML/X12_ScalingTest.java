@@ -0,0 +1,20 @@
+package org.example.XML;
+
+import org.junit.BeforeClass;
+
+import java.io.IOException;
+
+/**
+ * A smoke tier of {@link X12_ScalingIT}, run by every build: the streaming modes at 10 and 1,000
+ * claims and the DFDL-based modes at 10, each measured once rather than repeated, with the
+ * checks loosened for a shared test JVM. It catches a mode that breaks or degrades grossly;
+ * the scaling itself is checked by {@code mvn -Pscaling verify}.
+ */
+public class X12_ScalingTest extends X12_ScalingIT {
+
+    /** Hides {@link X12_ScalingIT#configure()}, which skips unless the profile sets the sizes. */
+    @BeforeClass
+    public static void configure() throws IOException {
+        configure("10,1000", 10, 4, 0);
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.XML;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the OutputStream/Writer/Channel overloads produce the same output as the
+ * String-returning methods and leave the caller's targets open.
+ */
+public class X12_SinkOutputTest {
+
+    @Test
+    public void testParseEdiToSinksMatchesString() throws Exception {
+        byte[] edi = X12_LargeInputs.resource("inputmessage.edi");
+        String expected = X12_850_Parser.parseEDI(edi);
+
+        TrackingOutputStream out = new TrackingOutputStream();
+        X12_850_Parser.parseEDI(new ByteArrayInputStream(edi), out);
+        assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+        assertFalse("Caller's stream must stay open", out.closed);
+
+        StringWriter writer = new StringWriter();
+        X12_850_Parser.parseEDI(new ByteArrayInputStream(edi), writer);
+        assertEquals(expected, writer.toString());
+    }
+
+    @Test
+    public void testModelWritersMatchStrings() throws Exception {
+        X12_835_Interchange interchange = X12_835_Parser.parseXML(X12_835_Parser.parseEDI(X12_LargeInputs.resource("Test835Data/input835_4.edi")));
+
+        TrackingOutputStream json = new TrackingOutputStream();
+        X12_835_Parser.writeJson(interchange, json);
+        assertEquals(X12_835_Parser.toJson(interchange), json.toString(StandardCharsets.UTF_8));
+        assertFalse(json.closed);
+
+        StringWriter yaml = new StringWriter();
+        X12_835_Parser.writeYaml(interchange, yaml);
+        assertEquals(X12_835_Parser.toYaml(interchange), yaml.toString());
+
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        X12_835_Parser.writeXml(interchange, Channels.newChannel(xml));
+        assertEquals(X12_835_Parser.toXml(interchange), xml.toString(StandardCharsets.UTF_8));
+        assertEquals(X12_835_Parser.parseXML(xml.toString(StandardCharsets.UTF_8)),
+                X12_835_Parser.parseXML(new ByteArrayInputStream(xml.toByteArray())));
+    }
+
+    @Test
+    public void testWriteEdiMatchesString() throws Exception {
+        X12_850_Interchange interchange = X12_850_Parser.parseXML(X12_850_Parser.parseEDI(X12_LargeInputs.resource("inputmessage.edi")));
+
+        TrackingOutputStream out = new TrackingOutputStream();
+        X12_850_Parser.writeEDI(interchange, out);
+        assertEquals(X12_850_Parser.toEdiString(interchange), out.toString(StandardCharsets.UTF_8));
+        assertFalse(out.closed);
+    }
+
+    @Test
+    public void testWriteEdiStreamsALargeInterchange() throws Exception {
+        ByteArrayOutputStream edi = new ByteArrayOutputStream();
+        X12_LargeInputs.x837().write(edi, 100, 100);
+        X12_837_Interchange interchange = X12_837_Parser.parseXML(X12_837_Parser.parseEDI(edi.toByteArray()));
+        assertTrue("XML must outgrow what the pipe holds", X12_837_Parser.toXml(interchange).length()
+                > (X12_Sinks.PIPE_QUEUED_CHUNKS + 2) * X12_Sinks.PIPE_CHUNK_SIZE);
+
+        StringWriter out = new StringWriter();
+        X12_837_Parser.writeEDI(interchange, out);
+        assertEquals(X12_837_Parser.toEdiString(interchange), out.toString());
+    }
+
+    @Test
+    public void testPipeHoldsTheSameBytesWhateverItsSize() throws Exception {
+        long bound = (X12_Sinks.PIPE_QUEUED_CHUNKS + 2L) * X12_Sinks.PIPE_CHUNK_SIZE + 1024;
+        long small = maxBuffered(8L << 20);
+        long large = maxBuffered(64L << 20);
+        assertTrue("Writer never ran ahead: " + small, small >= X12_Sinks.PIPE_QUEUED_CHUNKS * (long) X12_Sinks.PIPE_CHUNK_SIZE);
+        assertTrue("8 MB held " + small, small <= bound);
+        assertTrue("64 MB held " + large, large <= bound);
+    }
+
+    /**
+     * Pipe {@code size} bytes to a slower reader.
+     *
+     * @return the most bytes written but not yet read at any time
+     */
+    private static long maxBuffered(long size) throws Exception {
+        AtomicLong read = new AtomicLong();
+        AtomicLong maxBuffered = new AtomicLong();
+        byte[] block = new byte[1024];
+        try (InputStream in = X12_Sinks.pipe("test", out -> {
+            for (long written = 0; written < size; written += block.length) {
+                out.write(block);
+                maxBuffered.accumulateAndGet(written + block.length - read.get(), Math::max);
+            }
+        })) {
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                if (read.addAndGet(n) % (1 << 20) == 0) {
+                    Thread.sleep(1);
+                }
+            }
+        }
+        assertEquals(size, read.get());
+        return maxBuffered.get();
+    }
+
+    @Test
+    public void testPipeReportsWriterFailureAfterItsOutput() throws Exception {
+        try (InputStream in = X12_Sinks.pipe("test", out -> {
+            out.write("<partial".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("model not serializable");
+        })) {
+            assertEquals('<', in.read());
+            in.readAllBytes();
+            fail("The writer's failure must reach the reader");
+        } catch (IOException e) {
+            assertEquals("model not serializable", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testClosingThePipeStopsTheWriter() throws Exception {
+        CountDownLatch stopped = new CountDownLatch(1);
+        InputStream in = X12_Sinks.pipe("test", out -> {
+            try {
+                while (true) {
+                    out.write(new byte[1024]);
+                }
+            } finally {
+                stopped.countDown();
+            }
+        });
+        assertTrue(in.read() >= 0);
+        in.close();
+        assertTrue("Writer still running after close", stopped.await(10, TimeUnit.SECONDS));
+    }
+
+    private static final class TrackingOutputStream extends ByteArrayOutputStream {
+        boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
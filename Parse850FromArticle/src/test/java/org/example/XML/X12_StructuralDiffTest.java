@@ -0,0 +1,119 @@
+package org.example.XML;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the claim-aligned structural diff of 837 and 835 models.
+ */
+public class X12_StructuralDiffTest {
+
+    private static final String CLAIMS = "Loop_2300_ClaimInformation";
+
+    private static List<String> changes(X12_StructuralDiff.Result result) {
+        List<String> changes = new ArrayList<>();
+        for (X12_StructuralDiff.Change change : result.getChanges()) {
+            changes.add(change.toString());
+        }
+        return changes;
+    }
+
+    @Test
+    public void testAlignsClaimsAndServiceLines() throws Exception {
+        X12_837_Interchange original = X12_837_Parser.parseXML(X12_837_Parser.parseEDI(X12_LargeInputs.x837().generate(5)));
+        X12_837_Interchange resubmission = X12_837_Parser.parseXML(X12_837_Parser.parseEDI(X12_LargeInputs.x837().generate(7)));
+        List<X12_837_Interchange.Loop2300ClaimInformation> claims = resubmission.getLoop2300ClaimInformation();
+
+        // Drop PATIENT00004 and PATIENT00005, keep PATIENT00006, and reorder the rest.
+        claims.remove(5);
+        claims.remove(4);
+        Collections.swap(claims, 0, 2);
+        claims.get(1).getClaimInformation().setMonetaryAmount("555.00");
+        claims.get(3).getLoop2400ServiceLineInformation().get(1).getProfessionalService().setMonetaryAmount("250.00");
+        claims.get(3).getLoop2400ServiceLineInformation().remove(2);
+
+        X12_StructuralDiff.Result result = X12_StructuralDiff.diff(original, resubmission);
+        assertEquals(List.of(
+                "CHANGED " + CLAIMS + "[PATIENT00001]/claim-information/monetary-amount: 101.00 -> 555.00",
+                "CHANGED " + CLAIMS + "[PATIENT00003]/Loop_2400_ServiceLineInformation[2]/professional-service/monetary-amount: 200.00 -> 250.00",
+                "REMOVED " + CLAIMS + "[PATIENT00003]/Loop_2400_ServiceLineInformation[3]",
+                "REMOVED " + CLAIMS + "[PATIENT00004]",
+                "ADDED " + CLAIMS + "[PATIENT00006]",
+                "CHANGED transaction-set-trailer/number-of-included-segments: 160 -> 216"), changes(result));
+        assertEquals("PATIENT00003", result.getChanges().get(1).getClaimId());
+        assertEquals(4, result.getMatchedClaims());
+        assertEquals(2, result.getIdenticalClaims());
+        assertEquals(2, result.getChangedClaims());
+        assertEquals(1, result.getAddedClaims());
+        assertEquals(1, result.getRemovedClaims());
+
+        // Reordering alone is not a change.
+        X12_837_Interchange reordered = X12_837_Parser.parseXML(X12_837_Parser.parseEDI(X12_LargeInputs.x837().generate(5)));
+        Collections.reverse(reordered.getLoop2300ClaimInformation());
+        assertTrue(X12_StructuralDiff.diff(original, reordered).isIdentical());
+    }
+
+    @Test
+    public void testDiff835() throws Exception {
+        Path path = X12_LargeInputs.resourcePath("Test835Data/input835_4.edi");
+        String edi = Files.readString(path);
+        X12_835_Interchange original = X12_835_Parser.parseXML(X12_835_Parser.parseEDI(edi));
+        // The second and third claims share CLP01 and are aligned in order.
+        X12_835_Interchange resubmission = X12_835_Parser.parseXML(X12_835_Parser.parseEDI(edi
+                .replace("CLP*PATIENT ACCOUNT NUMBER*1*256.46*223.64", "CLP*PATIENT ACCOUNT NUMBER*1*256.46*200.00")
+                .replace("TRN*1*10100000000", "TRN*1*10100000001")));
+
+        X12_StructuralDiff.Result result = X12_StructuralDiff.diff(original, resubmission);
+        String claim = "HealthCareClaimPayment/Loop_2000_Header[1]/Loop_2100_ClaimPayment[PATIENT ACCOUNT NUMBER#2]";
+        assertEquals(List.of(
+                "CHANGED HealthCareClaimPayment/reassociation-trace-number/reference-identification: 10100000000 -> 10100000001",
+                "CHANGED " + claim + "/claim-payment-information/claim-payment-amount: 223.64 -> 200.00"), changes(result));
+        assertNull(result.getChanges().get(0).getClaimId());
+        assertEquals("PATIENT ACCOUNT NUMBER#2", result.getChanges().get(1).getClaimId());
+        assertEquals(3, result.getMatchedClaims());
+        assertEquals(2, result.getIdenticalClaims());
+    }
+
+    @Test
+    public void testDiffOfLargeFiles() throws Exception {
+        int claims = 100_000;
+        X12_837_Interchange original = X12_837_Parser.parseXML(X12_837_Parser.parseEDI(X12_LargeInputs.x837().generate(1)));
+        X12_837_Interchange resubmission = X12_837_Parser.parseXML(X12_837_Parser.parseEDI(X12_LargeInputs.x837().generate(1)));
+        ObjectMapper mapper = new ObjectMapper();
+        X12_837_Interchange.Loop2300ClaimInformation claim = original.getLoop2300ClaimInformation().get(0);
+        List<X12_837_Interchange.Loop2300ClaimInformation> a = new ArrayList<>();
+        List<X12_837_Interchange.Loop2300ClaimInformation> b = new ArrayList<>();
+        for (int i = 0; i < claims; i++) {
+            X12_837_Interchange.Loop2300ClaimInformation copy = mapper.convertValue(claim, X12_837_Interchange.Loop2300ClaimInformation.class);
+            copy.getClaimInformation().setClaimSubmittersIdentifier(String.format("PATIENT%06d", i));
+            a.add(copy);
+            copy = mapper.convertValue(copy, X12_837_Interchange.Loop2300ClaimInformation.class);
+            if (i % 1000 == 0) {
+                copy.getClaimInformation().setMonetaryAmount("1.00");
+            }
+            b.add(copy);
+        }
+        Collections.reverse(b);
+        original.setLoop2300ClaimInformation(a);
+        resubmission.setLoop2300ClaimInformation(b);
+
+        X12_StructuralDiff.diff(original, original);
+        long start = System.nanoTime();
+        X12_StructuralDiff.Result result = X12_StructuralDiff.diff(original, resubmission);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Diff of two 837s with %d claims: %d ms%n", claims, elapsed / 1_000_000);
+
+        assertEquals(claims, result.getMatchedClaims());
+        assertEquals(claims / 1000, result.getChangedClaims());
+        assertEquals(claims / 1000, result.getChanges().size());
+        assertTrue(elapsed / 1_000_000 + " ms", elapsed < 10_000_000_000L);
+    }
+}
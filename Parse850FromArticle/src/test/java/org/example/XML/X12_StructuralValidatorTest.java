@@ -0,0 +1,88 @@
+package org.example.XML;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the structural pre-validator and the validation tiers on the parser APIs.
+ */
+public class X12_StructuralValidatorTest {
+
+    private static final String VALID_837 =
+            "ISA*00*          *00*          *ZZ*SENDER123      *ZZ*RECEIVER456    *210901*1200*^*00501*000000001*0*P*:~" +
+                    "GS*HC*SENDER123*RECEIVER456*20210901*1200*1*X*005010X223A2~" +
+                    "ST*837*0001*005010X223A2~" +
+                    "BHT*0019*00*REF123456*20210901*1200*CH~" +
+                    "NM1*41*2*SUBMITTER ORGANIZATION*****46*SUB12345~" +
+                    "NM1*40*2*RECEIVER CORPORATION*****46*REC67890~" +
+                    "SE*5*0001~" +
+                    "GE*1*1~" +
+                    "IEA*1*000000001~";
+
+    @Test
+    public void testValidInterchange() throws Exception {
+        X12_StructuralValidator.Result result = X12_StructuralValidator.validate(VALID_837.getBytes(StandardCharsets.UTF_8));
+        assertTrue("Expected no errors but got " + result.getErrors(), result.isValid());
+        assertEquals(1, result.getInterchangeCount());
+        assertEquals(1, result.getTransactionSetCount());
+        assertEquals(9, result.getSegmentCount());
+    }
+
+    @Test
+    public void testValidSampleFilesWithLineBreaks() throws Exception {
+        assertTrue(X12_StructuralValidator.validate(X12_LargeInputs.resource("inputmessage.edi")).isValid());
+        assertTrue(X12_StructuralValidator.validate(X12_LargeInputs.resource("Test835Data/input835_2.edi")).isValid());
+    }
+
+    @Test
+    public void testWrongSegmentCount() throws Exception {
+        X12_StructuralValidator.Result result = X12_StructuralValidator.validate(X12_LargeInputs.resource("Test835Data/input835.edi"));
+        assertFalse(result.isValid());
+        assertEquals(1, result.getErrors().size());
+        X12_StructuralValidator.ValidationError error = result.getErrors().get(0);
+        assertEquals("SE", error.getSegmentId());
+        assertEquals(22, error.getSegmentPosition());
+        assertTrue(error.getMessage().contains("22 but 20"));
+    }
+
+    @Test
+    public void testControlNumberMismatches() throws Exception {
+        String edi = VALID_837.replace("SE*5*0001", "SE*5*0002")
+                .replace("GE*1*1~", "GE*2*7~")
+                .replace("IEA*1*000000001", "IEA*1*000000009");
+        X12_StructuralValidator.Result result = X12_StructuralValidator.validate(edi.getBytes(StandardCharsets.UTF_8));
+        assertEquals(4, result.getErrors().size());
+        assertEquals("SE", result.getErrors().get(0).getSegmentId());
+        assertEquals("GE", result.getErrors().get(1).getSegmentId());
+        assertEquals("GE", result.getErrors().get(2).getSegmentId());
+        assertEquals("IEA", result.getErrors().get(3).getSegmentId());
+    }
+
+    @Test
+    public void testMissingTrailers() throws Exception {
+        String edi = VALID_837.substring(0, VALID_837.indexOf("SE*"));
+        X12_StructuralValidator.Result result = X12_StructuralValidator.validate(edi.getBytes(StandardCharsets.UTF_8));
+        assertEquals(3, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("Missing SE"));
+        assertTrue(result.getErrors().get(2).getMessage().startsWith("Missing IEA"));
+    }
+
+    @Test
+    public void testValidationTiersProduceSameXml() throws Exception {
+        byte[] edi = VALID_837.getBytes(StandardCharsets.UTF_8);
+        String full = X12_837_Parser.parseEDI(edi, X12_ValidationMode.FULL);
+        assertEquals(full, X12_837_Parser.parseEDI(edi, X12_ValidationMode.STRUCTURAL));
+        assertEquals(full, X12_837_Parser.parseEDI(edi, X12_ValidationMode.NONE));
+        assertSame("Engines are cached per tier",
+                X12_SmooksEngines.parser(X12_837_Parser.PARSE_CONFIG, X12_ValidationMode.NONE),
+                X12_SmooksEngines.parser(X12_837_Parser.PARSE_CONFIG, X12_ValidationMode.NONE));
+    }
+
+    @Test(expected = X12_StructuralValidator.StructuralValidationException.class)
+    public void testStructuralTierRejectsBadCounts() throws Exception {
+        X12_835_Parser.parseEDI(X12_LargeInputs.resource("Test835Data/input835.edi"), X12_ValidationMode.STRUCTURAL);
+    }
+}
@@ -0,0 +1,224 @@
+package org.example.XML;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking conversion work on a bounded executor, admitting it by the number of input
+ * bytes in flight. The asynchronous parser facades extend it.
+ * <p>
+ * Every task returns a {@link CompletableFuture}, so stages can be composed with
+ * {@code thenCompose} without tying up request threads. Once the configured limit is reached
+ * new work is either rejected immediately or queued until running work completes, depending
+ * on the {@link AdmissionPolicy}. A single input larger than the limit is admitted when
+ * nothing else is in flight, so it cannot starve. Work is likewise only handed to an
+ * executor this class created while its workers and queue have room, so queued work waits
+ * here rather than being refused by the pool.
+ */
+@Slf4j
+public class X12_AdmissionExecutor implements AutoCloseable {
+
+    /**
+     * What to do with work that would exceed the in-flight byte limit.
+     */
+    public enum AdmissionPolicy {
+        /** Complete the returned future exceptionally with a {@link RejectedExecutionException}. */
+        REJECT,
+        /** Hold the work (without blocking the caller) until enough in-flight bytes are released. */
+        QUEUE
+    }
+
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final long maxInFlightBytes;
+    private final AdmissionPolicy admissionPolicy;
+    /** Admitted tasks the executor can hold at once, running or queued. */
+    private final int maxDispatched;
+
+    private final Deque<Admission<?>> waiting = new ArrayDeque<>();
+    private long inFlightBytes;
+    private int dispatched;
+    private boolean closed;
+
+    /**
+     * @param threads          number of worker threads
+     * @param queueCapacity    number of admitted tasks that may wait for a worker; further
+     *                         work is held, or rejected, by the admission policy
+     * @param maxInFlightBytes input bytes that may be admitted at once
+     * @param admissionPolicy  what to do with work beyond the byte or task limit
+     * @param threadNamePrefix prefix of the worker threads' names
+     */
+    public X12_AdmissionExecutor(int threads, int queueCapacity, long maxInFlightBytes, AdmissionPolicy admissionPolicy,
+                                 String threadNamePrefix) {
+        // The queue can hold every admitted task: a worker that has released its slot may not
+        // have taken the next task yet, so a queue of only queueCapacity could still refuse one.
+        this(new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(threads + queueCapacity), new WorkerThreadFactory(threadNamePrefix),
+                        new ThreadPoolExecutor.AbortPolicy()),
+                true, maxInFlightBytes, admissionPolicy, threads + queueCapacity);
+    }
+
+    /**
+     * Use a caller-supplied executor. It is not shut down by {@link #close()}, and work it
+     * refuses fails with its {@link RejectedExecutionException}.
+     */
+    public X12_AdmissionExecutor(ExecutorService executor, long maxInFlightBytes, AdmissionPolicy admissionPolicy) {
+        this(executor, false, maxInFlightBytes, admissionPolicy, Integer.MAX_VALUE);
+    }
+
+    private X12_AdmissionExecutor(ExecutorService executor, boolean ownsExecutor, long maxInFlightBytes,
+                                  AdmissionPolicy admissionPolicy, int maxDispatched) {
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.admissionPolicy = admissionPolicy;
+        this.maxDispatched = maxDispatched;
+    }
+
+    /**
+     * Run any task under this executor's admission control.
+     *
+     * @param weightBytes the number of input bytes the task holds while running
+     * @param task        the blocking work to run
+     */
+    public <T> CompletableFuture<T> submit(long weightBytes, Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Admission<T> admission = new Admission<>(weightBytes, task, future);
+        synchronized (this) {
+            if (closed) {
+                future.completeExceptionally(new RejectedExecutionException(getClass().getSimpleName() + " is closed"));
+                return future;
+            }
+            if (!waiting.isEmpty() || !fits(weightBytes)) {
+                if (admissionPolicy == AdmissionPolicy.REJECT) {
+                    future.completeExceptionally(new RejectedExecutionException(dispatched >= maxDispatched
+                            ? "Task limit of " + maxDispatched + " reached"
+                            : "In-flight limit of " + maxInFlightBytes + " bytes reached (" + inFlightBytes + " in flight)"));
+                    return future;
+                }
+                waiting.add(admission);
+                log.debug("Queued {} byte task behind {} in-flight bytes and {} tasks", weightBytes, inFlightBytes,
+                        dispatched);
+                return future;
+            }
+            admit(weightBytes);
+        }
+        dispatch(admission);
+        return future;
+    }
+
+    public synchronized long getInFlightBytes() {
+        return inFlightBytes;
+    }
+
+    public synchronized int getQueuedCount() {
+        return waiting.size();
+    }
+
+    /**
+     * Stop accepting work, fail queued work and shut down the executor if this one created it.
+     * Work that was already admitted runs to completion.
+     */
+    @Override
+    public void close() {
+        List<Admission<?>> abandoned;
+        synchronized (this) {
+            closed = true;
+            abandoned = new ArrayList<>(waiting);
+            waiting.clear();
+        }
+        abandoned.forEach(admission -> admission.future.completeExceptionally(
+                new CancellationException(getClass().getSimpleName() + " closed before the task was admitted")));
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private boolean fits(long weightBytes) {
+        return dispatched < maxDispatched && (inFlightBytes == 0 || inFlightBytes + weightBytes <= maxInFlightBytes);
+    }
+
+    private void admit(long weightBytes) {
+        inFlightBytes += weightBytes;
+        dispatched++;
+    }
+
+    private void dispatch(Admission<?> admission) {
+        try {
+            executor.execute(() -> run(admission));
+        } catch (RejectedExecutionException e) {
+            release(admission.weightBytes);
+            admission.future.completeExceptionally(e);
+        }
+    }
+
+    private <T> void run(Admission<T> admission) {
+        T result;
+        try {
+            result = admission.task.call();
+        } catch (Throwable t) {
+            release(admission.weightBytes);
+            admission.future.completeExceptionally(t);
+            return;
+        }
+        // Release before completing so dependent stages see the bytes as available.
+        release(admission.weightBytes);
+        admission.future.complete(result);
+    }
+
+    private void release(long weightBytes) {
+        List<Admission<?>> ready = new ArrayList<>();
+        synchronized (this) {
+            inFlightBytes -= weightBytes;
+            dispatched--;
+            while (!waiting.isEmpty() && fits(waiting.peek().weightBytes)) {
+                Admission<?> next = waiting.poll();
+                admit(next.weightBytes);
+                ready.add(next);
+            }
+        }
+        ready.forEach(this::dispatch);
+    }
+
+    private static final class Admission<T> {
+        final long weightBytes;
+        final Callable<T> task;
+        final CompletableFuture<T> future;
+
+        Admission(long weightBytes, Callable<T> task, CompletableFuture<T> future) {
+            this.weightBytes = weightBytes;
+            this.task = task;
+            this.future = future;
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        WorkerThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.XML;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Reflection-free reader and writer for one root model class, generated at build time by
+ * {@link X12_BinderGenerator}. The same binder drives JSON and XML: XML specifics (the root
+ * element name, wrapped and unwrapped lists) are applied when the generator or parser is
+ * Jackson's XML implementation.
+ *
+ * @param <T> the root model class
+ */
+public interface X12_Binder<T> {
+
+    Class<T> getType();
+
+    /**
+     * @return the XML root element name, as {@code @JsonRootName} or the simple class name
+     */
+    String getRootName();
+
+    /**
+     * Write {@code value} as one object.
+     *
+     * @param nonEmpty skip null and empty values, as {@code JsonInclude.Include.NON_EMPTY}
+     */
+    void write(JsonGenerator generator, T value, boolean nonEmpty) throws IOException;
+
+    /**
+     * Read one object, starting at the parser's current token.
+     *
+     * @param failOnUnknown fail on unknown properties rather than skip them
+     */
+    default T read(JsonParser parser, boolean failOnUnknown) throws IOException {
+        return read(parser, failOnUnknown, null);
+    }
+
+    /**
+     * Read one object into {@code reuse}, reusing its nested objects, lists and equal values,
+     * and clearing whatever the input does not set.
+     *
+     * @param reuse the instance to refill, or null to allocate a new one
+     * @return {@code reuse}, or a new instance if it was null
+     */
+    T read(JsonParser parser, boolean failOnUnknown, T reuse) throws IOException;
+}
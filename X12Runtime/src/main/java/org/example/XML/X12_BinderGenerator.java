@@ -0,0 +1,524 @@
+package org.example.XML;
+
+import com.fasterxml.jackson.annotation.JsonRootName;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.AnnotatedField;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Build-time generator of the {@link X12_Binder} classes.
+ * <p>
+ * Jackson's own introspection decides the properties of every class reachable from a root
+ * model: their names and order, accessors and mutators, and XML list wrapping. The generator
+ * turns that into one straight-line write method and one switch-on-field-name read method
+ * per class, so the generated code follows the {@code @JsonProperty} and
+ * {@code @JacksonXmlElementWrapper} annotations exactly and does no reflection at run time.
+ * <p>
+ * Each read method can refill an existing instance instead of allocating one: nested
+ * objects, list elements and mutable lists are reused position by position, element values
+ * equal to the previous ones are kept, and properties missing from the input are set to
+ * null (see {@link X12_BindingReuse}).
+ * <p>
+ * The build runs it after compiling the models:
+ * {@code X12_BinderGenerator [--reflect-config=<file>] <outputDirectory> <rootClassName>...};
+ * the optional file receives native-image reflection metadata for the same classes.
+ */
+@Slf4j
+public final class X12_BinderGenerator {
+
+    private static final String INDENT = "    ";
+
+    private static final String REFLECT_CONFIG_OPTION = "--reflect-config=";
+
+    private final JsonMapper mapper = new JsonMapper();
+
+    private final Class<?> root;
+
+    private final String binderName;
+
+    private final Map<Class<?>, String> ids = new LinkedHashMap<>();
+
+    private final StringBuilder out = new StringBuilder();
+
+    private X12_BinderGenerator(Class<?> root) {
+        this.root = root;
+        this.binderName = root.getSimpleName() + "Binder";
+    }
+
+    public static void main(String[] args) throws Exception {
+        int first = 0;
+        Path reflectConfig = null;
+        if (args.length > 0 && args[0].startsWith(REFLECT_CONFIG_OPTION)) {
+            reflectConfig = Paths.get(args[0].substring(REFLECT_CONFIG_OPTION.length()));
+            first = 1;
+        }
+        if (args.length < first + 2) {
+            throw new IllegalArgumentException("Usage: X12_BinderGenerator [" + REFLECT_CONFIG_OPTION
+                    + "<file>] <outputDirectory> <rootClassName>...");
+        }
+        Path outputDirectory = Paths.get(args[first]);
+        Set<Class<?>> modelClasses = new LinkedHashSet<>();
+        for (int i = first + 1; i < args.length; i++) {
+            X12_BinderGenerator generator = new X12_BinderGenerator(Class.forName(args[i]));
+            Path file = generator.write(outputDirectory);
+            modelClasses.addAll(generator.ids.keySet());
+            log.info("Generated {}", file);
+        }
+        if (reflectConfig != null) {
+            writeReflectConfig(modelClasses, reflectConfig);
+            log.info("Generated {}", reflectConfig);
+        }
+    }
+
+    /**
+     * Generate the binder source for {@code root} under {@code outputDirectory}.
+     *
+     * @return the written source file
+     */
+    public static Path generate(Class<?> root, Path outputDirectory) throws IOException {
+        return new X12_BinderGenerator(root).write(outputDirectory);
+    }
+
+    private Path write(Path outputDirectory) throws IOException {
+        String source = generate();
+        Path directory = outputDirectory.resolve(root.getPackageName().replace('.', '/'));
+        Files.createDirectories(directory);
+        Path file = directory.resolve(binderName + ".java");
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * Write GraalVM native-image reflection metadata for the model classes. The binders need
+     * none, but the YAML mapper and the stream overloads still bind through Jackson.
+     */
+    static void writeReflectConfig(Collection<Class<?>> modelClasses, Path file) throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        boolean first = true;
+        for (Class<?> type : modelClasses) {
+            json.append(first ? "" : ",\n");
+            json.append("  {\"name\": ").append(literal(type.getName()))
+                    .append(", \"allDeclaredConstructors\": true, \"allDeclaredMethods\": true, \"allDeclaredFields\": true}");
+            first = false;
+        }
+        json.append("\n]\n");
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.write(file, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String generate() {
+        Deque<Class<?>> pending = new ArrayDeque<>();
+        pending.add(root);
+        id(root);
+        StringBuilder methods = new StringBuilder();
+        StringBuilder constants = new StringBuilder();
+        while (!pending.isEmpty()) {
+            Class<?> type = pending.poll();
+            List<Property> properties = properties(type);
+            for (Property property : properties) {
+                if (property.kind != Kind.STRING && !ids.containsKey(property.element)) {
+                    id(property.element);
+                    pending.add(property.element);
+                }
+            }
+            writeMethod(methods, type, properties);
+            readMethod(methods, constants, type, properties);
+        }
+
+        out.append("package ").append(root.getPackageName()).append(";\n\n");
+        out.append("import com.fasterxml.jackson.core.JsonGenerator;\n");
+        out.append("import com.fasterxml.jackson.core.JsonParser;\n");
+        out.append("import com.fasterxml.jackson.core.JsonToken;\n\n");
+        out.append("import java.io.IOException;\n");
+        out.append("import java.util.List;\n");
+        out.append("import java.util.Set;\n\n");
+        out.append("/**\n * Generated by {@link X12_BinderGenerator} from the Jackson annotations of {@link ")
+                .append(root.getSimpleName()).append("}. Do not edit.\n */\n");
+        out.append("public final class ").append(binderName).append(" implements X12_Binder<")
+                .append(name(root)).append("> {\n\n");
+        out.append(constants);
+        out.append(INDENT).append("@Override\n");
+        out.append(INDENT).append("public Class<").append(name(root)).append("> getType() {\n");
+        out.append(INDENT).append(INDENT).append("return ").append(name(root)).append(".class;\n");
+        out.append(INDENT).append("}\n\n");
+        out.append(INDENT).append("@Override\n");
+        out.append(INDENT).append("public String getRootName() {\n");
+        out.append(INDENT).append(INDENT).append("return ").append(literal(rootName())).append(";\n");
+        out.append(INDENT).append("}\n\n");
+        out.append(INDENT).append("@Override\n");
+        out.append(INDENT).append("public void write(JsonGenerator g, ").append(name(root))
+                .append(" v, boolean nonEmpty) throws IOException {\n");
+        out.append(INDENT).append(INDENT).append("write_").append(ids.get(root)).append("(g, v, nonEmpty);\n");
+        out.append(INDENT).append("}\n\n");
+        out.append(INDENT).append("@Override\n");
+        out.append(INDENT).append("public ").append(name(root)).append(" read(JsonParser p, boolean failOnUnknown, ")
+                .append(name(root)).append(" reuse) throws IOException {\n");
+        out.append(INDENT).append(INDENT).append("return read_").append(ids.get(root)).append("(p, failOnUnknown, reuse);\n");
+        out.append(INDENT).append("}\n");
+        out.append(methods);
+        out.append("}\n");
+        return out.toString();
+    }
+
+    private String rootName() {
+        JsonRootName rootName = root.getAnnotation(JsonRootName.class);
+        return rootName != null && !rootName.value().isEmpty() ? rootName.value() : root.getSimpleName();
+    }
+
+    private void id(Class<?> type) {
+        String id = name(type).replace('.', '_');
+        if (ids.containsValue(id)) {
+            id = id + "_" + ids.size();
+        }
+        ids.put(type, id);
+    }
+
+    private static String name(Class<?> type) {
+        return type.getCanonicalName().substring(type.getPackageName().length() + 1);
+    }
+
+    private static String literal(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    // ---- introspection ----
+
+    private enum Kind {
+        STRING, OBJECT, LIST
+    }
+
+    /**
+     * One property as Jackson sees it, reduced to what the generated code needs.
+     */
+    private static final class Property {
+        String name;
+        Kind kind;
+        /** The property class, or the list element class; String for strings. */
+        Class<?> element;
+        boolean stringElements;
+        /** The XML wrapper element name, or null when the list is unwrapped. */
+        String wrapper;
+        /** Expression reading the property from {@code v}, or null if not serialized. */
+        String getter;
+        /** Statement prefix assigning the property on {@code v}, or null if not deserialized. */
+        String setter;
+    }
+
+    private List<Property> properties(Class<?> type) {
+        Map<String, Property> byName = new LinkedHashMap<>();
+        JavaType javaType = mapper.constructType(type);
+
+        // Serialization order and accessors come from the serializer Jackson would use.
+        try {
+            SerializerProvider provider = mapper.getSerializerProviderInstance();
+            JsonSerializer<Object> serializer = provider.findValueSerializer(javaType);
+            if (!(serializer instanceof BeanSerializerBase)) {
+                throw new IllegalStateException(type.getName() + " is not serialized as a bean: " + serializer);
+            }
+            Iterator<PropertyWriter> writers = ((BeanSerializerBase) serializer).properties();
+            while (writers.hasNext()) {
+                BeanPropertyWriter writer = (BeanPropertyWriter) writers.next();
+                Property property = describe(type, writer.getName(), writer.getType(), writer.getMember());
+                property.getter = accessor(type, writer.getMember());
+                byName.put(property.name, property);
+            }
+        } catch (com.fasterxml.jackson.databind.JsonMappingException e) {
+            throw new IllegalStateException("Cannot introspect " + type.getName(), e);
+        }
+
+        BeanDescription description = mapper.getDeserializationConfig().introspect(javaType);
+        for (BeanPropertyDefinition definition : description.findProperties()) {
+            AnnotatedMember mutator = definition.getMutator();
+            if (mutator == null || definition.hasConstructorParameter()) {
+                continue;
+            }
+            Property property = byName.get(definition.getName());
+            if (property == null) {
+                property = describe(type, definition.getName(), definition.getPrimaryType(), definition.getPrimaryMember());
+                byName.put(property.name, property);
+            }
+            property.setter = mutator(type, mutator);
+        }
+        return new ArrayList<>(byName.values());
+    }
+
+    private Property describe(Class<?> owner, String name, JavaType type, AnnotatedMember member) {
+        Property property = new Property();
+        property.name = name;
+        if (type.getRawClass() == String.class) {
+            property.kind = Kind.STRING;
+            property.element = String.class;
+        } else if (type.isCollectionLikeType()) {
+            if (type.getRawClass() != List.class) {
+                throw new IllegalStateException(owner.getName() + "." + name + ": only List collections are supported");
+            }
+            property.kind = Kind.LIST;
+            property.element = type.getContentType().getRawClass();
+            property.stringElements = property.element == String.class;
+            if (!property.stringElements) {
+                checkBean(owner, name, property.element);
+            }
+            JacksonXmlElementWrapper wrapper = member.getAnnotation(JacksonXmlElementWrapper.class);
+            if (wrapper == null) {
+                property.wrapper = name;
+            } else if (wrapper.useWrapping()) {
+                property.wrapper = wrapper.localName().isEmpty() ? name : wrapper.localName();
+            }
+        } else {
+            property.kind = Kind.OBJECT;
+            property.element = type.getRawClass();
+            checkBean(owner, name, property.element);
+        }
+        return property;
+    }
+
+    private void checkBean(Class<?> owner, String name, Class<?> type) {
+        if (!type.getPackageName().equals(root.getPackageName()) || type.isInterface()
+                || Modifier.isAbstract(type.getModifiers()) || type.isEnum()) {
+            throw new IllegalStateException(owner.getName() + "." + name + ": unsupported type " + type.getName());
+        }
+    }
+
+    private static String accessor(Class<?> owner, AnnotatedMember member) {
+        if (member instanceof AnnotatedMethod && Modifier.isPublic(member.getMember().getModifiers())) {
+            return "v." + member.getName() + "()";
+        }
+        if (member instanceof AnnotatedField && Modifier.isPublic(member.getMember().getModifiers())) {
+            return "v." + member.getName();
+        }
+        if (member instanceof AnnotatedField) {
+            // A private annotated field: use its Lombok accessor.
+            String capitalized = capitalize(member.getName());
+            for (String prefix : new String[]{"get", "is"}) {
+                if (hasPublicMethod(owner, prefix + capitalized, 0)) {
+                    return "v." + prefix + capitalized + "()";
+                }
+            }
+        }
+        throw new IllegalStateException(owner.getName() + ": no public accessor for " + member);
+    }
+
+    private static String mutator(Class<?> owner, AnnotatedMember member) {
+        if (member instanceof AnnotatedMethod && Modifier.isPublic(member.getMember().getModifiers())) {
+            return "v." + member.getName() + "(";
+        }
+        if (member instanceof AnnotatedField) {
+            Field field = (Field) member.getMember();
+            if (Modifier.isPublic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers())) {
+                return "v." + field.getName() + " = (";
+            }
+            String setter = "set" + capitalize(field.getName());
+            if (hasPublicMethod(owner, setter, 1)) {
+                return "v." + setter + "(";
+            }
+        }
+        throw new IllegalStateException(owner.getName() + ": no public mutator for " + member);
+    }
+
+    private static boolean hasPublicMethod(Class<?> owner, String name, int parameterCount) {
+        for (java.lang.reflect.Method method : owner.getMethods()) {
+            if (method.getName().equals(name) && method.getParameterCount() == parameterCount) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    // ---- code emission ----
+
+    private void writeMethod(StringBuilder code, Class<?> type, List<Property> properties) {
+        String id = ids.get(type);
+        code.append('\n');
+        code.append(INDENT).append("static void write_").append(id).append("(JsonGenerator g, ")
+                .append(name(type)).append(" v, boolean nonEmpty) throws IOException {\n");
+        code.append(INDENT).append(INDENT).append("g.writeStartObject();\n");
+        for (Property property : properties) {
+            if (property.getter == null) {
+                continue;
+            }
+            String field = literal(property.name);
+            String i2 = INDENT + INDENT;
+            switch (property.kind) {
+                case STRING:
+                    code.append(i2).append("X12_Binders.writeString(g, ").append(field).append(", ")
+                            .append(property.getter).append(", nonEmpty);\n");
+                    break;
+                case OBJECT:
+                    code.append(i2).append("{\n");
+                    code.append(i2).append(INDENT).append(name(property.element)).append(" x = ")
+                            .append(property.getter).append(";\n");
+                    code.append(i2).append(INDENT).append("if (x != null) {\n");
+                    code.append(i2).append(INDENT).append(INDENT).append("g.writeFieldName(").append(field).append(");\n");
+                    code.append(i2).append(INDENT).append(INDENT).append("write_").append(ids.get(property.element))
+                            .append("(g, x, nonEmpty);\n");
+                    code.append(i2).append(INDENT).append("} else if (!nonEmpty) {\n");
+                    code.append(i2).append(INDENT).append(INDENT).append("g.writeNullField(").append(field).append(");\n");
+                    code.append(i2).append(INDENT).append("}\n");
+                    code.append(i2).append("}\n");
+                    break;
+                default:
+                    String wrapper = property.wrapper == null ? "null" : literal(property.wrapper);
+                    code.append(i2).append("{\n");
+                    code.append(i2).append(INDENT).append("List<").append(name(property.element)).append("> x = ")
+                            .append(property.getter).append(";\n");
+                    code.append(i2).append(INDENT).append("if (X12_Binders.writeListField(g, ").append(field)
+                            .append(", x, nonEmpty)) {\n");
+                    String i4 = i2 + INDENT + INDENT;
+                    code.append(i4).append("X12_Binders.startList(g, ").append(field).append(", ").append(wrapper).append(");\n");
+                    code.append(i4).append("for (").append(name(property.element)).append(" e : x) {\n");
+                    if (property.stringElements) {
+                        code.append(i4).append(INDENT).append("X12_Binders.writeStringElement(g, e);\n");
+                    } else {
+                        code.append(i4).append(INDENT).append("if (e == null) {\n");
+                        code.append(i4).append(INDENT).append(INDENT).append("g.writeNull();\n");
+                        code.append(i4).append(INDENT).append("} else {\n");
+                        code.append(i4).append(INDENT).append(INDENT).append("write_").append(ids.get(property.element))
+                                .append("(g, e, nonEmpty);\n");
+                        code.append(i4).append(INDENT).append("}\n");
+                    }
+                    code.append(i4).append("}\n");
+                    code.append(i4).append("X12_Binders.endList(g, ").append(field).append(", ").append(wrapper).append(");\n");
+                    code.append(i2).append(INDENT).append("}\n");
+                    code.append(i2).append("}\n");
+                    break;
+            }
+        }
+        code.append(INDENT).append(INDENT).append("g.writeEndObject();\n");
+        code.append(INDENT).append("}\n");
+    }
+
+    private void readMethod(StringBuilder code, StringBuilder constants, Class<?> type, List<Property> properties) {
+        String id = ids.get(type);
+        Set<String> unwrapped = new LinkedHashSet<>();
+        for (Property property : properties) {
+            if (property.kind == Kind.LIST && property.wrapper == null && property.setter != null) {
+                unwrapped.add(property.name);
+            }
+        }
+        if (!unwrapped.isEmpty()) {
+            constants.append(INDENT).append("private static final Set<String> UNWRAPPED_").append(id).append(" = Set.of(");
+            boolean first = true;
+            for (String name : unwrapped) {
+                constants.append(first ? "" : ", ").append(literal(name));
+                first = false;
+            }
+            constants.append(");\n\n");
+        }
+
+        String i2 = INDENT + INDENT;
+        String i3 = i2 + INDENT;
+        String i4 = i3 + INDENT;
+        code.append('\n');
+        List<Property> settable = new ArrayList<>();
+        for (Property property : properties) {
+            if (property.setter != null) {
+                settable.add(property);
+            }
+        }
+        code.append(INDENT).append("static ").append(name(type)).append(" read_").append(id).append("(JsonParser p, boolean failOnUnknown, ")
+                .append(name(type)).append(" reuse) throws IOException {\n");
+        code.append(i2).append("if (p.currentToken() != JsonToken.START_OBJECT) {\n");
+        code.append(i3).append("if (!X12_Binders.emptyObject(p)) {\n");
+        code.append(i4).append("return null;\n");
+        code.append(i3).append("}\n");
+        code.append(i3).append("if (reuse == null) {\n");
+        code.append(i4).append("return new ").append(name(type)).append("();\n");
+        code.append(i3).append("}\n");
+        code.append(i3).append(name(type)).append(" v = reuse;\n");
+        for (Property property : settable) {
+            code.append(i3).append(property.setter).append("null);\n");
+        }
+        code.append(i3).append("return v;\n");
+        code.append(i2).append("}\n");
+        if (!unwrapped.isEmpty()) {
+            code.append(i2).append("X12_Binders.wrapLists(p, UNWRAPPED_").append(id).append(");\n");
+        }
+        code.append(i2).append(name(type)).append(" v = reuse != null ? reuse : new ").append(name(type)).append("();\n");
+        for (int word = 0; word * 64 < settable.size(); word++) {
+            code.append(i2).append("long seen").append(word).append(" = 0L;\n");
+        }
+        code.append(i2).append("while (p.nextToken() == JsonToken.FIELD_NAME) {\n");
+        code.append(i3).append("String name = p.currentName();\n");
+        code.append(i3).append("p.nextToken();\n");
+        code.append(i3).append("switch (name) {\n");
+        for (Property property : properties) {
+            code.append(i4).append("case ").append(literal(property.name)).append(":\n");
+            if (property.setter == null) {
+                code.append(i4).append(INDENT).append("p.skipChildren();\n");
+            } else {
+                int index = settable.indexOf(property);
+                // Only reused instances offer their previous values, so fresh reads stay as before.
+                String previous = property.getter == null ? "null" : "reuse == null ? null : " + property.getter;
+                String value;
+                switch (property.kind) {
+                    case STRING:
+                        value = "X12_Binders.readString(p, " + previous + ")";
+                        break;
+                    case OBJECT:
+                        value = "read_" + ids.get(property.element) + "(p, failOnUnknown, " + previous + ")";
+                        break;
+                    default:
+                        value = "X12_Binders.readList(p, " + (property.stringElements
+                                ? "X12_Binders::readStringElement"
+                                : binderName + "::read_" + ids.get(property.element)) + ", failOnUnknown, " + previous + ")";
+                        break;
+                }
+                code.append(i4).append(INDENT).append(property.setter).append(value).append(");\n");
+                code.append(i4).append(INDENT).append("seen").append(index / 64).append(" |= ")
+                        .append(1L << (index % 64)).append("L;\n");
+            }
+            code.append(i4).append(INDENT).append("break;\n");
+        }
+        code.append(i4).append("default:\n");
+        code.append(i4).append(INDENT).append("X12_Binders.skipUnknown(p, ").append(name(type))
+                .append(".class, name, failOnUnknown);\n");
+        code.append(i4).append(INDENT).append("break;\n");
+        code.append(i3).append("}\n");
+        code.append(i2).append("}\n");
+        if (!settable.isEmpty()) {
+            code.append(i2).append("if (reuse != null) {\n");
+            for (int index = 0; index < settable.size(); index++) {
+                code.append(i3).append("if ((seen").append(index / 64).append(" & ").append(1L << (index % 64))
+                        .append("L) == 0) {\n");
+                code.append(i4).append(settable.get(index).setter).append("null);\n");
+                code.append(i3).append("}\n");
+            }
+            code.append(i2).append("}\n");
+        }
+        code.append(i2).append("return v;\n");
+        code.append(INDENT).append("}\n");
+    }
+}
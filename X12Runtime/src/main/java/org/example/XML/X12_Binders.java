@@ -0,0 +1,334 @@
+package org.example.XML;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlFactory;
+import com.fasterxml.jackson.dataformat.xml.deser.FromXmlParser;
+import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
+
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Entry points and runtime support for the generated {@link X12_Binder} classes.
+ * <p>
+ * A binder for a root model class {@code Foo} is generated as {@code FooBinder} in the same
+ * package. It is located once per class and cached; reading and writing after that go
+ * straight through the generated code on Jackson's streaming parsers and generators, with
+ * no introspection or reflective property access.
+ */
+public final class X12_Binders {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final XmlFactory XML_FACTORY = new XmlFactory();
+
+    private static final Map<Class<?>, X12_Binder<?>> BINDERS = new ConcurrentHashMap<>();
+
+    private X12_Binders() {
+    }
+
+    /**
+     * @return the generated binder for {@code type}
+     * @throws IllegalStateException if no binder was generated for the class
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> X12_Binder<T> forType(Class<T> type) {
+        return (X12_Binder<T>) BINDERS.computeIfAbsent(type, X12_Binders::load);
+    }
+
+    public static boolean isAvailable(Class<?> type) {
+        try {
+            forType(type);
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    private static X12_Binder<?> load(Class<?> type) {
+        try {
+            return (X12_Binder<?>) Class.forName(type.getName() + "Binder", true, type.getClassLoader())
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("No generated binder for " + type.getName(), e);
+        }
+    }
+
+    public static <T> String toJson(T value, Class<T> type) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            forType(type).write(generator, value, false);
+        }
+        return out.toString();
+    }
+
+    public static <T> T fromJson(String json, Class<T> type) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            parser.nextToken();
+            return forType(type).read(parser, true);
+        }
+    }
+
+    /**
+     * @param nonEmpty skip null and empty values, matching a mapper configured with
+     *                 {@code JsonInclude.Include.NON_EMPTY}
+     */
+    public static <T> String toXml(T value, Class<T> type, boolean nonEmpty) throws IOException {
+        X12_Binder<T> binder = forType(type);
+        StringWriter out = new StringWriter();
+        try (ToXmlGenerator generator = XML_FACTORY.createGenerator(out)) {
+            generator.setNextNameIfMissing(new QName(binder.getRootName()));
+            generator.initGenerator();
+            binder.write(generator, value, nonEmpty);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Read XML, skipping unknown elements as the parsers' XML mappers do.
+     */
+    public static <T> T fromXml(String xml, Class<T> type) throws IOException {
+        try (FromXmlParser parser = (FromXmlParser) XML_FACTORY.createParser(xml)) {
+            parser.nextToken();
+            return forType(type).read(parser, false);
+        }
+    }
+
+    /**
+     * Read XML from part of a char array into {@code reuse}; see {@link X12_Binder#read(JsonParser, boolean, Object)}.
+     */
+    public static <T> T fromXml(char[] xml, int offset, int length, Class<T> type, T reuse) throws IOException {
+        try (FromXmlParser parser = (FromXmlParser) XML_FACTORY.createParser(xml, offset, length)) {
+            parser.nextToken();
+            return forType(type).read(parser, false, reuse);
+        }
+    }
+
+    public static <T> void writeJson(T value, Class<T> type, Writer out) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            forType(type).write(generator, value, false);
+        }
+    }
+
+    public static <T> void writeXml(T value, Class<T> type, boolean nonEmpty, Writer out) throws IOException {
+        X12_Binder<T> binder = forType(type);
+        try (ToXmlGenerator generator = XML_FACTORY.createGenerator(out)) {
+            generator.setNextNameIfMissing(new QName(binder.getRootName()));
+            generator.initGenerator();
+            binder.write(generator, value, nonEmpty);
+        }
+    }
+
+    /**
+     * Read XML from a stream, skipping unknown elements as {@link #fromXml(String, Class)} does.
+     * The stream is left open.
+     */
+    public static <T> T fromXml(InputStream xml, Class<T> type) throws IOException {
+        try (FromXmlParser parser = (FromXmlParser) XML_FACTORY.createParser(xml)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            parser.nextToken();
+            return forType(type).read(parser, false);
+        }
+    }
+
+    /**
+     * Write through the binder on a generator created by {@code mapper}, so the mapper's format
+     * (XML, JSON or YAML) and its output features apply. The target is flushed but left open.
+     *
+     * @param nonEmpty skip null and empty values; see {@link #toXml(Object, Class, boolean)}
+     */
+    public static <T> void write(ObjectMapper mapper, T value, Class<T> type, boolean nonEmpty, OutputStream out)
+            throws IOException {
+        write(mapper.createGenerator(out), value, type, nonEmpty);
+    }
+
+    public static <T> void write(ObjectMapper mapper, T value, Class<T> type, boolean nonEmpty, Writer out)
+            throws IOException {
+        write(mapper.createGenerator(out), value, type, nonEmpty);
+    }
+
+    /**
+     * {@link #write(ObjectMapper, Object, Class, boolean, Writer)} into a String, for formats
+     * such as YAML that have no dedicated method here.
+     */
+    public static <T> String writeValueAsString(ObjectMapper mapper, T value, Class<T> type, boolean nonEmpty)
+            throws IOException {
+        StringWriter out = new StringWriter();
+        write(mapper, value, type, nonEmpty, out);
+        return out.toString();
+    }
+
+    private static <T> void write(JsonGenerator generator, T value, Class<T> type, boolean nonEmpty) throws IOException {
+        X12_Binder<T> binder = forType(type);
+        try (generator) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (generator instanceof ToXmlGenerator) {
+                ToXmlGenerator xml = (ToXmlGenerator) generator;
+                xml.setNextNameIfMissing(new QName(binder.getRootName()));
+                xml.initGenerator();
+            }
+            binder.write(generator, value, nonEmpty);
+        }
+    }
+
+    // ---- support for generated code ----
+
+    /**
+     * Reads one list element, refilling {@code reuse} if it is not null.
+     */
+    @FunctionalInterface
+    interface ElementReader<E> {
+        E read(JsonParser parser, boolean failOnUnknown, E reuse) throws IOException;
+    }
+
+    static void writeString(JsonGenerator generator, String name, String value, boolean nonEmpty) throws IOException {
+        if (value == null) {
+            if (!nonEmpty) {
+                generator.writeNullField(name);
+            }
+        } else if (!nonEmpty || !value.isEmpty()) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    static void writeStringElement(JsonGenerator generator, String value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value);
+        }
+    }
+
+    /**
+     * @return whether a list property should be written at all; a null list that should be
+     * written has already been written as null
+     */
+    static boolean writeListField(JsonGenerator generator, String name, List<?> value, boolean nonEmpty) throws IOException {
+        if (value == null) {
+            if (!nonEmpty) {
+                generator.writeNullField(name);
+            }
+            return false;
+        }
+        return !nonEmpty || !value.isEmpty();
+    }
+
+    /**
+     * @param wrapper the XML wrapper element name, or null for an unwrapped list
+     */
+    static void startList(JsonGenerator generator, String name, String wrapper) throws IOException {
+        if (wrapper != null && generator instanceof ToXmlGenerator) {
+            ((ToXmlGenerator) generator).startWrappedValue(new QName(wrapper), new QName(name));
+        }
+        generator.writeFieldName(name);
+        generator.writeStartArray();
+    }
+
+    static void endList(JsonGenerator generator, String name, String wrapper) throws IOException {
+        generator.writeEndArray();
+        if (wrapper != null && generator instanceof ToXmlGenerator) {
+            ((ToXmlGenerator) generator).finishWrappedValue(new QName(wrapper), new QName(name));
+        }
+    }
+
+    /**
+     * Called at a value that should be an object but is not.
+     *
+     * @return true for a blank string, which XML produces for an empty element and which
+     * binds to an empty instance; false for null
+     */
+    static boolean emptyObject(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        if (token == JsonToken.VALUE_STRING && parser.getText().isBlank()) {
+            return true;
+        }
+        throw new JsonParseException(parser, "Expected an object but found " + token);
+    }
+
+    /**
+     * Tell an XML parser which child elements of the object just started are unwrapped
+     * lists, so repeated elements are presented as one array.
+     */
+    static void wrapLists(JsonParser parser, Set<String> unwrappedLists) {
+        if (parser instanceof FromXmlParser) {
+            ((FromXmlParser) parser).addVirtualWrapping(unwrappedLists, false);
+        }
+    }
+
+    static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isScalarValue()) {
+            return parser.getText();
+        }
+        throw new JsonParseException(parser, "Expected a string but found " + token);
+    }
+
+    /**
+     * @return {@code previous} if the value equals it, so a reused model keeps one instance
+     */
+    static String readString(JsonParser parser, String previous) throws IOException {
+        String value = readString(parser);
+        return value != null && value.equals(previous) ? previous : value;
+    }
+
+    static String readStringElement(JsonParser parser, boolean failOnUnknown, String reuse) throws IOException {
+        return readString(parser, reuse);
+    }
+
+    /**
+     * @param reuse the previous list; refilled in place when it is an {@code ArrayList}
+     */
+    static <E> List<E> readList(JsonParser parser, ElementReader<E> reader, boolean failOnUnknown, List<E> reuse)
+            throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        List<E> list = reuse instanceof ArrayList ? reuse : new ArrayList<>();
+        int size = 0;
+        if (!parser.isExpectedStartArrayToken()) {
+            if (!emptyObject(parser)) {
+                return null;
+            }
+        } else {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (size < list.size()) {
+                    list.set(size, reader.read(parser, failOnUnknown, list.get(size)));
+                } else {
+                    list.add(reader.read(parser, failOnUnknown, reuse != null && size < reuse.size() ? reuse.get(size) : null));
+                }
+                size++;
+            }
+        }
+        while (list.size() > size) {
+            list.remove(list.size() - 1);
+        }
+        return list;
+    }
+
+    static void skipUnknown(JsonParser parser, Class<?> type, String name, boolean failOnUnknown) throws IOException {
+        if (failOnUnknown) {
+            throw new JsonParseException(parser, "Unrecognized field \"" + name + "\" for " + type.getName());
+        }
+        parser.skipChildren();
+    }
+}
@@ -0,0 +1,270 @@
+package org.example.XML;
+
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Opt-in model-binding reuse for parsing many small messages on the same thread, such as
+ * single-claim real-time 837s or 276 inquiries.
+ * <p>
+ * Each thread keeps one model instance and the buffers around it, and refills them for
+ * every message instead of allocating new ones:
+ * <ul>
+ *   <li>the EDI input is read into a recycled byte array (for streams) and fed to Smooks
+ *   through a recycled {@link ByteArrayInputStream},</li>
+ *   <li>the intermediate XML is written into a recycled char array and bound from there, so
+ *   no XML String is built,</li>
+ *   <li>the model is refilled by the generated binder (see
+ *   {@link X12_Binder#read(com.fasterxml.jackson.core.JsonParser, boolean, Object)}), which
+ *   reuses nested objects, list elements and equal element values, and</li>
+ *   <li>JSON and XML renderings are written into another recycled char array.</li>
+ * </ul>
+ * Only the binding and rendering steps are recycled. The EDI to XML step still runs a fresh
+ * Smooks execution per message, and the Daffodil parser state behind it is not reachable
+ * through Smooks' API, so for a full {@link #parse} that step accounts for nearly all of the
+ * garbage and reuse barely changes the total. The savings show in {@link #bind} and the
+ * renderings, and in callers that already hold the XML.
+ * <p>
+ * Everything returned here (the model, its lists and the rendered text) is only valid until
+ * the next parse or render on the same instance, and an instance must not be shared between
+ * threads. Use a parser's {@code bindingReuse()}, such as
+ * {@code X12_837_Parser.bindingReuse()}, for one instance per thread. Buffers that grow past
+ * {@value #MAX_RETAINED_BUFFER} bytes or characters for an unusually large message are
+ * released once it is done with rather than kept for the life of the thread.
+ *
+ * @param <T> the root model class
+ */
+public final class X12_BindingReuse<T> {
+
+    static final int MAX_RETAINED_BUFFER = 1 << 20;
+
+    /**
+     * A parser's {@code parseEDI(InputStream, Writer)}.
+     */
+    @FunctionalInterface
+    interface EdiToXml {
+        void parse(InputStream edi, Writer xml) throws IOException, SAXException;
+    }
+
+    private final String transactionType;
+    private final Class<T> type;
+    private final EdiToXml ediToXml;
+    private final RecyclingInputStream input = new RecyclingInputStream();
+    private final CharBuffer xml = new CharBuffer();
+    private final CharBuffer text = new CharBuffer();
+    private byte[] ediBuffer = new byte[8192];
+    private T model;
+
+    private X12_BindingReuse(String transactionType, Class<T> type, EdiToXml ediToXml) {
+        this.transactionType = transactionType;
+        this.type = type;
+        this.ediToXml = ediToXml;
+    }
+
+    /**
+     * One instance per thread for a transaction type; each parser keeps one of these behind
+     * its {@code bindingReuse()}.
+     *
+     * @param ediToXml the parser's {@code parseEDI(InputStream, Writer)}
+     */
+    static <T> ThreadLocal<X12_BindingReuse<T>> perThread(String transactionType, Class<T> type, EdiToXml ediToXml) {
+        return ThreadLocal.withInitial(() -> new X12_BindingReuse<>(transactionType, type, ediToXml));
+    }
+
+    /**
+     * Parse EDI into the recycled model.
+     *
+     * @return the refilled model, valid until the next parse on this instance
+     */
+    public T parse(byte[] edi, int offset, int length) throws IOException, SAXException {
+        xml.reset();
+        input.reset(edi, offset, length);
+        try {
+            ediToXml.parse(input, xml);
+        } finally {
+            input.release();
+        }
+        return bind();
+    }
+
+    /**
+     * Read a whole EDI stream into a recycled buffer and parse it; see {@link #parse(byte[], int, int)}.
+     */
+    public T parse(InputStream edi) throws IOException, SAXException {
+        int length = 0;
+        int n;
+        while ((n = edi.read(ediBuffer, length, ediBuffer.length - length)) >= 0) {
+            length += n;
+            if (length == ediBuffer.length) {
+                ediBuffer = Arrays.copyOf(ediBuffer, ediBuffer.length * 2);
+            }
+        }
+        try {
+            return parse(ediBuffer, 0, length);
+        } finally {
+            if (ediBuffer.length > MAX_RETAINED_BUFFER) {
+                ediBuffer = new byte[8192];
+            }
+        }
+    }
+
+    /**
+     * Render the model as JSON into a recycled buffer.
+     *
+     * @return the JSON, valid until the next render on this instance
+     */
+    public CharSequence toJson(T value) throws IOException {
+        text.reset();
+        X12_Binders.writeJson(value, type, text);
+        return text;
+    }
+
+    /**
+     * Render the model as XML, omitting null and empty values as the parsers do, into a
+     * recycled buffer.
+     *
+     * @return the XML, valid until the next render on this instance
+     */
+    public CharSequence toXml(T value) throws IOException {
+        text.reset();
+        X12_Binders.writeXml(value, type, true, text);
+        return text;
+    }
+
+    private T bind() throws IOException {
+        try {
+            return bind(xml.chars, 0, xml.length);
+        } finally {
+            xml.reset();
+        }
+    }
+
+    /**
+     * Bind XML into the recycled model.
+     */
+    T bind(char[] chars, int offset, int length) throws IOException {
+        X12_ConversionEvents.XmlToModel event = X12_ConversionEvents.xmlToModel(transactionType);
+        try {
+            model = X12_Binders.fromXml(chars, offset, length, type, model);
+        } catch (IOException | RuntimeException e) {
+            // A half-refilled model is not worth keeping.
+            model = null;
+            event.fail();
+            throw e;
+        }
+        event.finishModel(length, 0, model);
+        return model;
+    }
+
+    /**
+     * A {@link ByteArrayInputStream} that can be pointed at another array.
+     */
+    private static final class RecyclingInputStream extends ByteArrayInputStream {
+
+        private static final byte[] EMPTY = new byte[0];
+
+        RecyclingInputStream() {
+            super(EMPTY);
+        }
+
+        void reset(byte[] array, int offset, int length) {
+            buf = array;
+            pos = offset;
+            count = Math.min(offset + length, array.length);
+            mark = offset;
+        }
+
+        /**
+         * Drop the reference to the caller's array.
+         */
+        void release() {
+            reset(EMPTY, 0, 0);
+        }
+
+        @Override
+        public void close() {
+            // Smooks closes its source; the stream is reused instead.
+        }
+    }
+
+    /**
+     * A growable char array written as a {@link Writer} and read back as a {@link CharSequence}.
+     */
+    static final class CharBuffer extends Writer implements CharSequence {
+
+        private char[] chars = new char[8192];
+        private int length;
+
+        /**
+         * Empty the buffer, releasing its array if an unusually large message grew it.
+         */
+        void reset() {
+            length = 0;
+            if (chars.length > MAX_RETAINED_BUFFER) {
+                chars = new char[8192];
+            }
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + extra));
+            }
+        }
+
+        @Override
+        public void write(int c) {
+            ensure(1);
+            chars[length++] = (char) c;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int count) {
+            ensure(count);
+            System.arraycopy(buffer, offset, chars, length, count);
+            length += count;
+        }
+
+        @Override
+        public void write(String s, int offset, int count) {
+            ensure(count);
+            s.getChars(offset, offset + count, chars, length);
+            length += count;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+}
@@ -0,0 +1,535 @@
+package org.example.XML;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Java Flight Recorder events for each conversion stage of the parsers.
+ * <pre>
+ *   org.example.x12.EngineCreation   Smooks engine creation from its config
+ *   org.example.x12.EdiToXml         Smooks EDI -> XML filtering
+ *   org.example.x12.XmlToModel       XML -> POJO binding
+ *   org.example.x12.ModelToText      POJO -> JSON, YAML or XML rendering
+ *   org.example.x12.XmlToEdi         Smooks XML -> EDI unparsing
+ * </pre>
+ * The DFDL schema behind an engine is compiled lazily, so the first EdiToXml or XmlToEdi
+ * event of each engine includes that cost.
+ * <p>
+ * Record them with {@code -XX:StartFlightRecording} or {@code jcmd <pid> JFR.start}; every
+ * event is enabled with a 0 ms threshold by default. Independently of any recording, each
+ * finished or failed stage is also added to {@link X12_Metrics#global()}, labelled with the
+ * trading partner from ISA06, so EDI is always counted: as Smooks reads or writes it, not
+ * in a pass of its own.
+ * <p>
+ * Sizes are in bytes for byte and stream input and in characters for String input.
+ * Claims are counted as CLM segments in 837s, CLP segments in 835s and TRN (claim status
+ * tracking) segments in 276s and 277s, and in models as each parser registers with
+ * {@link #registerModel}.
+ */
+public final class X12_ConversionEvents {
+
+    /** The segment that starts a claim, by transaction type. */
+    private static final Map<String, String> CLAIM_SEGMENTS = Map.of(
+            "837", "CLM",
+            "835", "CLP",
+            "276", "TRN",
+            "277", "TRN");
+
+    private static final Map<Class<?>, ModelReader<?>> models = new ConcurrentHashMap<>();
+
+    private X12_ConversionEvents() {
+    }
+
+    @Name("org.example.x12.EngineCreation")
+    @Label("Smooks Engine Creation")
+    @Description("Building a Smooks engine from its config; the DFDL schema is compiled by the engine's first filter")
+    @Category({"X12", "Conversion"})
+    @StackTrace(false)
+    static final class EngineCreation extends Event {
+
+        @Label("Config")
+        String config;
+
+        @Label("Validation Mode")
+        String validationMode;
+    }
+
+    /**
+     * Fields shared by the stage events.
+     */
+    @Category({"X12", "Conversion"})
+    @StackTrace(false)
+    abstract static class StageEvent extends Event {
+
+        @Label("Transaction Type")
+        String transactionType;
+
+        @Label("Trading Partner")
+        @Description("ISA06 interchange sender")
+        String partner;
+
+        @Label("Input Size")
+        @DataAmount
+        long inputBytes;
+
+        @Label("Output Size")
+        @DataAmount
+        long outputBytes;
+
+        @Label("Segments")
+        long segmentCount;
+
+        @Label("Claims")
+        long claimCount;
+
+        /** Counts the EDI this stage reads, or writes when {@link #ediOutput} is set. */
+        private transient SegmentCounter counter;
+        private transient boolean ediOutput;
+        private transient long[] inputCount;
+        private transient long[] outputCount;
+        transient long startNanos;
+
+        /**
+         * @return the stage label used for {@link X12_Metrics}
+         */
+        abstract String stage();
+
+        /**
+         * End the event, record it in {@link X12_Metrics#global()} and commit it if it is
+         * enabled and over its threshold.
+         */
+        void finish(long inputBytes, long outputBytes) {
+            this.inputBytes = inputBytes;
+            this.outputBytes = outputBytes;
+            if (counter != null) {
+                takeCounts(counter);
+            }
+            record();
+        }
+
+        /**
+         * End the event with the bytes counted through {@link #countInput} and
+         * {@link #countOutput}; 0 for a side that was not counted.
+         */
+        void finish() {
+            finish(counted(inputCount), counted(outputCount));
+        }
+
+        /**
+         * Finish a stage whose output was EDI written through {@link #countEdi(Writer)}.
+         */
+        void finishEdiOutput(long inputBytes) {
+            finish(inputBytes, 0);
+        }
+
+        /**
+         * Finish a stage that produced or consumed a model, taking the claim count and
+         * trading partner from it.
+         */
+        void finishModel(long inputBytes, long outputBytes, Object model) {
+            this.inputBytes = inputBytes;
+            this.outputBytes = outputBytes;
+            this.claimCount = claimCount(model);
+            this.partner = senderId(model);
+            record();
+        }
+
+        /**
+         * {@link #finishModel(long, long, Object)} with the bytes counted through
+         * {@link #countInput} and {@link #countOutput}.
+         */
+        void finishModel(Object model) {
+            finishModel(counted(inputCount), counted(outputCount), model);
+        }
+
+        /**
+         * Record the stage as failed in {@link X12_Metrics#global()}; the event is not committed.
+         */
+        void fail() {
+            if (counter != null && partner == null) {
+                partner = counter.sender();
+            }
+            X12_Metrics.global().recordError(stage(), transactionType, partner);
+        }
+
+        /**
+         * Count the EDI read through the returned stream; the counts are recorded by
+         * {@link #finish}.
+         */
+        InputStream countEdi(InputStream edi) {
+            counter = new SegmentCounter(transactionType);
+            return new FilterInputStream(edi) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        counter.update((byte) b);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) {
+                        counter.update(b, off, n);
+                    }
+                    return n;
+                }
+            };
+        }
+
+        /**
+         * Count the bytes read through the returned stream as the stage's input.
+         */
+        InputStream countInput(InputStream in) {
+            long[] count = inputCount = new long[1];
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        count[0]++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) {
+                        count[0] += n;
+                    }
+                    return n;
+                }
+            };
+        }
+
+        /**
+         * Count the bytes written through the returned stream as the stage's output.
+         */
+        OutputStream countOutput(OutputStream out) {
+            long[] count = outputCount = new long[1];
+            return new FilterOutputStream(out) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    count[0]++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    count[0] += len;
+                }
+            };
+        }
+
+        /**
+         * Count the characters written through the returned writer as the stage's output.
+         */
+        Writer countOutput(Writer out) {
+            long[] count = outputCount = new long[1];
+            return new FilterWriter(out) {
+                @Override
+                public void write(int c) throws IOException {
+                    out.write(c);
+                    count[0]++;
+                }
+
+                @Override
+                public void write(char[] cbuf, int off, int len) throws IOException {
+                    out.write(cbuf, off, len);
+                    count[0] += len;
+                }
+
+                @Override
+                public void write(String str, int off, int len) throws IOException {
+                    out.write(str, off, len);
+                    count[0] += len;
+                }
+            };
+        }
+
+        /**
+         * Count the EDI written through the returned writer as the stage's output, its
+         * segments and claims included; the counts are recorded by {@link #finishEdiOutput}.
+         */
+        Writer countEdi(Writer edi) {
+            SegmentCounter counter = this.counter = new SegmentCounter(transactionType);
+            ediOutput = true;
+            return new FilterWriter(edi) {
+                @Override
+                public void write(int c) throws IOException {
+                    out.write(c);
+                    counter.update((byte) c);
+                }
+
+                @Override
+                public void write(char[] cbuf, int off, int len) throws IOException {
+                    out.write(cbuf, off, len);
+                    for (int i = off; i < off + len; i++) {
+                        counter.update((byte) cbuf[i]);
+                    }
+                }
+
+                @Override
+                public void write(String str, int off, int len) throws IOException {
+                    out.write(str, off, len);
+                    for (int i = off; i < off + len; i++) {
+                        counter.update((byte) str.charAt(i));
+                    }
+                }
+            };
+        }
+
+        private static long counted(long[] count) {
+            return count == null ? 0 : count[0];
+        }
+
+        private void takeCounts(SegmentCounter counter) {
+            if (ediOutput) {
+                this.outputBytes = counter.bytes;
+            } else {
+                this.inputBytes = counter.bytes;
+            }
+            this.segmentCount = counter.segments;
+            this.claimCount = counter.claims;
+            if (partner == null) {
+                this.partner = counter.sender();
+            }
+        }
+
+        private void record() {
+            end();
+            X12_Metrics.global().recordStage(stage(), transactionType, partner, System.nanoTime() - startNanos,
+                    inputBytes, outputBytes, segmentCount, claimCount);
+            if (shouldCommit()) {
+                commit();
+            }
+        }
+    }
+
+    @Name("org.example.x12.EdiToXml")
+    @Label("EDI to XML")
+    @Description("Smooks filtering of X12 EDI into XML")
+    static final class EdiToXml extends StageEvent {
+
+        @Override
+        String stage() {
+            return "edi_to_xml";
+        }
+    }
+
+    @Name("org.example.x12.XmlToModel")
+    @Label("XML to Model")
+    @Description("Binding XML to the transaction's Java model")
+    static final class XmlToModel extends StageEvent {
+
+        @Override
+        String stage() {
+            return "xml_to_model";
+        }
+    }
+
+    @Name("org.example.x12.ModelToText")
+    @Label("Model to Text")
+    @Description("Rendering the Java model as JSON, YAML or XML")
+    static final class ModelToText extends StageEvent {
+
+        @Label("Format")
+        String format;
+
+        @Override
+        String stage() {
+            return "model_to_text";
+        }
+    }
+
+    @Name("org.example.x12.XmlToEdi")
+    @Label("XML to EDI")
+    @Description("Smooks unparsing of XML back into X12 EDI")
+    static final class XmlToEdi extends StageEvent {
+
+        @Override
+        String stage() {
+            return "xml_to_edi";
+        }
+    }
+
+    static EngineCreation engineCreation(String config, String validationMode) {
+        EngineCreation event = new EngineCreation();
+        event.config = config;
+        event.validationMode = validationMode;
+        event.begin();
+        return event;
+    }
+
+    static EdiToXml ediToXml(String transactionType) {
+        return begin(new EdiToXml(), transactionType);
+    }
+
+    static XmlToModel xmlToModel(String transactionType) {
+        return begin(new XmlToModel(), transactionType);
+    }
+
+    static ModelToText modelToText(String transactionType, String format) {
+        ModelToText event = begin(new ModelToText(), transactionType);
+        event.format = format;
+        return event;
+    }
+
+    static XmlToEdi xmlToEdi(String transactionType) {
+        return begin(new XmlToEdi(), transactionType);
+    }
+
+    private static <E extends StageEvent> E begin(E event, String transactionType) {
+        event.transactionType = transactionType;
+        event.startNanos = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Teach the events how to read a transaction model: its claims and its ISA06 sender. Each
+     * parser registers the models it produces when it is first used.
+     */
+    static <M> void registerModel(Class<M> type, ToLongFunction<? super M> claims,
+                                  Function<? super M, String> sender) {
+        models.put(type, new ModelReader<>(type, claims, sender));
+    }
+
+    /**
+     * @return the claims in a transaction model, or 0 for models without claims
+     */
+    static long claimCount(Object model) {
+        ModelReader<?> reader = model == null ? null : models.get(model.getClass());
+        return reader == null ? 0 : reader.claims(model);
+    }
+
+    /**
+     * @return the trimmed ISA06 interchange sender of a transaction model, or null
+     */
+    static String senderId(Object model) {
+        ModelReader<?> reader = model == null ? null : models.get(model.getClass());
+        String sender = reader == null ? null : reader.sender(model);
+        return sender == null || sender.isBlank() ? null : sender.trim();
+    }
+
+    /**
+     * The claim and sender accessors registered for one model class.
+     */
+    private static final class ModelReader<M> {
+
+        private final Class<M> type;
+        private final ToLongFunction<? super M> claims;
+        private final Function<? super M, String> sender;
+
+        ModelReader(Class<M> type, ToLongFunction<? super M> claims, Function<? super M, String> sender) {
+            this.type = type;
+            this.claims = claims;
+            this.sender = sender;
+        }
+
+        long claims(Object model) {
+            return claims.applyAsLong(type.cast(model));
+        }
+
+        String sender(Object model) {
+            return sender.apply(type.cast(model));
+        }
+    }
+
+    /**
+     * Counts bytes, segments and claim segments in an X12 byte stream fed to it in pieces.
+     * The element separator, segment terminator and sender (ISA06) are taken from the ISA
+     * segment; input that does not start with ISA is only counted in bytes.
+     */
+    static final class SegmentCounter {
+
+        private final byte[] claimSegment;
+        private final byte[] sender = new byte[15];
+        long bytes;
+        long segments;
+        long claims;
+        private boolean envelope = true;
+        private byte elementSeparator;
+        private byte terminator;
+        /** Bytes of {@link #claimSegment} matched at the start of this segment, or -1. */
+        private int matched;
+
+        SegmentCounter(String transactionType) {
+            String id = transactionType == null ? null : CLAIM_SEGMENTS.get(transactionType);
+            this.claimSegment = id == null ? new byte[0] : id.getBytes(StandardCharsets.US_ASCII);
+            this.matched = claimSegment.length == 0 ? -1 : 0;
+        }
+
+        /**
+         * @return the trimmed ISA06 sender, or null before a complete ISA segment was seen
+         */
+        String sender() {
+            if (!envelope || bytes < 106) {
+                return null;
+            }
+            String id = new String(sender, StandardCharsets.ISO_8859_1).trim();
+            return id.isEmpty() ? null : id;
+        }
+
+        void update(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                update(b[i]);
+            }
+        }
+
+        void update(byte b) {
+            long position = bytes++;
+            if (!envelope) {
+                return;
+            }
+            if (position < 106) {
+                if (position < 3) {
+                    envelope = b == "ISA".charAt((int) position);
+                } else if (position == 3) {
+                    elementSeparator = b;
+                } else if (position >= 35 && position < 50) {
+                    sender[(int) position - 35] = b;
+                } else if (position == 105) {
+                    terminator = b;
+                    segments++;
+                }
+                return;
+            }
+            if (b == terminator) {
+                segments++;
+                matched = claimSegment.length == 0 ? -1 : 0;
+            } else if (matched == 0 && (b == '\r' || b == '\n')) {
+                // line breaks after a terminator belong to no segment
+            } else if (matched >= 0 && matched < claimSegment.length) {
+                matched = b == claimSegment[matched] ? matched + 1 : -1;
+            } else if (matched == claimSegment.length) {
+                if (b == elementSeparator) {
+                    claims++;
+                }
+                matched = -1;
+            }
+        }
+    }
+}
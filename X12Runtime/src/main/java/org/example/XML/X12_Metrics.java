@@ -0,0 +1,393 @@
+package org.example.XML;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Dependency-free metrics registry with Prometheus text export.
+ * <p>
+ * The parsers record every conversion stage into {@link #global()} (see
+ * {@link X12_ConversionEvents}), labelled by stage, transaction type and trading partner
+ * (the ISA06 interchange sender):
+ * <pre>
+ *   x12_stage_duration_seconds     histogram   stage, transaction, partner
+ *   x12_stage_input_bytes_total    counter     stage, transaction, partner
+ *   x12_stage_output_bytes_total   counter     stage, transaction, partner
+ *   x12_segments_total             counter     stage, transaction, partner
+ *   x12_claims_total               counter     stage, transaction, partner
+ *   x12_stage_errors_total         counter     stage, transaction, partner
+ *   x12_engine_creation_seconds    histogram   config
+ * </pre>
+ * Rates such as bytes, segments or claims per second and error ratios are left to the
+ * scraper, e.g. {@code rate(x12_segments_total{stage="edi_to_xml"}[5m])}. Only the first
+ * {@value #MAX_PARTNERS} distinct partners get their own label value; later ones are
+ * recorded as {@code other} so a misbehaving feed cannot grow the registry without bound.
+ * <p>
+ * Counters and histogram buckets are striped or atomic, so recording never locks. Export
+ * the registry with {@link #scrape()}, {@link #writePrometheus(Writer)} or, for a node
+ * exporter's textfile collector, {@link #writePrometheus(Path)}.
+ */
+public final class X12_Metrics {
+
+    /** Partner label for input whose sender could not be determined. */
+    public static final String UNKNOWN_PARTNER = "unknown";
+
+    /** Partner label once {@value #MAX_PARTNERS} distinct partners have been seen. */
+    public static final String OTHER_PARTNER = "other";
+
+    static final int MAX_PARTNERS = 256;
+
+    private static final String[] STAGE_LABELS = {"stage", "transaction", "partner"};
+
+    private static final X12_Metrics GLOBAL = new X12_Metrics();
+
+    private final Map<String, Family<?>> families = new ConcurrentHashMap<>();
+    private final Set<String> partners = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @return the registry the parsers record into
+     */
+    public static X12_Metrics global() {
+        return GLOBAL;
+    }
+
+    // ---- metric types ----
+
+    /**
+     * A monotonically increasing count.
+     */
+    public static final class Counter {
+
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * A histogram of durations in nanoseconds, exported in seconds, with exponential bucket
+     * bounds from 50 µs doubling up to about 7 minutes.
+     */
+    public static final class Histogram {
+
+        private static final long[] BOUNDS = new long[24];
+
+        static {
+            for (int i = 0; i < BOUNDS.length; i++) {
+                BOUNDS[i] = 50_000L << i;
+            }
+        }
+
+        /** One slot per bound plus the overflow (+Inf) bucket. */
+        private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+        private final LongAdder sumNanos = new LongAdder();
+
+        public void record(long nanos) {
+            long value = Math.max(0, nanos);
+            int bucket = Arrays.binarySearch(BOUNDS, value);
+            counts.incrementAndGet(bucket >= 0 ? bucket : -bucket - 1);
+            sumNanos.add(value);
+        }
+
+        public long getCount() {
+            long count = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                count += counts.get(i);
+            }
+            return count;
+        }
+
+        public long getSumNanos() {
+            return sumNanos.sum();
+        }
+
+        /**
+         * @param quantile between 0 and 1
+         * @return upper bound in nanoseconds of the bucket holding the quantile,
+         * {@link Long#MAX_VALUE} if it falls in the overflow bucket, or 0 if nothing has been
+         * recorded
+         */
+        public long getQuantileNanos(double quantile) {
+            long count = getCount();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < BOUNDS.length; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return BOUNDS[i];
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        private void write(Writer out, String name, String labels) throws IOException {
+            long cumulative = 0;
+            for (int i = 0; i < BOUNDS.length; i++) {
+                cumulative += counts.get(i);
+                out.write(name + "_bucket" + withLabel(labels, "le", seconds(BOUNDS[i])) + " " + cumulative + "\n");
+            }
+            cumulative += counts.get(BOUNDS.length);
+            out.write(name + "_bucket" + withLabel(labels, "le", "+Inf") + " " + cumulative + "\n");
+            out.write(name + "_sum" + labels + " " + seconds(sumNanos.sum()) + "\n");
+            out.write(name + "_count" + labels + " " + cumulative + "\n");
+        }
+    }
+
+    /**
+     * A value read when the registry is exported, such as a queue length.
+     */
+    public static final class Gauge {
+
+        private final LongSupplier value;
+
+        Gauge(LongSupplier value) {
+            this.value = value;
+        }
+
+        public long get() {
+            return value.getAsLong();
+        }
+    }
+
+    private static final class Family<M> {
+
+        private final String name;
+        private final String help;
+        private final String type;
+        private final String[] labelNames;
+        private final Supplier<M> factory;
+        private final Map<List<String>, M> children = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String type, String[] labelNames, Supplier<M> factory) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelNames = labelNames;
+            this.factory = factory;
+        }
+
+        M get(String... labelValues) {
+            if (labelValues.length != labelNames.length) {
+                throw new IllegalArgumentException(name + " takes labels " + Arrays.toString(labelNames));
+            }
+            return children.computeIfAbsent(List.of(labelValues), key -> factory.get());
+        }
+
+        void write(Writer out) throws IOException {
+            if (children.isEmpty()) {
+                return;
+            }
+            out.write("# HELP " + name + " " + help + "\n");
+            out.write("# TYPE " + name + " " + type + "\n");
+            Map<String, M> sorted = new TreeMap<>();
+            children.forEach((values, metric) -> sorted.put(labels(labelNames, values), metric));
+            for (Map.Entry<String, M> child : sorted.entrySet()) {
+                if (child.getValue() instanceof Counter) {
+                    out.write(name + child.getKey() + " " + ((Counter) child.getValue()).get() + "\n");
+                } else if (child.getValue() instanceof Gauge) {
+                    out.write(name + child.getKey() + " " + ((Gauge) child.getValue()).get() + "\n");
+                } else {
+                    ((Histogram) child.getValue()).write(out, name, child.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Get or create a labelled counter. A name must always be used with the same labels.
+     */
+    public Counter counter(String name, String help, String[] labelNames, String... labelValues) {
+        return family(name, help, "counter", labelNames, Counter::new).get(labelValues);
+    }
+
+    /**
+     * Get or create a labelled duration histogram. A name must always be used with the same labels.
+     */
+    public Histogram histogram(String name, String help, String[] labelNames, String... labelValues) {
+        return family(name, help, "histogram", labelNames, Histogram::new).get(labelValues);
+    }
+
+    /**
+     * Register an unlabelled gauge read from {@code value} on every export; registering a
+     * name again keeps the first supplier.
+     */
+    public Gauge gauge(String name, String help, LongSupplier value) {
+        return family(name, help, "gauge", new String[0], () -> new Gauge(value)).get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <M> Family<M> family(String name, String help, String type, String[] labelNames, Supplier<M> factory) {
+        Family<?> family = families.computeIfAbsent(name, key -> new Family<>(name, help, type, labelNames.clone(), factory));
+        if (!family.type.equals(type) || !Arrays.equals(family.labelNames, labelNames)) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type
+                    + " with labels " + Arrays.toString(family.labelNames));
+        }
+        return (Family<M>) family;
+    }
+
+    // ---- conversion stages ----
+
+    /**
+     * Record a completed conversion stage.
+     */
+    void recordStage(String stage, String transaction, String partner, long nanos, long inputBytes, long outputBytes,
+                     long segments, long claims) {
+        String[] labels = {stage, transaction, partner(partner)};
+        histogram("x12_stage_duration_seconds", "Duration of a conversion stage", STAGE_LABELS, labels).record(nanos);
+        counter("x12_stage_input_bytes_total", "Bytes (characters for String input) read by a conversion stage",
+                STAGE_LABELS, labels).add(inputBytes);
+        counter("x12_stage_output_bytes_total", "Bytes (characters for String output) written by a conversion stage",
+                STAGE_LABELS, labels).add(outputBytes);
+        counter("x12_segments_total", "X12 segments read or written by a conversion stage", STAGE_LABELS, labels).add(segments);
+        counter("x12_claims_total", "Claims read or written by a conversion stage", STAGE_LABELS, labels).add(claims);
+        // Export a zero error count next to every successful series so error ratios are defined.
+        counter("x12_stage_errors_total", "Conversion stages that failed", STAGE_LABELS, labels);
+    }
+
+    /**
+     * Record a conversion stage that threw.
+     */
+    void recordError(String stage, String transaction, String partner) {
+        counter("x12_stage_errors_total", "Conversion stages that failed", STAGE_LABELS,
+                stage, transaction, partner(partner)).increment();
+    }
+
+    void recordEngineCreation(String config, long nanos) {
+        histogram("x12_engine_creation_seconds", "Time to build a Smooks engine from its config",
+                new String[]{"config"}, config).record(nanos);
+    }
+
+    /**
+     * @return the counter for a stage metric, e.g. {@code x12_claims_total}; for tests and
+     * local dashboards
+     */
+    public Counter stageCounter(String name, String stage, String transaction, String partner) {
+        Family<?> family = families.get(name);
+        if (family == null || !family.type.equals("counter")) {
+            return new Counter();
+        }
+        return (Counter) family.get(stage, transaction, partner);
+    }
+
+    /**
+     * @return the duration histogram for a stage
+     */
+    public Histogram stageHistogram(String stage, String transaction, String partner) {
+        return histogram("x12_stage_duration_seconds", "Duration of a conversion stage", STAGE_LABELS,
+                stage, transaction, partner);
+    }
+
+    private String partner(String partner) {
+        if (partner == null || partner.isBlank()) {
+            return UNKNOWN_PARTNER;
+        }
+        String trimmed = partner.trim();
+        if (partners.contains(trimmed)) {
+            return trimmed;
+        }
+        if (partners.size() >= MAX_PARTNERS) {
+            return OTHER_PARTNER;
+        }
+        partners.add(trimmed);
+        return trimmed;
+    }
+
+    // ---- export ----
+
+    /**
+     * Write every metric in the Prometheus text exposition format (version 0.0.4).
+     */
+    public void writePrometheus(Writer out) throws IOException {
+        List<String> names = new ArrayList<>(families.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            families.get(name).write(out);
+        }
+        out.flush();
+    }
+
+    /**
+     * @return every metric in the Prometheus text exposition format
+     */
+    public String scrape() {
+        StringWriter out = new StringWriter();
+        try {
+            writePrometheus(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Replace {@code file} with the current metrics. The file is written next to its target
+     * and moved into place, so a collector never reads it half written.
+     */
+    public void writePrometheus(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, scrape().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String labels(String[] names, List<String> values) {
+        if (names.length == 0) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder("{");
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(names[i]).append("=\"").append(escape(values.get(i))).append('"');
+        }
+        return out.append('}').toString();
+    }
+
+    private static String withLabel(String labels, String name, String value) {
+        String label = name + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+}
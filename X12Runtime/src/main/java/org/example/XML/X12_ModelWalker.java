@@ -0,0 +1,186 @@
+package org.example.XML;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reflective traversal support for the bound X12 models: which classes are models, their
+ * instance fields, a deep copy, and an estimate of the heap a model retains. The compactor,
+ * the structural diff and the parse cache all walk models through this class.
+ * <p>
+ * Models are the Lombok {@code @Data} classes of this package; their values are strings,
+ * lists and nested models. Fields and constructors are looked up once per class.
+ */
+public final class X12_ModelWalker {
+
+    /** Object header with compressed class pointers, as on a 64-bit HotSpot with default flags. */
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    /** A {@code String} and its {@code byte[]} value, before the characters. */
+    private static final int STRING_OVERHEAD = 24 + ARRAY_HEADER;
+    /** An {@code ArrayList} and its {@code Object[]} store, before the elements. */
+    private static final int LIST_OVERHEAD = 24 + ARRAY_HEADER;
+    private static final int BOXED_VALUE = 16;
+
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
+    private static final ClassValue<Constructor<?>> CONSTRUCTORS = new ClassValue<>() {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return constructor;
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException("Cannot copy " + type.getName() + ": no no-arg constructor", e);
+            }
+        }
+    };
+
+    private static final ClassValue<Long> SHALLOW_SIZES = new ClassValue<>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            long size = OBJECT_HEADER;
+            for (Field field : FIELDS.get(type)) {
+                size += field.getType().isPrimitive() ? primitiveSize(field.getType()) : REFERENCE;
+            }
+            return align(size);
+        }
+    };
+
+    private X12_ModelWalker() {
+    }
+
+    /**
+     * @return true if instances of {@code type} are bound model objects to be walked into
+     */
+    public static boolean isModel(Class<?> type) {
+        return !type.isEnum() && !type.isArray() && !type.isPrimitive()
+                && X12_ModelWalker.class.getPackageName().equals(type.getPackageName());
+    }
+
+    /**
+     * @return the non-static fields of {@code type} and its superclasses, made accessible
+     */
+    public static Field[] fields(Class<?> type) {
+        return FIELDS.get(type);
+    }
+
+    /**
+     * Deep-copy a bound model: lists and nested models are copied, strings and other values
+     * shared, as they are immutable.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T copy(T value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>(((List<?>) value).size());
+            for (Object element : (List<?>) value) {
+                copy.add(copy(element));
+            }
+            return (T) copy;
+        }
+        if (!isModel(value.getClass())) {
+            return value;
+        }
+        try {
+            Object copy = CONSTRUCTORS.get(value.getClass()).newInstance();
+            for (Field field : FIELDS.get(value.getClass())) {
+                field.set(copy, field.getType().isPrimitive() ? field.get(value) : copy(field.get(value)));
+            }
+            return (T) copy;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot copy " + value.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Estimate the heap retained by a bound model, counting every string, list and nested
+     * model it reaches. Strings shared between segments are counted each time, so the
+     * estimate errs high for compacted models.
+     *
+     * @return the estimated size in bytes, 0 for null
+     */
+    public static long estimateBytes(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            // Latin-1 compact strings: X12 content is ASCII.
+            return align(STRING_OVERHEAD + ((String) value).length());
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            int slots = value instanceof ArrayList ? arrayListCapacity(list.size()) : list.size();
+            long size = align(LIST_OVERHEAD + (long) REFERENCE * slots);
+            for (Object element : list) {
+                size += estimateBytes(element);
+            }
+            return size;
+        }
+        if (!isModel(value.getClass())) {
+            // A boxed or other JDK value; its fields are not ours to open.
+            return BOXED_VALUE;
+        }
+        long size = SHALLOW_SIZES.get(value.getClass());
+        for (Field field : FIELDS.get(value.getClass())) {
+            if (!field.getType().isPrimitive()) {
+                try {
+                    size += estimateBytes(field.get(value));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot read " + field, e);
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The capacity an {@code ArrayList} filled one element at a time reaches, as binding
+     * fills it: 10 on the first add, then half as much again each time it is full.
+     */
+    private static int arrayListCapacity(int size) {
+        int capacity = size == 0 ? 0 : 10;
+        while (capacity < size) {
+            capacity += capacity >> 1;
+        }
+        return capacity;
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
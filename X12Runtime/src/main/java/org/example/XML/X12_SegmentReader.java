@@ -0,0 +1,315 @@
+package org.example.XML;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Lightweight, single-pass reader over raw X12 EDI bytes.
+ * <p>
+ * The reader detects the element, component and segment delimiters from each ISA
+ * segment it encounters (so multi-interchange files with differing delimiters are
+ * handled), skips the whitespace/newlines the Smooks configs also tolerate between
+ * segments, and hands back one {@link Segment} at a time. Nothing beyond the current
+ * segment is held in memory, which makes it suitable for pre-checks that must run
+ * before the much more expensive Smooks/DFDL parse.
+ */
+public class X12_SegmentReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPos;
+    private int bufferLimit;
+
+    /** Absolute byte offset of {@code buffer[bufferPos]} within the input. */
+    private long position;
+    private long segmentCount;
+
+    private byte elementSeparator = '*';
+    private byte componentSeparator = ':';
+    private byte segmentTerminator = '~';
+
+    private byte[] scratch = new byte[256];
+
+    public X12_SegmentReader(InputStream in) {
+        this.in = in;
+    }
+
+    public X12_SegmentReader(byte[] ediInput) {
+        this(new ByteArrayInputStream(ediInput));
+    }
+
+    /**
+     * Read the next segment.
+     *
+     * @return the next segment, or {@code null} at end of input
+     * @throws IOException If the underlying stream fails or an ISA segment is truncated
+     */
+    public Segment next() throws IOException {
+        int b = read();
+        while (b != -1 && isWhitespace(b)) {
+            b = read();
+        }
+        if (b == -1) {
+            return null;
+        }
+        long offset = position - 1;
+        int length = 0;
+        scratch[length++] = (byte) b;
+
+        // ISA is fixed-format and declares the delimiters for everything up to IEA.
+        if (b == 'I' && peekIsa()) {
+            scratch[length++] = (byte) read();
+            scratch[length++] = (byte) read();
+            int separator = read();
+            if (separator == -1) {
+                throw new IOException("Truncated ISA segment at offset " + offset);
+            }
+            elementSeparator = (byte) separator;
+            scratch[length++] = elementSeparator;
+            int separatorsSeen = 1;
+            while (separatorsSeen < 16) {
+                int c = read();
+                if (c == -1) {
+                    throw new IOException("Truncated ISA segment at offset " + offset);
+                }
+                length = append(length, c);
+                if (c == elementSeparator) {
+                    separatorsSeen++;
+                }
+            }
+            int component = read();
+            int terminator = read();
+            if (component == -1 || terminator == -1) {
+                throw new IOException("Truncated ISA segment at offset " + offset);
+            }
+            componentSeparator = (byte) component;
+            segmentTerminator = (byte) terminator;
+            length = append(length, component);
+        } else {
+            int c;
+            while ((c = read()) != -1 && c != segmentTerminator) {
+                length = append(length, c);
+            }
+        }
+        segmentCount++;
+        return new Segment(Arrays.copyOf(scratch, length), offset, segmentCount,
+                elementSeparator, componentSeparator);
+    }
+
+    /**
+     * @return the number of segments returned so far
+     */
+    public long getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * @return the number of input bytes consumed so far
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    public byte getElementSeparator() {
+        return elementSeparator;
+    }
+
+    public byte getComponentSeparator() {
+        return componentSeparator;
+    }
+
+    public byte getSegmentTerminator() {
+        return segmentTerminator;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private int append(int length, int c) {
+        if (length == scratch.length) {
+            scratch = Arrays.copyOf(scratch, length * 2);
+        }
+        scratch[length] = (byte) c;
+        return length + 1;
+    }
+
+    private boolean peekIsa() throws IOException {
+        if (!ensure(3)) {
+            return false;
+        }
+        return buffer[bufferPos] == 'S' && buffer[bufferPos + 1] == 'A'
+                && !Character.isLetterOrDigit(buffer[bufferPos + 2]);
+    }
+
+    private int read() throws IOException {
+        if (bufferPos == bufferLimit && !fill()) {
+            return -1;
+        }
+        position++;
+        return buffer[bufferPos++] & 0xFF;
+    }
+
+    private boolean ensure(int count) throws IOException {
+        while (bufferLimit - bufferPos < count) {
+            if (bufferPos > 0) {
+                System.arraycopy(buffer, bufferPos, buffer, 0, bufferLimit - bufferPos);
+                bufferLimit -= bufferPos;
+                bufferPos = 0;
+            }
+            int n = in.read(buffer, bufferLimit, buffer.length - bufferLimit);
+            if (n == -1) {
+                return false;
+            }
+            bufferLimit += n;
+        }
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        bufferPos = 0;
+        bufferLimit = 0;
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n == -1) {
+            return false;
+        }
+        bufferLimit = n;
+        return true;
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    /**
+     * A single X12 segment as it appeared on the wire (without its terminator).
+     * <p>
+     * Elements are addressed the way the implementation guides number them:
+     * element 0 is the segment ID, so {@code getElement(6)} on an ISA segment is ISA06.
+     */
+    public static final class Segment {
+        private final byte[] data;
+        private final long offset;
+        private final long ordinal;
+        private final byte elementSeparator;
+        private final byte componentSeparator;
+        private String[] elements;
+
+        Segment(byte[] data, long offset, long ordinal, byte elementSeparator, byte componentSeparator) {
+            this.data = data;
+            this.offset = offset;
+            this.ordinal = ordinal;
+            this.elementSeparator = elementSeparator;
+            this.componentSeparator = componentSeparator;
+        }
+
+        /**
+         * @return the segment ID (e.g. {@code "CLM"})
+         */
+        public String getId() {
+            int end = 0;
+            while (end < data.length && data[end] != elementSeparator) {
+                end++;
+            }
+            return new String(data, 0, end, StandardCharsets.ISO_8859_1);
+        }
+
+        /**
+         * Fast check of the segment ID without allocating a String.
+         */
+        public boolean is(String id) {
+            int n = id.length();
+            if (data.length < n || (data.length > n && data[n] != elementSeparator)) {
+                return false;
+            }
+            for (int i = 0; i < n; i++) {
+                if (data[i] != id.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param index the element position, 0 being the segment ID
+         * @return the element value, or an empty string if the element is absent
+         */
+        public String getElement(int index) {
+            String[] values = elements();
+            return index < values.length ? values[index] : "";
+        }
+
+        /**
+         * @return the number of elements including the segment ID
+         */
+        public int getElementCount() {
+            return elements().length;
+        }
+
+        /**
+         * @return the raw segment bytes, excluding the segment terminator
+         */
+        public byte[] getBytes() {
+            return data;
+        }
+
+        /**
+         * @return the byte offset of the segment within the input
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return the 1-based position of the segment within the input
+         */
+        public long getOrdinal() {
+            return ordinal;
+        }
+
+        public byte getElementSeparator() {
+            return elementSeparator;
+        }
+
+        public byte getComponentSeparator() {
+            return componentSeparator;
+        }
+
+        private String[] elements() {
+            if (elements == null) {
+                int count = 1;
+                for (byte b : data) {
+                    if (b == elementSeparator) {
+                        count++;
+                    }
+                }
+                String[] values = new String[count];
+                int start = 0;
+                int index = 0;
+                for (int i = 0; i <= data.length; i++) {
+                    if (i == data.length || data[i] == elementSeparator) {
+                        values[index++] = new String(data, start, i - start, StandardCharsets.ISO_8859_1);
+                        start = i + 1;
+                    }
+                }
+                elements = values;
+            }
+            return elements;
+        }
+
+        @Override
+        public String toString() {
+            return new String(data, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package org.example.XML;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Helpers for the parsers' sink overloads.
+ * <p>
+ * Smooks closes its sink once filtering finishes and Jackson closes the target of
+ * {@code writeValue}; the sink overloads must leave the caller's stream, writer or channel
+ * open, so every target is wrapped to turn {@code close()} into {@code flush()}.
+ */
+final class X12_Sinks {
+
+    /** Size of the chunks handed from a {@link #pipe} writer to its reader. */
+    static final int PIPE_CHUNK_SIZE = 64 * 1024;
+    /** Chunks a {@link #pipe} writer may run ahead of its reader. */
+    static final int PIPE_QUEUED_CHUNKS = 4;
+
+    private static final AtomicInteger PIPE_COUNT = new AtomicInteger();
+
+    private X12_Sinks() {
+    }
+
+    /**
+     * Writes to a stream, as the parsers' {@code writeXml} and streaming {@code parseEDI}
+     * overloads do.
+     */
+    @FunctionalInterface
+    interface StreamWriter {
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    /**
+     * Stream what {@code writer} writes, for a serializer that reads its input. The writer runs
+     * on a daemon thread and hands chunks over through a bounded queue, so at most
+     * {@code PIPE_QUEUED_CHUNKS + 2} chunks are held however much it writes. A failure of the
+     * writer is thrown by {@code read} once the chunks before it are consumed; closing the
+     * stream early stops the writer.
+     */
+    static InputStream pipe(String transactionType, StreamWriter writer) {
+        return pipe("x12-" + transactionType + "-pipe-", PIPE_QUEUED_CHUNKS, "Writing the piped output failed", writer);
+    }
+
+    /**
+     * Stream what any producer writes, as {@link #pipe(String, StreamWriter)} does for
+     * serializers; {@code X12_Compression} runs its decompressors this way.
+     *
+     * @param threadNamePrefix prefix of the producer thread's name, before a running count
+     * @param queuedChunks     chunks the producer may run ahead of the reader
+     * @param failureMessage   message of the exception {@code read} throws when the producer fails
+     */
+    static InputStream pipe(String threadNamePrefix, int queuedChunks, String failureMessage, StreamWriter writer) {
+        return new PipeInputStream(threadNamePrefix, queuedChunks, failureMessage, writer);
+    }
+
+    static OutputStream nonClosing(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    static Writer nonClosing(Writer out) {
+        return new FilterWriter(out) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    static OutputStream nonClosing(WritableByteChannel channel) {
+        return nonClosing(Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Write a model with the given mapper, recording a {@link X12_ConversionEvents.ModelToText} event.
+     */
+    static void writeValue(ObjectMapper mapper, Object value, OutputStream out, String transactionType) throws IOException {
+        X12_ConversionEvents.ModelToText event = X12_ConversionEvents.modelToText(transactionType, format(mapper));
+        try {
+            writer(mapper).writeValue(event.countOutput(out), value);
+        } catch (IOException | RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finishModel(value);
+    }
+
+    static void writeValue(ObjectMapper mapper, Object value, Writer out, String transactionType) throws IOException {
+        X12_ConversionEvents.ModelToText event = X12_ConversionEvents.modelToText(transactionType, format(mapper));
+        try {
+            writer(mapper).writeValue(event.countOutput(out), value);
+        } catch (IOException | RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finishModel(value);
+    }
+
+    /**
+     * Write a model through its generated binder on a generator from the given mapper (see
+     * {@link X12_Binders#write}), recording a {@link X12_ConversionEvents.ModelToText} event.
+     */
+    static <T> void writeBound(ObjectMapper mapper, T value, Class<T> type, boolean nonEmpty, OutputStream out,
+                               String transactionType) throws IOException {
+        X12_ConversionEvents.ModelToText event = X12_ConversionEvents.modelToText(transactionType, format(mapper));
+        try {
+            X12_Binders.write(mapper, value, type, nonEmpty, event.countOutput(out));
+        } catch (IOException | RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finishModel(value);
+    }
+
+    static <T> void writeBound(ObjectMapper mapper, T value, Class<T> type, boolean nonEmpty, Writer out,
+                               String transactionType) throws IOException {
+        X12_ConversionEvents.ModelToText event = X12_ConversionEvents.modelToText(transactionType, format(mapper));
+        try {
+            X12_Binders.write(mapper, value, type, nonEmpty, event.countOutput(out));
+        } catch (IOException | RuntimeException e) {
+            event.fail();
+            throw e;
+        }
+        event.finishModel(value);
+    }
+
+    private static String format(ObjectMapper mapper) {
+        return mapper.getFactory().getFormatName().toLowerCase(Locale.ROOT);
+    }
+
+    private static ObjectWriter writer(ObjectMapper mapper) {
+        return mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    private static final class PipeInputStream extends InputStream {
+        private static final byte[] END = new byte[0];
+
+        private final BlockingQueue<byte[]> chunks;
+        private final String failureMessage;
+        private final Thread worker;
+        private volatile Throwable failure;
+        private volatile boolean closed;
+        private byte[] current = END;
+        private int position;
+        private boolean finished;
+
+        PipeInputStream(String threadNamePrefix, int queuedChunks, String failureMessage, StreamWriter writer) {
+            this.chunks = new ArrayBlockingQueue<>(queuedChunks);
+            this.failureMessage = failureMessage;
+            this.worker = new Thread(() -> pump(writer), threadNamePrefix + PIPE_COUNT.incrementAndGet());
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        private void pump(StreamWriter writer) {
+            try (ChunkOutputStream out = new ChunkOutputStream()) {
+                writer.writeTo(out);
+            } catch (Exception | Error e) {
+                if (!closed) {
+                    failure = e;
+                }
+            } finally {
+                // Always end the queue, or the reader would wait for a chunk that never comes.
+                if (!closed) {
+                    try {
+                        chunks.put(END);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return current[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return current.length - position;
+        }
+
+        private boolean fill() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            while (position == current.length) {
+                if (finished) {
+                    return false;
+                }
+                try {
+                    current = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for piped output");
+                }
+                position = 0;
+                if (current == END) {
+                    finished = true;
+                    if (failure != null) {
+                        throw new IOException(failureMessage, failure);
+                    }
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            worker.interrupt();
+            chunks.clear();
+        }
+
+        /**
+         * The writer's end: fills a chunk at a time and blocks while the queue is full.
+         */
+        private final class ChunkOutputStream extends OutputStream {
+            private byte[] chunk = new byte[PIPE_CHUNK_SIZE];
+            private int count;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (count == chunk.length) {
+                    send();
+                }
+                chunk[count++] = (byte) b;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    if (count == chunk.length) {
+                        send();
+                    }
+                    int copied = Math.min(len, chunk.length - count);
+                    System.arraycopy(b, off, chunk, count, copied);
+                    count += copied;
+                    off += copied;
+                    len -= copied;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (count > 0) {
+                    send();
+                }
+            }
+
+            private void send() throws IOException {
+                if (closed) {
+                    throw new IOException("Pipe closed by its reader");
+                }
+                try {
+                    chunks.put(count == chunk.length ? chunk : Arrays.copyOf(chunk, count));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while handing over piped output");
+                }
+                chunk = new byte[PIPE_CHUNK_SIZE];
+                count = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.XML;
+
+import lombok.extern.slf4j.Slf4j;
+import org.smooks.FilterSettings;
+import org.smooks.Smooks;
+import org.smooks.api.resource.visitor.sax.ng.AfterVisitor;
+import org.smooks.engine.resource.visitor.dom.DomModelCreator;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of initialized Smooks engines.
+ * <p>
+ * Creating a {@link Smooks} instance compiles the DFDL schema behind the config, which
+ * dominates the cost of converting small documents. Smooks instances are thread-safe
+ * once configured, so each (config, validation mode) pair is built once and shared.
+ * Engines handed out by this class must not be closed by callers.
+ */
+@Slf4j
+public final class X12_SmooksEngines {
+
+    private static final Map<String, Smooks> engines = new ConcurrentHashMap<>();
+
+    private X12_SmooksEngines() {
+    }
+
+    /**
+     * Get the cached EDI -> XML engine for a parse config as shipped.
+     *
+     * @param config classpath resource of the Smooks parse config (e.g. {@code parse-277-config.xml})
+     */
+    public static Smooks parser(String config) {
+        return parser(config, X12_ValidationMode.FULL);
+    }
+
+    /**
+     * Get the cached EDI -> XML engine for a parse config at the given validation tier.
+     *
+     * @param config classpath resource of the Smooks parse config (e.g. {@code parse-837-config.xml})
+     * @param mode   the validation tier; {@link X12_ValidationMode#FULL} uses the config as shipped
+     */
+    public static Smooks parser(String config, X12_ValidationMode mode) {
+        return engines.computeIfAbsent(config + "#" + mode.getDfdlValidationMode(),
+                key -> createParser(config, mode));
+    }
+
+    /**
+     * Get the cached XML -> EDI engine for a serialize config.
+     *
+     * @param config classpath resource of the Smooks serialize config (e.g. {@code serialize-837-config.xml})
+     */
+    public static Smooks serializer(String config) {
+        return engines.computeIfAbsent(config, key -> {
+            Smooks smooks = create(config, null);
+            smooks.setFilterSettings(FilterSettings.newSaxNgSettings().setDefaultSerializationOn(false));
+            return smooks;
+        });
+    }
+
+    /**
+     * Get the cached engine that hands each {@code selector} element of a parse config's
+     * output to {@code visitor} as a complete DOM fragment, while the rest of the document
+     * streams past. The visitor is fixed when the engine is first built, so it should take
+     * any per-call state from the execution context.
+     */
+    static Smooks fragmentParser(String config, String selector, AfterVisitor visitor) {
+        return engines.computeIfAbsent(config + "@" + selector, key -> {
+            Smooks smooks = create(config, null);
+            try {
+                smooks.addVisitor(new DomModelCreator(), selector);
+            } catch (ParserConfigurationException e) {
+                throw new IllegalStateException("Cannot build DOM fragments for " + selector, e);
+            }
+            smooks.addVisitor(visitor, selector);
+            return smooks;
+        });
+    }
+
+    /**
+     * Close and discard every cached engine.
+     */
+    public static void clear() {
+        engines.values().forEach(Smooks::close);
+        engines.clear();
+    }
+
+    private static Smooks createParser(String config, X12_ValidationMode mode) {
+        return create(config, mode == X12_ValidationMode.FULL ? null : mode.getDfdlValidationMode());
+    }
+
+    private static Smooks create(String config, String validationMode) {
+        long start = System.nanoTime();
+        X12_ConversionEvents.EngineCreation event = X12_ConversionEvents.engineCreation(config,
+                validationMode == null ? "as configured" : validationMode);
+        try {
+            Smooks smooks;
+            if (validationMode == null) {
+                smooks = new Smooks(config);
+            } else {
+                smooks = new Smooks(new ByteArrayInputStream(withValidationMode(config, validationMode)));
+            }
+            event.commit();
+            X12_Metrics.global().recordEngineCreation(config, System.nanoTime() - start);
+            log.info("Initialized Smooks engine for {} (validationMode={}) in {} ms", config,
+                    validationMode == null ? "as configured" : validationMode, (System.nanoTime() - start) / 1_000_000);
+            return smooks;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load Smooks config " + config, e);
+        } catch (SAXException e) {
+            throw new IllegalStateException("Invalid Smooks config " + config, e);
+        }
+    }
+
+    /**
+     * Read a Smooks config from the classpath and override the validationMode of its EDI reader.
+     */
+    static byte[] withValidationMode(String config, String validationMode) throws IOException {
+        try (InputStream in = X12_SmooksEngines.class.getClassLoader().getResourceAsStream(config)) {
+            if (in == null) {
+                throw new IOException("Smooks config not found on classpath: " + config);
+            }
+            String xml = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return xml.replaceAll("validationMode=\"[A-Za-z]+\"", "validationMode=\"" + validationMode + "\"")
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
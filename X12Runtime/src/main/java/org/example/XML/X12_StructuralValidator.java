@@ -0,0 +1,286 @@
+package org.example.XML;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fast envelope validator for X12 interchanges.
+ * <p>
+ * In a single streaming pass over the raw EDI it checks what DFDL schema validation
+ * does not: that SE01 matches the number of segments in each transaction set, that
+ * GE01 and IEA01 match the number of transaction sets and functional groups, that
+ * the trailer control numbers (SE02, GE02, IEA02) match their headers, and that
+ * every envelope is properly opened and closed. Only envelope segments are
+ * inspected, so the cost is little more than reading the bytes.
+ */
+public final class X12_StructuralValidator {
+
+    private X12_StructuralValidator() {
+    }
+
+    public static Result validate(byte[] ediInput) throws IOException {
+        return validate(ediInput, null);
+    }
+
+    public static Result validate(InputStream ediInput) throws IOException {
+        return validate(ediInput, null);
+    }
+
+    /**
+     * Validate the EDI, reporting every segment and error to the listener as the pass proceeds.
+     */
+    public static Result validate(byte[] ediInput, Listener listener) throws IOException {
+        try (X12_SegmentReader reader = new X12_SegmentReader(ediInput)) {
+            return validate(reader, listener);
+        }
+    }
+
+    /**
+     * Validate the EDI, reporting every segment and error to the listener as the pass proceeds.
+     */
+    public static Result validate(InputStream ediInput, Listener listener) throws IOException {
+        try (X12_SegmentReader reader = new X12_SegmentReader(ediInput)) {
+            return validate(reader, listener);
+        }
+    }
+
+    /**
+     * Validate the EDI and throw if any structural error is found.
+     *
+     * @throws StructuralValidationException If the envelope or counts are invalid.
+     */
+    public static Result requireValid(byte[] ediInput) throws IOException, StructuralValidationException {
+        Result result = validate(ediInput);
+        if (!result.isValid()) {
+            throw new StructuralValidationException(result);
+        }
+        return result;
+    }
+
+    static Result validate(X12_SegmentReader reader, Listener listener) throws IOException {
+        Result result = new Result(listener);
+        String interchangeControl = null;
+        String groupControl = null;
+        String transactionControl = null;
+        int groupCount = 0;
+        int transactionCount = 0;
+        int segmentCount = 0;
+
+        X12_SegmentReader.Segment segment;
+        while ((segment = reader.next()) != null) {
+            result.segmentCount++;
+            if (transactionControl != null) {
+                segmentCount++;
+            }
+            if (segment.is("ISA")) {
+                if (interchangeControl != null) {
+                    result.error(segment, ErrorType.MISSING_TRAILER, "ISA found before IEA closed interchange " + interchangeControl);
+                }
+                interchangeControl = segment.getElement(13).trim();
+                groupCount = 0;
+                result.interchangeCount++;
+            } else if (segment.is("GS")) {
+                if (interchangeControl == null) {
+                    result.error(segment, ErrorType.UNEXPECTED_SEGMENT, "GS found outside of an interchange");
+                }
+                if (groupControl != null) {
+                    result.error(segment, ErrorType.MISSING_TRAILER, "GS found before GE closed group " + groupControl);
+                }
+                groupControl = segment.getElement(6).trim();
+                transactionCount = 0;
+                groupCount++;
+            } else if (segment.is("ST")) {
+                if (groupControl == null) {
+                    result.error(segment, ErrorType.UNEXPECTED_SEGMENT, "ST found outside of a functional group");
+                }
+                if (transactionControl != null) {
+                    result.error(segment, ErrorType.MISSING_TRAILER, "ST found before SE closed transaction set " + transactionControl);
+                }
+                transactionControl = segment.getElement(2).trim();
+                segmentCount = 1;
+                transactionCount++;
+                result.transactionSetCount++;
+            } else if (segment.is("SE")) {
+                if (transactionControl == null) {
+                    result.error(segment, ErrorType.UNEXPECTED_SEGMENT, "SE found without a matching ST");
+                } else {
+                    checkCount(result, segment, "SE01 segment count", segmentCount);
+                    checkControl(result, segment, "SE02", transactionControl);
+                }
+                transactionControl = null;
+            } else if (segment.is("GE")) {
+                if (groupControl == null) {
+                    result.error(segment, ErrorType.UNEXPECTED_SEGMENT, "GE found without a matching GS");
+                } else {
+                    checkCount(result, segment, "GE01 transaction set count", transactionCount);
+                    checkControl(result, segment, "GE02", groupControl);
+                }
+                groupControl = null;
+            } else if (segment.is("IEA")) {
+                if (interchangeControl == null) {
+                    result.error(segment, ErrorType.UNEXPECTED_SEGMENT, "IEA found without a matching ISA");
+                } else {
+                    checkCount(result, segment, "IEA01 functional group count", groupCount);
+                    checkControl(result, segment, "IEA02", interchangeControl);
+                }
+                interchangeControl = null;
+            } else if (segment.is("TA1") && interchangeControl != null && groupControl == null) {
+                // Interchange acknowledgements sit directly inside ISA/IEA.
+                result.ta1Count++;
+            } else if (transactionControl == null) {
+                result.error(segment, ErrorType.UNEXPECTED_SEGMENT, segment.getId() + " segment found outside of a transaction set");
+            } else if (!isSegmentId(segment)) {
+                result.error(segment, ErrorType.UNRECOGNIZED_SEGMENT, "Unrecognized segment ID '" + segment.getId() + "'");
+            }
+            if (listener != null) {
+                listener.onSegment(segment);
+            }
+        }
+
+        long end = reader.getPosition();
+        if (transactionControl != null) {
+            result.error(new ValidationError("SE", -1, end, ErrorType.MISSING_TRAILER, "Missing SE for transaction set " + transactionControl));
+        }
+        if (groupControl != null) {
+            result.error(new ValidationError("GE", -1, end, ErrorType.MISSING_TRAILER, "Missing GE for group " + groupControl));
+        }
+        if (interchangeControl != null) {
+            result.error(new ValidationError("IEA", -1, end, ErrorType.MISSING_TRAILER, "Missing IEA for interchange " + interchangeControl));
+        }
+        if (result.interchangeCount == 0) {
+            result.error(new ValidationError("ISA", -1, 0, ErrorType.UNEXPECTED_SEGMENT, "No ISA interchange header found"));
+        }
+        if (listener != null) {
+            listener.onEnd();
+        }
+        return result;
+    }
+
+    private static void checkCount(Result result, X12_SegmentReader.Segment segment, String what, int actual) {
+        String declared = segment.getElement(1).trim();
+        if (!declared.equals(Integer.toString(actual))) {
+            result.error(segment, ErrorType.COUNT_MISMATCH, what + " is " + declared + " but " + actual + " were found");
+        }
+    }
+
+    private static void checkControl(Result result, X12_SegmentReader.Segment segment, String element, String expected) {
+        String actual = segment.getElement(2).trim();
+        if (!actual.equals(expected)) {
+            result.error(segment, ErrorType.CONTROL_NUMBER_MISMATCH, element + " control number " + actual + " does not match header " + expected);
+        }
+    }
+
+    private static boolean isSegmentId(X12_SegmentReader.Segment segment) {
+        byte[] data = segment.getBytes();
+        int length = 0;
+        while (length < data.length && data[length] != segment.getElementSeparator()) {
+            byte b = data[length];
+            if (!((b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9'))) {
+                return false;
+            }
+            length++;
+        }
+        return length == 2 || length == 3;
+    }
+
+    /**
+     * Receives the segments and errors of a validation pass as they are encountered.
+     * <p>
+     * Errors concerning a segment are reported before that segment is passed to
+     * {@link #onSegment}, so a listener tracking envelopes can attribute trailer errors
+     * to the envelope the trailer closes.
+     */
+    public interface Listener {
+        void onSegment(X12_SegmentReader.Segment segment);
+
+        void onError(ValidationError error);
+
+        void onEnd();
+    }
+
+    /**
+     * Kinds of structural error.
+     */
+    public enum ErrorType {
+        /** SE01, GE01 or IEA01 does not match the number of items found. */
+        COUNT_MISMATCH,
+        /** A trailer control number does not match its header. */
+        CONTROL_NUMBER_MISMATCH,
+        /** An envelope was not closed by its trailer. */
+        MISSING_TRAILER,
+        /** A segment appeared where the envelope structure does not allow it. */
+        UNEXPECTED_SEGMENT,
+        /** A segment ID that is not 2-3 uppercase alphanumeric characters. */
+        UNRECOGNIZED_SEGMENT
+    }
+
+    /**
+     * Outcome of a structural validation pass.
+     */
+    @Data
+    public static class Result {
+        private long segmentCount;
+        private int interchangeCount;
+        private int transactionSetCount;
+        private int ta1Count;
+        private List<ValidationError> errors = new ArrayList<>();
+        @ToString.Exclude
+        @EqualsAndHashCode.Exclude
+        private final transient Listener listener;
+
+        public boolean isValid() {
+            return errors.isEmpty();
+        }
+
+        void error(X12_SegmentReader.Segment segment, ErrorType type, String message) {
+            error(new ValidationError(segment.getId(), segment.getOrdinal(), segment.getOffset(), type, message));
+        }
+
+        void error(ValidationError error) {
+            errors.add(error);
+            if (listener != null) {
+                listener.onError(error);
+            }
+        }
+    }
+
+    /**
+     * A single structural error.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class ValidationError {
+        /** ID of the segment the error was found on. */
+        private String segmentId;
+        /** 1-based segment position within the input, or -1 if the error was detected at end of input. */
+        private long segmentPosition;
+        /** Byte offset of the segment within the input. */
+        private long byteOffset;
+        private ErrorType type;
+        private String message;
+    }
+
+    /**
+     * Raised by the parsers when {@link X12_ValidationMode#STRUCTURAL} validation fails.
+     */
+    public static class StructuralValidationException extends SAXException {
+        private final transient Result result;
+
+        public StructuralValidationException(Result result) {
+            super("EDI failed structural validation: " + result.getErrors());
+            this.result = result;
+        }
+
+        public Result getResult() {
+            return result;
+        }
+    }
+}
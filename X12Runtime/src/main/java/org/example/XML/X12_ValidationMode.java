@@ -0,0 +1,50 @@
+package org.example.XML;
+
+/**
+ * Validation tiers selectable on the parser APIs.
+ * <p>
+ * The Smooks parse configs ship with {@code validationMode="Full"}, which is the right
+ * choice while onboarding a trading partner but costs significant CPU on trusted,
+ * high-volume feeds. Each tier is backed by its own cached Smooks engine
+ * (see {@link X12_SmooksEngines}).
+ */
+public enum X12_ValidationMode {
+
+    /**
+     * No validation: the DFDL infoset is not validated and no envelope checks run.
+     */
+    NONE("Off", false),
+
+    /**
+     * Envelope and count checks only: a single streaming pass verifies SE/GE/IEA counts and
+     * control-number matching (see {@link X12_StructuralValidator}) before a non-validating parse.
+     */
+    STRUCTURAL("Off", true),
+
+    /**
+     * Full DFDL schema validation, as configured in the shipped parse configs.
+     */
+    FULL("Full", false);
+
+    private final String dfdlValidationMode;
+    private final boolean structuralPrevalidation;
+
+    X12_ValidationMode(String dfdlValidationMode, boolean structuralPrevalidation) {
+        this.dfdlValidationMode = dfdlValidationMode;
+        this.structuralPrevalidation = structuralPrevalidation;
+    }
+
+    /**
+     * @return the value used for the {@code validationMode} attribute of the Smooks EDI parser
+     */
+    public String getDfdlValidationMode() {
+        return dfdlValidationMode;
+    }
+
+    /**
+     * @return true if the structural pre-validator runs ahead of the Smooks parse
+     */
+    public boolean isStructuralPrevalidation() {
+        return structuralPrevalidation;
+    }
+}